@@ -0,0 +1,52 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Entry point of the benchmark jar. Same command line as the JMH
+ * {@link Main}, except that the GC profiler is always enabled, so that the
+ * allocation rate of each benchmark is recorded with its score.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(final String[] args) throws Exception {
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    if (!hasGcProfiler(arguments)) {
+      arguments.add(0, "-prof");
+      arguments.add(1, "gc");
+    }
+    Main.main(arguments.toArray(new String[arguments.size()]));
+  }
+
+  private static boolean hasGcProfiler(final List<String> arguments) {
+    for (int i = 0; i + 1 < arguments.size(); i++) {
+      if ("-prof".equals(arguments.get(i)) && arguments.get(i + 1).matches("gc(:.*)?")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,96 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.client;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.client.util.TransferObjectFactory;
+import cern.c2mon.server.common.alarm.Alarm;
+import cern.c2mon.server.common.alarm.TagWithAlarmsImpl;
+import cern.c2mon.server.test.CacheObjectCreation;
+import cern.c2mon.shared.client.serializer.TransferTagSerializer;
+import cern.c2mon.shared.client.tag.TransferTagValueImpl;
+
+/**
+ * JSON serialization of the tag updates published to the clients: on the
+ * server side ({@link #toJson()}) and on the client side ({@link #fromJson()}).
+ *
+ * <p>The tags are the {@link CacheObjectCreation} fixtures, converted the way
+ * the server publishes them. Run with {@code -prof gc} (the default of the
+ * benchmark jar) to see the allocation per update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TransferTagSerializerBenchmark {
+
+  @Param({"DATATAG", "DATATAG_WITH_ALARMS", "RULETAG"})
+  private String tagType;
+
+  private TransferTagValueImpl tagValue;
+
+  private String json;
+
+  @Setup
+  public void setUp() {
+    switch (tagType) {
+      case "DATATAG":
+        tagValue = TransferObjectFactory.createTransferTagValue(
+            new TagWithAlarmsImpl(CacheObjectCreation.createTestDataTag(), Collections.<Alarm>emptyList()));
+        break;
+      case "DATATAG_WITH_ALARMS":
+        tagValue = TransferObjectFactory.createTransferTagValue(
+            new TagWithAlarmsImpl(CacheObjectCreation.createTestDataTag3(),
+                Arrays.<Alarm>asList(CacheObjectCreation.createTestAlarm1(), CacheObjectCreation.createTestAlarm3())));
+        break;
+      case "RULETAG":
+        tagValue = TransferObjectFactory.createTransferTagValue(
+            new TagWithAlarmsImpl(CacheObjectCreation.createTestRuleTag(), Collections.<Alarm>emptyList()));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown tag type " + tagType);
+    }
+    json = TransferTagSerializer.toJson(tagValue);
+  }
+
+  @Benchmark
+  public String toJson() {
+    return TransferTagSerializer.toJson(tagValue);
+  }
+
+  @Benchmark
+  public TransferTagValueImpl fromJson() {
+    return TransferTagSerializer.fromJson(json, TransferTagValueImpl.class);
+  }
+}
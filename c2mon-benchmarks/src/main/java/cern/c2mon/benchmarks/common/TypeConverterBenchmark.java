@@ -0,0 +1,84 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.shared.common.type.TypeConverter;
+
+/**
+ * {@link TypeConverter#cast(Object, String)}, called by the DAQ for every
+ * value update, per tag data type. {@code SAME} values already have the tag
+ * data type (the usual case), {@code STRING} and {@code NUMBER} values need
+ * a conversion.
+ *
+ * <p>Run with {@code -prof gc} (the default of the benchmark jar) to see the
+ * allocation per cast.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TypeConverterBenchmark {
+
+  @Param({"Boolean", "Integer", "Long", "Float", "Double", "String"})
+  private String dataType;
+
+  @Param({"SAME", "STRING", "NUMBER"})
+  private String input;
+
+  private Object value;
+
+  @Setup
+  public void setUp() {
+    switch (input) {
+      case "SAME":
+        value = TypeConverter.cast("1", dataType);
+        break;
+      case "STRING":
+        value = "1";
+        break;
+      case "NUMBER":
+        value = 1;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown input " + input);
+    }
+    if (TypeConverter.cast(value, dataType) == null) {
+      throw new IllegalStateException("Cannot cast " + value + " to " + dataType);
+    }
+  }
+
+  @Benchmark
+  public Object cast() {
+    return TypeConverter.cast(value, dataType);
+  }
+}
@@ -0,0 +1,106 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.daq;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.daq.tools.DataTagValueFilter;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.DataTagConstants;
+import cern.c2mon.shared.common.datatag.DataTagDeadband;
+import cern.c2mon.shared.common.datatag.SourceDataTag;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.ValueUpdate;
+import cern.c2mon.shared.common.filter.FilteredDataTagValue.FilterType;
+
+/**
+ * Filtering decision taken by the DAQ for every valid value update of an
+ * analog tag: the value deadband check alone and the complete check of
+ * {@code EquipmentSenderValid}.
+ *
+ * <p>The updates oscillate around the current value, so that about half of
+ * them are within the deadband. Run with {@code -prof gc} (the default of the
+ * benchmark jar) to see the allocation per update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DataTagValueFilterBenchmark {
+
+  private static final int UPDATES = 1024;
+
+  @Param({"DEADBAND_NONE", "DEADBAND_PROCESS_ABSOLUTE", "DEADBAND_PROCESS_RELATIVE"})
+  private String deadbandType;
+
+  private DataTagValueFilter filter;
+
+  private SourceDataTag tag;
+
+  private SourceDataTagQuality validQuality;
+
+  private ValueUpdate[] updates;
+
+  private int index;
+
+  @Setup
+  public void setUp() throws Exception {
+    short type = DataTagDeadband.class.getField(deadbandType).getShort(null);
+    DataTagAddress address = new DataTagAddress(null, 100, type, 1.0f, 0, DataTagConstants.PRIORITY_LOW, false);
+    tag = new SourceDataTag(1000L, "CERN.EQUIPMENT.ANALOG_TAG", false, DataTagConstants.MODE_OPERATIONAL,
+        "Double", address);
+
+    long now = System.currentTimeMillis();
+    tag.update(new ValueUpdate(100.0d, now));
+
+    filter = new DataTagValueFilter();
+    validQuality = new SourceDataTagQuality();
+    updates = new ValueUpdate[UPDATES];
+    for (int i = 0; i < UPDATES; i++) {
+      updates[i] = new ValueUpdate(100.0d + ((i % 4) - 1.5d), now + 1 + i);
+    }
+  }
+
+  @Benchmark
+  public boolean valueDeadband() {
+    return filter.isValueDeadbandFiltered(tag, nextUpdate());
+  }
+
+  @Benchmark
+  public FilterType candidateForFiltering() {
+    return filter.isCandidateForFiltering(tag, nextUpdate(), validQuality);
+  }
+
+  private ValueUpdate nextUpdate() {
+    index = (index + 1) & (UPDATES - 1);
+    return updates[index];
+  }
+}
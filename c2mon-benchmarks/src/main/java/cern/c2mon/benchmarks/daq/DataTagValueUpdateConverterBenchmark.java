@@ -0,0 +1,127 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.daq;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.benchmarks.jms.SessionUtils;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagQualityCode;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateConverter;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateFormat;
+
+/**
+ * Compares the JSON and binary wire formats of the
+ * {@link DataTagValueUpdateConverter}, on the DAQ side ({@link #toMessage()})
+ * and on the server side ({@link #fromMessage()}).
+ *
+ * <p>The update mixes the value types typically published by DAQs. Run with
+ * {@code -prof gc} to compare the allocation rates of both formats.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DataTagValueUpdateConverterBenchmark {
+
+  @Param({"JSON", "BINARY"})
+  private DataTagValueUpdateFormat format;
+
+  /** Number of values per update: a single value or a full SynchroBuffer window */
+  @Param({"1", "10", "100"})
+  private int valuesPerUpdate;
+
+  private DataTagValueUpdateConverter converter;
+
+  private Session session;
+
+  private DataTagValueUpdate update;
+
+  private Message message;
+
+  @Setup
+  public void setUp() throws JMSException {
+    converter = new DataTagValueUpdateConverter();
+    converter.setFormat(format);
+    session = SessionUtils.messageCreatingSession();
+
+    update = new DataTagValueUpdate(1000L, 4242424242L);
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < valuesPerUpdate; i++) {
+      update.addValue(createValue(100000L + i, now + i));
+    }
+    message = converter.toMessage(update, session);
+  }
+
+  @Benchmark
+  public Message toMessage() throws JMSException {
+    return converter.toMessage(update, session);
+  }
+
+  @Benchmark
+  public Object fromMessage() throws JMSException {
+    if (message instanceof ActiveMQBytesMessage) {
+      // rewind the body for reading, as the broker does on reception
+      ((ActiveMQBytesMessage) message).reset();
+    }
+    return converter.fromMessage(message);
+  }
+
+  private static SourceDataTagValue createValue(final long id, final long timestamp) {
+    Object value;
+    switch ((int) (id % 4)) {
+      case 0:
+        value = timestamp * 0.001d;
+        break;
+      case 1:
+        value = (int) id;
+        break;
+      case 2:
+        value = id % 3 == 0;
+        break;
+      default:
+        value = "STATE_" + id;
+        break;
+    }
+    return new SourceDataTagValue(id, "CERN.EQUIPMENT.SECTOR_" + (id % 8) + ".TAG_" + id, false,
+        value, new SourceDataTagQuality(SourceDataTagQualityCode.OK), new Timestamp(timestamp),
+        DataTagAddress.PRIORITY_LOW, false, "", DataTagAddress.TTL_FOREVER);
+  }
+}
@@ -0,0 +1,116 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.daq;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+import cern.c2mon.shared.util.buffer.SynchroBuffer;
+
+/**
+ * Pushing tag values into the {@link SynchroBuffer} of the DAQ process
+ * message sender, while its firing thread pulls them with the window
+ * settings of the DAQ (200 ms minimum, 1 s maximum).
+ *
+ * <p>{@code DUPLICATE_OK} is the default policy, {@code DUPLICATE_COALESCE}
+ * the one used when the updates are coalesced per tag. The values cycle
+ * through 1000 tags. Run with {@code -prof gc} (the default of the benchmark
+ * jar) to see the allocation per push.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SynchroBufferBenchmark {
+
+  private static final int TAGS = 1000;
+
+  @Param({"DUPLICATE_OK", "DUPLICATE_COALESCE"})
+  private String duplicatePolicy;
+
+  private SynchroBuffer buffer;
+
+  private SourceDataTagValue[] values;
+
+  /**
+   * Cycles through the tag values, per benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int index;
+
+    int next() {
+      index = index + 1 < TAGS ? index + 1 : 0;
+      return index;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if ("DUPLICATE_COALESCE".equals(duplicatePolicy)) {
+      buffer = new SynchroBuffer("benchmark", 200, 1000, 100, value -> ((SourceDataTagValue) value).getId());
+    } else {
+      buffer = new SynchroBuffer(200, 1000, 100, SynchroBuffer.DUPLICATE_OK);
+    }
+    // the pulled values are dropped: only the buffer itself is measured
+    buffer.setSynchroBufferListener(event -> { });
+    buffer.enable();
+
+    values = new SourceDataTagValue[TAGS];
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    for (int i = 0; i < TAGS; i++) {
+      values[i] = new SourceDataTagValue((long) i, "CERN.EQUIPMENT.TAG_" + i, false, (double) i,
+          new SourceDataTagQuality(), now, DataTagAddress.PRIORITY_LOW, false, "", DataTagAddress.TTL_FOREVER);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    buffer.close();
+  }
+
+  @Benchmark
+  public void push(final Cursor cursor) {
+    buffer.push(values[cursor.next()]);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void pushContended(final Cursor cursor) {
+    buffer.push(values[cursor.next()]);
+  }
+}
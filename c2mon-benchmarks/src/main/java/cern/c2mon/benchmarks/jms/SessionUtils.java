@@ -0,0 +1,60 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.jms;
+
+import java.lang.reflect.Proxy;
+
+import javax.jms.Session;
+
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQTextMessage;
+
+/**
+ * Helpers for benchmarking message converters without a broker.
+ */
+public abstract class SessionUtils {
+
+  private SessionUtils() {
+    /* prevent instantiation */
+  }
+
+  /**
+   * Create a {@link Session} which is only able to create ActiveMQ text and
+   * bytes messages. All other methods throw an
+   * {@link UnsupportedOperationException}.
+   *
+   * @return a session suitable for calling
+   *         {@link org.springframework.jms.support.converter.MessageConverter#toMessage}
+   */
+  public static Session messageCreatingSession() {
+    return (Session) Proxy.newProxyInstance(SessionUtils.class.getClassLoader(), new Class<?>[] {Session.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "createBytesMessage":
+              return new ActiveMQBytesMessage();
+            case "createTextMessage":
+              ActiveMQTextMessage message = new ActiveMQTextMessage();
+              if (args != null && args.length == 1) {
+                message.setText((String) args[0]);
+              }
+              return message;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+}
@@ -0,0 +1,113 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.shared.rule.RuleEvaluationException;
+import cern.c2mon.shared.rule.RuleExpression;
+import cern.c2mon.shared.rule.RuleFormatException;
+import cern.c2mon.shared.rule.SimpleRuleExpression;
+
+/**
+ * Compares the compiled rule expressions with the token interpreter.
+ *
+ * <p>The expressions are typical conditions taken from production rules:
+ * single comparisons, long AND/OR chains of state checks and arithmetic on
+ * analog values. {@link #conditionedRule()} evaluates a whole conditioned
+ * rule the way the server does, including the result cast.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RuleExpressionBenchmark {
+
+  @Param({"COMPARISON", "STATE_CHAIN", "NESTED_STATES", "ARITHMETIC"})
+  private Shape shape;
+
+  private SimpleRuleExpression expression;
+
+  private RuleExpression conditionedRule;
+
+  private Map<Long, Object> inputs;
+
+  /**
+   * Rule shapes, each with a condition and a conditioned rule using it.
+   */
+  public enum Shape {
+    COMPARISON("#107310 >= #107826"),
+    STATE_CHAIN("(#141324 < 10) & (#141328 = true) & (#54684 = false) & (#141322 = false) & (#141323 = false) "
+        + "& (#141320 = false) & (#141321 = false)"),
+    NESTED_STATES("((#141312 = true) & (#141311 < 10)) | ((#141315 = true) & (#141314 < 10)) "
+        + "| ((#141318 = true) & (#141317 < 10))"),
+    ARITHMETIC("((#113298 * 1000) + (#113299 / 2)) > 0.0001");
+
+    private final String condition;
+
+    Shape(final String condition) {
+      this.condition = condition;
+    }
+  }
+
+  @Setup
+  public void setUp() throws RuleFormatException {
+    expression = new SimpleRuleExpression(shape.condition);
+    conditionedRule = RuleExpression.createExpression(shape.condition + "[2], true[3]");
+
+    inputs = new HashMap<>();
+    long i = 0;
+    for (Long tagId : expression.getInputTagIds()) {
+      // analog inputs are compared with numbers, states with booleans
+      boolean analog = shape.condition.contains("#" + tagId + " <") || shape.condition.contains("#" + tagId + " >")
+          || shape.condition.contains("#" + tagId + " *") || shape.condition.contains("#" + tagId + " /")
+          || shape.condition.contains(">= #" + tagId);
+      inputs.put(tagId, (analog ? (Object) (float) (i++ % 7) : (Object) Boolean.valueOf(i++ % 2 == 0)));
+    }
+  }
+
+  @Benchmark
+  public Object compiled() throws RuleEvaluationException {
+    return expression.evaluate(inputs);
+  }
+
+  @Benchmark
+  public Object interpreted() throws RuleEvaluationException {
+    return expression.interpret(inputs);
+  }
+
+  @Benchmark
+  public Integer conditionedRule() throws RuleEvaluationException {
+    return conditionedRule.evaluate(inputs, Integer.class);
+  }
+}
@@ -0,0 +1,164 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.scenario;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.command.ActiveMQDestination;
+
+/**
+ * Samples the depth of the queues between the load generators and the server
+ * caches, and keeps their mean and maximum over the measurement.
+ */
+final class QueueDepthSampler {
+
+  private final Map<String, LongSupplier> probes = new LinkedHashMap<>();
+
+  private final Map<String, Depth> depths = new LinkedHashMap<>();
+
+  /**
+   * @param name the name of the queue in the report
+   * @param probe returns the current depth of the queue, may throw a
+   *          RuntimeException if it is not available
+   */
+  void addProbe(final String name, final LongSupplier probe) {
+    probes.put(name, probe);
+    depths.put(name, new Depth());
+  }
+
+  /**
+   * Samples all the queues once.
+   */
+  void sample() {
+    for (Map.Entry<String, LongSupplier> probe : probes.entrySet()) {
+      try {
+        depths.get(probe.getKey()).add(probe.getValue().getAsLong());
+      } catch (RuntimeException e) {
+        // not available (yet): not sampled
+      }
+    }
+  }
+
+  /**
+   * Clears the samples taken so far.
+   */
+  void reset() {
+    for (Depth depth : depths.values()) {
+      depth.reset();
+    }
+  }
+
+  /**
+   * @return one line per queue with the mean and maximum of the samples
+   */
+  String getReport() {
+    StringBuilder report = new StringBuilder();
+    for (Map.Entry<String, Depth> depth : depths.entrySet()) {
+      report.append(String.format("  %-32s %s%n", depth.getKey(), depth.getValue()));
+    }
+    return report.toString();
+  }
+
+  /**
+   * @return a probe reading a numeric attribute of a platform MBean
+   */
+  static LongSupplier jmxAttribute(final String objectName, final String attribute) {
+    return () -> {
+      try {
+        return ((Number) mbeanServer().getAttribute(new ObjectName(objectName), attribute)).longValue();
+      } catch (JMException e) {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+
+  /**
+   * @return a probe summing the sizes returned by an operation of a platform
+   *         MBean, as the listener queue sizes of the server caches
+   */
+  static LongSupplier jmxSum(final String objectName, final String operation) {
+    return () -> {
+      try {
+        List<?> sizes = (List<?>) mbeanServer().invoke(new ObjectName(objectName), operation, null, null);
+        long sum = 0;
+        for (Object size : sizes) {
+          sum += ((Number) size).longValue();
+        }
+        return sum;
+      } catch (JMException e) {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+
+  /**
+   * @return a probe summing the pending messages of the broker queues whose
+   *         name starts with the given prefix
+   */
+  static LongSupplier brokerQueues(final BrokerService broker, final String prefix) {
+    return () -> {
+      long sum = 0;
+      for (Map.Entry<ActiveMQDestination, Destination> destination : broker.getRegionBroker().getDestinationMap().entrySet()) {
+        if (destination.getKey().isQueue() && destination.getKey().getPhysicalName().startsWith(prefix)) {
+          sum += destination.getValue().getDestinationStatistics().getMessages().getCount();
+        }
+      }
+      return sum;
+    };
+  }
+
+  private static MBeanServer mbeanServer() {
+    return ManagementFactory.getPlatformMBeanServer();
+  }
+
+  private static final class Depth {
+
+    private long samples;
+    private long sum;
+    private long max;
+
+    void add(final long depth) {
+      samples++;
+      sum += depth;
+      max = Math.max(max, depth);
+    }
+
+    void reset() {
+      samples = 0;
+      sum = 0;
+      max = 0;
+    }
+
+    @Override
+    public String toString() {
+      if (samples == 0) {
+        return "not available";
+      }
+      return String.format("mean=%.1f max=%d", (double) sum / samples, max);
+    }
+  }
+}
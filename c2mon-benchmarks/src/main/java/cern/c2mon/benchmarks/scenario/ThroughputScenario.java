@@ -0,0 +1,220 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.scenario;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.BrokerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import cern.c2mon.daq.DaqStartup;
+import cern.c2mon.daq.test.load.LoadGeneratorMessageHandler;
+import cern.c2mon.daq.test.load.LoadProfile;
+import cern.c2mon.server.ServerStartup;
+import cern.c2mon.server.common.latency.LatencyHistogram;
+import cern.c2mon.server.common.latency.LatencyMonitor;
+import cern.c2mon.server.common.latency.LatencyStage;
+import cern.c2mon.server.configuration.ConfigurationLoader;
+import cern.c2mon.shared.client.configuration.ConfigConstants;
+import cern.c2mon.shared.client.configuration.ConfigurationReport;
+import cern.c2mon.shared.client.configuration.api.Configuration;
+import cern.c2mon.shared.client.configuration.api.equipment.Equipment;
+import cern.c2mon.shared.client.configuration.api.process.Process;
+import cern.c2mon.shared.client.configuration.api.tag.DataTag;
+import cern.c2mon.shared.client.configuration.api.util.ConfigurationEntity;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.address.impl.SimpleHardwareAddressImpl;
+
+/**
+ * End-to-end throughput scenario: starts a server with its embedded broker
+ * and in-memory databases, configures a DAQ process whose equipment run the
+ * {@link LoadGeneratorMessageHandler}, starts the DAQ in the same JVM and
+ * measures, after a warm-up, the update rates, the latency of each stage
+ * recorded by the server {@link LatencyMonitor} and the depth of the queues
+ * between the DAQ and the cache listeners.
+ *
+ * <p>Run with <code>java -cp target/benchmarks.jar
+ * cern.c2mon.benchmarks.scenario.ThroughputScenario</code>. The scenario is
+ * set with the following system properties:
+ * <ul>
+ * <li><code>scenario.equipment</code>: number of equipment (default 10);
+ * <li><code>scenario.tags</code>: number of tags per equipment (default 100);
+ * <li><code>scenario.rate</code>: total number of updates per second, shared
+ * by the equipment (default 10000);
+ * <li><code>scenario.stream</code>, <code>scenario.period</code>,
+ * <code>scenario.burst</code>: shape of the stream, see {@link LoadProfile};
+ * <li><code>scenario.warmup</code>, <code>scenario.duration</code>: duration of
+ * the warm-up and of the measurement, in seconds (default 10 and 60);
+ * <li><code>scenario.jms.port</code>: port of the embedded broker (default a
+ * free port).
+ * </ul>
+ */
+public final class ThroughputScenario {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ThroughputScenario.class);
+
+  private static final String PROCESS_NAME = "P_LOAD";
+
+  private static final String DAQ_MBEAN = "cern.c2mon:name=processMessageSender";
+
+  private static final String CACHE_MBEAN = "cern.c2mon:type=cache,name=";
+
+  private ThroughputScenario() {
+  }
+
+  public static void main(final String[] args) throws Exception {
+    int equipmentCount = Integer.getInteger("scenario.equipment", 10);
+    int tagsPerEquipment = Integer.getInteger("scenario.tags", 100);
+    double rate = Double.parseDouble(System.getProperty("scenario.rate", "10000"));
+    long warmup = Long.getLong("scenario.warmup", 10);
+    long duration = Long.getLong("scenario.duration", 60);
+    LoadProfile profile = LoadProfile.parse(
+        "stream=" + System.getProperty("scenario.stream", LoadProfile.Stream.RANDOM_WALK.name())
+        + ";rate=" + rate / equipmentCount
+        + ";period=" + Long.getLong("scenario.period", 1000)
+        + (System.getProperty("scenario.burst") != null ? ";burst=" + System.getProperty("scenario.burst") : ""));
+    int port = Integer.getInteger("scenario.jms.port", 0);
+    if (port == 0) {
+      port = getFreePort();
+    }
+    String jmsUrl = "tcp://localhost:" + port;
+
+    ConfigurableApplicationContext server = new SpringApplicationBuilder(ServerStartup.class)
+        .bannerMode(Banner.Mode.OFF)
+        .run("--c2mon.server.jms.url=" + jmsUrl, "--c2mon.server.latency.enabled=true");
+    int exitCode = 0;
+    try {
+      configure(server.getBean(ConfigurationLoader.class), equipmentCount, tagsPerEquipment, profile);
+
+      System.setProperty("c2mon.daq.name", PROCESS_NAME);
+      DaqStartup.start(new String[] {"--c2mon.daq.jms.url=" + jmsUrl});
+
+      QueueDepthSampler sampler = new QueueDepthSampler();
+      sampler.addProbe("DAQ tag buffers", QueueDepthSampler.jmxAttribute(DAQ_MBEAN, "BufferedValueCount"));
+      sampler.addProbe("Broker update queues",
+          QueueDepthSampler.brokerQueues(server.getBean(BrokerService.class), "c2mon.process.update"));
+      sampler.addProbe("Data tag cache listeners",
+          QueueDepthSampler.jmxSum(CACHE_MBEAN + "dataTagCache", "getListenerTaskQueueSizes"));
+      sampler.addProbe("Rule tag cache listeners",
+          QueueDepthSampler.jmxSum(CACHE_MBEAN + "ruleTagCache", "getListenerTaskQueueSizes"));
+      sampler.addProbe("Alarm cache listeners",
+          QueueDepthSampler.jmxSum(CACHE_MBEAN + "alarmCache", "getListenerTaskQueueSizes"));
+
+      System.out.printf("Warming up for %d s: %d equipment x %d tags, %s%n",
+          warmup, equipmentCount, tagsPerEquipment, profile.toAddress());
+      TimeUnit.SECONDS.sleep(warmup);
+
+      LatencyMonitor latencyMonitor = server.getBean(LatencyMonitor.class);
+      latencyMonitor.reset();
+      sampler.reset();
+      long generated = LoadGeneratorMessageHandler.getGeneratedCount();
+      long sent = LoadGeneratorMessageHandler.getSentCount();
+      long start = System.nanoTime();
+
+      System.out.printf("Measuring for %d s%n", duration);
+      for (long second = 0; second < duration; second++) {
+        TimeUnit.SECONDS.sleep(1);
+        sampler.sample();
+      }
+
+      double seconds = (System.nanoTime() - start) / 1e9;
+      generated = LoadGeneratorMessageHandler.getGeneratedCount() - generated;
+      sent = LoadGeneratorMessageHandler.getSentCount() - sent;
+      long received = latencyMonitor.getSnapshot(LatencyStage.CACHE_UPDATE).getCount();
+
+      System.out.printf("%nUpdates per second:%n");
+      System.out.printf("  %-32s %.0f%n", "Generated", generated / seconds);
+      System.out.printf("  %-32s %.0f%n", "Sent by the DAQ", sent / seconds);
+      System.out.printf("  %-32s %.0f%n", "Received by the server", received / seconds);
+      System.out.printf("%nLatencies:%n");
+      for (LatencyStage stage : LatencyStage.values()) {
+        LatencyHistogram.Snapshot snapshot = latencyMonitor.getSnapshot(stage);
+        if (snapshot.getCount() > 0) {
+          System.out.printf("  %-32s %s%n", stage, snapshot);
+        }
+      }
+      System.out.printf("%nQueue depths:%n%s", sampler.getReport());
+    } catch (Exception e) {
+      LOGGER.error("Throughput scenario failed", e);
+      exitCode = 1;
+    } finally {
+      DaqStartup.stop();
+      server.close();
+    }
+    System.exit(exitCode);
+  }
+
+  /**
+   * Creates the process, its equipment and their tags, in this order since a
+   * configuration is parsed before any of its elements is applied.
+   */
+  private static void configure(final ConfigurationLoader configurationLoader, final int equipmentCount,
+                                final int tagsPerEquipment, final LoadProfile profile) {
+    apply(configurationLoader, Process.create(PROCESS_NAME).description("Load generator").build());
+
+    List<Equipment> equipments = new ArrayList<>(equipmentCount);
+    for (int e = 0; e < equipmentCount; e++) {
+      Equipment equipment = Equipment.create("E_LOAD_" + e, LoadGeneratorMessageHandler.class.getName())
+          .address(profile.toAddress())
+          .build();
+      equipment.setParentProcessName(PROCESS_NAME);
+      equipments.add(equipment);
+    }
+    apply(configurationLoader, equipments);
+
+    List<DataTag> tags = new ArrayList<>(equipmentCount * tagsPerEquipment);
+    for (int e = 0; e < equipmentCount; e++) {
+      for (int t = 0; t < tagsPerEquipment; t++) {
+        DataTag tag = DataTag.create("LOAD_" + e + "_" + t, Double.class,
+            new DataTagAddress(new SimpleHardwareAddressImpl("load")))
+            .build();
+        tag.setEquipmentName("E_LOAD_" + e);
+        tags.add(tag);
+      }
+    }
+    apply(configurationLoader, tags);
+  }
+
+  private static void apply(final ConfigurationLoader configurationLoader, final ConfigurationEntity entity) {
+    List<ConfigurationEntity> entities = new ArrayList<>();
+    entities.add(entity);
+    apply(configurationLoader, entities);
+  }
+
+  private static void apply(final ConfigurationLoader configurationLoader, final List<? extends ConfigurationEntity> entities) {
+    Configuration configuration = new Configuration();
+    configuration.setEntities(new ArrayList<>(entities));
+    ConfigurationReport report = configurationLoader.applyConfiguration(configuration);
+    if (report.getStatus() == ConfigConstants.Status.FAILURE) {
+      throw new IllegalStateException("Configuration of the scenario failed: " + report.toXML());
+    }
+  }
+
+  private static int getFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
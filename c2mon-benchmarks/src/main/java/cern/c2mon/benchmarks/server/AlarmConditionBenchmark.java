@@ -0,0 +1,113 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.common.alarm.AlarmCondition;
+import cern.c2mon.server.common.alarm.AlarmConditionCodec;
+import cern.c2mon.server.common.alarm.RangeAlarmCondition;
+import cern.c2mon.server.common.alarm.ValueAlarmCondition;
+import cern.c2mon.shared.util.parser.SimpleXMLParser;
+
+/**
+ * Decoding of the conditions of {@link #ALARMS} alarms, as done when the
+ * alarm cache is loaded on the cache loading threads (simulated with a
+ * parallel stream).
+ *
+ * <p>{@code legacyXml} is the former implementation of
+ * {@code AlarmCondition.fromConfigXML(String)}: a DOM parse followed by
+ * reflective field setting, under a global monitor. {@code codecXml} parses
+ * the same XML with {@link AlarmConditionCodec}, and {@code codecBinary}
+ * decodes the compact binary form used when the cache is serialized.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AlarmConditionBenchmark {
+
+  private static final int ALARMS = 200000;
+
+  private static SimpleXMLParser parser;
+
+  private List<String> xmlConditions;
+
+  private List<byte[]> binaryConditions;
+
+  @Setup(Level.Trial)
+  public void setUp() throws ParserConfigurationException {
+    parser = new SimpleXMLParser();
+    List<AlarmCondition> conditions = new ArrayList<>(ALARMS);
+    for (int i = 0; i < ALARMS; i++) {
+      switch (i % 4) {
+      case 0:
+        conditions.add(new ValueAlarmCondition(Boolean.TRUE));
+        break;
+      case 1:
+        conditions.add(new ValueAlarmCondition("DOWN"));
+        break;
+      case 2:
+        conditions.add(new RangeAlarmCondition((float) i, (float) i + 10));
+        break;
+      default:
+        conditions.add(new RangeAlarmCondition(null, (long) i));
+        break;
+      }
+    }
+    xmlConditions = conditions.stream().map(AlarmCondition::toConfigXML).collect(Collectors.toList());
+    binaryConditions = conditions.stream().map(AlarmConditionCodec::encode).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<AlarmCondition> legacyXml() {
+    return xmlConditions.parallelStream().map(AlarmConditionBenchmark::legacyFromConfigXML).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<AlarmCondition> codecXml() {
+    return xmlConditions.parallelStream().map(AlarmConditionCodec::fromXML).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<AlarmCondition> codecBinary() {
+    return binaryConditions.parallelStream().map(AlarmConditionCodec::decode).collect(Collectors.toList());
+  }
+
+  private static synchronized AlarmCondition legacyFromConfigXML(final String xml) {
+    return AlarmCondition.fromConfigXML(parser.parse(xml).getDocumentElement());
+  }
+}
@@ -0,0 +1,143 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.server.common.alarm.ValueAlarmCondition;
+import cern.c2mon.server.common.alive.AliveTimerCacheObject;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.equipment.EquipmentCacheObject;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+import cern.c2mon.shared.common.Cacheable;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+
+/**
+ * Throughput of the defensive copies returned by {@code AbstractCache.getCopy},
+ * per cache object type. {@code serializedCopy} is the former implementation
+ * (an object stream round-trip), {@code cloneCopy} the clone based one used
+ * now.
+ *
+ * <p>Run with {@code -prof gc} to compare the allocation per copy as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CacheCopyBenchmark {
+
+  @Param({"DATATAG", "RULETAG", "ALARM", "PROCESS", "EQUIPMENT", "ALIVETIMER"})
+  private String cacheType;
+
+  private Cacheable cacheObject;
+
+  @Setup
+  public void setUp() {
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    switch (cacheType) {
+      case "DATATAG":
+        DataTagCacheObject dataTag = new DataTagCacheObject(1L, "benchmark/tag", Double.class.getName(), (short) 0);
+        dataTag.setValue(3.14d);
+        dataTag.setDataTagQuality(new DataTagQualityImpl());
+        dataTag.setAddress(new DataTagAddress());
+        dataTag.setSourceTimestamp(now);
+        dataTag.setDaqTimestamp(now);
+        dataTag.setCacheTimestamp(now);
+        dataTag.setAlarmIds(new ArrayList<>(Arrays.asList(10L, 11L)));
+        dataTag.getMetadata().addMetadata("building", "864");
+        cacheObject = dataTag;
+        break;
+      case "RULETAG":
+        RuleTagCacheObject ruleTag = new RuleTagCacheObject(2L, "benchmark/rule", Boolean.class.getName(), (short) 0,
+            "(#1 > 0) & (#3 < 10) | (#4 = 2) [1], true [0]");
+        ruleTag.setValue(Boolean.TRUE);
+        ruleTag.setDataTagQuality(new DataTagQualityImpl());
+        ruleTag.setCacheTimestamp(now);
+        ruleTag.setProcessIds(new HashSet<>(Arrays.asList(50L, 51L)));
+        ruleTag.setEquipmentIds(new HashSet<>(Arrays.asList(150L)));
+        cacheObject = ruleTag;
+        break;
+      case "ALARM":
+        AlarmCacheObject alarm = new AlarmCacheObject(3L);
+        alarm.setDataTagId(1L);
+        alarm.setFaultFamily("BENCHMARK");
+        alarm.setFaultMember("MEMBER");
+        alarm.setFaultCode(1);
+        alarm.setCondition(new ValueAlarmCondition(Boolean.TRUE));
+        alarm.setTimestamp(now);
+        alarm.setInfo("benchmark");
+        cacheObject = alarm;
+        break;
+      case "PROCESS":
+        ProcessCacheObject process = new ProcessCacheObject(50L, "P_BENCHMARK", 1200L, 100, 1000);
+        process.setEquipmentIds(new ArrayList<>(Arrays.asList(150L, 151L, 152L)));
+        process.setStartupTime(now);
+        process.setCurrentHost("localhost");
+        cacheObject = process;
+        break;
+      case "EQUIPMENT":
+        cacheObject = new EquipmentCacheObject(150L, "E_BENCHMARK", "description", "handler", "address",
+            1250L, 1251L, 60000, 1252L, 50L);
+        break;
+      case "ALIVETIMER":
+        cacheObject = new AliveTimerCacheObject(1251L, 150L, "E_BENCHMARK", 1250L, "EQ", 60000);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown cache type " + cacheType);
+    }
+  }
+
+  @Benchmark
+  public Object serializedCopy() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    oos.writeObject(cacheObject);
+
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    return ois.readObject();
+  }
+
+  @Benchmark
+  public Object cloneCopy() throws Exception {
+    return cacheObject.clone();
+  }
+}
@@ -0,0 +1,164 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cern.c2mon.server.cache.dbaccess.DataTagMapper;
+import cern.c2mon.server.cache.dbaccess.config.CacheDataSourceConfig;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.util.HsqlDatabaseBuilder;
+
+/**
+ * Compares the two ways of persisting dirty cache objects used by
+ * {@code CachePersistenceDAOImpl.persistBatch}, on the bundled HSQLDB cache
+ * schema.
+ *
+ * <p>Every invocation writes {@link #DIRTY_TAGS} data tags in transactions of
+ * {@link #RECORDS_PER_BATCH} (the chunk size of the batch persistence
+ * manager). {@code perStatement} issues one UPDATE round-trip per tag
+ * through the default executor, {@code jdbcBatch} uses the MyBatis batch
+ * executor and sends one JDBC batch per transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CachePersistenceBenchmark {
+
+  private static final int DIRTY_TAGS = 100000;
+
+  private static final int RECORDS_PER_BATCH = 500;
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  private TransactionTemplate transactionTemplate;
+
+  private DataTagMapper autoCommitMapper;
+
+  private List<DataTagCacheObject> dirtyTags;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    DataSource dataSource = new HsqlDatabaseBuilder().setUrl("jdbc:hsqldb:mem:c2mondb")
+        .addScript(new ClassPathResource("sql/cache-schema-hsqldb.sql")).build();
+    insertTags(dataSource);
+
+    sqlSessionFactory = CacheDataSourceConfig.cacheSqlSessionFactory(dataSource).getObject();
+    sqlSessionFactory.getConfiguration().addMapper(DataTagMapper.class);
+    transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    autoCommitMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(DataTagMapper.class);
+
+    dirtyTags = new ArrayList<>(DIRTY_TAGS);
+    for (long id = 1; id <= DIRTY_TAGS; id++) {
+      dirtyTags.add(new DataTagCacheObject(id, "tag" + id, Double.class.getName(), (short) 0));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void updateValues() {
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    for (DataTagCacheObject tag : dirtyTags) {
+      tag.setValue(Math.random());
+      tag.setSourceTimestamp(now);
+      tag.setDaqTimestamp(now);
+      tag.setCacheTimestamp(now);
+    }
+  }
+
+  @Benchmark
+  public void perStatement() {
+    for (int from = 0; from < DIRTY_TAGS; from += RECORDS_PER_BATCH) {
+      List<DataTagCacheObject> chunk = chunk(from);
+      transactionTemplate.execute(status -> {
+        for (DataTagCacheObject tag : chunk) {
+          autoCommitMapper.updateCacheable(tag);
+        }
+        return null;
+      });
+    }
+  }
+
+  @Benchmark
+  public void jdbcBatch() {
+    for (int from = 0; from < DIRTY_TAGS; from += RECORDS_PER_BATCH) {
+      List<DataTagCacheObject> chunk = chunk(from);
+      transactionTemplate.execute(status -> {
+        SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH);
+        try {
+          DataTagMapper batchMapper = session.getMapper(DataTagMapper.class);
+          for (DataTagCacheObject tag : chunk) {
+            batchMapper.updateCacheable(tag);
+          }
+          session.flushStatements();
+        } finally {
+          session.close();
+        }
+        return null;
+      });
+    }
+  }
+
+  private List<DataTagCacheObject> chunk(final int from) {
+    return dirtyTags.subList(from, Math.min(from + RECORDS_PER_BATCH, DIRTY_TAGS));
+  }
+
+  private static void insertTags(final DataSource dataSource) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+         PreparedStatement statement = connection.prepareStatement(
+             "INSERT INTO DATATAG (TAGID, TAGNAME, TAGMODE, TAGDATATYPE, TAGCONTROLTAG) VALUES (?, ?, 0, 'java.lang.Double', 0)")) {
+      for (long id = 1; id <= DIRTY_TAGS; id++) {
+        statement.setLong(1, id);
+        statement.setString(2, "tag" + id);
+        statement.addBatch();
+        if (id % RECORDS_PER_BATCH == 0) {
+          statement.executeBatch();
+        }
+      }
+      statement.executeBatch();
+    }
+  }
+}
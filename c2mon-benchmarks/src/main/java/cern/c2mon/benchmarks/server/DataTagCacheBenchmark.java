@@ -0,0 +1,140 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.server;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.CacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.cache.C2monCacheListener;
+import cern.c2mon.server.cache.cluster.ClusterCacheImpl;
+import cern.c2mon.server.cache.config.CacheProperties;
+import cern.c2mon.server.cache.datatag.DataTagCacheImpl;
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.test.CacheObjectCreation;
+
+/**
+ * {@code AbstractCache.getCopy} and {@code put} on a DataTag cache backed by
+ * the in-memory Ehcache configuration of a single server. The cache is filled
+ * with copies of the {@link CacheObjectCreation} test tag.
+ *
+ * <p>{@code put} includes the notification of one synchronous listener, so the
+ * snapshot taken for the listeners is measured as well. Run with
+ * {@code -prof gc} (the default of the benchmark jar) to see the allocation
+ * per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DataTagCacheBenchmark {
+
+  private static final String EHCACHE_CONFIG = "/ehcache/ehcache-single-nonpersistent.xml";
+
+  @Param({"10000"})
+  private int cacheSize;
+
+  private CacheManager cacheManager;
+
+  private DataTagCacheImpl dataTagCache;
+
+  private DataTagCacheObject[] tags;
+
+  /**
+   * Cycles through the cache keys, per benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int index;
+
+    int next(final int size) {
+      index = index + 1 < size ? index + 1 : 0;
+      return index;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws CloneNotSupportedException {
+    CacheProperties properties = new CacheProperties();
+    properties.setSkipPreloading(true);
+
+    cacheManager = CacheManager.newInstance(DataTagCacheImpl.class.getResource(EHCACHE_CONFIG));
+    ClusterCacheImpl clusterCache = new ClusterCacheImpl(cacheManager.getEhcache("clusterCache"), properties);
+    clusterCache.init();
+
+    // nothing is ever loaded from the DB: no loaders needed
+    dataTagCache = new DataTagCacheImpl(clusterCache, cacheManager.getEhcache("tagCache"), null, null, null, properties);
+    dataTagCache.init();
+    dataTagCache.registerSynchronousListener(new C2monCacheListener<DataTag>() {
+      @Override
+      public void notifyElementUpdated(final DataTag cacheable) {
+      }
+
+      @Override
+      public void confirmStatus(final DataTag cacheable) {
+      }
+    });
+
+    tags = new DataTagCacheObject[cacheSize];
+    DataTagCacheObject fixture = CacheObjectCreation.createTestDataTag();
+    for (int i = 0; i < cacheSize; i++) {
+      tags[i] = fixture.clone();
+      tags[i].setId(fixture.getId() + i);
+      tags[i].setName(fixture.getName() + "_" + i);
+      dataTagCache.putQuiet(tags[i]);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    cacheManager.shutdown();
+  }
+
+  @Benchmark
+  public DataTag getCopy(final Cursor cursor) {
+    return dataTagCache.getCopy(tags[cursor.next(cacheSize)].getId());
+  }
+
+  @Benchmark
+  public void put(final Cursor cursor) {
+    DataTagCacheObject tag = tags[cursor.next(cacheSize)];
+    dataTagCache.put(tag.getId(), tag);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public DataTag getCopyContended(final Cursor cursor) {
+    return dataTagCache.getCopy(tags[cursor.next(cacheSize)].getId());
+  }
+}
@@ -0,0 +1,139 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.common.process.Process;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.common.process.ProcessPIKSnapshot;
+
+/**
+ * Measures how the process PIK check done for every incoming DAQ update
+ * message scales with the number of JMS consumer threads.
+ *
+ * <p>{@code locked*} reproduces the former check, which took the Ehcache
+ * write lock on the Process for every message. {@code snapshot*} reads the
+ * immutable {@link ProcessPIKSnapshot} instead. All consumer threads publish
+ * for the same Process, which is the worst case for the lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProcessPIKCheckBenchmark {
+
+  private static final Long PROCESS_ID = 1000L;
+
+  private static final Long PROCESS_PIK = 424242L;
+
+  private CacheManager cacheManager;
+
+  private Cache processCache;
+
+  private ConcurrentHashMap<Long, ProcessPIKSnapshot> pikSnapshots;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ProcessCacheObject process = new ProcessCacheObject(PROCESS_ID, "P_BENCHMARK", 1001L, 100, 1000);
+    process.setProcessPIK(PROCESS_PIK);
+
+    cacheManager = CacheManager.create();
+    processCache = new Cache(new CacheConfiguration("processCache", 0).eternal(true));
+    cacheManager.addCache(processCache);
+    processCache.put(new Element(PROCESS_ID, process));
+
+    pikSnapshots = new ConcurrentHashMap<>();
+    pikSnapshots.put(PROCESS_ID, ProcessPIKSnapshot.of(process));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    cacheManager.removeCache(processCache.getName());
+  }
+
+  @Benchmark
+  @Threads(1)
+  public boolean locked_1Thread() {
+    return lockedCheck();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public boolean locked_8Threads() {
+    return lockedCheck();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public boolean locked_64Threads() {
+    return lockedCheck();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public boolean snapshot_1Thread() {
+    return snapshotCheck();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public boolean snapshot_8Threads() {
+    return snapshotCheck();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public boolean snapshot_64Threads() {
+    return snapshotCheck();
+  }
+
+  private boolean lockedCheck() {
+    processCache.acquireWriteLockOnKey(PROCESS_ID);
+    try {
+      Process process = (Process) processCache.get(PROCESS_ID).getObjectValue();
+      return process.getProcessPIK() != null && process.getProcessPIK().equals(PROCESS_PIK);
+    } finally {
+      processCache.releaseWriteLockOnKey(PROCESS_ID);
+    }
+  }
+
+  private boolean snapshotCheck() {
+    return pikSnapshots.get(PROCESS_ID).matches(PROCESS_PIK);
+  }
+}
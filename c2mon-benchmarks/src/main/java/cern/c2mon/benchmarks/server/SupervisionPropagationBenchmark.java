@@ -0,0 +1,209 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.benchmarks.server;
+
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cern.c2mon.server.cache.*;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.cache.supervision.SupervisionAppender;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.server.supervision.SupervisionNotifier;
+import cern.c2mon.server.supervision.impl.SupervisionTagNotifier;
+import cern.c2mon.shared.client.supervision.SupervisionEvent;
+import cern.c2mon.shared.client.supervision.SupervisionEventImpl;
+import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionEntity;
+import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionStatus;
+
+/**
+ * Measures the time needed by {@link SupervisionTagNotifier} to propagate an
+ * equipment DOWN event to all tags of the equipment and to the rules
+ * depending on them, as a function of the number of tags.
+ *
+ * <p>The caches are replaced by in-memory stubs, so the figure covers the
+ * propagation itself (tag copies, supervision events, rule dependencies and
+ * listener notification) and not the Ehcache or listener costs. Every rule
+ * depends on {@link #TAGS_PER_RULE} tags.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SupervisionPropagationBenchmark {
+
+  private static final long EQUIPMENT_ID = 1L;
+
+  private static final long PROCESS_ID = 2L;
+
+  private static final int TAGS_PER_RULE = 10;
+
+  @Param({"1000", "10000", "100000"})
+  private int tagCount;
+
+  private SupervisionTagNotifier notifier;
+
+  private final AtomicLong notifiedTags = new AtomicLong();
+
+  private long eventTime;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Map<Long, Tag> tags = new HashMap<>();
+    List<Long> dataTagIds = new ArrayList<>(tagCount);
+    long ruleId = tagCount + 1;
+    for (long id = 1; id <= tagCount; id++) {
+      DataTagCacheObject dataTag = new DataTagCacheObject(id, "tag" + id, Double.class.getName(), (short) 0);
+      dataTag.setEquipmentId(EQUIPMENT_ID);
+      dataTag.setProcessId(PROCESS_ID);
+      dataTag.addRuleId(ruleId);
+      tags.put(id, dataTag);
+      dataTagIds.add(id);
+      if (id % TAGS_PER_RULE == 0 || id == tagCount) {
+        RuleTagCacheObject ruleTag = new RuleTagCacheObject(ruleId);
+        ruleTag.setEquipmentIds(Collections.singleton(EQUIPMENT_ID));
+        ruleTag.setProcessIds(Collections.singleton(PROCESS_ID));
+        tags.put(ruleId, ruleTag);
+        ruleId++;
+      }
+    }
+
+    Map<Long, SupervisionEvent> processEvents = new ConcurrentHashMap<>();
+    Map<Long, SupervisionEvent> equipmentEvents = new ConcurrentHashMap<>();
+    Map<Long, SupervisionEvent> subEquipmentEvents = new ConcurrentHashMap<>();
+
+    TagLocationService tagLocationService = stub(TagLocationService.class, (method, args) -> {
+      if (method.equals("getCopy")) {
+        Tag tag = tags.get(args[0]);
+        if (tag == null) {
+          throw new CacheElementNotFoundException("Tag " + args[0] + " not found");
+        }
+        return tag.clone();
+      }
+      return null;
+    });
+    EquipmentFacade equipmentFacade = stub(EquipmentFacade.class, (method, args) ->
+        method.equals("getDataTagIds") ? dataTagIds : null);
+    DataTagCache dataTagCache = stub(DataTagCache.class, this::countNotifiedTags);
+    RuleTagCache ruleTagCache = stub(RuleTagCache.class, this::countNotifiedTags);
+    CacheProvider cacheProvider = stub(CacheProvider.class, (method, args) -> {
+      switch (method) {
+      case "getDataTagCache":
+        return dataTagCache;
+      case "getRuleTagCache":
+        return ruleTagCache;
+      case "getClusterCache":
+        return stub(ClusterCache.class, (m, a) -> null);
+      default:
+        return null;
+      }
+    });
+
+    notifier = new SupervisionTagNotifier(stub(SupervisionNotifier.class, (method, args) -> null), cacheProvider,
+        tagLocationService, stub(SupervisionAppender.class, (method, args) -> null),
+        stub(ProcessFacade.class, (method, args) -> null), equipmentFacade,
+        stub(SubEquipmentFacade.class, (method, args) -> null),
+        eventCache(processEvents), eventCache(equipmentEvents), eventCache(subEquipmentEvents));
+    eventTime = System.currentTimeMillis();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    notifier.shutdown();
+  }
+
+  @Benchmark
+  public long propagateEquipmentDown() {
+    notifiedTags.set(0);
+    // a newer event at each invocation, so it is never filtered out
+    notifier.notifySupervisionEvent(new SupervisionEventImpl(SupervisionEntity.EQUIPMENT, EQUIPMENT_ID, "equipment",
+        SupervisionStatus.DOWN, new Timestamp(++eventTime), "benchmark"));
+    return notifiedTags.get();
+  }
+
+  private Object countNotifiedTags(final String method, final Object[] args) {
+    if (method.equals("notifyListenersOfSupervisionChanges")) {
+      notifiedTags.addAndGet(((Collection<?>) args[0]).size());
+    } else if (method.equals("notifyListenersOfSupervisionChange")) {
+      notifiedTags.incrementAndGet();
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static C2monCache<Long, SupervisionEvent> eventCache(final Map<Long, SupervisionEvent> events) {
+    return stub(C2monCache.class, (method, args) -> {
+      switch (method) {
+      case "hasKey":
+        return events.containsKey(args[0]);
+      case "get":
+      case "getCopy":
+        return events.get(args[0]);
+      case "put":
+        events.put((Long) args[0], (SupervisionEvent) args[1]);
+        return null;
+      default:
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Stub answering the calls by method name; methods returning a boolean
+   * which are not answered return false. No other primitive is needed.
+   */
+  private static <T> T stub(final Class<T> type, final Answer answer) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+      Object result = answer.answer(method.getName(), args);
+      if (result == null && method.getReturnType() == boolean.class) {
+        return false;
+      }
+      return result;
+    }));
+  }
+
+  private interface Answer {
+    Object answer(String method, Object[] args) throws Throwable;
+  }
+}
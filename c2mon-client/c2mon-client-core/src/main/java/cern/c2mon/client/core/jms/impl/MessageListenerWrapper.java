@@ -18,7 +18,10 @@ package cern.c2mon.client.core.jms.impl;
 
 import static java.lang.String.format;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -113,6 +116,24 @@ class MessageListenerWrapper extends AbstractQueuedWrapper<TagValueUpdate> {
       return TransferTagSerializer.fromJson(((TextMessage) message).getText(), TransferTagValueImpl.class);
     }
 
+    /**
+     * Servers can publish several updates of a topic as one json array (see
+     * the <code>batchedTopics</code> server property); such a message is
+     * unpacked here so that every update is filtered and notified on its own.
+     */
+    @Override
+    protected Collection<TagValueUpdate> convertMessages(Message message) throws JMSException {
+      String text = ((TextMessage) message).getText();
+      if (!TransferTagSerializer.isJsonArray(text)) {
+        return Collections.<TagValueUpdate>singletonList(TransferTagSerializer.fromJson(text, TransferTagValueImpl.class));
+      }
+      List<TransferTagValueImpl> batch = TransferTagSerializer.fromJsonArray(text, TransferTagValueImpl.class);
+      if (batch == null) {
+        throw new JMSException("Unable to decode batch of tag updates");
+      }
+      return Collections.<TagValueUpdate>unmodifiableList(batch);
+    }
+
     @Override
     protected synchronized void notifyListeners(TagValueUpdate tagValueUpdate) {
 
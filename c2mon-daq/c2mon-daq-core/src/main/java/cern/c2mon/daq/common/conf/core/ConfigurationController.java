@@ -17,20 +17,26 @@
 package cern.c2mon.daq.common.conf.core;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.xml.stream.XMLStreamException;
+
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.w3c.dom.Document;
-import org.w3c.dom.ls.DOMImplementationLS;
-import org.w3c.dom.ls.LSSerializer;
 
 import cern.c2mon.daq.common.conf.equipment.*;
 import cern.c2mon.daq.common.messaging.ProcessRequestSender;
@@ -48,6 +54,8 @@ import cern.c2mon.shared.common.process.ProcessConfiguration;
 import cern.c2mon.shared.common.process.SubEquipmentConfiguration;
 import cern.c2mon.shared.daq.config.*;
 import cern.c2mon.shared.daq.config.ChangeReport.CHANGE_STATE;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateConverter;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateFormat;
 import cern.c2mon.shared.daq.process.ProcessConfigurationResponse;
 import cern.c2mon.shared.daq.process.ProcessConnectionResponse;
 
@@ -100,6 +108,13 @@ public class ConfigurationController {
   @Autowired
   private EquipmentConfigurationFactory equipmentConfigurationFactory;
 
+  /**
+   * Converter of the tag updates sent to the primary server, which is told
+   * the update format agreed during the connection handshake.
+   */
+  @Autowired
+  private DataTagValueUpdateConverter dataTagValueUpdateConverter;
+
   /**
    * Map of data tag changers. It maps equipment id - > changer.
    */
@@ -174,76 +189,137 @@ public class ConfigurationController {
     processConfiguration.setprocessPIK(processConnectionResponse.getProcessPIK());
 
     ProcessConfigurationHolder.setInstance(processConfiguration);
+
+    // Use the tag update format chosen by the server (JSON if none was chosen)
+    DataTagValueUpdateFormat updateFormat = DataTagValueUpdateFormat.fromName(processConnectionResponse.getUpdateFormat());
+    dataTagValueUpdateConverter.setFormat(updateFormat);
+    log.info("loadProcessConnection - Publishing tag updates in " + updateFormat.getName() + " format");
   }
 
   /**
    * Loads the process configuration.
    */
   public void loadProcessConfiguration() {
-    Document xmlConfiguration;
-    ProcessConfigurationResponse processConfigurationResponse = null;
     log.trace("Configuration process started");
 
     String localConfigFile = properties.getLocalConfigFile();
     // e.g. $DAQ_HOME/conf/local/P_TEST.xml
     File defaultLocalConfigFile = new File(System.getProperty("user.dir") + "/conf/local/" + properties.getName().toUpperCase() + ".xml");
 
-    boolean localConfiguration = true;
+    if (localConfigFile != null || defaultLocalConfigFile.exists()) {
+      Document xmlConfiguration = loadFromLocalConfigFile(localConfigFile != null ? localConfigFile : defaultLocalConfigFile.toString());
 
-    if (localConfigFile != null) {
-      xmlConfiguration = loadFromLocalConfigFile(localConfigFile);
-    }
-    else if (defaultLocalConfigFile.exists()) {
-      xmlConfiguration = loadFromLocalConfigFile(defaultLocalConfigFile.toString());
+      // If XML Configuration is wrong and cannot be parsed we exit
+      if (xmlConfiguration == null) {
+        sendDisconnectionNotification();
+        throw new RuntimeException("Could not parse XML configuration");
+      }
+
+      if (properties.getSaveRemoteConfig() != null) {
+        log.info("Local configuration will not be saved. It is already in local disk");
+      }
+
+      log.debug("Loading DAQ configuration properties from XML document...");
+      try {
+        ProcessConfiguration configuration = ProcessConfigurationHolder.getInstance();
+        configuration = this.processConfigurationLoader.createProcessConfiguration(configuration.getProcessName(),
+            configuration.getprocessPIK(), xmlConfiguration);
+        setProcessConfiguration(configuration);
+      } catch (ConfUnknownTypeException ex) {
+        sendDisconnectionNotification();
+        throw new RuntimeException("UNKNOWN configuration received");
+
+      } catch (Exception ex) {
+        sendDisconnectionNotification();
+        throw new RuntimeException("Exception caught while configuring the DAQ. Check the configuration XML", ex);
+      }
     }
     else {
-      localConfiguration = false;
-      log.info("Loading configuration from server");
-      processConfigurationResponse = this.processConfigurationLoader.getProcessConfiguration();
+      Reader xmlConfiguration = loadFromServer();
 
-      // If Process Configuration is REJECTED we exit
-      if (processConfigurationResponse.getConfigurationXML().equals(ProcessConfigurationResponse.CONF_REJECTED)) {
+      log.debug("Loading DAQ configuration properties from XML stream...");
+
+      // try to create process configuration object (with the PIK saved in the
+      // provisional ProcessConfiguration). The XML is parsed while the
+      // configuration is created, without building the document in memory.
+      try {
+        ProcessConfiguration configuration = ProcessConfigurationHolder.getInstance();
+        configuration = this.processConfigurationLoader.createProcessConfiguration(configuration.getProcessName(),
+            configuration.getprocessPIK(), xmlConfiguration);
+        setProcessConfiguration(configuration);
+      } catch (ConfUnknownTypeException ex) {
         sendDisconnectionNotification();
-        throw new RuntimeException("CONF_REJECTED received");
-      }
+        throw new RuntimeException("UNKNOWN configuration received");
 
-      // processConfigurationResponse will never be null at this point
-      xmlConfiguration = this.processConfigurationLoader.fromXMLtoDOC(processConfigurationResponse.getConfigurationXML());
-    }
+      } catch (XMLStreamException ex) {
+        // If XML Configuration is wrong and cannot be parsed we exit
+        sendDisconnectionNotification();
+        throw new RuntimeException("Could not parse XML configuration", ex);
 
-    // If XML Configuration is wrong and cannot be parsed we exit
-    if (xmlConfiguration == null) {
-      sendDisconnectionNotification();
-      throw new RuntimeException("Could not parse XML configuration");
-    }
+      } catch (Exception ex) {
+        sendDisconnectionNotification();
+        throw new RuntimeException("Exception caught while configuring the DAQ. Check the configuration XML", ex);
 
-    // Save config if it was the option and it is not local config (pointless)
-    if (properties.getSaveRemoteConfig() != null) {
-      if (!localConfiguration) {
-        saveConfiguration(xmlConfiguration);
-      } else {
-        log.info("Local configuration will not be saved. It is already in local disk");
+      } finally {
+        try {
+          xmlConfiguration.close();
+        } catch (IOException ex) {
+          log.debug("Could not close the configuration XML reader", ex);
+        }
       }
     }
+  }
 
-    log.debug("Loading DAQ configuration properties from XML document...");
+  private void setProcessConfiguration(ProcessConfiguration configuration) {
+    ProcessConfigurationHolder.setInstance(configuration);
+    log.debug("Process configuration successfully loaded");
+  }
 
-    // try to create process configuration object (with the PIK saved in the
-    // provisional ProcessConfiguration)
-    try {
-      ProcessConfiguration configuration = ProcessConfigurationHolder.getInstance();
-      configuration = this.processConfigurationLoader.createProcessConfiguration(configuration.getProcessName(),
-          configuration.getprocessPIK(), xmlConfiguration);
-      ProcessConfigurationHolder.setInstance(configuration);
+  /**
+   * Requests the process configuration from the server. If a configuration
+   * cache is set and the server reports that the cached configuration is
+   * still up to date, the cached one is used.
+   *
+   * @return the configuration XML, to be closed by the caller
+   */
+  private Reader loadFromServer() {
+    log.info("Loading configuration from server");
+    String cachedHash = this.processConfigurationLoader.getCachedConfigurationHash();
+    ProcessConfigurationResponse processConfigurationResponse = this.processConfigurationLoader.getProcessConfiguration(cachedHash);
+    checkNotRejected(processConfigurationResponse);
+
+    if (ProcessConfigurationResponse.CONF_UNCHANGED.equals(processConfigurationResponse.getConfigurationXML())) {
+      Reader cachedConfiguration = this.processConfigurationLoader.openCachedConfiguration();
+      if (cachedConfiguration != null) {
+        log.info("Configuration unchanged since last startup, loading it from cache file: {}", properties.getConfigCacheFile());
+        if (properties.getSaveRemoteConfig() != null) {
+          saveConfiguration(new File(properties.getConfigCacheFile()));
+        }
+        return cachedConfiguration;
+      }
+      log.warn("Configuration cache file {} disappeared, requesting the full configuration", properties.getConfigCacheFile());
+      processConfigurationResponse = this.processConfigurationLoader.getProcessConfiguration(null);
+      checkNotRejected(processConfigurationResponse);
+    }
 
-      log.debug("Process configuration successfully loaded");
-    } catch (ConfUnknownTypeException ex) {
-      sendDisconnectionNotification();
-      throw new RuntimeException("UNKNOWN configuration received");
+    // processConfigurationResponse will never be null at this point
+    String configurationXML = processConfigurationResponse.getConfigurationXML();
+    this.processConfigurationLoader.cacheConfiguration(configurationXML, processConfigurationResponse.getConfigurationHash());
 
-    } catch (Exception ex) {
+    // Save config if it was the option
+    if (properties.getSaveRemoteConfig() != null) {
+      saveConfiguration(configurationXML);
+    }
+    return new StringReader(configurationXML);
+  }
+
+  /**
+   * If Process Configuration is REJECTED we exit
+   */
+  private void checkNotRejected(ProcessConfigurationResponse processConfigurationResponse) {
+    if (ProcessConfigurationResponse.CONF_REJECTED.equals(processConfigurationResponse.getConfigurationXML())) {
       sendDisconnectionNotification();
-      throw new RuntimeException("Exception caught while configuring the DAQ. Check the configuration XML", ex);
+      throw new RuntimeException("CONF_REJECTED received");
     }
   }
 
@@ -258,26 +334,49 @@ public class ConfigurationController {
   /**
    * Saves the process configuration.
    */
-  private void saveConfiguration(Document docXMLConfig) {
-    String fileToSaveConf = properties.getSaveRemoteConfig();
-    if (fileToSaveConf.length() > 0 && docXMLConfig != null) {
-      log.info("saveConfiguration - saving the process configuration XML in a file " + fileToSaveConf + " due to user request");
-
-      File file = new File(fileToSaveConf);
-      if (file.isDirectory() || !fileToSaveConf.endsWith(".xml")) {
-        throw new RuntimeException("Path to which to save remote config must end with '.xml'");
+  private void saveConfiguration(String xmlConfiguration) {
+    File file = getSaveRemoteConfigFile();
+    if (file != null) {
+      try {
+        Files.write(file.toPath(), xmlConfiguration.getBytes(StandardCharsets.UTF_8));
+      } catch (IOException ex) {
+        log.error("saveConfiguration - Could not save the configuration to the file " + file, ex);
       }
+    }
+  }
 
+  /**
+   * Saves the process configuration, copying it from the given file.
+   */
+  private void saveConfiguration(File configurationFile) {
+    File file = getSaveRemoteConfigFile();
+    if (file != null) {
       try {
-        DOMImplementationLS domImplementation = (DOMImplementationLS) docXMLConfig.getImplementation();
-        LSSerializer lsSerializer = domImplementation.createLSSerializer();
-        lsSerializer.writeToURI(docXMLConfig, file.toURI().toURL().toString());
-      } catch (java.io.IOException ex) {
-        log.error("saveConfiguration - Could not save the configuration to the file " + fileToSaveConf, ex);
+        Files.copy(configurationFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException ex) {
+        log.error("saveConfiguration - Could not save the configuration to the file " + file, ex);
       }
     }
   }
 
+  /**
+   * @return the file in which to save the process configuration, or null if
+   *         it must not be saved
+   */
+  private File getSaveRemoteConfigFile() {
+    String fileToSaveConf = properties.getSaveRemoteConfig();
+    if (fileToSaveConf.length() == 0) {
+      return null;
+    }
+    log.info("saveConfiguration - saving the process configuration XML in a file " + fileToSaveConf + " due to user request");
+
+    File file = new File(fileToSaveConf);
+    if (file.isDirectory() || !fileToSaveConf.endsWith(".xml")) {
+      throw new RuntimeException("Path to which to save remote config must end with '.xml'");
+    }
+    return file;
+  }
+
   /**
    * Sends disconnection notifications to all request senders.
    */
@@ -16,9 +16,14 @@
  *****************************************************************************/
 package cern.c2mon.daq.common.conf.core;
 
+import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -37,10 +42,122 @@ import lombok.extern.slf4j.Slf4j;
 public class EquipmentConfigurationFactory extends XMLTagValueExtractor implements ConfigurationXMLConstants {
 
   private final SimpleXMLParser parser;
+
+  private final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
   
   public EquipmentConfigurationFactory() throws ParserConfigurationException {
 	  this.parser = new SimpleXMLParser();
   }
+
+  /**
+   * Creates the equipment configuration from an XML stream positioned on an
+   * EquipmentUnit start element, and leaves the stream on its end element.
+   *
+   * <p>The DataTags and CommandTags are created one at a time as they are
+   * read, so only a single tag is held as DOM element at any time.
+   *
+   * @param reader the stream, on an EquipmentUnit start element
+   * @return An equipment configuration object.
+   * @throws XMLStreamException if the XML is not well-formed
+   * @throws Exception if the configuration of the equipment or one of its tags is invalid
+   */
+  public EquipmentConfiguration createEquipmentConfiguration(final XMLStreamReader reader) throws Exception {
+    Document document;
+    synchronized (documentBuilderFactory) {
+      document = documentBuilderFactory.newDocumentBuilder().newDocument();
+    }
+    Element equipmentUnit = createElement(reader, document);
+    EquipmentConfiguration equipmentConfiguration = null;
+    // the first error is thrown once the whole element is read, so the stream can be used for the next equipment
+    Exception failure = null;
+
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      String name = reader.getLocalName();
+      if (!DATA_TAGS_ELEMENT.equals(name) && !COMMAND_TAGS_ELEMENT.equals(name)) {
+        equipmentUnit.appendChild(readElement(reader, document));
+        continue;
+      }
+      if (equipmentConfiguration == null && failure == null) {
+        try {
+          equipmentConfiguration = createEquipmentConfiguration(withTagBlocks(equipmentUnit, document));
+        } catch (Exception e) {
+          failure = e;
+        }
+      }
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        Element tag = readElement(reader, document);
+        if (failure != null) {
+          continue;
+        }
+        try {
+          if (DATA_TAG_ELEMENT.equals(tag.getTagName())) {
+            addDataTag(tag, equipmentConfiguration);
+          } else if (COMMAND_TAG_ELEMENT.equals(tag.getTagName())) {
+            addCommandTag(tag, equipmentConfiguration);
+          }
+        } catch (Exception e) {
+          failure = e;
+        }
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+    if (equipmentConfiguration == null) {
+      equipmentConfiguration = createEquipmentConfiguration(withTagBlocks(equipmentUnit, document));
+    }
+    return equipmentConfiguration;
+  }
+
+  /**
+   * Adds the (empty) DataTags and CommandTags blocks to an equipment unit
+   * element read without its tags.
+   */
+  private static Element withTagBlocks(final Element equipmentUnit, final Document document) {
+    if (equipmentUnit.getElementsByTagName(DATA_TAGS_ELEMENT).getLength() == 0) {
+      equipmentUnit.appendChild(document.createElement(DATA_TAGS_ELEMENT));
+    }
+    if (equipmentUnit.getElementsByTagName(COMMAND_TAGS_ELEMENT).getLength() == 0) {
+      equipmentUnit.appendChild(document.createElement(COMMAND_TAGS_ELEMENT));
+    }
+    return equipmentUnit;
+  }
+
+  /**
+   * Reads the element the stream is positioned on, with all its content,
+   * into a DOM element. Leaves the stream on the end element.
+   */
+  static Element readElement(final XMLStreamReader reader, final Document document) throws XMLStreamException {
+    Element element = createElement(reader, document);
+    while (true) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          element.appendChild(readElement(reader, document));
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          element.appendChild(document.createTextNode(reader.getText()));
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          return element;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * @return an element with the name and attributes of the current start element
+   */
+  private static Element createElement(final XMLStreamReader reader, final Document document) {
+    Element element = document.createElement(reader.getLocalName());
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+    }
+    return element;
+  }
   
   /**
    * Creates the equipment configuration from the matching subelement in the DOM
@@ -164,24 +281,9 @@ public class EquipmentConfigurationFactory extends XMLTagValueExtractor implemen
     Element dataTagsBlock = (Element) equipmentUnit.getElementsByTagName(DATA_TAGS_ELEMENT).item(0);
     NodeList dataTags = dataTagsBlock.getElementsByTagName(DATA_TAG_ELEMENT);
     log.debug("\t" + dataTags.getLength() + " DataTags found for current equipment");
-    SourceDataTag sourceDataTag = null;
     // for each SourceDataTag defined in the DataTags XML block
     for (int i = 0; i < dataTags.getLength(); i++) {
-      sourceDataTag = SourceDataTag.fromConfigXML((Element) dataTags.item(i));
-      log.debug("\tCreating SourceDataTag object for id " + sourceDataTag.getId() + "..");
-      if (sourceDataTag.getAddress().getTimeDeadband() > 0) {
-        sourceDataTag.getAddress().setStaticTimedeadband(true);
-      }
-      if (sourceDataTag.getId().longValue() == equipmentConfiguration.getAliveTagId()) {
-        if (sourceDataTag.getAddress().getPriority() != DataTagAddress.PRIORITY_HIGH) {
-          log.warn("\tPriority on equipment alive tag " + sourceDataTag.getId() + " is wrongly configured! Adjusting priority to HIGH (7)");
-          sourceDataTag.getAddress().setPriority(DataTagAddress.PRIORITY_HIGH);
-        }
-        if (!sourceDataTag.isControl()) {
-          log.warn("\tEquipment alive tag " + sourceDataTag.getId() + " is not configured as control tag! Please correct this in the configuration.");
-        }
-      }
-      equipmentConfiguration.getDataTags().put(sourceDataTag.getId(), sourceDataTag);
+      addDataTag((Element) dataTags.item(i), equipmentConfiguration);
 
 //      // register tag in the ValueChangeMonitorEngine if needed
 //      if (sourceDataTag.hasValueCheckMonitor()) {
@@ -192,6 +294,31 @@ public class EquipmentConfigurationFactory extends XMLTagValueExtractor implemen
     } // for
   }
 
+  /**
+   * Creates the SourceDataTag of a DataTag element and adds it to the
+   * equipment configuration object.
+   *
+   * @param dataTag The DataTag DOM element.
+   * @param equipmentConfiguration The equipment configuration object.
+   */
+  private void addDataTag(final Element dataTag, final EquipmentConfiguration equipmentConfiguration) {
+    SourceDataTag sourceDataTag = SourceDataTag.fromConfigXML(dataTag);
+    log.debug("\tCreating SourceDataTag object for id " + sourceDataTag.getId() + "..");
+    if (sourceDataTag.getAddress().getTimeDeadband() > 0) {
+      sourceDataTag.getAddress().setStaticTimedeadband(true);
+    }
+    if (sourceDataTag.getId().longValue() == equipmentConfiguration.getAliveTagId()) {
+      if (sourceDataTag.getAddress().getPriority() != DataTagAddress.PRIORITY_HIGH) {
+        log.warn("\tPriority on equipment alive tag " + sourceDataTag.getId() + " is wrongly configured! Adjusting priority to HIGH (7)");
+        sourceDataTag.getAddress().setPriority(DataTagAddress.PRIORITY_HIGH);
+      }
+      if (!sourceDataTag.isControl()) {
+        log.warn("\tEquipment alive tag " + sourceDataTag.getId() + " is not configured as control tag! Please correct this in the configuration.");
+      }
+    }
+    equipmentConfiguration.getDataTags().put(sourceDataTag.getId(), sourceDataTag);
+  }
+
   /**
    * Processes all command tags in this equipment configuration DOM element and
    * adds them to the configuration object.
@@ -202,15 +329,25 @@ public class EquipmentConfigurationFactory extends XMLTagValueExtractor implemen
   private void processCommandTags(final Element equipmentUnit, final EquipmentConfiguration equipmentConfiguration) {
     Element commandTagsBlock = (Element) equipmentUnit.getElementsByTagName(COMMAND_TAGS_ELEMENT).item(0);
     NodeList commandTags = commandTagsBlock.getElementsByTagName(COMMAND_TAG_ELEMENT);
-    SourceCommandTag sourceCommandTag = null;
     // for each SourceDataTag defined in the DataTags XML block
     for (int i = 0; i < commandTags.getLength(); i++) {
-      sourceCommandTag = SourceCommandTag.fromConfigXML((Element) commandTags.item(i));
-      log.debug("creating SourceCommandTag object for id " + sourceCommandTag.getId() + "..");
-      equipmentConfiguration.getCommandTags().put(sourceCommandTag.getId(), sourceCommandTag);
+      addCommandTag((Element) commandTags.item(i), equipmentConfiguration);
     }
   }
 
+  /**
+   * Creates the SourceCommandTag of a CommandTag element and adds it to the
+   * equipment configuration object.
+   *
+   * @param commandTag The CommandTag DOM element.
+   * @param equipmentConfiguration The equipment configuration object.
+   */
+  private void addCommandTag(final Element commandTag, final EquipmentConfiguration equipmentConfiguration) {
+    SourceCommandTag sourceCommandTag = SourceCommandTag.fromConfigXML(commandTag);
+    log.debug("creating SourceCommandTag object for id " + sourceCommandTag.getId() + "..");
+    equipmentConfiguration.getCommandTags().put(sourceCommandTag.getId(), sourceCommandTag);
+  }
+
   /**
    * Creates a SubEquipment configuration from the matching subelement in the DOM tree.
    *
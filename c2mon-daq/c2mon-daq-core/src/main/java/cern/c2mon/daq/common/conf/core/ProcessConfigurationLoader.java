@@ -16,10 +16,20 @@
  *****************************************************************************/
 package cern.c2mon.daq.common.conf.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import cern.c2mon.daq.config.DaqProperties;
 import lombok.Setter;
@@ -54,6 +64,13 @@ import cern.c2mon.shared.util.parser.SimpleXMLParser;
 @Slf4j
 public class ProcessConfigurationLoader extends XMLTagValueExtractor implements ConfigurationXMLConstants {
 
+  /**
+   * Extension of the file holding the hash of the cached configuration.
+   */
+  private static final String HASH_FILE_EXTENSION = ".sha256";
+
+  private final XMLInputFactory xmlInputFactory = createXMLInputFactory();
+
   @Autowired
   @Setter
   private DaqProperties properties;
@@ -79,10 +96,23 @@ public class ProcessConfigurationLoader extends XMLTagValueExtractor implements
    * @return The Process Configuration Response. It will never return null.
    */
   public ProcessConfigurationResponse getProcessConfiguration() {
+    return getProcessConfiguration(null);
+  }
+
+  /**
+   * As {@link #getProcessConfiguration()}, telling the server which
+   * configuration the DAQ has cached. If it is still up to date, the server
+   * answers with {@link ProcessConfigurationResponse#CONF_UNCHANGED} instead
+   * of the configuration XML.
+   *
+   * @param configurationHash the hash of the cached configuration, or null
+   * @return The Process Configuration Response. It will never return null.
+   */
+  public ProcessConfigurationResponse getProcessConfiguration(final String configurationHash) {
     ProcessConfigurationResponse processConfigurationResponse;
     log.trace("getProcessConfiguration - getting Process Configuration");
 
-    processConfigurationResponse = processRequestSender.sendProcessConfigurationRequest(properties.getName());
+    processConfigurationResponse = processRequestSender.sendProcessConfigurationRequest(properties.getName(), configurationHash);
 
     if (processConfigurationResponse == null) {
       throw new RuntimeException("Configuration request to server: timeout waiting for server response");
@@ -165,6 +195,196 @@ public class ProcessConfigurationLoader extends XMLTagValueExtractor implements
     return confXMLDoc;
   }
 
+  /**
+   * @return the hash of the configuration cached by the DAQ, or null if
+   *         there is none (or the cache is disabled)
+   */
+  public String getCachedConfigurationHash() {
+    String cacheFile = properties.getConfigCacheFile();
+    if (cacheFile == null || !new File(cacheFile).isFile()) {
+      return null;
+    }
+    try {
+      return new String(Files.readAllBytes(new File(cacheFile + HASH_FILE_EXTENSION).toPath()), StandardCharsets.UTF_8).trim();
+    } catch (IOException e) {
+      log.debug("getCachedConfigurationHash - No hash found for the cached configuration " + cacheFile);
+      return null;
+    }
+  }
+
+  /**
+   * @return a reader of the cached configuration XML, or null if there is none
+   */
+  public Reader openCachedConfiguration() {
+    String cacheFile = properties.getConfigCacheFile();
+    if (cacheFile == null) {
+      return null;
+    }
+    try {
+      return Files.newBufferedReader(new File(cacheFile).toPath(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      log.warn("openCachedConfiguration - Unable to read the cached configuration " + cacheFile, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the configuration received from the server in the local cache,
+   * if enabled. The hash is written last, so a configuration is never used
+   * with the hash of another one.
+   *
+   * @param configurationXML the configuration XML
+   * @param configurationHash its hash as sent by the server, null if the
+   *                          server does not support configuration hashes
+   */
+  public void cacheConfiguration(final String configurationXML, final String configurationHash) {
+    String cacheFile = properties.getConfigCacheFile();
+    if (cacheFile == null || configurationHash == null) {
+      return;
+    }
+    File hashFile = new File(cacheFile + HASH_FILE_EXTENSION);
+    try {
+      Files.deleteIfExists(hashFile.toPath());
+      File tmpFile = new File(cacheFile + ".tmp");
+      Files.write(tmpFile.toPath(), configurationXML.getBytes(StandardCharsets.UTF_8));
+      Files.move(tmpFile.toPath(), new File(cacheFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+      Files.write(hashFile.toPath(), configurationHash.getBytes(StandardCharsets.UTF_8));
+      log.debug("cacheConfiguration - Configuration cached in " + cacheFile);
+    } catch (IOException e) {
+      log.warn("cacheConfiguration - Unable to cache the configuration in " + cacheFile, e);
+    }
+  }
+
+  /**
+   * Creates the ProcessConfiguration while reading the configuration XML
+   * with a streaming (StAX) parser, without building a DOM of the whole
+   * document. The DataTags and CommandTags are created one by one as they
+   * are read.
+   *
+   * @param processName The name of the process.
+   * @param processPIK The process PIK.
+   * @param xml the configuration XML
+   * @return The ProcessConfiguration object.
+   * @throws ConfUnknownTypeException Thrown if the configuration has the type 'unknown'.
+   * @throws ConfRejectedTypeException Thrown if the configuration has the type 'rejected'.
+   * @throws XMLStreamException if the XML is not well-formed
+   */
+  public ProcessConfiguration createProcessConfiguration(final String processName, final Long processPIK,
+      final Reader xml) throws ConfUnknownTypeException, ConfRejectedTypeException, XMLStreamException {
+    XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(xml);
+    try {
+      reader.nextTag();
+      String confType = reader.getAttributeValue(null, TYPE_ATTRIBUTE);
+
+      if (TYPE_ATTRIBUTE_VALUE_UNKNOWN.equalsIgnoreCase(confType)) {
+        throw new ConfUnknownTypeException();
+      }
+
+      if (TYPE_ATTRIBUTE_VALUE_REJECTED.equalsIgnoreCase(confType)) {
+        throw new ConfRejectedTypeException();
+      }
+
+      ProcessConfiguration processConfiguration = createProcessConfiguration(processName, processPIK,
+          Long.parseLong(reader.getAttributeValue(null, PROCESS_ID_ATTRIBUTE)));
+
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case ALIVE_TAG_ID_ELEMENT:
+            processConfiguration.setAliveTagID(Long.parseLong(reader.getElementText().trim()));
+            break;
+          case ALIVE_INTERVAL_ELEMENT:
+            processConfiguration.setAliveInterval(Integer.parseInt(reader.getElementText().trim()));
+            break;
+          case MAX_MESSAGE_SIZE_ELEMENT:
+            processConfiguration.setMaxMessageSize(Long.parseLong(reader.getElementText().trim()));
+            break;
+          case MAX_MESSAGE_DELAY_ELEMENT:
+            processConfiguration.setMaxMessageDelay(Long.parseLong(reader.getElementText().trim()));
+            break;
+          case EQUIPMENT_UNITS_ELEMENT:
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+              if (!EQUIPMENT_UNIT_ELEMENT.equals(reader.getLocalName())) {
+                skipElement(reader);
+                continue;
+              }
+              try {
+                processConfiguration.addEquipmentConfiguration(equipmentConfigurationFactory.createEquipmentConfiguration(reader));
+              } catch (XMLStreamException ex) {
+                throw ex;
+              } catch (Exception ex) {
+                log.error("Exception caught while trying to create an instance of EquipmentUnit.", ex);
+              }
+            }
+            break;
+          default:
+            skipElement(reader);
+            break;
+        }
+      }
+      return processConfiguration;
+    } catch (NumberFormatException ex) {
+      log.error("NumberFormatException caught while trying to configure the process. Ex. message = "
+          + ex.getMessage());
+      log.error("The structure of ProcessConfiguration XML might contain some mistakes !");
+      throw ex;
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Skips the element the stream is positioned on, leaving the stream on its end element.
+   */
+  private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static XMLInputFactory createXMLInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    return factory;
+  }
+
+  /**
+   * Creates a ProcessConfiguration with the settings not coming from the
+   * configuration XML (host name, command queue).
+   */
+  private ProcessConfiguration createProcessConfiguration(final String processName, final Long processPIK, final Long processId) {
+    ProcessConfiguration processConfiguration = new ProcessConfiguration();
+    processConfiguration.setProcessID(processId);
+    processConfiguration.setProcessName(processName);
+    processConfiguration.setprocessPIK(processPIK);
+
+    try {
+      processConfiguration.setHostName(InetAddress.getLocalHost().getHostName());
+    } catch (UnknownHostException e) {
+      processConfiguration.setHostName("NOHOST");
+    }
+
+    String pik;
+    if (processConfiguration.getprocessPIK() == ProcessConfigurationRequest.NO_PIK) {
+      pik = "NOPIK";
+    }
+    else {
+      pik = processConfiguration.getprocessPIK().toString();
+    }
+
+    String jmsDaqQueue = properties.getJms().getQueuePrefix() + ".command." + processConfiguration.getHostName() + "."
+        + processConfiguration.getProcessName() + "." + pik;
+    processConfiguration.setJmsDaqCommandQueue(jmsDaqQueue);
+    log.trace("createProcessConfiguration - jms Daq Queue: " + jmsDaqQueue);
+    return processConfiguration;
+  }
+
   /**
    * Takes the configuration DOM document and returns an ProcessConfiguration.
    *
@@ -177,7 +397,7 @@ public class ProcessConfigurationLoader extends XMLTagValueExtractor implements
    */
   public ProcessConfiguration createProcessConfiguration(final String processName, final Long processPIK,
       final Document confXMLDoc) throws ConfUnknownTypeException, ConfRejectedTypeException {
-    ProcessConfiguration processConfiguration = new ProcessConfiguration();
+    ProcessConfiguration processConfiguration;
     // get the root element of the document
     Element rootElem = confXMLDoc.getDocumentElement();
 
@@ -195,28 +415,8 @@ public class ProcessConfigurationLoader extends XMLTagValueExtractor implements
       // updating ProcessConfiguration object with information obtained
       // from the
       // Process Configuration XML
-      processConfiguration.setProcessID(Long.parseLong((rootElem.getAttribute(PROCESS_ID_ATTRIBUTE))));
-      processConfiguration.setProcessName(processName);
-      processConfiguration.setprocessPIK(processPIK);
-
-      try {
-        processConfiguration.setHostName(InetAddress.getLocalHost().getHostName());
-      } catch (UnknownHostException e) {
-        processConfiguration.setHostName("NOHOST");
-      }
-
-      String pik;
-      if (processConfiguration.getprocessPIK() == ProcessConfigurationRequest.NO_PIK) {
-        pik = "NOPIK";
-      }
-      else {
-        pik = processConfiguration.getprocessPIK().toString();
-      }
-
-      String jmsDaqQueue = properties.getJms().getQueuePrefix() + ".command." + processConfiguration.getHostName() + "."
-          + processConfiguration.getProcessName() + "." + pik;
-      processConfiguration.setJmsDaqCommandQueue(jmsDaqQueue);
-      log.trace("createProcessConfiguration - jms Daq Queue: " + jmsDaqQueue);
+      processConfiguration = createProcessConfiguration(processName, processPIK,
+          Long.parseLong((rootElem.getAttribute(PROCESS_ID_ATTRIBUTE))));
 
       processConfiguration.setAliveTagID(Long.parseLong(getTagValue(rootElem, ALIVE_TAG_ID_ELEMENT)));
 
@@ -23,6 +23,7 @@ import java.util.Map.Entry;
 
 import lombok.extern.slf4j.Slf4j;
 import cern.c2mon.daq.common.timer.FreshnessMonitor;
+import cern.c2mon.daq.common.timer.TimingWheel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -105,6 +106,11 @@ public class EquipmentMessageSender implements ICoreDataTagChanger, IEquipmentMe
 
   private FreshnessMonitor freshnessMonitor;
 
+  /**
+   * The timer running the time deadband schedulers (null to use a default one)
+   */
+  private TimingWheel timeDeadbandTimer;
+
   /**
    * Creates a new EquipmentMessageSender.
    *
@@ -131,6 +137,17 @@ public class EquipmentMessageSender implements ICoreDataTagChanger, IEquipmentMe
     this.freshnessMonitor = freshnessMonitor;
   }
 
+  /**
+   * Sets the timer on which the time deadband schedulers are run. If not set,
+   * a default timer shared by all equipments is used.
+   *
+   * @param timeDeadbandTimer the timer for the time deadband schedulers
+   */
+  @Autowired(required = false)
+  public void setTimeDeadbandTimer(@Qualifier("timeDeadbandTimer") final TimingWheel timeDeadbandTimer) {
+    this.timeDeadbandTimer = timeDeadbandTimer;
+  }
+
   /**
    * Init
    *
@@ -144,7 +161,12 @@ public class EquipmentMessageSender implements ICoreDataTagChanger, IEquipmentMe
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSender);
 
     // Time Deadband
-    this.equipmentTimeDeadband = new EquipmentTimeDeadband(this, this.processMessageSender, this.equipmentSenderFilterModule);
+    if (this.timeDeadbandTimer != null) {
+      this.equipmentTimeDeadband = new EquipmentTimeDeadband(this, this.processMessageSender, this.equipmentSenderFilterModule,
+          this.timeDeadbandTimer);
+    } else {
+      this.equipmentTimeDeadband = new EquipmentTimeDeadband(this, this.processMessageSender, this.equipmentSenderFilterModule);
+    }
 
     // Invalid Sender
     this.equipmentSenderInvalid = new EquipmentSenderInvalid(this.equipmentSenderFilterModule, this.processMessageSender, this.equipmentTimeDeadband, this);
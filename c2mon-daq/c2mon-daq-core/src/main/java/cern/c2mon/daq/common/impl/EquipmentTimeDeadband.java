@@ -18,6 +18,7 @@ package cern.c2mon.daq.common.impl;
 
 import cern.c2mon.daq.common.IDynamicTimeDeadbandFilterer;
 import cern.c2mon.daq.common.messaging.IProcessMessageSender;
+import cern.c2mon.daq.common.timer.TimingWheel;
 import cern.c2mon.daq.tools.DataTagValueFilter;
 import cern.c2mon.shared.common.datatag.SourceDataTag;
 import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
@@ -26,7 +27,6 @@ import cern.c2mon.shared.common.filter.FilteredDataTagValue.FilterType;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Hashtable;
-import java.util.Timer;
 
 import static java.lang.String.format;
 
@@ -56,7 +56,7 @@ class EquipmentTimeDeadband {
   /**
    * This is the time deadband scheduler timer where all schedulers are scheduled on.
    */
-  private static Timer timeDeadbandTimer = new Timer("Time deadband timer", true);
+  private final TimingWheel timeDeadbandTimer;
 
   /**
    * The dynamic time dead band filterer for recording the current source data tag
@@ -78,13 +78,37 @@ class EquipmentTimeDeadband {
   public EquipmentTimeDeadband(final IDynamicTimeDeadbandFilterer dynamicTimeDeadbandFilterer,
                                final IProcessMessageSender processMessageSender,
                                final EquipmentSenderFilterModule equipmentSenderFilterModule) {
+    this(dynamicTimeDeadbandFilterer, processMessageSender, equipmentSenderFilterModule, DefaultTimerHolder.TIMER);
+  }
+
+  /**
+   * Creates a new EquipmentTimeDeadband.
+   *
+   * @param dynamicTimeDeadbandFilterer The dynamic time dead band filterer for recording
+   *                                    the current source data tag
+   * @param equipmentSenderFilterModule The class with the message sender to send filtered tag values
+   * @param timeDeadbandTimer           The timer on which the time deadband schedulers are run
+   */
+  public EquipmentTimeDeadband(final IDynamicTimeDeadbandFilterer dynamicTimeDeadbandFilterer,
+                               final IProcessMessageSender processMessageSender,
+                               final EquipmentSenderFilterModule equipmentSenderFilterModule,
+                               final TimingWheel timeDeadbandTimer) {
     this.dynamicTimeDeadbandFilterer = dynamicTimeDeadbandFilterer;
     this.processMessageSender = processMessageSender;
     this.equipmentSenderFilterModule = equipmentSenderFilterModule;
+    this.timeDeadbandTimer = timeDeadbandTimer;
 
     this.dataTagValueFilter = new DataTagValueFilter();
   }
 
+  /**
+   * Timer shared by all instances which are not given one, created on first use.
+   */
+  private static final class DefaultTimerHolder {
+    private static final TimingWheel TIMER = new TimingWheel("Time deadband timer",
+        Runtime.getRuntime().availableProcessors(), 10);
+  }
+
   /**
    * Creates the time deadband scheduler for this tag.
    *
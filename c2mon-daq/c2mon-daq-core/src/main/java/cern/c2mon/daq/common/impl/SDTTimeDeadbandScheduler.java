@@ -18,6 +18,7 @@ package cern.c2mon.daq.common.impl;
 
 import cern.c2mon.daq.common.IDynamicTimeDeadbandFilterer;
 import cern.c2mon.daq.common.messaging.IProcessMessageSender;
+import cern.c2mon.daq.common.timer.TimingWheel;
 import cern.c2mon.daq.tools.DataTagValueFilter;
 import cern.c2mon.shared.common.datatag.SourceDataTag;
 import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
@@ -27,15 +28,12 @@ import cern.c2mon.shared.common.filter.FilteredDataTagValue.FilterType;
 import cern.c2mon.shared.common.type.TypeConverter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Timer;
-import java.util.TimerTask;
-
 /**
  * The SourceDataTagTimeDeadbandScheduler class models threads responsible for
  * handling source time deadband filtering. It will work with the Static TimeDeadband
  */
 @Slf4j
-public class SDTTimeDeadbandScheduler extends TimerTask {
+public class SDTTimeDeadbandScheduler implements Runnable {
 
   /**
    * The process message sender takes the messages actually send to the server.
@@ -70,7 +68,12 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
   /**
    * The timer to schedule this task on
    */
-  private Timer timeDeadbandTimer;
+  private TimingWheel timeDeadbandTimer;
+
+  /**
+   * Handle of this task on the timer, null if not started
+   */
+  private volatile TimingWheel.Timeout timeout;
 
   /**
    * The dynamic time dead band filterer for recording the current source data tag
@@ -100,7 +103,7 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
   public SDTTimeDeadbandScheduler(final SourceDataTag sourceDataTag,
                                   final IProcessMessageSender processMessageSender,
                                   final EquipmentSenderFilterModule equipmentSenderFilterModule,
-                                  final Timer timeDeadbandTimer,
+                                  final TimingWheel timeDeadbandTimer,
                                   final DataTagValueFilter dataTagValueFilter,
                                   final IDynamicTimeDeadbandFilterer dynamicTimeDeadbandFilterer) {
     this.dataTagValueFilter = dataTagValueFilter;
@@ -126,12 +129,23 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
               + this.sourceDataTag.getAddress().getTimeDeadband() + " miliseconds");
       }
 
-      this.timeDeadbandTimer.scheduleAtFixedRate(this, 0, this.sourceDataTag.getAddress().getTimeDeadband());
+      this.timeout = this.timeDeadbandTimer.schedule(this.sourceDataTag.getId(), this, 0, this.sourceDataTag.getAddress().getTimeDeadband());
 
       log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : setting scheduled");
     }
   }
 
+  /**
+   * Stops the periodic execution of this scheduler. A run in progress is
+   * completed.
+   */
+  public void cancel() {
+    TimingWheel.Timeout currentTimeout = this.timeout;
+    if (currentTimeout != null) {
+      currentTimeout.cancel();
+    }
+  }
+
   /**
    * flushes and resets the scheduler
    */
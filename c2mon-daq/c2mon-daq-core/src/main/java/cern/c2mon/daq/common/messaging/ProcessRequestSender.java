@@ -42,6 +42,17 @@ public interface ProcessRequestSender {
    */
   ProcessConfigurationResponse sendProcessConfigurationRequest(final String processName);
 
+  /**
+   * As {@link #sendProcessConfigurationRequest(String)}, with the hash of the
+   * configuration cached by the DAQ. If it is still up to date, the server
+   * replies {@link ProcessConfigurationResponse#CONF_UNCHANGED} instead of
+   * sending the configuration again.
+   *
+   * @param configurationHash the hash of the cached configuration, or null
+   * @return the ProcessConfigurationResponse object
+   */
+  ProcessConfigurationResponse sendProcessConfigurationRequest(final String processName, final String configurationHash);
+
   /**
    * This method publishes the unique Process Id Key (PIK) message on the configured topic. 
    * As a result it expects to receive the Process Configuration Response message. 
@@ -20,6 +20,7 @@ import cern.c2mon.daq.common.conf.core.ProcessConfigurationHolder;
 import cern.c2mon.daq.common.messaging.ProcessRequestSender;
 import cern.c2mon.daq.config.DaqProperties;
 import cern.c2mon.shared.common.process.ProcessConfiguration;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateFormat;
 import cern.c2mon.shared.daq.process.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +71,11 @@ public class ActiveRequestSender implements ProcessRequestSender {
 
   @Override
   public ProcessConfigurationResponse sendProcessConfigurationRequest(final String processName) {
+    return sendProcessConfigurationRequest(processName, null);
+  }
+
+  @Override
+  public ProcessConfigurationResponse sendProcessConfigurationRequest(final String processName, final String configurationHash) {
     LOGGER.debug("sendProcessConfigurationRequest - Sending Process Configuration request to server.");
     // use of JmsTemplate here means exceptions are caught by Spring and
     // converted!
@@ -82,6 +88,7 @@ public class ActiveRequestSender implements ProcessRequestSender {
 
         ProcessConfigurationRequest processConfigurationRequest = new ProcessConfigurationRequest(processName);
         processConfigurationRequest.setprocessPIK(ProcessConfigurationHolder.getInstance().getprocessPIK());
+        processConfigurationRequest.setConfigurationHash(configurationHash);
 
         Message message = processMessageConverter.toMessage(processConfigurationRequest, session);
         message.setJMSReplyTo(replyQueue);
@@ -127,6 +134,7 @@ public class ActiveRequestSender implements ProcessRequestSender {
         TemporaryQueue replyQueue = session.createTemporaryQueue();
         // Process PIK Request
         ProcessConnectionRequest processConnectionRequest = new ProcessConnectionRequest(processName);
+        processConnectionRequest.setUpdateFormats(getSupportedUpdateFormats());
 //        configurationController.setStartUp(processConnectionRequest.getProcessStartupTime().getTime());
 
         Message message = processMessageConverter.toMessage(processConnectionRequest, session);
@@ -164,6 +172,18 @@ public class ActiveRequestSender implements ProcessRequestSender {
     return processConnectionResponse;
   }
 
+  /**
+   * @return the comma-separated tag update formats announced to the server,
+   *         JSON always being the fallback
+   */
+  private String getSupportedUpdateFormats() {
+    DataTagValueUpdateFormat preferred = DataTagValueUpdateFormat.fromName(properties.getJms().getUpdateFormat());
+    if (preferred == DataTagValueUpdateFormat.JSON) {
+      return DataTagValueUpdateFormat.JSON.getName();
+    }
+    return preferred.getName() + "," + DataTagValueUpdateFormat.JSON.getName();
+  }
+
   @Override
   public void sendProcessDisconnectionRequest(ProcessConfiguration processConfiguration, long startupTime) {
     LOGGER.debug("sendProcessDisconnectionRequest - Sending Process Disconnection notification to server.");
@@ -23,6 +23,8 @@ import javax.jms.JMSException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 
 import cern.c2mon.daq.common.conf.core.ProcessConfigurationHolder;
 import cern.c2mon.daq.common.messaging.IProcessMessageSender;
@@ -49,8 +51,11 @@ import cern.c2mon.shared.util.buffer.SynchroBufferListener;
  * critical.
  *
  * For low priority messages, two synchrobuffer's are used (one for persistent,
- * the other for non-persistent messages).
+ * the other for non-persistent messages). Unless disabled, the buffer for
+ * non-persistent messages only keeps the latest value of each tag between two
+ * sends, whereas the persistent buffer keeps the full history.
  */
+@ManagedResource(objectName = "cern.c2mon:name=processMessageSender")
 public class ProcessMessageSender implements IProcessMessageSender {
 
   /**
@@ -74,6 +79,12 @@ public class ProcessMessageSender implements IProcessMessageSender {
    */
   private Collection<JmsSender> jmsSenders;
 
+  /**
+   * Whether non-persistent values of the same tag are coalesced in the
+   * sending buffer (last value wins)
+   */
+  private boolean coalesceUpdates = true;
+
   /**
    * The system's logger
    */
@@ -85,7 +96,12 @@ public class ProcessMessageSender implements IProcessMessageSender {
     ProcessConfiguration processConfiguration = ProcessConfigurationHolder.getInstance();
     // TODO move the min window size to properties or database
     // create and initialize dataTagsBuffer for non-persistent tags
-    dataTagsBuffer = new SynchroBuffer(200, processConfiguration.getMaxMessageDelay(), 100, SynchroBuffer.DUPLICATE_OK);
+    if (coalesceUpdates) {
+      dataTagsBuffer = new SynchroBuffer("", 200, processConfiguration.getMaxMessageDelay(), 100,
+          value -> ((SourceDataTagValue) value).getId());
+    } else {
+      dataTagsBuffer = new SynchroBuffer(200, processConfiguration.getMaxMessageDelay(), 100, SynchroBuffer.DUPLICATE_OK);
+    }
     // create and initialize dataTagsBuffer for persistent tags
     persistentTagsBuffer = new SynchroBuffer(200, processConfiguration.getMaxMessageDelay(), 100, SynchroBuffer.DUPLICATE_OK);
 
@@ -292,6 +308,50 @@ public class ProcessMessageSender implements IProcessMessageSender {
     this.jmsSenders = jmsSenders;
   }
 
+  /**
+   * Setter method.
+   *
+   * @param coalesceUpdates if true, only the latest value of a non-persistent
+   *          tag is sent when several updates arrive within one buffering window
+   *          (must be set before {@link #init()})
+   */
+  public final void setCoalesceUpdates(final boolean coalesceUpdates) {
+    this.coalesceUpdates = coalesceUpdates;
+  }
+
+  /**
+   * @return the number of non-persistent values dropped because a newer value
+   *         for the same tag arrived before the buffer was sent
+   */
+  @ManagedAttribute
+  public long getCoalescedValueCount() {
+    return dataTagsBuffer == null ? 0 : dataTagsBuffer.getCoalescedCount();
+  }
+
+  /**
+   * @return the fraction (between 0 and 1) of the non-persistent values which
+   *         were coalesced away instead of being sent
+   */
+  @ManagedAttribute
+  public double getCoalescingRate() {
+    if (dataTagsBuffer == null || dataTagsBuffer.getPushCount() == 0) {
+      return 0;
+    }
+    return (double) dataTagsBuffer.getCoalescedCount() / dataTagsBuffer.getPushCount();
+  }
+
+  /**
+   * @return the number of values waiting in the tag buffers to be sent to
+   *         the server
+   */
+  @ManagedAttribute
+  public int getBufferedValueCount() {
+    if (dataTagsBuffer == null) {
+      return 0;
+    }
+    return dataTagsBuffer.getSize() + persistentTagsBuffer.getSize();
+  }
+
   /**
    * This class implements SynchroBuffer's SychroBufferListener, so that both
    * ProcessMessageSender's tag buffers (for persistent and non-persistent) tags
@@ -38,6 +38,11 @@ public class TestModeRequestSender implements ProcessRequestSender {
     return wrapperRequestSender.sendProcessConfigurationRequest(processName);
   }
 
+  @Override
+  public ProcessConfigurationResponse sendProcessConfigurationRequest(final String processName, final String configurationHash) {
+    return wrapperRequestSender.sendProcessConfigurationRequest(processName, configurationHash);
+  }
+
   @Override
   public ProcessConnectionResponse sendProcessConnectionRequest(final String processName) {
     return new ProcessConnectionResponse(processName, 123456L);
@@ -0,0 +1,449 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.common.timer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Timer for large numbers of periodic tasks, based on hierarchical timing
+ * wheels.
+ *
+ * <p>The timer is split into shards, each one driven by its own thread. A task
+ * is assigned to a shard by its key, so all executions of a task happen on the
+ * same thread. Scheduling and cancelling a task are O(1) operations and never
+ * block the shard thread.
+ *
+ * <p>Each shard holds {@value #LEVELS} wheels of {@value #WHEEL_SIZE} slots.
+ * The slots of the first wheel are one tick wide; those of every following
+ * wheel span a full turn of the previous one. Tasks are moved down to the
+ * finer wheels as their deadline approaches. At every tick, all tasks expiring
+ * in the current slot are executed in one batch.
+ *
+ * <p>The timer keeps statistics about the lag of the executions, i.e. the
+ * difference between the deadline of a task and its actual execution time.
+ */
+@Slf4j
+@ManagedResource(description = "Timer based on hierarchical timing wheels")
+public class TimingWheel {
+
+  /** Number of bits used for a slot index */
+  private static final int WHEEL_BITS = 6;
+
+  /** Number of slots per wheel */
+  static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+  /** Number of wheels; with 10ms ticks the last one spans more than 40 hours */
+  static final int LEVELS = 4;
+
+  /** Largest delay (in ticks) which can be held by the wheels */
+  private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+  private final String name;
+
+  private final long tickNanos;
+
+  private final Shard[] shards;
+
+  private volatile boolean running = true;
+
+  /**
+   * @param name name of the timer, used for the thread names
+   * @param shardCount number of shards (threads)
+   * @param tickMillis resolution of the timer in milliseconds
+   */
+  public TimingWheel(final String name, final int shardCount, final long tickMillis) {
+    if (shardCount < 1 || tickMillis < 1) {
+      throw new IllegalArgumentException("The timer needs at least one shard and a tick of at least 1 ms");
+    }
+    this.name = name;
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    this.shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(name + "-" + i);
+      shards[i].start();
+    }
+    log.debug("Started timer '" + name + "' with " + shardCount + " shards and a tick of " + tickMillis + " ms");
+  }
+
+  /**
+   * Schedules a task for repeated execution. The executions are planned at a
+   * fixed rate; if the timer falls behind by more than one period, the missed
+   * executions are skipped.
+   *
+   * @param key determines the shard running the task (e.g. the tag id)
+   * @param task the task to run
+   * @param delayMillis delay before the first execution
+   * @param periodMillis time between two executions; 0 for a single execution
+   * @return the handle for cancelling the task
+   */
+  public Timeout schedule(final long key, final Runnable task, final long delayMillis, final long periodMillis) {
+    if (!running) {
+      throw new IllegalStateException("Timer '" + name + "' has been shut down");
+    }
+    Shard shard = shards[(int) ((key ^ (key >>> 32)) & Integer.MAX_VALUE) % shards.length];
+    Timeout timeout = new Timeout(shard, task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)),
+        TimeUnit.MILLISECONDS.toNanos(Math.max(0, periodMillis)));
+    shard.scheduledCount.incrementAndGet();
+    shard.pendingTimeouts.add(timeout);
+    return timeout;
+  }
+
+  /**
+   * Stops all shard threads. Scheduled tasks are not executed any more.
+   */
+  public void shutdown() {
+    running = false;
+    for (Shard shard : shards) {
+      shard.interrupt();
+    }
+  }
+
+  /**
+   * @return the number of shards
+   */
+  @ManagedAttribute(description = "Number of shards (threads) of the timer")
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * @return the number of currently scheduled tasks
+   */
+  @ManagedAttribute(description = "Number of scheduled tasks")
+  public int getScheduledCount() {
+    int count = 0;
+    for (Shard shard : shards) {
+      count += shard.scheduledCount.get();
+    }
+    return count;
+  }
+
+  /**
+   * @return the total number of task executions
+   */
+  @ManagedAttribute(description = "Total number of task executions")
+  public long getExecutionCount() {
+    long count = 0;
+    for (Shard shard : shards) {
+      count += shard.executionCount;
+    }
+    return count;
+  }
+
+  /**
+   * @return the average lag of the task executions in milliseconds
+   */
+  @ManagedAttribute(description = "Average lag of the task executions (ms)")
+  public double getAverageLag() {
+    long count = 0;
+    long totalLag = 0;
+    for (Shard shard : shards) {
+      count += shard.executionCount;
+      totalLag += shard.totalLagNanos;
+    }
+    return count == 0 ? 0d : (double) totalLag / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * @return the largest lag of a task execution in milliseconds
+   */
+  @ManagedAttribute(description = "Largest lag of a task execution (ms)")
+  public long getMaxLag() {
+    long maxLag = 0;
+    for (Shard shard : shards) {
+      maxLag = Math.max(maxLag, shard.maxLagNanos);
+    }
+    return TimeUnit.NANOSECONDS.toMillis(maxLag);
+  }
+
+  /**
+   * Handle of a scheduled task.
+   */
+  public static final class Timeout {
+
+    private final Shard shard;
+
+    private final Runnable task;
+
+    private final long periodNanos;
+
+    /** Deadline in System.nanoTime() units; only changed by the shard thread */
+    private long deadline;
+
+    private volatile boolean cancelled;
+
+    /** Bucket holding the timeout; only accessed by the shard thread */
+    private Bucket bucket;
+
+    private Timeout previous;
+
+    private Timeout next;
+
+    private Timeout(final Shard shard, final Runnable task, final long deadline, final long periodNanos) {
+      this.shard = shard;
+      this.task = task;
+      this.deadline = deadline;
+      this.periodNanos = periodNanos;
+    }
+
+    /**
+     * Cancels the task. An execution already in progress is not interrupted,
+     * but no further execution will start.
+     */
+    public void cancel() {
+      if (!cancelled) {
+        cancelled = true;
+        shard.cancelledTimeouts.add(this);
+      }
+    }
+
+    /**
+     * @return true if the task has been cancelled
+     */
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  /**
+   * Doubly linked list of timeouts, allowing O(1) removal.
+   */
+  private static final class Bucket {
+
+    private Timeout head;
+
+    private void add(final Timeout timeout) {
+      timeout.bucket = this;
+      timeout.previous = null;
+      timeout.next = head;
+      if (head != null) {
+        head.previous = timeout;
+      }
+      head = timeout;
+    }
+
+    private void remove(final Timeout timeout) {
+      if (timeout.previous != null) {
+        timeout.previous.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+      if (timeout.next != null) {
+        timeout.next.previous = timeout.previous;
+      }
+      timeout.bucket = null;
+      timeout.previous = null;
+      timeout.next = null;
+    }
+
+    /**
+     * Removes all timeouts from the bucket.
+     * @return the first of the removed timeouts, still linked to each other
+     */
+    private Timeout clear() {
+      Timeout first = head;
+      head = null;
+      return first;
+    }
+  }
+
+  /**
+   * A set of wheels driven by one thread.
+   */
+  private final class Shard extends Thread {
+
+    private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger scheduledCount = new AtomicInteger();
+
+    private final long startTime = System.nanoTime();
+
+    /** Last processed tick */
+    private long currentTick = 0;
+
+    // Statistics, only written by the shard thread
+    private volatile long executionCount;
+
+    private volatile long totalLagNanos;
+
+    private volatile long maxLagNanos;
+
+    private Shard(final String threadName) {
+      super(threadName);
+      setDaemon(true);
+      for (Bucket[] wheel : wheels) {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+          wheel[i] = new Bucket();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        long sleepNanos = startTime + (currentTick + 1) * tickNanos - System.nanoTime();
+        if (sleepNanos > 0) {
+          try {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+          } catch (InterruptedException e) {
+            continue;
+          }
+        }
+
+        long nowTick = (System.nanoTime() - startTime) / tickNanos;
+        processCancelledTimeouts();
+        transferPendingTimeouts();
+        // catch up if the thread was late
+        while (currentTick < nowTick && running) {
+          currentTick++;
+          cascade();
+          expire(wheels[0][(int) (currentTick & WHEEL_MASK)]);
+        }
+      }
+    }
+
+    private void processCancelledTimeouts() {
+      Timeout timeout;
+      while ((timeout = cancelledTimeouts.poll()) != null) {
+        if (timeout.bucket != null) {
+          timeout.bucket.remove(timeout);
+          scheduledCount.decrementAndGet();
+        }
+      }
+    }
+
+    private void transferPendingTimeouts() {
+      Timeout timeout;
+      while ((timeout = pendingTimeouts.poll()) != null) {
+        if (timeout.cancelled) {
+          scheduledCount.decrementAndGet();
+        } else {
+          add(timeout, currentTick + 1);
+        }
+      }
+    }
+
+    /**
+     * Puts the timeout into the wheel matching its deadline.
+     *
+     * @param firstTick the first tick which has not been processed yet;
+     *          timeouts already due are put in its slot
+     */
+    private void add(final Timeout timeout, final long firstTick) {
+      long deadlineTick = Math.max(firstTick, (timeout.deadline - startTime + tickNanos - 1) / tickNanos);
+      long delta = deadlineTick - currentTick;
+      if (delta > MAX_DELTA) {
+        deadlineTick = currentTick + MAX_DELTA;
+        delta = MAX_DELTA;
+      }
+
+      int level = 0;
+      while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+        level++;
+      }
+      wheels[level][(int) ((deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].add(timeout);
+    }
+
+    /**
+     * Moves the timeouts of the coarser wheels down, whenever the finer wheel
+     * completed a turn.
+     */
+    private void cascade() {
+      for (int level = 1; level < LEVELS; level++) {
+        if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+          break;
+        }
+        Timeout timeout = wheels[level][(int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].clear();
+        while (timeout != null) {
+          Timeout next = timeout.next;
+          timeout.bucket = null;
+          // the slot of the current tick is expired right after the cascade
+          add(timeout, currentTick);
+          timeout = next;
+        }
+      }
+    }
+
+    /**
+     * Runs all timeouts of the bucket, then reschedules the periodic ones.
+     */
+    private void expire(final Bucket bucket) {
+      Timeout timeout = bucket.clear();
+      if (timeout == null) {
+        return;
+      }
+
+      long tickEnd = startTime + (currentTick + 1) * tickNanos;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        timeout.bucket = null;
+        timeout.previous = null;
+        timeout.next = null;
+
+        if (timeout.deadline >= tickEnd) {
+          // truncated deadline beyond the range of the wheels
+          add(timeout, currentTick + 1);
+        } else if (!timeout.cancelled) {
+          run(timeout);
+        } else {
+          scheduledCount.decrementAndGet();
+        }
+        timeout = next;
+      }
+    }
+
+    private void run(final Timeout timeout) {
+      long now = System.nanoTime();
+      long lag = Math.max(0, now - timeout.deadline);
+      executionCount++;
+      totalLagNanos += lag;
+      if (lag > maxLagNanos) {
+        maxLagNanos = lag;
+      }
+
+      try {
+        timeout.task.run();
+      } catch (Exception e) {
+        log.error("Unexpected exception caught in task of timer '" + name + "'", e);
+      }
+
+      if (timeout.periodNanos > 0 && !timeout.cancelled && running) {
+        timeout.deadline += timeout.periodNanos;
+        if (timeout.deadline < now) {
+          // skip the missed executions
+          timeout.deadline = now + timeout.periodNanos - (now - timeout.deadline) % timeout.periodNanos;
+        }
+        add(timeout, currentTick + 1);
+      } else {
+        scheduledCount.decrementAndGet();
+      }
+    }
+  }
+}
@@ -40,6 +40,13 @@ public class DaqProperties {
    */
   private String saveRemoteConfig = null;
 
+  /**
+   * Path on the local machine of a cache of the remote configuration. If set,
+   * the DAQ only asks the server for its configuration if it changed since it
+   * was cached, and otherwise starts with the cached one.
+   */
+  private String configCacheFile = null;
+
   /**
    * JMS properties
    */
@@ -63,6 +70,22 @@ public class DaqProperties {
      * running in double publication mode)
      */
     private String secondaryUrl = "tcp://localhost:61617";
+
+    /**
+     * Preferred format for publishing tag updates. Possible values are:
+     *
+     * binary: compact binary encoding, used only if the server accepts it
+     *         during the connection handshake (default)
+     * json:   JSON encoding, supported by all servers
+     */
+    private String updateFormat = "binary";
+
+    /**
+     * If true, low priority updates of tags without guaranteed delivery are
+     * coalesced while buffered, i.e. only the latest value of each tag is sent
+     * in the next message. Guaranteed delivery tags always keep their history.
+     */
+    private boolean coalesceUpdates = true;
   }
 
   /**
@@ -123,6 +146,26 @@ public class DaqProperties {
       private int forcedDeadbandInterval = 30000;
     }
 
+    /**
+     * Time deadband timer properties
+     */
+    private final TimeDeadband timeDeadband = new TimeDeadband();
+
+    @Data
+    public static class TimeDeadband {
+
+      /**
+       * Number of threads running the time deadband schedulers. Each tag is
+       * always handled by the same thread
+       */
+      private int timerShards = Runtime.getRuntime().availableProcessors();
+
+      /**
+       * Resolution (in ms) of the time deadband timer
+       */
+      private int timerTick = 10;
+    }
+
     /**
      * Enable/disable publication of filtered values to a broker. This is often
      * useful for gathering statistics about filtered data
@@ -16,13 +16,15 @@
  ******************************************************************************/
 package cern.c2mon.daq.config;
 
+import cern.c2mon.daq.common.timer.TimingWheel;
 import cern.c2mon.daq.filter.dynamic.CounterTimeDeadbandActivator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 
 /**
  * This configuration class is responsible for instantiating the various
- * {@link CounterTimeDeadbandActivator} beans used within the DAQ core.
+ * {@link CounterTimeDeadbandActivator} beans used within the DAQ core, as
+ * well as the timer running the time deadband schedulers.
  *
  * @author Justin Lewis Salmon
  */
@@ -44,4 +46,10 @@ public class DeadbandConfig {
     return new CounterTimeDeadbandActivator(deadband.getWindowSize(), deadband.getCheckInterval(),
         deadband.getActivationThreshold(), deadband.getDeactivationThreshold(), deadband.getForcedDeadbandInterval());
   }
+
+  @Bean(destroyMethod = "shutdown")
+  public TimingWheel timeDeadbandTimer() {
+    DaqProperties.Filter.TimeDeadband timeDeadband = properties.getFilter().getTimeDeadband();
+    return new TimingWheel("Time deadband timer", timeDeadband.getTimerShards(), timeDeadband.getTimerTick());
+  }
 }
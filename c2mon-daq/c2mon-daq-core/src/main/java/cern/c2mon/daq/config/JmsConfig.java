@@ -30,11 +30,21 @@ public class JmsConfig {
     return new SingleConnectionFactory(activeMQConnectionFactory());
   }
 
+  /**
+   * Converter for the primary broker. Its format is set after the connection
+   * handshake with the server, see
+   * {@link cern.c2mon.daq.common.conf.core.ConfigurationController#loadProcessConnection()}
+   */
+  @Bean
+  public DataTagValueUpdateConverter dataTagValueUpdateConverter() {
+    return new DataTagValueUpdateConverter();
+  }
+
   @Bean
   public JmsTemplate sourceUpdateJmsTemplate() {
     JmsTemplate template = new JmsTemplate(singleConnectionFactory());
     template.setDefaultDestination(new ActiveMQQueue(properties.getJms().getQueuePrefix() + ".update." + properties.getName()));
-    template.setMessageConverter(new DataTagValueUpdateConverter());
+    template.setMessageConverter(dataTagValueUpdateConverter());
     return template;
   }
 
@@ -100,6 +110,7 @@ public class JmsConfig {
   public JmsTemplate secondSourceUpdateJmsTemplate() {
     JmsTemplate template = new JmsTemplate(secondSingleConnectionFactory());
     template.setDefaultDestination(new ActiveMQQueue(properties.getJms().getQueuePrefix() + ".update." + properties.getName()));
+    // No handshake takes place with the secondary server, so always send JSON
     template.setMessageConverter(new DataTagValueUpdateConverter());
     return template;
   }
@@ -73,6 +73,7 @@ public class ProcessMessageSenderConfig {
   public ProcessMessageSender singleMessageSender() {
     ProcessMessageSender processMessageSender = new ProcessMessageSender();
     processMessageSender.setJmsSenders(Collections.singletonList(activeJmsSender()));
+    processMessageSender.setCoalesceUpdates(properties.getJms().isCoalesceUpdates());
     return processMessageSender;
   }
 
@@ -81,6 +82,7 @@ public class ProcessMessageSenderConfig {
   public ProcessMessageSender doubleMessageSender() {
     ProcessMessageSender processMessageSender = new ProcessMessageSender();
     processMessageSender.setJmsSenders(Arrays.asList(activeJmsSender(), proxyJmsSender()));
+    processMessageSender.setCoalesceUpdates(properties.getJms().isCoalesceUpdates());
     return processMessageSender;
   }
 
@@ -89,6 +91,7 @@ public class ProcessMessageSenderConfig {
   public ProcessMessageSender testMessageSender() {
     ProcessMessageSender processMessageSender = new ProcessMessageSender();
     processMessageSender.setJmsSenders(Collections.singletonList(dummyJmsSender()));
+    processMessageSender.setCoalesceUpdates(properties.getJms().isCoalesceUpdates());
     return processMessageSender;
   }
 
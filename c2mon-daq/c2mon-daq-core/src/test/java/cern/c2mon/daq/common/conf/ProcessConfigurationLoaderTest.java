@@ -21,13 +21,17 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.core.io.ClassPathResource;
@@ -38,6 +42,7 @@ import cern.c2mon.daq.common.conf.core.ProcessConfigurationLoader;
 import cern.c2mon.daq.config.DaqProperties;
 import cern.c2mon.daq.tools.processexceptions.ConfRejectedTypeException;
 import cern.c2mon.daq.tools.processexceptions.ConfUnknownTypeException;
+import cern.c2mon.shared.common.command.SourceCommandTag;
 import cern.c2mon.shared.common.datatag.SourceDataTag;
 import cern.c2mon.shared.common.datatag.address.impl.PLCHardwareAddressImpl;
 import cern.c2mon.shared.common.process.EquipmentConfiguration;
@@ -148,6 +153,64 @@ public class ProcessConfigurationLoaderTest {
     }
   }
 
+  @Test
+  public void testStreamedProcessConfiguration() throws Exception {
+    ProcessConfiguration expected = getProcessConfiguration(PROCESS_CONFIGURATION_XML);
+    ProcessConfiguration processConfiguration = streamProcessConfiguration(PROCESS_CONFIGURATION_XML);
+
+    assertEquals(expected.getProcessID(), processConfiguration.getProcessID());
+    assertEquals(expected.getJmsDaqCommandQueue(), processConfiguration.getJmsDaqCommandQueue());
+    assertEquals(expected.getAliveTagID(), processConfiguration.getAliveTagID());
+    assertEquals(expected.getAliveInterval(), processConfiguration.getAliveInterval());
+    assertEquals(expected.getMaxMessageSize(), processConfiguration.getMaxMessageSize());
+    assertEquals(expected.getMaxMessageDelay(), processConfiguration.getMaxMessageDelay());
+    assertEquals(expected.getEquipmentConfigurations().keySet(), processConfiguration.getEquipmentConfigurations().keySet());
+
+    for (EquipmentConfiguration expectedEquipment : expected.getEquipmentConfigurations().values()) {
+      EquipmentConfiguration equipment = processConfiguration.getEquipmentConfiguration(expectedEquipment.getId());
+      assertEquals(expectedEquipment.getName(), equipment.getName());
+      assertEquals(expectedEquipment.getHandlerClassName(), equipment.getHandlerClassName());
+      assertEquals(expectedEquipment.getAddress(), equipment.getAddress());
+      assertEquals(expectedEquipment.getCommFaultTagId(), equipment.getCommFaultTagId());
+      assertEquals(expectedEquipment.getAliveTagId(), equipment.getAliveTagId());
+      assertEquals(expectedEquipment.getAliveTagInterval(), equipment.getAliveTagInterval());
+      assertEquals(expectedEquipment.getSubEquipmentConfigurations().keySet(), equipment.getSubEquipmentConfigurations().keySet());
+      assertEquals(expectedEquipment.getDataTags().keySet(), equipment.getDataTags().keySet());
+      assertEquals(expectedEquipment.getCommandTags().keySet(), equipment.getCommandTags().keySet());
+
+      for (SourceDataTag expectedTag : expectedEquipment.getDataTags().values()) {
+        SourceDataTag tag = equipment.getDataTags().get(expectedTag.getId());
+        assertEquals(expectedTag.getName(), tag.getName());
+        assertEquals(expectedTag.getDataType(), tag.getDataType());
+        assertEquals(expectedTag.getMode(), tag.getMode());
+        assertEquals(expectedTag.getAddress().getPriority(), tag.getAddress().getPriority());
+        assertEquals(expectedTag.getHardwareAddress().toConfigXML(), tag.getHardwareAddress().toConfigXML());
+      }
+      for (SourceCommandTag expectedCommand : expectedEquipment.getCommandTags().values()) {
+        SourceCommandTag command = equipment.getCommandTags().get(expectedCommand.getId());
+        assertEquals(expectedCommand.getName(), command.getName());
+        assertEquals(expectedCommand.getHardwareAddress().toConfigXML(), command.getHardwareAddress().toConfigXML());
+      }
+    }
+  }
+
+  @Test
+  public void testStreamedConfigRejectedException() throws Exception {
+    try {
+      streamProcessConfiguration(PROCESS_CONFIGURATION_REJECTED_XML);
+      fail("No ConfRejectedTypeException thrown.");
+    } catch (ConfRejectedTypeException e) {
+    }
+  }
+
+  private ProcessConfiguration streamProcessConfiguration(String name) throws ConfUnknownTypeException, ConfRejectedTypeException,
+      IOException, XMLStreamException {
+    processConfigurationLoader.setProperties(new DaqProperties());
+    try (Reader reader = new FileReader(new ClassPathResource(name).getFile())) {
+      return processConfigurationLoader.createProcessConfiguration(PROCESS_NAME, PROCESS_PIK, reader);
+    }
+  }
+
   private ProcessConfiguration getProcessConfiguration(String name) throws ConfUnknownTypeException, ConfRejectedTypeException, IOException {
     String path = new ClassPathResource(name).getFile().getAbsolutePath();
     Document pconfDocument = processConfigurationLoader.fromFiletoDOC(path);
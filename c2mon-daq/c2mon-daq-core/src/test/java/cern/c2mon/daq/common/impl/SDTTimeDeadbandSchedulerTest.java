@@ -17,9 +17,9 @@
 package cern.c2mon.daq.common.impl;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.Timer;
 
 import cern.c2mon.daq.common.timer.FreshnessMonitor;
+import cern.c2mon.daq.common.timer.TimingWheel;
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,6 +45,8 @@ public class SDTTimeDeadbandSchedulerTest {
 
   private static final float VALUE_DEADBAND = 25.0f;
 
+  private static final TimingWheel TIMER = new TimingWheel("test", 1, 10);
+
   private SDTTimeDeadbandScheduler scheduler;
   private SourceDataTag tag;
   private EquipmentMessageSender equipmentMessageSender;
@@ -137,7 +139,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
     //        EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TIMER, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -179,7 +181,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
     //        EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TIMER, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -228,7 +230,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
 //     EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TIMER, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -275,7 +277,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
 //     EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TIMER, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -284,7 +286,7 @@ public class SDTTimeDeadbandSchedulerTest {
     // FlushAndReset
     this.scheduler.flushAndCancel();
     // Start the new task
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, TIMER, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     // Repeated value (should pass cause it was flush and reset)
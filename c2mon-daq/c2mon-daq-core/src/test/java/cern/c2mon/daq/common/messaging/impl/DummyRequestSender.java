@@ -45,6 +45,11 @@ public class DummyRequestSender implements ProcessRequestSender {
     return new ProcessConnectionResponse("P_TEST", new Long(12345));
   }
 
+  @Override
+  public ProcessConfigurationResponse sendProcessConfigurationRequest(String processName, String configurationHash) {
+    return sendProcessConfigurationRequest(processName);
+  }
+
   @Override
   public ProcessConfigurationResponse sendProcessConfigurationRequest(String processName) {
     //return (ProcessConfigurationResponse) loadConfigLocal(processConfigurationFilePath);
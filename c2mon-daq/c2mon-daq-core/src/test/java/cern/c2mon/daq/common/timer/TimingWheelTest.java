@@ -0,0 +1,134 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.common.timer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+  private TimingWheel timer;
+
+  @Before
+  public void setUp() {
+    timer = new TimingWheel("test", 2, 1);
+  }
+
+  @After
+  public void tearDown() {
+    timer.shutdown();
+  }
+
+  @Test
+  public void singleExecution() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    AtomicLong executionTime = new AtomicLong();
+    long start = System.currentTimeMillis();
+
+    timer.schedule(1L, () -> {
+      executionTime.set(System.currentTimeMillis());
+      latch.countDown();
+    }, 20, 0);
+
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+    assertTrue(executionTime.get() - start >= 20);
+    Thread.sleep(20);
+    assertEquals(0, timer.getScheduledCount());
+    assertEquals(1, timer.getExecutionCount());
+  }
+
+  @Test
+  public void delayBeyondTheFirstWheel() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    long delay = TimingWheel.WHEEL_SIZE * 3 + 17;
+    long start = System.currentTimeMillis();
+
+    timer.schedule(5L, latch::countDown, delay, 0);
+
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+    long elapsed = System.currentTimeMillis() - start;
+    assertTrue("elapsed " + elapsed, elapsed >= delay && elapsed < delay + 100);
+  }
+
+  @Test
+  public void periodicExecution() throws InterruptedException {
+    AtomicInteger executions = new AtomicInteger();
+
+    TimingWheel.Timeout timeout = timer.schedule(2L, executions::incrementAndGet, 0, 20);
+    Thread.sleep(210);
+    timeout.cancel();
+    int count = executions.get();
+
+    assertTrue("executions " + count, count >= 9 && count <= 12);
+    Thread.sleep(60);
+    assertEquals(count, executions.get());
+    assertEquals(0, timer.getScheduledCount());
+  }
+
+  @Test
+  public void cancelBeforeExecution() throws InterruptedException {
+    AtomicInteger executions = new AtomicInteger();
+
+    TimingWheel.Timeout timeout = timer.schedule(3L, executions::incrementAndGet, 30, 0);
+    timeout.cancel();
+    Thread.sleep(60);
+
+    assertTrue(timeout.isCancelled());
+    assertEquals(0, executions.get());
+    assertEquals(0, timer.getScheduledCount());
+  }
+
+  @Test
+  public void manyTasks() throws InterruptedException {
+    int taskCount = 10000;
+    CountDownLatch latch = new CountDownLatch(taskCount);
+    for (int i = 0; i < taskCount; i++) {
+      timer.schedule(i, latch::countDown, i % 500, 0);
+    }
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(taskCount, timer.getExecutionCount());
+    assertTrue(timer.getMaxLag() < 500);
+  }
+
+  @Test
+  public void failingTaskKeepsTheTimerAlive() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+
+    timer.schedule(4L, () -> {
+      throw new IllegalStateException("test");
+    }, 0, 0);
+    timer.schedule(4L, latch::countDown, 10, 0);
+
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void scheduleAfterShutdown() {
+    timer.shutdown();
+    timer.schedule(1L, () -> { }, 0, 0);
+  }
+}
@@ -0,0 +1,179 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.test.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cern.c2mon.daq.common.EquipmentMessageHandler;
+import cern.c2mon.daq.tools.equipmentexceptions.EqIOException;
+import cern.c2mon.shared.common.datatag.ValueUpdate;
+
+/**
+ * Equipment message handler generating synthetic numeric values for all its
+ * tags, at the rate and with the shape given by the {@link LoadProfile} read
+ * from the equipment address. Used to drive the DAQ, the broker and the
+ * server at a controlled rate for throughput and latency measurements.
+ *
+ * <p>The values are sent on a single thread every <code>tick</code>
+ * milliseconds, catching up with the updates due since the start of the
+ * stream, so the average rate is kept even if a tick is late.
+ */
+public class LoadGeneratorMessageHandler extends EquipmentMessageHandler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LoadGeneratorMessageHandler.class);
+
+  /** Number of values generated by all load generators of this JVM */
+  private static final AtomicLong GENERATED = new AtomicLong();
+
+  /** Number of generated values accepted by the DAQ filters (refreshes are not counted) */
+  private static final AtomicLong SENT = new AtomicLong();
+
+  private final Random random = new Random();
+
+  private LoadProfile profile;
+
+  private long[] tagIds;
+
+  private double[] values;
+
+  private int nextTag;
+
+  private long generated;
+
+  private long startTime;
+
+  private ScheduledExecutorService executor;
+
+  @Override
+  public void connectToDataSource() throws EqIOException {
+    String equipmentName = getEquipmentConfiguration().getName();
+    try {
+      profile = LoadProfile.parse(getEquipmentConfiguration().getAddress());
+    } catch (IllegalArgumentException e) {
+      throw new EqIOException("Invalid load generator address of equipment " + equipmentName + ": " + e.getMessage());
+    }
+
+    List<Long> ids = new ArrayList<>(getEquipmentConfiguration().getSourceDataTags().keySet());
+    Collections.sort(ids);
+    tagIds = new long[ids.size()];
+    for (int i = 0; i < tagIds.length; i++) {
+      tagIds[i] = ids.get(i);
+    }
+    values = new double[tagIds.length];
+    nextTag = 0;
+    generated = 0;
+
+    getEquipmentMessageSender().confirmEquipmentStateOK();
+    LOGGER.info("Generating {} for {} tags of equipment {}", profile.toAddress(), tagIds.length, equipmentName);
+    if (tagIds.length == 0) {
+      return;
+    }
+
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "LoadGenerator-" + equipmentName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    startTime = System.nanoTime();
+    executor.scheduleAtFixedRate(this::tick, profile.getTick(), profile.getTick(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void disconnectFromDataSource() throws EqIOException {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  @Override
+  public void refreshAllDataTags() {
+    if (executor != null) {
+      executor.execute(() -> {
+        for (int i = 0; i < tagIds.length; i++) {
+          send(i);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void refreshDataTag(final long dataTagId) {
+    if (executor != null) {
+      executor.execute(() -> {
+        for (int i = 0; i < tagIds.length; i++) {
+          if (tagIds[i] == dataTagId) {
+            send(i);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Sends the updates due since the previous tick, the tags in turn.
+   */
+  private void tick() {
+    try {
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+      long due = profile.getUpdatesDue(elapsed);
+      while (generated < due) {
+        values[nextTag] = profile.nextValue(values[nextTag], elapsed, random);
+        GENERATED.incrementAndGet();
+        if (send(nextTag)) {
+          SENT.incrementAndGet();
+        }
+        generated++;
+        nextTag = (nextTag + 1) % tagIds.length;
+      }
+    } catch (RuntimeException e) {
+      LOGGER.error("Exception caught while generating values for equipment {}", getEquipmentConfiguration().getName(), e);
+    }
+  }
+
+  /**
+   * @return true if the value was not filtered by the DAQ
+   */
+  private boolean send(final int index) {
+    return getEquipmentMessageSender().update(tagIds[index], new ValueUpdate(values[index], System.currentTimeMillis()));
+  }
+
+  /**
+   * @return the number of values generated by all load generators since the
+   *         JVM started
+   */
+  public static long getGeneratedCount() {
+    return GENERATED.get();
+  }
+
+  /**
+   * @return the number of generated values which were not filtered by the DAQ
+   */
+  public static long getSentCount() {
+    return SENT.get();
+  }
+}
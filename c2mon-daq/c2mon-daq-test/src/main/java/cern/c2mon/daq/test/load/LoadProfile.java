@@ -0,0 +1,216 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.test.load;
+
+import java.util.Random;
+
+/**
+ * The value stream generated by a {@link LoadGeneratorMessageHandler} for the
+ * tags of one equipment. It is read from the equipment address, a list of
+ * <code>key=value</code> pairs separated by semicolons, e.g.
+ * <code>stream=BURST;rate=5000;period=1000;burst=100</code>:
+ * <ul>
+ * <li><code>stream</code>: the {@link Stream} shape (default RANDOM_WALK);
+ * <li><code>rate</code>: the average number of updates per second for the
+ * whole equipment (default 100);
+ * <li><code>period</code>: the period of the STEP, BURST and STORM streams,
+ * in milliseconds (default 1000);
+ * <li><code>burst</code>: the duration of a BURST at the start of each period,
+ * in milliseconds (default a tenth of the period);
+ * <li><code>tick</code>: the interval at which the updates due are sent, in
+ * milliseconds (default 10).
+ * </ul>
+ *
+ * <p>The updates are sent to the tags in turn, so with M tags every tag is
+ * updated once per M updates.
+ */
+public final class LoadProfile {
+
+  /**
+   * Shapes of the value streams.
+   */
+  public enum Stream {
+
+    /** Updates at a constant rate, each value a random step away from the previous one */
+    RANDOM_WALK,
+
+    /**
+     * Updates at a constant rate, the values switching between two levels at
+     * every period: most updates repeat the previous value of the tag and are
+     * filtered by the DAQ
+     */
+    STEP,
+
+    /** The updates of each period are all sent during its first <code>burst</code> milliseconds */
+    BURST,
+
+    /**
+     * The updates of each period are all sent at once at its start, like the
+     * avalanche following the reconnection of an equipment
+     */
+    STORM
+  }
+
+  private static final double STEP_LOW = 0.0d;
+
+  private static final double STEP_HIGH = 100.0d;
+
+  private final Stream stream;
+
+  private final double rate;
+
+  private final long period;
+
+  private final long burst;
+
+  private final long tick;
+
+  /**
+   * @param stream the shape of the stream
+   * @param rate the average number of updates per second
+   * @param period the period of the STEP, BURST and STORM streams, in milliseconds
+   * @param burst the duration of a BURST, in milliseconds
+   * @param tick the interval at which the updates due are sent, in milliseconds
+   */
+  public LoadProfile(final Stream stream, final double rate, final long period, final long burst, final long tick) {
+    if (stream == null) {
+      throw new IllegalArgumentException("The stream shape is required");
+    }
+    if (rate <= 0 || period <= 0 || tick <= 0) {
+      throw new IllegalArgumentException("The rate, period and tick must be positive");
+    }
+    if (burst <= 0 || burst > period) {
+      throw new IllegalArgumentException("The burst duration must be positive and at most the period");
+    }
+    this.stream = stream;
+    this.rate = rate;
+    this.period = period;
+    this.burst = burst;
+    this.tick = tick;
+  }
+
+  /**
+   * Reads a profile from an equipment address.
+   *
+   * @param address the equipment address, may be null or empty for the defaults
+   * @return the profile
+   * @throws IllegalArgumentException if the address is not valid
+   */
+  public static LoadProfile parse(final String address) {
+    Stream stream = Stream.RANDOM_WALK;
+    double rate = 100;
+    long period = 1000;
+    Long burst = null;
+    long tick = 10;
+
+    if (address != null) {
+      for (String pair : address.split(";")) {
+        if (pair.trim().isEmpty()) {
+          continue;
+        }
+        String[] keyValue = pair.split("=", 2);
+        if (keyValue.length != 2) {
+          throw new IllegalArgumentException("Invalid load generator address parameter: " + pair);
+        }
+        String key = keyValue[0].trim();
+        String value = keyValue[1].trim();
+        try {
+          switch (key) {
+            case "stream":
+              stream = Stream.valueOf(value.toUpperCase());
+              break;
+            case "rate":
+              rate = Double.parseDouble(value);
+              break;
+            case "period":
+              period = Long.parseLong(value);
+              break;
+            case "burst":
+              burst = Long.parseLong(value);
+              break;
+            case "tick":
+              tick = Long.parseLong(value);
+              break;
+            default:
+              throw new IllegalArgumentException("Unknown load generator address parameter: " + key);
+          }
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Invalid value of load generator address parameter " + key + ": " + value, e);
+        }
+      }
+    }
+    return new LoadProfile(stream, rate, period, burst != null ? burst : Math.max(1, period / 10), tick);
+  }
+
+  /**
+   * @return the equipment address describing this profile
+   */
+  public String toAddress() {
+    return "stream=" + stream + ";rate=" + rate + ";period=" + period + ";burst=" + burst + ";tick=" + tick;
+  }
+
+  /**
+   * @param elapsed the time since the start of the stream, in milliseconds
+   * @return the total number of updates to be sent from the start of the
+   *         stream until the given time
+   */
+  public long getUpdatesDue(final long elapsed) {
+    double perPeriod = rate * period / 1000;
+    long periods = elapsed / period;
+    switch (stream) {
+      case BURST:
+        return (long) (perPeriod * periods + perPeriod * Math.min(1.0d, (double) (elapsed % period) / burst));
+      case STORM:
+        return (long) (perPeriod * (periods + 1));
+      default:
+        return (long) (rate * elapsed / 1000);
+    }
+  }
+
+  /**
+   * @param current the current value of the tag
+   * @param elapsed the time since the start of the stream, in milliseconds
+   * @param random the random generator of the stream
+   * @return the next value of the tag
+   */
+  public double nextValue(final double current, final long elapsed, final Random random) {
+    if (stream == Stream.STEP) {
+      return (elapsed / period) % 2 == 0 ? STEP_LOW : STEP_HIGH;
+    }
+    return current + random.nextGaussian();
+  }
+
+  public Stream getStream() {
+    return stream;
+  }
+
+  public double getRate() {
+    return rate;
+  }
+
+  public long getPeriod() {
+    return period;
+  }
+
+  public long getBurst() {
+    return burst;
+  }
+
+  public long getTick() {
+    return tick;
+  }
+}
@@ -0,0 +1,99 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.test.load;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import cern.c2mon.daq.test.load.LoadProfile.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class LoadProfileTest {
+
+  @Test
+  public void parseDefaults() {
+    LoadProfile profile = LoadProfile.parse(null);
+
+    assertEquals(Stream.RANDOM_WALK, profile.getStream());
+    assertEquals(100, profile.getRate(), 0);
+    assertEquals(1000, profile.getPeriod());
+    assertEquals(100, profile.getBurst());
+    assertEquals(10, profile.getTick());
+  }
+
+  @Test
+  public void parseAddress() {
+    LoadProfile profile = LoadProfile.parse("stream=burst; rate=5000;period=2000;burst=50;tick=5;");
+
+    assertEquals(Stream.BURST, profile.getStream());
+    assertEquals(5000, profile.getRate(), 0);
+    assertEquals(2000, profile.getPeriod());
+    assertEquals(50, profile.getBurst());
+    assertEquals(5, profile.getTick());
+    assertEquals(profile.toAddress(), LoadProfile.parse(profile.toAddress()).toAddress());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseRejectsUnknownParameter() {
+    LoadProfile.parse("stream=STEP;speed=10");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseRejectsBurstLongerThanPeriod() {
+    LoadProfile.parse("period=100;burst=200");
+  }
+
+  @Test
+  public void constantRate() {
+    LoadProfile profile = new LoadProfile(Stream.RANDOM_WALK, 1000, 1000, 100, 10);
+
+    assertEquals(0, profile.getUpdatesDue(0));
+    assertEquals(10, profile.getUpdatesDue(10));
+    assertEquals(2500, profile.getUpdatesDue(2500));
+  }
+
+  @Test
+  public void burstRate() {
+    LoadProfile profile = new LoadProfile(Stream.BURST, 1000, 1000, 100, 10);
+
+    assertEquals(500, profile.getUpdatesDue(50));
+    assertEquals(1000, profile.getUpdatesDue(100));
+    assertEquals(1000, profile.getUpdatesDue(999));
+    assertEquals(1500, profile.getUpdatesDue(1050));
+  }
+
+  @Test
+  public void stormRate() {
+    LoadProfile profile = new LoadProfile(Stream.STORM, 1000, 1000, 100, 10);
+
+    assertEquals(1000, profile.getUpdatesDue(0));
+    assertEquals(1000, profile.getUpdatesDue(999));
+    assertEquals(2000, profile.getUpdatesDue(1000));
+  }
+
+  @Test
+  public void stepValues() {
+    LoadProfile profile = new LoadProfile(Stream.STEP, 1000, 1000, 100, 10);
+    Random random = new Random(0);
+
+    assertEquals(0.0d, profile.nextValue(42.0d, 500, random), 0);
+    assertEquals(100.0d, profile.nextValue(0.0d, 1500, random), 0);
+    assertEquals(0.0d, profile.nextValue(100.0d, 2000, random), 0);
+  }
+}
@@ -30,8 +30,11 @@ package cern.c2mon.server.alarm;
  * AlarmEvaluator, which simply evaluates the alarms in an
  * asynchronous manner.
  * 
- * <p>Listeners are notified on the cache notification threads
- * (i.e. this aggregator does not create any extra threads).
+ * <p>By default each listener is notified on its own threads, which
+ * receive the updates of a given tag in order. The number of threads, their
+ * queue capacity and the behaviour when a queue is full are set in the
+ * {@link cern.c2mon.server.alarm.config.AlarmProperties}; with 0 threads the
+ * listeners are notified on the cache notification threads.
  * 
  * @author Mark Brightwell
  *
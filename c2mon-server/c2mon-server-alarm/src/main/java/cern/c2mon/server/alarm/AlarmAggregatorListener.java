@@ -35,7 +35,7 @@ public interface AlarmAggregatorListener {
    * Is called when a Tag update has been received, and associated
    * alarms have been evaluated.
    * 
-   * @param tag the updated Tag
+   * @param tag the updated Tag; a read-only snapshot shared with the other listeners
    * @param alarms the new values of the associated alarms; 
    *          this list is <b>null</b> if no alarms are associated to the tag
    */
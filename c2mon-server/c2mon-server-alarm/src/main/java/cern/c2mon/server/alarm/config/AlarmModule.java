@@ -1,5 +1,6 @@
 package cern.c2mon.server.alarm.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 
@@ -7,5 +8,6 @@ import org.springframework.context.annotation.Configuration;
  * @author Justin Lewis Salmon
  */
 @Configuration
+@EnableConfigurationProperties(AlarmProperties.class)
 @ComponentScan("cern.c2mon.server.alarm")
 public class AlarmModule {}
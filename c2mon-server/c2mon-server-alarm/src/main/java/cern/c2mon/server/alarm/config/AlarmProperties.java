@@ -0,0 +1,30 @@
+package cern.c2mon.server.alarm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "c2mon.server.alarm")
+public class AlarmProperties {
+
+  /**
+   * Number of threads (per listener) notifying the AlarmAggregator listeners
+   * of tag updates. All updates of a tag go through the same thread, so they
+   * are received in order. Set to 0 to notify the listeners directly on the
+   * cache update thread
+   */
+  private int dispatchLanes = 2;
+
+  /**
+   * Maximum number of tag updates waiting for each of these threads
+   */
+  private int dispatchQueueCapacity = 10000;
+
+  /**
+   * What to do with a tag update when the queue of a listener thread is full:
+   * BLOCK waits for space (slows down the DAQ update threads), COALESCE only
+   * keeps the latest waiting update of each tag (and waits if the queue is
+   * full of different tags), DROP_OLDEST discards the oldest waiting update
+   */
+  private OverflowPolicy dispatchOverflowPolicy = OverflowPolicy.BLOCK;
+}
@@ -17,16 +17,23 @@
 package cern.c2mon.server.alarm.impl;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.alarm.AlarmAggregator;
 import cern.c2mon.server.alarm.AlarmAggregatorListener;
+import cern.c2mon.server.alarm.config.AlarmProperties;
 import cern.c2mon.server.cache.CacheRegistrationService;
 import cern.c2mon.server.cache.CacheSupervisionListener;
 import cern.c2mon.server.cache.TagFacadeGateway;
@@ -40,20 +47,28 @@ import cern.c2mon.server.common.tag.Tag;
  * the server context).
  * 
  * <p>This implementation registers for synchronous notifications from the cache (i.e.
- * on original JMS update thread). These calls are passed through to the client module
- * on the same thread (may need adjusting).
+ * on original JMS update thread) and evaluates the alarms on that thread. Unless
+ * disabled in the {@link AlarmProperties}, the listeners are then notified
+ * asynchronously, each by its own {@link ListenerDispatcher}.
  * 
  * @author Mark Brightwell
  *
  */
 @Slf4j
 @Service
+@ManagedResource(description = "Bean evaluating the alarms of updated tags and notifying the alarm aggregator listeners")
 public class AlarmAggregatorImpl implements AlarmAggregator, C2monCacheListener<Tag>, CacheSupervisionListener<Tag> {
 
   /**
    * List of registered listeners.
    */
   private List<AlarmAggregatorListener> listeners;
+
+  /**
+   * The dispatchers notifying the listeners, empty if the listeners are
+   * notified on the cache update thread.
+   */
+  private final List<ListenerDispatcher> dispatchers = new CopyOnWriteArrayList<>();
   
   /**
    * Used to register the aggregator as Tag update listener.
@@ -64,11 +79,18 @@ public class AlarmAggregatorImpl implements AlarmAggregator, C2monCacheListener<
    * The gateway to all Tag facades.
    */
   private TagFacadeGateway tagFacadeGateway;
+
+  /**
+   * Maximum time to wait for the listener notifications at shutdown (in ms).
+   */
+  private static final long SHUTDOWN_TIMEOUT = 10000;
   
   /**
    * The gateway to all Tag caches.
    */
   private TagLocationService tagLocationService;
+
+  private final AlarmProperties properties;
   
   /**
    * Autowired constructor.
@@ -76,14 +98,17 @@ public class AlarmAggregatorImpl implements AlarmAggregator, C2monCacheListener<
    * @param cacheRegistrationService the cache registration service (for registration to cache update notifications)  
    * @param tagFacadeGateway the Tag Facade gateway (for access to all Tag Facade beans) 
    * @param tagLocationService the Tag location service
+   * @param properties the alarm module properties (listener dispatch settings)
    */
   @Autowired
   public AlarmAggregatorImpl(final CacheRegistrationService cacheRegistrationService,
-      final TagFacadeGateway tagFacadeGateway, final TagLocationService tagLocationService) {
+      final TagFacadeGateway tagFacadeGateway, final TagLocationService tagLocationService,
+      final AlarmProperties properties) {
     super();
     this.cacheRegistrationService = cacheRegistrationService;    
     this.tagFacadeGateway = tagFacadeGateway;
     this.tagLocationService = tagLocationService;
+    this.properties = properties;
     listeners = new ArrayList<AlarmAggregatorListener>();
   }
 
@@ -101,9 +126,39 @@ public class AlarmAggregatorImpl implements AlarmAggregator, C2monCacheListener<
     cacheRegistrationService.registerForSupervisionChanges(this);
   }
     
+  /**
+   * Waits for the dispatchers to notify the listeners of the queued updates,
+   * then stops their threads.
+   */
+  @PreDestroy
+  public void shutdown() {
+    for (ListenerDispatcher dispatcher : dispatchers) {
+      dispatcher.shutdown(SHUTDOWN_TIMEOUT);
+    }
+  }
+
   @Override
-  public void registerForTagUpdates(final AlarmAggregatorListener aggregatorListener) {
-    listeners.add(aggregatorListener);
+  public synchronized void registerForTagUpdates(final AlarmAggregatorListener aggregatorListener) {
+    if (properties.getDispatchLanes() > 0) {
+      dispatchers.add(new ListenerDispatcher(aggregatorListener, listenerName(aggregatorListener),
+          properties.getDispatchLanes(), properties.getDispatchQueueCapacity(), properties.getDispatchOverflowPolicy()));
+    } else {
+      listeners.add(aggregatorListener);
+    }
+  }
+
+  /**
+   * @return a name for the listener, unique among the dispatchers
+   */
+  private String listenerName(final AlarmAggregatorListener listener) {
+    String name = listener.getClass().getSimpleName();
+    int count = 1;
+    for (ListenerDispatcher dispatcher : dispatchers) {
+      if (dispatcher.getName().startsWith(name)) {
+        count++;
+      }
+    }
+    return count == 1 ? name : name + count;
   }
 
   /**
@@ -128,14 +183,34 @@ public class AlarmAggregatorImpl implements AlarmAggregator, C2monCacheListener<
    * @param alarmList the associated list of evaluated alarms
    */
   private void notifyListeners(final Tag tag, final List<Alarm> alarmList) {
+    // the tag is the read-only snapshot of the cache notification, which
+    // all listeners share
     for (AlarmAggregatorListener listener : listeners) {
+      listener.notifyOnUpdate(tag, alarmList);
+    }
+    if (!dispatchers.isEmpty()) {
+      // the alarms are the cache objects, which may change before the
+      // dispatchers pass them on
+      List<Alarm> alarmSnapshot = snapshot(alarmList);
+      for (ListenerDispatcher dispatcher : dispatchers) {
+        dispatcher.dispatch(tag, alarmSnapshot);
+      }
+    }
+  }
+
+  private static List<Alarm> snapshot(final List<Alarm> alarmList) {
+    if (alarmList == null) {
+      return null;
+    }
+    List<Alarm> alarmSnapshot = new ArrayList<>(alarmList.size());
+    for (Alarm alarm : alarmList) {
       try {
-        listener.notifyOnUpdate((Tag) tag.clone(), alarmList);
+        alarmSnapshot.add((Alarm) alarm.clone());
       } catch (CloneNotSupportedException e) {
-        log.error("Unexpected exception caught: clone should be implemented for this class! "
-            + "Alarm & tag listener was not notified: " + listener.getClass().getSimpleName());
+        throw new IllegalStateException("Unable to clone alarm " + alarm.getId(), e);
       }
     }
+    return alarmSnapshot;
   }
 
   @Override
@@ -162,6 +237,42 @@ public class AlarmAggregatorImpl implements AlarmAggregator, C2monCacheListener<
     return alarmList;
   }
 
+  /**
+   * @return for each listener, how long its oldest waiting update has been waiting (in ms)
+   */
+  @ManagedOperation(description = "Returns, per listener, the age in ms of the oldest tag update awaiting notification")
+  public Map<String, Long> getListenerLag() {
+    Map<String, Long> lag = new LinkedHashMap<>();
+    for (ListenerDispatcher dispatcher : dispatchers) {
+      lag.put(dispatcher.getName(), dispatcher.getLag());
+    }
+    return lag;
+  }
+
+  /**
+   * @return for each listener, the number of tag updates awaiting notification
+   */
+  @ManagedOperation(description = "Returns, per listener, the number of tag updates awaiting notification")
+  public Map<String, Integer> getListenerQueueSize() {
+    Map<String, Integer> sizes = new LinkedHashMap<>();
+    for (ListenerDispatcher dispatcher : dispatchers) {
+      sizes.put(dispatcher.getName(), dispatcher.getQueueSize());
+    }
+    return sizes;
+  }
+
+  /**
+   * @return for each listener, the number of tag updates dropped or coalesced since the start
+   */
+  @ManagedOperation(description = "Returns, per listener, the number of tag updates dropped (queue full) and coalesced since the start")
+  public Map<String, String> getListenerSkippedUpdates() {
+    Map<String, String> skipped = new LinkedHashMap<>();
+    for (ListenerDispatcher dispatcher : dispatchers) {
+      skipped.put(dispatcher.getName(), "dropped=" + dispatcher.getDroppedUpdates() + ", coalesced=" + dispatcher.getCoalescedUpdates());
+    }
+    return skipped;
+  }
+
   @Override
   public void confirmStatus(Tag tag) {
     //do not take any action here: a new evaluation here does not use the current supervision status of the tag,
@@ -0,0 +1,327 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.alarm.impl;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.server.alarm.AlarmAggregatorListener;
+import cern.c2mon.server.alarm.config.OverflowPolicy;
+import cern.c2mon.server.common.alarm.Alarm;
+import cern.c2mon.server.common.tag.Tag;
+
+/**
+ * Notifies one {@link AlarmAggregatorListener} of tag updates on its own
+ * threads, so that a slow listener does not hold up the cache update thread
+ * or the other listeners.
+ *
+ * <p>The updates are hash-partitioned by tag id over a fixed number of lanes,
+ * each with a bounded queue and a single thread: the updates of a tag are
+ * always passed to the listener in order. What happens when a lane queue is
+ * full is decided by the {@link OverflowPolicy}.
+ */
+@Slf4j
+class ListenerDispatcher {
+
+  private final AlarmAggregatorListener listener;
+
+  private final String name;
+
+  private final Lane[] lanes;
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * Creates the dispatcher and starts its threads.
+   *
+   * @param listener the notified listener
+   * @param name the name of the listener, used for the thread names and metrics
+   * @param laneCount the number of lanes (threads)
+   * @param capacity the maximum number of waiting updates per lane
+   * @param overflowPolicy what to do when a lane is full
+   */
+  ListenerDispatcher(final AlarmAggregatorListener listener, final String name, final int laneCount,
+                     final int capacity, final OverflowPolicy overflowPolicy) {
+    if (laneCount < 1 || capacity < 1) {
+      throw new IllegalArgumentException("The number of lanes and the lane capacity must be positive");
+    }
+    this.listener = listener;
+    this.name = name;
+    this.lanes = new Lane[laneCount];
+    for (int i = 0; i < laneCount; i++) {
+      lanes[i] = new Lane(capacity, overflowPolicy);
+      Thread thread = new Thread(lanes[i], "AlarmDispatch-" + name + "-" + i);
+      thread.setDaemon(true);
+      lanes[i].thread = thread;
+      thread.start();
+    }
+  }
+
+  /**
+   * Queues a tag update for the listener. Depending on the overflow policy,
+   * waits while the lane of the tag is full.
+   *
+   * @param tag the updated tag
+   * @param alarms the evaluated alarms of the tag, may be null
+   */
+  void dispatch(final Tag tag, final List<Alarm> alarms) {
+    lanes[laneOf(tag.getId())].offer(new Update(tag, alarms));
+  }
+
+  private int laneOf(final Long tagId) {
+    int hash = tagId.hashCode();
+    hash ^= hash >>> 16;
+    return (hash & Integer.MAX_VALUE) % lanes.length;
+  }
+
+  /**
+   * @return the listener name
+   */
+  String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of updates waiting to be passed to the listener
+   */
+  int getQueueSize() {
+    int size = 0;
+    for (Lane lane : lanes) {
+      size += lane.size();
+    }
+    return size;
+  }
+
+  /**
+   * @return how long the oldest waiting update has been waiting (in ms), 0 if none is waiting
+   */
+  long getLag() {
+    long now = System.nanoTime();
+    long lag = 0;
+    for (Lane lane : lanes) {
+      Long oldest = lane.oldestQueueTime();
+      if (oldest != null) {
+        lag = Math.max(lag, now - oldest);
+      }
+    }
+    return TimeUnit.NANOSECONDS.toMillis(lag);
+  }
+
+  /**
+   * @return the number of updates discarded because a lane was full
+   */
+  long getDroppedUpdates() {
+    return dropped.get();
+  }
+
+  /**
+   * @return the number of updates replaced by a later update of the same tag
+   */
+  long getCoalescedUpdates() {
+    return coalesced.get();
+  }
+
+  /**
+   * Stops the threads once they have passed the waiting updates to the listener.
+   *
+   * @param timeout the maximum time to wait for the waiting updates (in ms)
+   */
+  void shutdown(final long timeout) {
+    for (Lane lane : lanes) {
+      lane.stop();
+    }
+    long deadline = System.currentTimeMillis() + timeout;
+    try {
+      for (Lane lane : lanes) {
+        lane.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    int remaining = getQueueSize();
+    if (remaining > 0) {
+      log.warn("Listener {} was not notified of the last {} tag updates before the shutdown", name, remaining);
+    }
+  }
+
+  /**
+   * A tag update waiting in a lane.
+   */
+  private static final class Update {
+
+    private Tag tag;
+    private List<Alarm> alarms;
+    private final long queueTime = System.nanoTime();
+
+    Update(final Tag tag, final List<Alarm> alarms) {
+      this.tag = tag;
+      this.alarms = alarms;
+    }
+  }
+
+  /**
+   * Bounded queue with a single thread passing the updates to the listener.
+   */
+  private final class Lane implements Runnable {
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final ArrayDeque<Update> queue = new ArrayDeque<>();
+
+    /** Waiting update per tag id, only used with the COALESCE policy */
+    private final Map<Long, Update> waiting = new HashMap<>();
+
+    private boolean running = true;
+
+    /** Set once the lane thread has terminated: updates offered afterwards are dropped */
+    private boolean exited = false;
+
+    private Thread thread;
+
+    Lane(final int capacity, final OverflowPolicy overflowPolicy) {
+      this.capacity = capacity;
+      this.overflowPolicy = overflowPolicy;
+    }
+
+    void offer(final Update update) {
+      lock.lock();
+      try {
+        if (exited) {
+          dropped.incrementAndGet();
+          return;
+        }
+        if (overflowPolicy == OverflowPolicy.COALESCE) {
+          Update previous = waiting.get(update.tag.getId());
+          if (previous != null) {
+            // keeps its place (and queue time) in the lane
+            previous.tag = update.tag;
+            previous.alarms = update.alarms;
+            coalesced.incrementAndGet();
+            return;
+          }
+        }
+        while (queue.size() >= capacity && running) {
+          if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            queue.poll();
+            dropped.incrementAndGet();
+          } else {
+            notFull.awaitUninterruptibly();
+          }
+        }
+        queue.add(update);
+        if (overflowPolicy == OverflowPolicy.COALESCE) {
+          waiting.put(update.tag.getId(), update);
+        }
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        Update update;
+        while ((update = take()) != null) {
+          try {
+            listener.notifyOnUpdate(update.tag, update.alarms);
+          } catch (Throwable t) {
+            // also errors: a dead lane would block the producers
+            log.error("Exception caught while notifying listener {} of an update of tag {}", name, update.tag.getId(), t);
+          }
+        }
+      } finally {
+        lock.lock();
+        try {
+          running = false;
+          exited = true;
+          notFull.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    /**
+     * @return the next update, or null once the lane is stopped and empty
+     */
+    private Update take() {
+      lock.lock();
+      try {
+        while (queue.isEmpty()) {
+          if (!running) {
+            return null;
+          }
+          notEmpty.awaitUninterruptibly();
+        }
+        Update update = queue.poll();
+        if (overflowPolicy == OverflowPolicy.COALESCE) {
+          waiting.remove(update.tag.getId());
+        }
+        notFull.signal();
+        return update;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int size() {
+      lock.lock();
+      try {
+        return queue.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    Long oldestQueueTime() {
+      lock.lock();
+      try {
+        Update oldest = queue.peek();
+        return oldest == null ? null : oldest.queueTime;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void stop() {
+      lock.lock();
+      try {
+        running = false;
+        notEmpty.signalAll();
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -17,8 +17,10 @@
 package cern.c2mon.server.alarm.impl;
 
 import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.same;
 import static org.easymock.EasyMock.verify;
 
 import java.sql.Timestamp;
@@ -29,6 +31,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import cern.c2mon.server.alarm.AlarmAggregatorListener;
+import cern.c2mon.server.alarm.config.AlarmProperties;
 import cern.c2mon.server.cache.CacheRegistrationService;
 import cern.c2mon.server.cache.TagFacadeGateway;
 import cern.c2mon.server.cache.TagLocationService;
@@ -77,7 +80,9 @@ public class AlarmAggregatorImplTest {
    tagFacadeGateway = createMock(TagFacadeGateway.class);
    tagLocationService = createMock(TagLocationService.class);
    cacheRegistrationService = createMock(CacheRegistrationService.class);   
-   alarmAggregator = new AlarmAggregatorImpl(cacheRegistrationService, tagFacadeGateway, tagLocationService);
+   AlarmProperties properties = new AlarmProperties();
+   properties.setDispatchLanes(0);
+   alarmAggregator = new AlarmAggregatorImpl(cacheRegistrationService, tagFacadeGateway, tagLocationService, properties);
    
    //register 2 listeners
    listener1 = createMock(AlarmAggregatorListener.class);
@@ -90,7 +95,8 @@ public class AlarmAggregatorImplTest {
    * Tests that a the AlarmAggregatorImpl notifies
    * (2) registered listeners if it receives a
    * cache update notification. The tag has 2 alarms
-   * attached in this test.
+   * attached in this test. Both listeners share the
+   * notified tag instance.
    */
   @Test
   public void testNotifyElementUpdated() {
@@ -104,8 +110,8 @@ public class AlarmAggregatorImplTest {
     alarmList.add(new AlarmCacheObject(10L));
     alarmList.add(new AlarmCacheObject(20L));    
     expect(tagFacadeGateway.evaluateAlarms(tag)).andReturn(alarmList);
-    listener1.notifyOnUpdate(tag, alarmList);
-    listener2.notifyOnUpdate(tag, alarmList);
+    listener1.notifyOnUpdate(same(tag), eq(alarmList));
+    listener2.notifyOnUpdate(same(tag), eq(alarmList));
 
     replay(tagLocationService);
     replay(tagFacadeGateway);
@@ -0,0 +1,161 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.alarm.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import cern.c2mon.server.alarm.AlarmAggregatorListener;
+import cern.c2mon.server.alarm.config.OverflowPolicy;
+import cern.c2mon.server.common.alarm.Alarm;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.tag.Tag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ListenerDispatcherTest {
+
+  private ListenerDispatcher dispatcher;
+
+  /**
+   * Blocks the listener until released
+   */
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  /**
+   * Tag value (a counter per tag) of each received update, in order
+   */
+  private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+  private final AlarmAggregatorListener listener = new AlarmAggregatorListener() {
+    @Override
+    public void notifyOnUpdate(final Tag tag, final List<Alarm> alarms) {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      received.add(tag.getId() + ":" + tag.getValue());
+    }
+  };
+
+  @After
+  public void afterTest() {
+    release.countDown();
+    dispatcher.shutdown(1000);
+  }
+
+  @Test
+  public void updatesOfATagAreReceivedInOrder() {
+    dispatcher = new ListenerDispatcher(listener, "test", 4, 1000, OverflowPolicy.BLOCK);
+    release.countDown();
+    for (int i = 0; i < 100; i++) {
+      for (long tagId = 1; tagId <= 10; tagId++) {
+        dispatcher.dispatch(tag(tagId, i), null);
+      }
+    }
+    dispatcher.shutdown(5000);
+
+    assertEquals(1000, received.size());
+    for (long tagId = 1; tagId <= 10; tagId++) {
+      int expected = 0;
+      for (String update : new ArrayList<>(received)) {
+        if (update.startsWith(tagId + ":")) {
+          assertEquals(tagId + ":" + expected++, update);
+        }
+      }
+      assertEquals(100, expected);
+    }
+  }
+
+  @Test
+  public void coalesceKeepsTheLatestWaitingUpdate() throws InterruptedException {
+    dispatcher = new ListenerDispatcher(listener, "test", 1, 10, OverflowPolicy.COALESCE);
+    dispatcher.dispatch(tag(1L, 0), null);
+    waitForQueueSize(0); // update 0 is being passed to the listener
+    for (int i = 1; i <= 5; i++) {
+      dispatcher.dispatch(tag(1L, i), null);
+      dispatcher.dispatch(tag(2L, i), null);
+    }
+    assertEquals(2, dispatcher.getQueueSize());
+    assertEquals(8, dispatcher.getCoalescedUpdates());
+
+    release.countDown();
+    dispatcher.shutdown(5000);
+    assertEquals(3, received.size());
+    assertEquals("1:0", received.get(0));
+    assertEquals("1:5", received.get(1));
+    assertEquals("2:5", received.get(2));
+  }
+
+  @Test
+  public void dropOldestDiscardsWhenFull() throws InterruptedException {
+    dispatcher = new ListenerDispatcher(listener, "test", 1, 3, OverflowPolicy.DROP_OLDEST);
+    dispatcher.dispatch(tag(1L, 0), null);
+    waitForQueueSize(0);
+    for (int i = 1; i <= 5; i++) {
+      dispatcher.dispatch(tag(1L, i), null);
+    }
+    assertEquals(3, dispatcher.getQueueSize());
+    assertEquals(2, dispatcher.getDroppedUpdates());
+    assertTrue(dispatcher.getLag() >= 0);
+
+    release.countDown();
+    dispatcher.shutdown(5000);
+    assertEquals("[1:0, 1:3, 1:4, 1:5]", received.toString());
+  }
+
+  @Test
+  public void listenerErrorDoesNotStopTheLane() {
+    dispatcher = new ListenerDispatcher(new AlarmAggregatorListener() {
+      @Override
+      public void notifyOnUpdate(final Tag tag, final List<Alarm> alarms) {
+        if (tag.getValue().equals(0)) {
+          throw new AssertionError("test");
+        }
+        received.add(tag.getId() + ":" + tag.getValue());
+      }
+    }, "test", 1, 1, OverflowPolicy.BLOCK);
+    for (int i = 0; i < 5; i++) {
+      dispatcher.dispatch(tag(1L, i), null);
+    }
+    dispatcher.shutdown(5000);
+
+    assertEquals("[1:1, 1:2, 1:3, 1:4]", received.toString());
+  }
+
+  private void waitForQueueSize(final int size) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (dispatcher.getQueueSize() != size && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(5);
+    }
+    assertEquals(size, dispatcher.getQueueSize());
+  }
+
+  private static Tag tag(final Long id, final int value) {
+    DataTagCacheObject tag = new DataTagCacheObject(id);
+    tag.setValue(value);
+    return tag;
+  }
+}
@@ -0,0 +1,134 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import cern.c2mon.server.cache.C2monCacheListener;
+import cern.c2mon.server.cache.CacheRegistrationService;
+import cern.c2mon.server.common.component.Lifecycle;
+import cern.c2mon.server.common.config.ServerConstants;
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.latency.LatencyMonitor;
+import cern.c2mon.server.common.latency.LatencyStage;
+import cern.c2mon.server.common.tag.Tag;
+
+/**
+ * Records in the {@link LatencyMonitor} the latency of the data tag updates
+ * from their publication by the DAQ to the update of the cache
+ * ({@link LatencyStage#DAQ_TO_SERVER}) and to the notification of the cache
+ * listeners ({@link LatencyStage#END_TO_END}).
+ *
+ * <p>Only registers to the caches if the latency monitor is enabled.
+ */
+@Slf4j
+@Service
+public class LatencyListener implements C2monCacheListener<Tag>, SmartLifecycle {
+
+  private final CacheRegistrationService cacheRegistrationService;
+
+  private final LatencyMonitor latencyMonitor;
+
+  /**
+   * Listener container lifecycle hook, null if not registered.
+   */
+  private Lifecycle listenerContainer;
+
+  /**
+   * Lifecycle flag.
+   */
+  private volatile boolean running = false;
+
+  @Autowired
+  public LatencyListener(final CacheRegistrationService cacheRegistrationService, final LatencyMonitor latencyMonitor) {
+    super();
+    this.cacheRegistrationService = cacheRegistrationService;
+    this.latencyMonitor = latencyMonitor;
+  }
+
+  @Override
+  public void notifyElementUpdated(Tag tag) {
+    if (tag instanceof DataTag) {
+      DataTag dataTag = (DataTag) tag;
+      //TODO can remove this once all DAQ updates have DAQ t.s. set
+      long daqTime = dataTag.getDaqTimestamp() == null ? dataTag.getTimestamp().getTime() : dataTag.getDaqTimestamp().getTime();
+      long serverTime = dataTag.getCacheTimestamp().getTime();
+      long currentTime = System.currentTimeMillis();
+      latencyMonitor.record(LatencyStage.DAQ_TO_SERVER, tag, TimeUnit.MILLISECONDS.toMicros(serverTime - daqTime));
+      latencyMonitor.record(LatencyStage.END_TO_END, tag, TimeUnit.MILLISECONDS.toMicros(currentTime - daqTime));
+    }
+  }
+
+  @PostConstruct
+  void init() {
+    if (latencyMonitor.isEnabled()) {
+      listenerContainer = cacheRegistrationService.registerToAllTags(this, 1);
+    }
+  }
+
+  @Override
+  public void confirmStatus(Tag cacheable) {
+    // only updates are measured
+  }
+
+  @Override
+  public boolean isAutoStartup() {
+    return true;
+  }
+
+  @Override
+  public void stop(Runnable runnable) {
+    log.debug("Stopping latency listener");
+    stop();
+    runnable.run();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public void start() {
+    log.debug("Starting latency listener");
+    running = true;
+    if (listenerContainer != null) {
+      listenerContainer.start();
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (listenerContainer != null) {
+      listenerContainer.stop();
+    }
+    running = false;
+  }
+
+  @Override
+  public int getPhase() {
+    return ServerConstants.PHASE_STOP_LAST - 1;
+  }
+
+}
@@ -16,6 +16,8 @@
  *****************************************************************************/
 package cern.c2mon.server.cache;
 
+import java.util.List;
+
 import cern.c2mon.server.cache.common.ConfigurableCacheFacade;
 import cern.c2mon.server.common.alarm.Alarm;
 import cern.c2mon.server.common.tag.Tag;
@@ -80,10 +82,28 @@ public interface AlarmFacade extends ConfigurableCacheFacade<Alarm> {
    */
   Alarm update(Long alarmId, Tag tag);
 
+  /**
+   * Updates all Alarms of the Tag, as {@link #update(Long, Tag)} does for
+   * each of them. The Alarm conditions of the Tag are compiled once, so the
+   * states of all Alarms are found with a single lookup for the Tag value.
+   *
+   * @param tag the tag whose alarms are evaluated
+   * @return the current Alarm objects, in the order of the tag alarm ids
+   */
+  List<Alarm> evaluateAlarms(Tag tag);
+
   /**
    * Evaluates this alarm. Is only updated in cache if the alarm status has changed.
    * @param alarmId id of the alarm
    */
   void evaluateAlarm(Long alarmId);
 
+  /**
+   * Discards the compiled Alarm conditions of the Tag. To be called when an
+   * Alarm of the Tag is removed.
+   *
+   * @param tagId id of the tag
+   */
+  void removeCompiledConditions(Long tagId);
+
 }
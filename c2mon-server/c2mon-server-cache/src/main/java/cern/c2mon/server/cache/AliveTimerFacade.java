@@ -83,6 +83,17 @@ public interface AliveTimerFacade {
    */
   boolean hasExpired(Long aliveTimerId);
 
+  /**
+   * Stops the AliveTimer if it is active and has expired, in a single
+   * operation under the cache lock. If it is active but was updated in the
+   * meantime, it is rescheduled for its new deadline.
+   *
+   * @param aliveTimerId the AliveTimer id of the cache object
+   * @return true if the AliveTimer was stopped by this call
+   * @throws cern.c2mon.server.cache.exception.CacheElementNotFoundException if the timer is not in the cache
+   */
+  boolean stopIfExpired(Long aliveTimerId);
+
   /**
    * Generates the alive object and inserts it into the cache.
    * @param abstractEquipment for which the alive timer should be created in the cache 
@@ -32,6 +32,10 @@ public interface C2monCacheListener<T extends Cacheable> {
   /**
    * Callback when a cache object is modified. The passed object
    * can be queried but should in general not be modified. 
+   *
+   * <p>The object is a snapshot taken once per update and shared by all
+   * listeners of the cache (and passed on by the alarm aggregator), so it
+   * must never be modified: make a copy first if needed.
    * 
    * @param cacheable the object in the cache that has been updated
    * 
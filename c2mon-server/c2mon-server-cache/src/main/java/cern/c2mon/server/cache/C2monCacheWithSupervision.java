@@ -66,6 +66,16 @@ public interface C2monCacheWithSupervision<K, T extends Tag> extends C2monCacheW
    *        status applied
    */
   void notifyListenersOfSupervisionChange(T tag);
+
+  /**
+   * Batch version of {@link #notifyListenersOfSupervisionChange(Tag)}: each
+   * listener is called for all passed tags in turn, with the listener list
+   * locked once for the whole batch.
+   *
+   * @param tags the tags affected by the supervision change, *with* the
+   *        supervision status applied
+   */
+  void notifyListenersOfSupervisionChanges(Collection<T> tags);
   
   /**
    * Check whether the cache contains a tag with
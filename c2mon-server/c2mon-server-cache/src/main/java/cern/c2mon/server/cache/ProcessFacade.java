@@ -24,6 +24,7 @@ import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.process.Process;
 import cern.c2mon.server.common.process.ProcessCacheObject;
 import cern.c2mon.server.common.process.ProcessCacheObject.LocalConfig;
+import cern.c2mon.server.common.process.ProcessPIKSnapshot;
 
 /**
  * The ProcessFacade bean is used for complex operations
@@ -111,6 +112,27 @@ public interface ProcessFacade extends SupervisedFacade<Process>, ConfigurableCa
    * @param processPIK The process PIK
    */
   void setProcessPIK(Long processId, Long processPIK);
+
+  /**
+   * Returns an immutable snapshot of the Process PIK, which can be used to
+   * validate incoming DAQ updates without locking the Process. The snapshot
+   * is refreshed by all facade methods changing the PIK; other modifications
+   * of the Process must call {@link #invalidatePIKSnapshot(Long)}.
+   *
+   * @param processId Id of the process
+   * @return the current PIK snapshot of the process
+   * @throws CacheElementNotFoundException if the process is not in the cache
+   */
+  ProcessPIKSnapshot getPIKSnapshot(Long processId);
+
+  /**
+   * Discards the PIK snapshot of the process, so that it is reloaded from the
+   * cache on next access. Must be called whenever the Process is updated or
+   * removed outside of this facade.
+   *
+   * @param processId Id of the process
+   */
+  void invalidatePIKSnapshot(Long processId);
   
   /**
    * Sets the Configuration type to Y (Local) or N (Server)
@@ -16,6 +16,9 @@
  *****************************************************************************/
 package cern.c2mon.server.cache;
 
+import java.io.IOException;
+import java.io.Writer;
+
 import cern.c2mon.server.common.process.Process;
 import cern.c2mon.server.common.subequipment.SubEquipmentCacheObject;
 
@@ -37,6 +40,16 @@ public interface ProcessXMLProvider {
    */
   String getProcessConfigXML(Process process);
 
+  /**
+   * Writes the configuration XML of the process to the writer as it is
+   * generated from the caches, without building it in memory first.
+   *
+   * @param process the process for which to write the configuration
+   * @param writer the destination of the XML
+   * @throws IOException if writing fails
+   */
+  void writeProcessConfigXML(Process process, Writer writer) throws IOException;
+
   /**
    * As for <code>getProcessConfigXML(Process process)</code> but using name as parameter.
    * @param processName name of the process
@@ -18,6 +18,7 @@ package cern.c2mon.server.cache;
 
 import java.util.Collection;
 
+import cern.c2mon.server.common.config.C2monCacheName;
 import cern.c2mon.server.common.tag.Tag;
 
 /**
@@ -62,6 +63,16 @@ public interface TagLocationService {
    * @return a reference to the Tag object in the cache 
    */
   Tag get(Long id);
+
+  /**
+   * Returns the name of the tag cache (data, rule or control tag cache)
+   * holding the tag with the given id.
+   *
+   * @param id the Tag id
+   * @return the name of the cache, or <code>null</code> if the tag cannot
+   *         be found in any of the tag caches
+   */
+  C2monCacheName getCacheName(Long id);
   
   /**
    * A {@link Tag} can also be retrieved with its unique name
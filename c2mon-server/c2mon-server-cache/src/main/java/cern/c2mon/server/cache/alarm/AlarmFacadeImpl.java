@@ -20,12 +20,17 @@ import cern.c2mon.server.cache.AlarmCache;
 import cern.c2mon.server.cache.AlarmFacade;
 import cern.c2mon.server.cache.TagLocationService;
 import cern.c2mon.server.cache.common.AbstractFacade;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.cache.util.MetadataUtils;
 import cern.c2mon.server.common.alarm.Alarm;
 import cern.c2mon.server.common.alarm.AlarmCacheObject;
 import cern.c2mon.server.common.alarm.AlarmCacheObject.AlarmChangeState;
 import cern.c2mon.server.common.alarm.AlarmCondition;
+import cern.c2mon.server.common.latency.LatencyMonitor;
+import cern.c2mon.server.common.latency.LatencyStage;
+import cern.c2mon.server.common.listener.ConfigurationEventListener;
 import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.shared.client.configuration.ConfigConstants.Action;
 import cern.c2mon.shared.common.ConfigurationException;
 import cern.c2mon.shared.common.datatag.DataTagConstants;
 import cern.c2mon.shared.daq.config.Change;
@@ -34,17 +39,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementation of the AlarmFacade.
  *
+ * <p>Listens to the tag configuration events to discard the compiled alarm
+ * conditions of removed tags.
+ *
  * @author Mark Brightwell
  *
  */
 @Slf4j
 @Service
-public class AlarmFacadeImpl extends AbstractFacade<Alarm> implements AlarmFacade {
+public class AlarmFacadeImpl extends AbstractFacade<Alarm> implements AlarmFacade, ConfigurationEventListener {
 
   /**
    * Default max length for fault family
@@ -73,6 +86,13 @@ public class AlarmFacadeImpl extends AbstractFacade<Alarm> implements AlarmFacad
 
   private TagLocationService tagLocationService;
 
+  /**
+   * Compiled alarm conditions, by tag id. Recompiled when the alarms of the
+   * tag or their conditions change, removed with the tag or one of its alarms.
+   */
+  private final Map<Long, TagAlarmEvaluator> evaluators = new ConcurrentHashMap<>();
+
+  private LatencyMonitor latencyMonitor = LatencyMonitor.DISABLED;
 
   /**
    * Autowired constructor.
@@ -85,6 +105,11 @@ public class AlarmFacadeImpl extends AbstractFacade<Alarm> implements AlarmFacad
     this.tagLocationService = tagLocationService;
   }
 
+  @Autowired(required = false)
+  public void setLatencyMonitor(final LatencyMonitor latencyMonitor) {
+    this.latencyMonitor = latencyMonitor;
+  }
+
   /**
    * Derives a valid JMS topic name for distributing the alarm's values to
    * clients (currently the same for all alarms, so returns a constant).
@@ -243,6 +268,61 @@ public class AlarmFacadeImpl extends AbstractFacade<Alarm> implements AlarmFacad
     }
   }
 
+  @Override
+  public List<Alarm> evaluateAlarms(final Tag tag) {
+    long start = latencyMonitor.start();
+    List<Alarm> alarms = new ArrayList<>(tag.getAlarmIds().size());
+    TagAlarmEvaluator.Evaluation evaluation = null;
+    if (tag.getValue() != null) {
+      evaluation = getEvaluator(tag).evaluate(tag.getValue());
+    }
+    for (Long alarmId : tag.getAlarmIds()) {
+      alarmCache.acquireWriteLockOnKey(alarmId);
+      try {
+        alarms.add(update(alarmCache.get(alarmId), tag, evaluation));
+      } finally {
+        alarmCache.releaseWriteLockOnKey(alarmId);
+      }
+    }
+    if (evaluation != null && evaluation.isStale()) {
+      evaluators.remove(tag.getId());
+    }
+    latencyMonitor.recordSince(LatencyStage.ALARM_EVALUATION, tag, start);
+    return alarms;
+  }
+
+  /**
+   * @return the compiled conditions of the tag alarms
+   */
+  private TagAlarmEvaluator getEvaluator(final Tag tag) {
+    TagAlarmEvaluator evaluator = evaluators.get(tag.getId());
+    if (evaluator == null || !evaluator.isCompiledFor(tag.getAlarmIds())) {
+      Map<Long, AlarmCondition> conditions = new HashMap<>();
+      for (Long alarmId : tag.getAlarmIds()) {
+        try {
+          conditions.put(alarmId, alarmCache.get(alarmId).getCondition());
+        } catch (CacheElementNotFoundException e) {
+          conditions.put(alarmId, null);
+        }
+      }
+      evaluator = new TagAlarmEvaluator(conditions);
+      evaluators.put(tag.getId(), evaluator);
+    }
+    return evaluator;
+  }
+
+  @Override
+  public void removeCompiledConditions(final Long tagId) {
+    evaluators.remove(tagId);
+  }
+
+  @Override
+  public void onConfigurationEvent(final Tag tag, final Action action) {
+    if (action == Action.REMOVE) {
+      evaluators.remove(tag.getId());
+    }
+  }
+
   @Override
   public void evaluateAlarm(Long alarmId) {
     alarmCache.acquireWriteLockOnKey(alarmId);
@@ -255,12 +335,19 @@ public class AlarmFacadeImpl extends AbstractFacade<Alarm> implements AlarmFacad
     }
   }
 
+  private Alarm update(final Alarm alarm, final Tag tag) {
+    return update(alarm, tag, null);
+  }
+
   /**
    * Logic kept the same as in TIM1 (see {@link AlarmFacade}).
    * The locking of the objets is done in the public class.
    * Notice, in this case the update() method is putting the changes back into the cache.
+   *
+   * @param evaluation the states of the tag alarms for the tag value, or null
+   *                   to evaluate the alarm condition
    */
-  private Alarm update(final Alarm alarm, final Tag tag) {
+  private Alarm update(final Alarm alarm, final Tag tag, final TagAlarmEvaluator.Evaluation evaluation) {
     AlarmCacheObject alarmCacheObject = (AlarmCacheObject) alarm;
     // Reset previous change state
     alarmCacheObject.setAlarmChangeState(AlarmChangeState.CHANGE_NONE);
@@ -290,7 +377,12 @@ public class AlarmFacadeImpl extends AbstractFacade<Alarm> implements AlarmFacad
     }
 
     // Compute the alarm state corresponding to the new tag value
-    String newState = alarmCacheObject.getCondition().evaluateState(tag.getValue());
+    String newState;
+    if (evaluation != null) {
+      newState = evaluation.getState(alarmCacheObject.getId(), alarmCacheObject.getCondition());
+    } else {
+      newState = alarmCacheObject.getCondition().evaluateState(tag.getValue());
+    }
 
     // Return immediately if the alarm new state is null
     if (newState == null) {
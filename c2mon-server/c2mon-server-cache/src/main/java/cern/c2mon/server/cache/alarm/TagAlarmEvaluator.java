@@ -0,0 +1,267 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.alarm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import cern.c2mon.server.common.alarm.AlarmCondition;
+import cern.c2mon.server.common.alarm.RangeAlarmCondition;
+import cern.c2mon.server.common.alarm.ValueAlarmCondition;
+
+/**
+ * The alarm conditions of one tag, compiled so that the state of all its
+ * alarms is found with a single lookup per tag value instead of evaluating
+ * every condition.
+ *
+ * <ul>
+ * <li>{@link ValueAlarmCondition}s are grouped in a hash map from alarm value
+ * to alarms;
+ * <li>{@link RangeAlarmCondition}s are grouped per bound type. The distinct
+ * bounds split the value axis in segments, and the set of alarms whose range
+ * covers each segment is precomputed, so a binary search over the bounds
+ * gives all ACTIVE range alarms.
+ * </ul>
+ *
+ * <p>The result is the same as calling {@link AlarmCondition#evaluateState}
+ * for each alarm. Values for which a condition would throw an exception
+ * (value type not matching a value condition, enum values) and other
+ * condition classes are evaluated through their condition.
+ *
+ * <p>Instances are immutable and thread-safe.
+ */
+final class TagAlarmEvaluator {
+
+  /** Alarm id -> condition it was compiled from */
+  private final Map<Long, AlarmCondition> conditions;
+
+  /** Alarm id -> bit position in the evaluation results, for indexed alarms only */
+  private final Map<Long, Integer> positions = new HashMap<>();
+
+  private final Map<Object, BitSet> valueAlarms = new HashMap<>();
+
+  /** Classes of the alarm values of the value conditions */
+  private final Set<Class<?>> valueClasses = new HashSet<>();
+
+  /** Range conditions without any bound: ACTIVE for any value */
+  private final BitSet unboundedRangeAlarms = new BitSet();
+
+  private final Map<Class<?>, RangeIndex> rangeIndexes = new HashMap<>();
+
+  /**
+   * @param conditions the conditions of the tag alarms, by alarm id
+   */
+  TagAlarmEvaluator(final Map<Long, AlarmCondition> conditions) {
+    this.conditions = new HashMap<>(conditions);
+
+    Map<Class<?>, List<Range>> ranges = new HashMap<>();
+    for (Map.Entry<Long, AlarmCondition> entry : conditions.entrySet()) {
+      AlarmCondition condition = entry.getValue();
+      if (condition == null) {
+        continue;
+      }
+      if (condition.getClass() == ValueAlarmCondition.class) {
+        Object alarmValue = ((ValueAlarmCondition) condition).getAlarmValue();
+        if (alarmValue != null) {
+          int position = positionOf(entry.getKey());
+          valueClasses.add(alarmValue.getClass());
+          valueAlarms.computeIfAbsent(alarmValue, value -> new BitSet()).set(position);
+        }
+      } else if (condition.getClass() == RangeAlarmCondition.class) {
+        RangeAlarmCondition range = (RangeAlarmCondition) condition;
+        Comparable min = range.getMinimumValue();
+        Comparable max = range.getMaximumValue();
+        int position = positionOf(entry.getKey());
+        if (min == null && max == null) {
+          unboundedRangeAlarms.set(position);
+        } else if (min == null || max == null || min.getClass() == max.getClass()) {
+          Class<?> boundClass = (min != null ? min : max).getClass();
+          ranges.computeIfAbsent(boundClass, type -> new ArrayList<>()).add(new Range(position, min, max));
+        }
+        // else bounds of different types: never ACTIVE
+      }
+    }
+    for (Map.Entry<Class<?>, List<Range>> entry : ranges.entrySet()) {
+      rangeIndexes.put(entry.getKey(), new RangeIndex(entry.getValue()));
+    }
+  }
+
+  /**
+   * @param alarmIds the current alarm ids of the tag
+   * @return true if this evaluator was compiled for exactly these alarms
+   */
+  boolean isCompiledFor(final Collection<Long> alarmIds) {
+    return conditions.size() == alarmIds.size() && conditions.keySet().containsAll(alarmIds);
+  }
+
+  /**
+   * Evaluates the indexed conditions for a tag value.
+   *
+   * @param value the tag value, not null
+   * @return the evaluation, from which the state of each alarm is read
+   */
+  Evaluation evaluate(final Object value) {
+    if (value.getClass().isEnum()
+        || (!valueClasses.isEmpty() && (valueClasses.size() > 1 || !valueClasses.contains(value.getClass())))) {
+      return new Evaluation(value, null);
+    }
+    BitSet active = new BitSet(positions.size());
+    BitSet valueActive = valueAlarms.get(value);
+    if (valueActive != null) {
+      active.or(valueActive);
+    }
+    active.or(unboundedRangeAlarms);
+    RangeIndex rangeIndex = rangeIndexes.get(value.getClass());
+    if (rangeIndex != null) {
+      active.or(rangeIndex.getActive((Comparable) value));
+    }
+    return new Evaluation(value, active);
+  }
+
+  private int positionOf(final Long alarmId) {
+    int position = positions.size();
+    positions.put(alarmId, position);
+    return position;
+  }
+
+  /**
+   * The states of the alarms of a tag for one value.
+   */
+  final class Evaluation {
+
+    private final Object value;
+
+    /** ACTIVE indexed alarms, null if the conditions must be evaluated one by one */
+    private final BitSet active;
+
+    private boolean stale = false;
+
+    private Evaluation(final Object value, final BitSet active) {
+      this.value = value;
+      this.active = active;
+    }
+
+    /**
+     * @param alarmId the alarm id
+     * @param condition the current condition of the alarm
+     * @return the state of the alarm for the evaluated value
+     */
+    String getState(final Long alarmId, final AlarmCondition condition) {
+      // compared by value: a clustered cache returns a new copy of the condition on each get
+      if (!Objects.equals(conditions.get(alarmId), condition)) {
+        stale = true;
+        return condition.evaluateState(value);
+      }
+      Integer position = positions.get(alarmId);
+      if (active == null || position == null) {
+        return condition.evaluateState(value);
+      }
+      return active.get(position) ? AlarmCondition.ACTIVE : AlarmCondition.TERMINATE;
+    }
+
+    /**
+     * @return true if an alarm condition changed since the evaluator was compiled
+     */
+    boolean isStale() {
+      return stale;
+    }
+  }
+
+  /**
+   * A range condition and its bit position.
+   */
+  private static final class Range {
+
+    private final int position;
+    private final Comparable min;
+    private final Comparable max;
+
+    Range(final int position, final Comparable min, final Comparable max) {
+      this.position = position;
+      this.min = min;
+      this.max = max;
+    }
+  }
+
+  /**
+   * Range conditions with bounds of the same type. With the n distinct bounds
+   * b0 < ... < bn-1, the value axis is split in the 2n+1 segments
+   * (-inf, b0), [b0], (b0, b1), [b1], ... [bn-1], (bn-1, +inf).
+   * A range [min, max] covers all segments from the one of min (or the
+   * first) to the one of max (or the last).
+   */
+  private static final class RangeIndex {
+
+    private final Comparable[] bounds;
+
+    private final BitSet[] segments;
+
+    @SuppressWarnings("unchecked")
+    RangeIndex(final List<Range> ranges) {
+      List<Comparable> sorted = new ArrayList<>(ranges.size() * 2);
+      for (Range range : ranges) {
+        if (range.min != null) {
+          sorted.add(range.min);
+        }
+        if (range.max != null) {
+          sorted.add(range.max);
+        }
+      }
+      sorted.sort(null);
+      List<Comparable> distinct = new ArrayList<>(sorted.size());
+      for (Comparable bound : sorted) {
+        if (distinct.isEmpty() || distinct.get(distinct.size() - 1).compareTo(bound) != 0) {
+          distinct.add(bound);
+        }
+      }
+      bounds = distinct.toArray(new Comparable[distinct.size()]);
+
+      segments = new BitSet[2 * bounds.length + 1];
+      for (int i = 0; i < segments.length; i++) {
+        segments[i] = new BitSet();
+      }
+      for (Range range : ranges) {
+        int from = range.min == null ? 0 : segmentOf(range.min);
+        int to = range.max == null ? segments.length - 1 : segmentOf(range.max);
+        for (int segment = from; segment <= to; segment++) {
+          segments[segment].set(range.position);
+        }
+      }
+    }
+
+    /**
+     * @return the positions of the ranges containing the value
+     */
+    BitSet getActive(final Comparable value) {
+      return segments[segmentOf(value)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private int segmentOf(final Comparable value) {
+      int index = Arrays.binarySearch(bounds, value);
+      return index >= 0 ? 2 * index + 1 : 2 * (-index - 1);
+    }
+  }
+}
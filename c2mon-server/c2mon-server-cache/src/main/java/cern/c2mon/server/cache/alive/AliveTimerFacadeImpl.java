@@ -41,10 +41,13 @@ public class AliveTimerFacadeImpl implements AliveTimerFacade {
 
   private AliveTimerCache aliveTimerCache;
 
+  private AliveTimerSchedule aliveTimerSchedule;
+
   @Autowired
-  public AliveTimerFacadeImpl(AliveTimerCache aliveTimerCache) {
+  public AliveTimerFacadeImpl(AliveTimerCache aliveTimerCache, AliveTimerSchedule aliveTimerSchedule) {
     super();
     this.aliveTimerCache = aliveTimerCache;
+    this.aliveTimerSchedule = aliveTimerSchedule;
   }
 
   @Override
@@ -59,6 +62,7 @@ public class AliveTimerFacadeImpl implements AliveTimerFacade {
       AliveTimer aliveTimer = aliveTimerCache.get(aliveId);
       update(aliveTimer);
       aliveTimerCache.put(aliveId, aliveTimer);
+      aliveTimerSchedule.schedule(aliveTimer);
     } catch (CacheElementNotFoundException cacheEx) {
       log.error("Cannot locate the AliveTimer in the cache (Id is " + aliveId + ") - unable to update it.", cacheEx);
     } catch (Exception e) {
@@ -97,6 +101,7 @@ public class AliveTimerFacadeImpl implements AliveTimerFacade {
       AliveTimer aliveTimer = aliveTimerCache.get(id);
       start(aliveTimer);
       aliveTimerCache.put(id, aliveTimer);
+      aliveTimerSchedule.schedule(aliveTimer);
     } catch (CacheElementNotFoundException cacheEx) {
       log.error("Cannot locate the AliveTimer in the cache (Id is " + id + ") - unable to start it.");
     } catch (Exception e) {
@@ -137,6 +142,7 @@ public class AliveTimerFacadeImpl implements AliveTimerFacade {
 //        }
 //      }
       aliveTimerCache.put(id, aliveTimer);
+      aliveTimerSchedule.schedule(aliveTimer);
     } catch (CacheElementNotFoundException cacheEx) {
       log.error("Cannot locate the AliveTimer in the cache (Id is " + id + ") - unable to stop it.");
     } catch (Exception e) {
@@ -173,12 +179,38 @@ public class AliveTimerFacadeImpl implements AliveTimerFacade {
     aliveTimerCache.acquireReadLockOnKey(aliveTimerId);
     try {
         AliveTimer aliveTimer = aliveTimerCache.get(aliveTimerId);
-        return (System.currentTimeMillis() - aliveTimer.getLastUpdate() > aliveTimer.getAliveInterval() + aliveTimer.getAliveInterval() / 3);
+        return hasExpired(aliveTimer);
     } finally {
       aliveTimerCache.releaseReadLockOnKey(aliveTimerId);
     }
   }
 
+  private static boolean hasExpired(final AliveTimer aliveTimer) {
+    return System.currentTimeMillis() - aliveTimer.getLastUpdate() > aliveTimer.getAliveInterval() + aliveTimer.getAliveInterval() / 3;
+  }
+
+  @Override
+  public boolean stopIfExpired(final Long aliveTimerId) {
+    aliveTimerCache.acquireWriteLockOnKey(aliveTimerId);
+    try {
+      AliveTimer aliveTimer = aliveTimerCache.get(aliveTimerId);
+      if (!aliveTimer.isActive()) {
+        return false;
+      }
+      if (hasExpired(aliveTimer)) {
+        stop(aliveTimer);
+        aliveTimerCache.put(aliveTimerId, aliveTimer);
+        aliveTimerSchedule.schedule(aliveTimer);
+        return true;
+      }
+      // updated meanwhile (possibly on another server): wait for the new deadline
+      aliveTimerSchedule.schedule(aliveTimer);
+      return false;
+    } finally {
+      aliveTimerCache.releaseWriteLockOnKey(aliveTimerId);
+    }
+  }
+
   @Override
   public void startAllTimers() {
     log.debug("Starting all alive timers in cache.");
@@ -214,6 +246,7 @@ public class AliveTimerFacadeImpl implements AliveTimerFacade {
     AliveTimer aliveTimer = new AliveTimerCacheObject(abstractEquipment.getAliveTagId(), abstractEquipment.getId(), abstractEquipment.getName(),
                                                       abstractEquipment.getStateTagId(), type, abstractEquipment.getAliveInterval());
     aliveTimerCache.put(aliveTimer.getId(), aliveTimer);
+    aliveTimerSchedule.schedule(aliveTimer);
   }
 
   @Override
@@ -221,6 +254,7 @@ public class AliveTimerFacadeImpl implements AliveTimerFacade {
     AliveTimer aliveTimer = new AliveTimerCacheObject(process.getAliveTagId(), process.getId(), process.getName(),
         process.getStateTagId(), AliveTimer.ALIVE_TYPE_PROCESS, process.getAliveInterval());
     aliveTimerCache.put(aliveTimer.getId(), aliveTimer);
+    aliveTimerSchedule.schedule(aliveTimer);
   }
 
 }
@@ -0,0 +1,165 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.alive;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import cern.c2mon.server.common.alive.AliveTimer;
+
+/**
+ * Index of the active alive timers ordered by expiration deadline, kept up
+ * to date by the {@link cern.c2mon.server.cache.AliveTimerFacade} on every
+ * start, stop and update. It allows the supervision to wait for the next
+ * expiration instead of regularly checking all timers.
+ *
+ * <p>Updating a timer does not remove its previous deadline from the queue:
+ * outdated deadlines are recognised and skipped when they come due, which
+ * keeps {@link #schedule(AliveTimer)} cheap on the alive message path.
+ */
+@Component
+public class AliveTimerSchedule {
+
+  /**
+   * Current deadline of every active alive timer
+   */
+  private final Map<Long, Long> deadlines = new ConcurrentHashMap<>();
+
+  /**
+   * Ids of the alive timers which are known to be stopped
+   */
+  private final Set<Long> inactive = ConcurrentHashMap.newKeySet();
+
+  private final DelayQueue<Deadline> queue = new DelayQueue<>();
+
+  /**
+   * Returns the time at which an alive timer expires if it does not receive
+   * any further update, i.e. when more than alive-interval + alive-interval/3
+   * milliseconds have elapsed since its last update.
+   *
+   * @param aliveTimer the alive timer
+   * @return the expiration time in milliseconds
+   */
+  public static long getDeadline(final AliveTimer aliveTimer) {
+    int aliveInterval = aliveTimer.getAliveInterval();
+    return aliveTimer.getLastUpdate() + aliveInterval + aliveInterval / 3 + 1;
+  }
+
+  /**
+   * Records the current state of an alive timer. Must be called whenever the
+   * timer is started, stopped or updated, under the cache lock of the timer.
+   *
+   * @param aliveTimer the alive timer
+   */
+  public void schedule(final AliveTimer aliveTimer) {
+    Long id = aliveTimer.getId();
+    if (aliveTimer.isActive() && aliveTimer.getAliveInterval() != null) {
+      long deadline = getDeadline(aliveTimer);
+      inactive.remove(id);
+      Long previous = deadlines.put(id, deadline);
+      if (previous == null || previous != deadline) {
+        queue.add(new Deadline(id, deadline));
+      }
+    } else {
+      deadlines.remove(id);
+      inactive.add(id);
+    }
+  }
+
+  /**
+   * Forgets an alive timer, for instance when it is removed from the cache.
+   *
+   * @param id the alive timer id
+   */
+  public void remove(final Long id) {
+    deadlines.remove(id);
+    inactive.remove(id);
+  }
+
+  /**
+   * Waits until the deadline of an alive timer has passed and returns it.
+   * The timer is no longer scheduled afterwards: the caller is expected to
+   * stop it or, if it turns out to have been updated meanwhile, to schedule
+   * it again.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @return the id of the expired alive timer, or null if none expired in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Long pollExpired(final long timeout, final TimeUnit unit) throws InterruptedException {
+    long end = System.nanoTime() + unit.toNanos(timeout);
+    long remaining = unit.toNanos(timeout);
+    while (remaining >= 0) {
+      Deadline next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return null;
+      }
+      if (deadlines.remove(next.id, next.time)) {
+        return next.id;
+      }
+      remaining = end - System.nanoTime();
+    }
+    return null;
+  }
+
+  /**
+   * @return the ids of the alive timers which are currently stopped
+   */
+  public Set<Long> getInactiveTimers() {
+    return Collections.unmodifiableSet(inactive);
+  }
+
+  /**
+   * @return the number of alive timers with a pending deadline
+   */
+  public int getScheduledCount() {
+    return deadlines.size();
+  }
+
+  /**
+   * Deadline of an alive timer, as stored in the queue.
+   */
+  private static final class Deadline implements Delayed {
+
+    private final Long id;
+
+    private final long time;
+
+    Deadline(final Long id, final long time) {
+      this.id = id;
+      this.time = time;
+    }
+
+    @Override
+    public long getDelay(final TimeUnit unit) {
+      return unit.convert(time - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(final Delayed other) {
+      return Long.compare(time, ((Deadline) other).time);
+    }
+  }
+}
@@ -184,35 +184,27 @@ public abstract class AbstractCache<K, T extends Cacheable> extends BasicCache<K
 
   /**
    * Find an object in the cache given the object id and create a deep copy.
-   * The copy is relealized through serialization and NOT by cloning.
+   * The copy is created with {@link #createCopy(Cacheable)} under a read lock
+   * on the key.
    *
    * @param id the unique id of the cache object (should not be NULL)
    * @return Copy to the {@link Cacheable} object
    * @throws CacheElementNotFoundException if the element if not found in the cache
    * @throws IllegalArgumentException if the cache is accessed with a null key
-   * @throws UnsupportedOperationException If something goes wrong whilst creating a deep clone
-   *         through serialization
+   * @throws UnsupportedOperationException If something goes wrong whilst creating the copy
    */
-  @SuppressWarnings("unchecked")
   public final T getCopy(final K id) {
     if (id != null) {
       cache.acquireReadLockOnKey(id);
 
       try {
-        T reference = get(id);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(baos);
-        oos.writeObject(reference);
-
-        ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-        ObjectInputStream ois = new ObjectInputStream(bais);
-        return (T) ois.readObject();
+        return createCopy(get(id));
       } catch (CacheElementNotFoundException cenfe) {
         throw cenfe;
       }
       catch (Exception ex) {
-        log.error("Unable to get a serialized copy of the cache element as serialization is not supported for this object.", ex);
-        throw new UnsupportedOperationException("The getCopy() method is not supported for this cache element since the cache object is not entirely serializable. Please revisit your object.", ex);
+        log.error("Unable to get a copy of the cache element.", ex);
+        throw new UnsupportedOperationException("The getCopy() method is not supported for this cache element since the cache object can neither be cloned nor serialized. Please revisit your object.", ex);
       } finally {
         cache.releaseReadLockOnKey(id);
       }
@@ -224,6 +216,47 @@ public abstract class AbstractCache<K, T extends Cacheable> extends BasicCache<K
     }
   }
 
+  /**
+   * Creates the copy returned by {@link #getCopy(Object)}. The default uses
+   * the {@link Cacheable#clone()} implementation of the cache object, which
+   * copies all mutable state but shares immutable parts such as tag values
+   * and rule expressions. Objects which do not support cloning are copied
+   * through serialization.
+   *
+   * <p>Caches whose objects are not entirely copied by their clone method
+   * must override this method, e.g. with {@link #createSerializedCopy(Cacheable)}.
+   *
+   * @param reference the object residing in the cache
+   * @return an independent copy of the object
+   * @throws Exception if the object cannot be copied
+   */
+  @SuppressWarnings("unchecked")
+  protected T createCopy(final T reference) throws Exception {
+    try {
+      return (T) reference.clone();
+    } catch (CloneNotSupportedException e) {
+      return createSerializedCopy(reference);
+    }
+  }
+
+  /**
+   * Creates a deep copy through serialization and NOT by cloning.
+   *
+   * @param reference the object residing in the cache
+   * @return the deserialized copy
+   * @throws Exception if the object is not entirely serializable
+   */
+  @SuppressWarnings("unchecked")
+  protected final T createSerializedCopy(final T reference) throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    oos.writeObject(reference);
+
+    ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
+    ObjectInputStream ois = new ObjectInputStream(bais);
+    return (T) ois.readObject();
+  }
+
   /**
    * Puts an object in the cache, without notifying the cache listeners.
    * Wraps the call to the underlying Ehcache.
@@ -244,8 +277,15 @@ public abstract class AbstractCache<K, T extends Cacheable> extends BasicCache<K
     notifyListenersOfUpdate(value);
   }
 
+  /**
+   * Notifies the listeners of an update of the given cache object. The copy
+   * taken by {@link #getCopy(Object)} is used as snapshot for all listeners,
+   * so the object is only copied once.
+   *
+   * @param id the key of the cache object that has been updated
+   */
   public void notifyListenersOfUpdate(final K id) {
-    notifyListenersOfUpdate(this.getCopy(id));
+    notifySnapshot(this.getCopy(id));
   }
 
   /**
@@ -256,22 +296,34 @@ public abstract class AbstractCache<K, T extends Cacheable> extends BasicCache<K
    * be called *within a lock on the cache object* so the object is not modified
    * before being passed to the listeners (using a clone).
    *
+   * <p>A single clone is taken and shared by all listeners: it is a snapshot of
+   * the object at the time of the update and must not be modified by them.
+   *
    * @param cacheable the cache object that has been updated
    */
   public void notifyListenersOfUpdate(final T cacheable) {
-    registeredEventListeners.notifyElementUpdated(new Element(cacheable.getId(), null), false); //only for monitoring via Ehcache: not using Ehcache listeners o.w.
     try {
       @SuppressWarnings("unchecked")
       T cloned = (T) cacheable.clone();
-      for (C2monCacheListener< ? super T> listener : cacheListeners) {
-        listener.notifyElementUpdated(cloned);
-      }
+      notifySnapshot(cloned);
     } catch (CloneNotSupportedException e) {
       log.error("CloneNotSupportedException caught while cloning a cache element - this should never happen!", e);
       throw new RuntimeException("CloneNotSupportedException caught while cloning a cache element - this should never happen!", e);
     }
   }
 
+  /**
+   * Passes the same read-only snapshot to all the registered listeners.
+   *
+   * @param snapshot copy of the cache object which is no longer in the cache
+   */
+  private void notifySnapshot(final T snapshot) {
+    registeredEventListeners.notifyElementUpdated(new Element(snapshot.getId(), null), false); //only for monitoring via Ehcache: not using Ehcache listeners o.w.
+    for (C2monCacheListener< ? super T> listener : cacheListeners) {
+      listener.notifyElementUpdated(snapshot);
+    }
+  }
+
   public void notifyListenerStatusConfirmation(final T cacheable, final long timestamp) {
     try {
       @SuppressWarnings("unchecked")
@@ -94,16 +94,12 @@ public abstract class AbstractTagFacade<T extends Tag> extends AbstractFacade<T>
 
   @Override
   public List<Alarm> evaluateAlarms(final T tag) {
-    List<Alarm> linkedAlarms = new ArrayList<Alarm>();
     tagCache.acquireReadLockOnKey(tag.getId());
     try {
-      for (Long alarmId : tag.getAlarmIds()) {
-        linkedAlarms.add(alarmFacade.update(alarmId, tag));
-      }
+      return alarmFacade.evaluateAlarms(tag);
     } finally {
       tagCache.releaseReadLockOnKey(tag.getId());
     }
-    return linkedAlarms;
   }
 
 
@@ -30,6 +30,7 @@ import cern.c2mon.server.cache.DataTagCache;
 import cern.c2mon.server.cache.RuleTagCache;
 import cern.c2mon.server.cache.TagLocationService;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.common.config.C2monCacheName;
 import cern.c2mon.server.common.tag.Tag;
 
 /**
@@ -101,6 +102,19 @@ public class TagLocationServiceImpl implements TagLocationService {
     return getCache(id).get(id);
   }
   
+  @Override
+  public C2monCacheName getCacheName(final Long id) {
+    if (dataTagCache.hasKey(id)) {
+      return C2monCacheName.DATATAG;
+    } else if (ruleTagCache.hasKey(id)) {
+      return C2monCacheName.RULETAG;
+    } else if (controlTagCache.hasKey(id)) {
+      return C2monCacheName.CONTROLTAG;
+    } else {
+      return null;
+    }
+  }
+
   @Override
   public Tag get(final String tagName) {
     if (dataTagCache.hasTagWithName(tagName)) {       
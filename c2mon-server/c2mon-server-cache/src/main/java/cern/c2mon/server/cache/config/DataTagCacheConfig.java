@@ -3,6 +3,7 @@ package cern.c2mon.server.cache.config;
 import cern.c2mon.server.cache.loading.common.BatchCacheLoader;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import cern.c2mon.server.cache.loading.common.EhcacheLoaderImpl;
+import cern.c2mon.server.cache.loading.common.LocalCacheStore;
 import cern.c2mon.server.cache.loading.DataTagLoaderDAO;
 import cern.c2mon.server.cache.loading.config.CacheLoadingProperties;
 import net.sf.ehcache.CacheManager;
@@ -20,6 +21,9 @@ public class DataTagCacheConfig {
   @Autowired
   private CacheLoadingProperties properties;
 
+  @Autowired
+  private CacheProperties cacheProperties;
+
   @Bean
   public EhCacheFactoryBean dataTagEhcache(CacheManager cacheManager) {
     EhCacheFactoryBean factory = new EhCacheFactoryBean();
@@ -36,6 +40,11 @@ public class DataTagCacheConfig {
   @Bean
   public C2monCacheLoader dataTagCacheLoader(Ehcache dataTagEhcache, DataTagLoaderDAO dataTagLoaderDAO) {
     Integer batchSize = properties.getBatchSize();
-    return new BatchCacheLoader<>(dataTagEhcache, dataTagLoaderDAO, batchSize, "DataTagCacheLoader-");
+    BatchCacheLoader<?> loader = new BatchCacheLoader<>(dataTagEhcache, dataTagLoaderDAO, batchSize, "DataTagCacheLoader-");
+    loader.setStreaming(properties.isStreaming());
+    if (properties.getLocalStorePath() != null && !"multi".equals(cacheProperties.getMode())) {
+      loader.setLocalCacheStore(LocalCacheStore.forCache(properties.getLocalStorePath(), dataTagEhcache.getName()));
+    }
+    return loader;
   }
 }
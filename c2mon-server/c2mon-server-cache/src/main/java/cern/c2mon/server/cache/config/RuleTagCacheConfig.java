@@ -3,6 +3,7 @@ package cern.c2mon.server.cache.config;
 import cern.c2mon.server.cache.loading.common.BatchCacheLoader;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import cern.c2mon.server.cache.loading.common.EhcacheLoaderImpl;
+import cern.c2mon.server.cache.loading.common.LocalCacheStore;
 import cern.c2mon.server.cache.loading.RuleTagLoaderDAO;
 import cern.c2mon.server.cache.loading.config.CacheLoadingProperties;
 import net.sf.ehcache.CacheManager;
@@ -20,6 +21,9 @@ public class RuleTagCacheConfig {
   @Autowired
   private CacheLoadingProperties properties;
 
+  @Autowired
+  private CacheProperties cacheProperties;
+
   @Bean
   public EhCacheFactoryBean ruleTagEhcache(CacheManager cacheManager) {
     EhCacheFactoryBean factory = new EhCacheFactoryBean();
@@ -36,6 +40,11 @@ public class RuleTagCacheConfig {
   @Bean
   public C2monCacheLoader ruleTagCacheLoader(Ehcache ruleTagEhcache, RuleTagLoaderDAO ruleTagLoaderDAO) {
     Integer batchSize = properties.getBatchSize();
-    return new BatchCacheLoader<>(ruleTagEhcache, ruleTagLoaderDAO, batchSize, "RuleTagCacheLoader-");
+    BatchCacheLoader<?> loader = new BatchCacheLoader<>(ruleTagEhcache, ruleTagLoaderDAO, batchSize, "RuleTagCacheLoader-");
+    loader.setStreaming(properties.isStreaming());
+    if (properties.getLocalStorePath() != null && !"multi".equals(cacheProperties.getMode())) {
+      loader.setLocalCacheStore(LocalCacheStore.forCache(properties.getLocalStorePath(), ruleTagEhcache.getName()));
+    }
+    return loader;
   }
 }
@@ -78,6 +78,15 @@ public class DeviceCacheImpl extends AbstractCache<Long, Device> implements Devi
   protected void doPostDbLoading(Device cacheObject) {
   }
 
+  /**
+   * The clone of a device shares its (mutable) device properties and
+   * commands, so copies are still made through serialization.
+   */
+  @Override
+  protected Device createCopy(Device reference) throws Exception {
+    return createSerializedCopy(reference);
+  }
+
   @Override
   protected C2monCacheName getCacheName() {
     return C2monCacheName.DEVICE;
@@ -74,6 +74,15 @@ public class DeviceClassCacheImpl extends AbstractCache<Long, DeviceClass> imple
   protected void doPostDbLoading(DeviceClass cacheObject) {
   }
 
+  /**
+   * The clone of a device class shares its (mutable) property and command
+   * beans, so copies are still made through serialization.
+   */
+  @Override
+  protected DeviceClass createCopy(DeviceClass reference) throws Exception {
+    return createSerializedCopy(reference);
+  }
+
   @Override
   protected C2monCacheName getCacheName() {
     return C2monCacheName.DEVICECLASS;
@@ -22,6 +22,7 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import cern.c2mon.server.common.config.ServerProperties;
 import org.slf4j.Logger;
@@ -38,10 +39,12 @@ import cern.c2mon.server.cache.ProcessCache;
 import cern.c2mon.server.cache.ProcessFacade;
 import cern.c2mon.server.cache.SubEquipmentFacade;
 import cern.c2mon.server.cache.common.AbstractSupervisedFacade;
+import cern.c2mon.server.cache.config.CacheProperties;
 import cern.c2mon.server.common.alive.AliveTimer;
 import cern.c2mon.server.common.process.Process;
 import cern.c2mon.server.common.process.ProcessCacheObject;
 import cern.c2mon.server.common.process.ProcessCacheObject.LocalConfig;
+import cern.c2mon.server.common.process.ProcessPIKSnapshot;
 import cern.c2mon.shared.common.ConfigurationException;
 import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionEntity;
 import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionStatus;
@@ -75,19 +78,34 @@ public class ProcessFacadeImpl extends AbstractSupervisedFacade<Process> impleme
 
   private ServerProperties properties;
 
+  /**
+   * PIK snapshots of the Processes, used to validate incoming DAQ updates
+   * without locking. Always modified while holding the write lock on the
+   * Process, and loaded while holding the read lock.
+   */
+  private final ConcurrentHashMap<Long, ProcessPIKSnapshot> pikSnapshots = new ConcurrentHashMap<>();
+
+  /**
+   * Snapshots are only kept in the single server modes: in a cluster, the PIK
+   * may be changed by another server without this node being notified.
+   */
+  private final boolean pikSnapshotsEnabled;
+
   @Autowired
   public ProcessFacadeImpl(final EquipmentFacade equipmentFacade,
                            final ProcessCache processCache,
                            final SubEquipmentFacade subEquipmentFacade,
                            final AliveTimerCache aliveTimerCache,
                            final AliveTimerFacade aliveTimerFacade,
-                           final ServerProperties properties) {
+                           final ServerProperties properties,
+                           final CacheProperties cacheProperties) {
     super(processCache, aliveTimerCache, aliveTimerFacade);
     this.equipmentFacade = equipmentFacade;
     this.processCache = processCache;
     this.subEquipmentFacade = subEquipmentFacade;
     this.aliveTimerCache = aliveTimerCache;
     this.properties = properties;
+    this.pikSnapshotsEnabled = !"multi".equals(cacheProperties.getMode());
   }
 
   @Override
@@ -188,6 +206,7 @@ public class ProcessFacadeImpl extends AbstractSupervisedFacade<Process> impleme
       processCacheObject.setProcessPIK(null);
       processCacheObject.setLocalConfig(null);
       super.stop(process, timestamp);
+      updatePIKSnapshot(processCacheObject);
     } finally {
       processCache.releaseWriteLockOnKey(process.getId());
     }
@@ -212,6 +231,7 @@ public class ProcessFacadeImpl extends AbstractSupervisedFacade<Process> impleme
             + ", PIK " + process.getProcessPIK());
       }
       processCache.put(processId, process);
+      updatePIKSnapshot(process);
     } finally {
       processCache.releaseWriteLockOnKey(processId);
     }
@@ -438,11 +458,49 @@ public class ProcessFacadeImpl extends AbstractSupervisedFacade<Process> impleme
       // Set the PIK
       processCacheObject.setProcessPIK(processPIK);
       processCache.put(processId, processCacheObject);
+      updatePIKSnapshot(processCacheObject);
     } finally {
       processCache.releaseWriteLockOnKey(processId);
     }
   }
 
+  @Override
+  public ProcessPIKSnapshot getPIKSnapshot(final Long processId) {
+    if (pikSnapshotsEnabled) {
+      ProcessPIKSnapshot snapshot = pikSnapshots.get(processId);
+      if (snapshot != null) {
+        return snapshot;
+      }
+    }
+    processCache.acquireReadLockOnKey(processId);
+    try {
+      ProcessPIKSnapshot snapshot = ProcessPIKSnapshot.of(processCache.get(processId));
+      if (pikSnapshotsEnabled) {
+        pikSnapshots.put(processId, snapshot);
+      }
+      return snapshot;
+    } finally {
+      processCache.releaseReadLockOnKey(processId);
+    }
+  }
+
+  @Override
+  public void invalidatePIKSnapshot(final Long processId) {
+    pikSnapshots.remove(processId);
+  }
+
+  /**
+   * Publishes a new PIK snapshot for the passed Process. Must be called while
+   * holding the write lock on the Process.
+   *
+   * @param process the modified Process
+   */
+  private void updatePIKSnapshot(final Process process) {
+    if (pikSnapshotsEnabled) {
+      pikSnapshots.put(process.getId(), ProcessPIKSnapshot.of(process));
+    }
+  }
+
   @Override
   public void setLocalConfig(final Long processId, final LocalConfig localConfig) {
     processCache.acquireWriteLockOnKey(processId);
@@ -16,9 +16,15 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.process;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -45,7 +51,11 @@ import cern.c2mon.server.common.subequipment.SubEquipment;
 import cern.c2mon.server.common.subequipment.SubEquipmentCacheObject;
 
 /**
- * TODO Add to TC config.
+ * Generates the DAQ configuration XML. The document is written piece by
+ * piece to a {@link Writer} straight from the caches, so no intermediate
+ * copy of the equipment or DataTag sections is built.
+ *
+ * <p>TODO Add to TC config.
  *
  * @author Mark Brightwell
  *
@@ -59,6 +69,16 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
    */
   private static final Logger LOGGER = LoggerFactory.getLogger(ProcessXMLProviderImpl.class);
 
+  /**
+   * Number of DataTags whose XML is generated in a single task.
+   */
+  private static final int TAG_CHUNK_SIZE = 100;
+
+  /**
+   * Maximum number of DataTag chunks generated ahead of the writer.
+   */
+  private static final int MAX_PENDING_CHUNKS = 64;
+
   /**
    * Required facade, cache and DAO beans.
    */
@@ -91,6 +111,17 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
 
   @Override
   public String getProcessConfigXML(Process process) {
+    StringWriter writer = new StringWriter();
+    try {
+      writeProcessConfigXML(process, writer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
+  }
+
+  @Override
+  public void writeProcessConfigXML(Process process, Writer writer) throws IOException {
     log.debug("getConfigXML() called.");
     if (process != null) {
 
@@ -101,42 +132,46 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
       String schemaInfo = "xmlns=\"http://timweb.cern.ch/schemas/c2mon-daq/Configuration\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
           "xsi:schemaLocation=\"http://timweb.cern.ch/schemas/c2mon-daq/Configuration http://timweb/schemas/c2mon-daq/ProcessConfiguration.xsd\" ";
 
-      StringBuffer str = new StringBuffer("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+      writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
 
-      str.append("<ProcessConfiguration ").append(schemaInfo).append(" process-id=\"");
+      writer.append("<ProcessConfiguration ").append(schemaInfo).append(" process-id=\"");
 
-      str.append(processCacheObject.getId());
-      str.append("\" type=\"initialise\"").append(" name=\"").append(processCacheObject.getName()).append("\">\n");
+      writer.append(String.valueOf(processCacheObject.getId()));
+      writer.append("\" type=\"initialise\"").append(" name=\"").append(processCacheObject.getName()).append("\">\n");
 
-      str.append("  <alive-tag-id>");
-      str.append(processCacheObject.getAliveTagId());
-      str.append("</alive-tag-id>\n");
+      writer.append("  <alive-tag-id>");
+      writer.append(String.valueOf(processCacheObject.getAliveTagId()));
+      writer.append("</alive-tag-id>\n");
 
-      str.append("  <alive-interval>");
-      str.append(processCacheObject.getAliveInterval());
-      str.append("</alive-interval>\n");
+      writer.append("  <alive-interval>");
+      writer.append(String.valueOf(processCacheObject.getAliveInterval()));
+      writer.append("</alive-interval>\n");
 
-      str.append("  <max-message-size>");
-      str.append(processCacheObject.getMaxMessageSize());
-      str.append("</max-message-size>\n");
+      writer.append("  <max-message-size>");
+      writer.append(String.valueOf(processCacheObject.getMaxMessageSize()));
+      writer.append("</max-message-size>\n");
 
-      str.append("  <max-message-delay>");
-      str.append(processCacheObject.getMaxMessageDelay());
-      str.append("</max-message-delay>\n");
+      writer.append("  <max-message-delay>");
+      writer.append(String.valueOf(processCacheObject.getMaxMessageDelay()));
+      writer.append("</max-message-delay>\n");
 
         LOGGER.debug("getting equipment ids");
 
-      str.append("  <EquipmentUnits>\n");
+      writer.append("  <EquipmentUnits>\n");
       Collection<Long> equipmentIds = processCacheObject.getEquipmentIds();
 
       if (equipmentIds != null && equipmentIds.size() > 0) {
-        for (Long equipmentId : equipmentIds) {
-          str.append(getEquipmentConfigXML((Long) equipmentId));
+        ThreadPoolExecutor tagXmlExecutor = createTagXmlExecutor();
+        try {
+          for (Long equipmentId : equipmentIds) {
+            writeEquipmentConfigXML(equipmentId, writer, tagXmlExecutor);
+          }
+        } finally {
+          tagXmlExecutor.shutdown();
         }
       }
-      str.append("  </EquipmentUnits>\n");
-      str.append("</ProcessConfiguration>\n");
-      return str.toString();
+      writer.append("  </EquipmentUnits>\n");
+      writer.append("</ProcessConfiguration>\n");
 
     } else {
       log.error("Called getConfigXML() for a NULL process object - this should be avoided!"
@@ -147,93 +182,87 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
 
   @Override
   public String getEquipmentConfigXML(Long id) {
+    StringWriter writer = new StringWriter();
+    ThreadPoolExecutor tagXmlExecutor = createTagXmlExecutor();
+    try {
+      writeEquipmentConfigXML(id, writer, tagXmlExecutor);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      tagXmlExecutor.shutdown();
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Executor generating the DataTag XML chunks. Runs the chunks on the
+   * writing thread when all threads are busy.
+   */
+  private static ThreadPoolExecutor createTagXmlExecutor() {
+    return new ThreadPoolExecutor(8, 10, 5, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(MAX_PENDING_CHUNKS), new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  private void writeEquipmentConfigXML(Long id, Writer writer, ThreadPoolExecutor tagXmlExecutor) throws IOException {
     try {
-      StringBuilder str = new StringBuilder();
       EquipmentCacheObject equipment = (EquipmentCacheObject) equipmentCache.getCopy(id);
 
-      // If found, generate config XML in String buffer
-      str.append("<EquipmentUnit id=\"");
+      // If found, write config XML
+      writer.append("<EquipmentUnit id=\"");
 
-      str.append(equipment.getId());
-      str.append("\" name=\"");
-      str.append(equipment.getName());
-      str.append("\">\n");
+      writer.append(String.valueOf(equipment.getId()));
+      writer.append("\" name=\"");
+      writer.append(equipment.getName());
+      writer.append("\">\n");
 
-      str.append("  <handler-class-name>");
-      str.append(equipment.getHandlerClassName());
-      str.append("</handler-class-name>\n");
+      writer.append("  <handler-class-name>");
+      writer.append(equipment.getHandlerClassName());
+      writer.append("</handler-class-name>\n");
 
-      str.append("  <commfault-tag-id>");
-      str.append(equipment.getCommFaultTagId());
-      str.append("</commfault-tag-id>\n");
+      writer.append("  <commfault-tag-id>");
+      writer.append(String.valueOf(equipment.getCommFaultTagId()));
+      writer.append("</commfault-tag-id>\n");
 
-      str.append("  <commfault-tag-value>");
-      str.append(equipment.getCommFaultTagValue());
-      str.append("</commfault-tag-value>\n");
+      writer.append("  <commfault-tag-value>");
+      writer.append(String.valueOf(equipment.getCommFaultTagValue()));
+      writer.append("</commfault-tag-value>\n");
 
       if (equipment.getAliveTagId() != null) {
-        str.append("  <alive-tag-id>");
-        str.append(equipment.getAliveTagId());
-        str.append("</alive-tag-id>\n");
+        writer.append("  <alive-tag-id>");
+        writer.append(String.valueOf(equipment.getAliveTagId()));
+        writer.append("</alive-tag-id>\n");
 
-        str.append("  <alive-interval>");
-        str.append(equipment.getAliveInterval());
-        str.append("</alive-interval>\n");
+        writer.append("  <alive-interval>");
+        writer.append(String.valueOf(equipment.getAliveInterval()));
+        writer.append("</alive-interval>\n");
       }
 
-      str.append("  <address>");
+      writer.append("  <address>");
       if (equipment.getAddress() != null) {
-        str.append(equipment.getAddress());
+        writer.append(equipment.getAddress());
       }
-      str.append("</address>\n");
+      writer.append("</address>\n");
 
       // Generate the subEquipments section
-      str.append("  <SubEquipmentUnits>\n");
-      str.append(getSubEquipmentUnitsConfigXML(equipment));
-      str.append("  </SubEquipmentUnits>\n");
+      writer.append("  <SubEquipmentUnits>\n");
+      writeSubEquipmentConfigXML(equipment.getId(), writer);
+      writer.append("  </SubEquipmentUnits>\n");
 
-      str.append("  <DataTags>\n");
-      str.append(getDataTagsConfigXML(equipment));
-      str.append("  </DataTags>\n");
+      writer.append("  <DataTags>\n");
+      writeDataTagsConfigXML(equipment, writer, tagXmlExecutor);
+      writer.append("  </DataTags>\n");
 
-      str.append("  <CommandTags>\n");
-      str.append(getCommandTagsConfigXML(equipment));
-      str.append("  </CommandTags>\n");
+      writer.append("  <CommandTags>\n");
+      writeCommandTagsConfigXML(equipment, writer);
+      writer.append("  </CommandTags>\n");
 
-      str.append("</EquipmentUnit>");
-      return str.toString();
+      writer.append("</EquipmentUnit>");
     } catch (CacheElementNotFoundException cacheEx) {
       log.error("Cannot locate Equipment in cache (Id=" + id + ") - throwing the exception.");
       throw cacheEx;
     }
   }
 
-  /**
-   * Creates the configuration for the subequipments attached to the equipment provided as a parameter
-   *
-   * <p>Called within block synchronized on equipment.
-   *
-   * @param equipment Reference to the equipment for which we want to generate its subequipments configuration
-   * @return A string containing the XML describing the subequipments configuration
-   */
-  private String getSubEquipmentUnitsConfigXML(final EquipmentCacheObject equipment) {
-    if (log.isDebugEnabled()) {
-      StringBuffer str = new StringBuffer("getSubEquipmentUnitsConfigXML([MonitoringEquipment: ");
-      str.append(equipment.getId());
-      str.append("]) called.");
-      log.debug(str.toString());
-    }
-
-    // Initialise buffer for the XML structure to be generated
-    StringBuilder str = new StringBuilder();
-
-    // Generate XML for this equipment unit and append it to the buffer
-    str.append(getSubEquipmentConfigXML(equipment.getId()));
-
-    // Return the result
-    return str.toString();
-  }
-
   /**
    * Generates a XML file describing the configuration for the SubEquipment's that are attached to the
    * indicated equipment
@@ -246,6 +275,21 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
    */
   @Override
   public String getSubEquipmentConfigXML(final Long equipmentId) {
+    StringWriter writer = new StringWriter();
+    try {
+      writeSubEquipmentConfigXML(equipmentId, writer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Writes the configuration of the SubEquipments attached to the equipment.
+   *
+   * <p>Called within block synchronized on equipment.
+   */
+  private void writeSubEquipmentConfigXML(final Long equipmentId, final Writer writer) throws IOException {
     if (log.isDebugEnabled()) {
       StringBuffer str = new StringBuffer("getConfigXML([EquipmentId: ");
       str.append(equipmentId.toString());
@@ -253,25 +297,19 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
       log.debug(str.toString());
     }
 
-    // Initialise buffer for the XML structure to be generated
-    StringBuffer str = new StringBuffer();
-
-    // Generate XML for this equipment unit and append it to the buffer
+    // Generate XML for this equipment unit and write it
     try {
       List<SubEquipment> subEquipmentsIds = subEquipmentDAO.getSubEquipmentsByEquipment(equipmentId);
 
       if (subEquipmentsIds != null) {
         Iterator<SubEquipment> it = subEquipmentsIds.iterator();
         while (it.hasNext()) {
-          str.append(getSubEquipmentConfigXML((SubEquipmentCacheObject) it.next()));
+          writer.append(getSubEquipmentConfigXML((SubEquipmentCacheObject) it.next()));
         }
       }
     } catch (SubEquipmentException e) {
       log.error("getConfigXML() : Unable to get the subequipments for the equipment ", e);
     }
-
-    // Return the resulting XML structure
-    return str.toString();
   }
 
   /**
@@ -309,13 +347,19 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
   }
 
   /**
-   * Generate the content of the <DataTags> section of the DAQ config XML.
+   * Writes the content of the <DataTags> section of the DAQ config XML.
    * This method generates a <DataTag ...> XML entry for each DataTag
    * attached to the specified equipment unit or one of its subequipments.
    *
+   * <p>The tags are written in id order, so an unchanged configuration
+   * always gives the same document. Their XML is generated in chunks on
+   * the executor threads, at most {@link #MAX_PENDING_CHUNKS} ahead of
+   * the writer.
+   *
    * <p>Called within block synchronized on equipment.
    */
-  private String getDataTagsConfigXML(final EquipmentCacheObject pEquipment) {
+  private void writeDataTagsConfigXML(final EquipmentCacheObject pEquipment, final Writer writer,
+                                      final ThreadPoolExecutor tagXmlExecutor) throws IOException {
     if (log.isDebugEnabled()) {
       StringBuffer str = new StringBuffer("getDataTagsConfigXML([MonitoringEquipment: ");
       str.append(pEquipment.getId());
@@ -323,15 +367,7 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
       log.debug(str.toString());
     }
 
-    // Initialise buffer for the XML structure to be generated
-    StringBuilder str = new StringBuilder();
-
-    // Generate XML for this equipment unit and append it to the buffer.
-    // generate datatag XML:
-    ThreadPoolExecutor tagXmlExecutor =
-      new ThreadPoolExecutor(8, 10, 5, TimeUnit.SECONDS,
-          new LinkedBlockingQueue<>(10000), new ThreadPoolExecutor.CallerRunsPolicy());
-    Collection<Long> dataTags = equipmentFacade.getDataTagIds(pEquipment.getId());
+    List<Long> dataTags = new ArrayList<>(equipmentFacade.getDataTagIds(pEquipment.getId()));
 
     // TIMS-851: Allow attachment of DataTags to SubEquipments
     //
@@ -341,29 +377,28 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
     for (Long subEquipmentId : pEquipment.getSubEquipmentIds()) {
       dataTags.addAll(subEquipmentFacade.getDataTagIds(subEquipmentId));
     }
+    Collections.sort(dataTags);
 
-    if (dataTags != null) {
-      LinkedList<Future<String>> futureXmlStrings = new LinkedList<Future<String>>();
-      LinkedList<Long> partialList = new LinkedList<Long>();
-      Iterator<Long> it = dataTags.iterator();
-      while (it.hasNext()) {
-        while (partialList.size() < 100 && it.hasNext()) {
-          partialList.addLast(it.next());
+    ArrayDeque<Future<String>> pendingChunks = new ArrayDeque<>();
+    try {
+      for (int from = 0; from < dataTags.size(); from += TAG_CHUNK_SIZE) {
+        List<Long> chunk = dataTags.subList(from, Math.min(from + TAG_CHUNK_SIZE, dataTags.size()));
+        pendingChunks.addLast(tagXmlExecutor.submit(new GetTagXmlTask(chunk)));
+        if (pendingChunks.size() >= MAX_PENDING_CHUNKS) {
+          writer.append(pendingChunks.pollFirst().get());
         }
-        Callable<String> tagTask = new GetTagXmlTask((LinkedList<Long>) partialList.clone());
-        partialList.clear();
-        futureXmlStrings.addFirst(tagXmlExecutor.submit(tagTask));
       }
-      tagXmlExecutor.shutdown();
-      try {
-        tagXmlExecutor.awaitTermination(120, TimeUnit.SECONDS);
-        while (!futureXmlStrings.isEmpty()) {
-          str.append(futureXmlStrings.pollFirst().get());
-        }
-      } catch (InterruptedException e) {
-        log.error("Interrupted while waiting for XML tag threads to terminate - no datatags were added!");
-      } catch (ExecutionException e) {
-        log.error("Interrupted while waiting for XML tag threads to terminate - no datatags were added!");
+      while (!pendingChunks.isEmpty()) {
+        writer.append(pendingChunks.pollFirst().get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while generating the DataTag XML of equipment " + pEquipment.getId(), e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Exception caught while generating the DataTag XML of equipment " + pEquipment.getId(), e.getCause());
+    } finally {
+      for (Future<String> pendingChunk : pendingChunks) {
+        pendingChunk.cancel(false);
       }
     }
 
@@ -379,7 +414,7 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
         log.debug("alive tag obtained from cache): " + aliveTagId);
         if (aliveTag.getAddress() != null && aliveTag.getAddress().getHardwareAddress() != null) { //added check on address not null in C2MON, as we allow null address fields if the DB field is
           log.debug("alive Tag has hardware address " + aliveTagId);
-          str.append(dataTagFacade.generateSourceXML(aliveTag));
+          writer.append(dataTagFacade.generateSourceXML(aliveTag));
         } else {
           log.debug("Alive tag has no hardware address, so not including in DAQ XML.");
         }
@@ -399,7 +434,7 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
           ControlTagCacheObject aliveTag = (ControlTagCacheObject) controlTagCache.get(aliveId);
           if (aliveTag.getAddress() != null && aliveTag.getAddress().getHardwareAddress() != null) {
             log.debug("Alive tag has hardware address: " + aliveTag.getAddress().getHardwareAddress().toConfigXML());
-            str.append(dataTagFacade.generateSourceXML(aliveTag));
+            writer.append(dataTagFacade.generateSourceXML(aliveTag));
           } else {
             log.debug("Alive tag has no hardware address, so not including in DAQ XML.");
           }
@@ -411,31 +446,26 @@ public class ProcessXMLProviderImpl implements ProcessXMLProvider {
         }
       }
     }
-
-    //Return the resulting XML structure
-    return str.toString();
   }
 
   /**
-   * Generate the content of the <CommandTags> section of the DAQ config XML.
+   * Writes the content of the <CommandTags> section of the DAQ config XML.
    * This method generates a <CommandTag ...> XML entry for each CommandTag
    * attached to the specified equipment unit or one of its subequipments.
    *
    * <p>Call within equipment lock.
    */
-  private String getCommandTagsConfigXML(final EquipmentCacheObject pEquipment) {
+  private void writeCommandTagsConfigXML(final EquipmentCacheObject pEquipment, final Writer writer) throws IOException {
     if (log.isDebugEnabled()) {
       StringBuffer str = new StringBuffer("getCommandTagsConfigXML([Equipment: ");
       str.append(pEquipment.getId());
       str.append("]) called.");
       log.debug(str.toString());
     }
-    StringBuffer str = new StringBuffer();
     Collection<Long> commandTagIds = pEquipment.getCommandTagIds();
     for (Long id : commandTagIds) {
-      str.append(commandTagFacade.getConfigXML(id));
+      writer.append(commandTagFacade.getConfigXML(id));
     }
-    return str.toString();
   }
 
   /**
@@ -30,6 +30,7 @@ import cern.c2mon.server.cache.C2monCacheWithSupervision;
 import cern.c2mon.server.cache.CacheSupervisionListener;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.common.AbstractCache;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import cern.c2mon.server.cache.loading.SimpleCacheLoaderDAO;
 import cern.c2mon.server.common.tag.AbstractTagCacheObject;
@@ -65,6 +66,15 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
   private final List<CacheSupervisionListener< ? super T>> listenersWithSupervision;
   private final ReentrantReadWriteLock listenerLock;
 
+  /**
+   * Index of the tag names, used for name lookups instead of Ehcache Search.
+   * Only maintained if this server holds the whole cache (not in "multi" mode,
+   * where other servers also modify the cache).
+   */
+  private final TagNameIndex nameIndex = new TagNameIndex();
+  private final boolean nameIndexEnabled;
+  private volatile boolean nameIndexReady = false;
+
   /**
    * Constructor.
    */
@@ -77,19 +87,116 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
     super(clusterCache, ehcache, cacheLoader, c2monCacheLoader, cacheLoaderDAO, properties);
     listenersWithSupervision = new ArrayList<>();
     listenerLock = new ReentrantReadWriteLock();
+    nameIndexEnabled = !properties.getMode().equalsIgnoreCase("multi");
+  }
+
+  /**
+   * Builds the tag name index once the cache is loaded.
+   */
+  @Override
+  protected void commonInit() {
+    super.commonInit();
+    if (nameIndexEnabled) {
+      for (Long key : getKeys()) {
+        try {
+          indexName(get(key));
+        } catch (CacheElementNotFoundException e) {
+          log.debug("Tag {} removed while building the name index of cache {}", key, getCacheName());
+        }
+      }
+      nameIndexReady = true;
+      log.info("Indexed {} tag names of cache {}", nameIndex.size(), getCacheName());
+    }
+  }
+
+  @Override
+  public void putQuiet(final T value) {
+    super.putQuiet(value);
+    indexName(value);
+  }
+
+  @Override
+  public void put(final Long key, final T value) {
+    super.put(key, value);
+    indexName(value);
+  }
+
+  @Override
+  public boolean remove(final Long id) {
+    boolean removed = super.remove(id);
+    if (nameIndexEnabled) {
+      nameIndex.remove(id);
+    }
+    return removed;
+  }
+
+  private void indexName(final T tag) {
+    if (nameIndexEnabled && tag != null) {
+      nameIndex.add(tag.getId(), tag.getName());
+    }
+  }
+
+  /**
+   * @return the tags with the given ids which are still in the cache
+   */
+  private Collection<T> getTags(final Collection<Long> ids) {
+    Collection<T> tags = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      try {
+        tags.add(get(id));
+      } catch (CacheElementNotFoundException e) {
+        log.debug("Tag {} removed from cache {} during name lookup", id, getCacheName());
+      }
+    }
+    return tags;
   }
 
 
   @Override
   public void notifyListenersOfSupervisionChange(final T tag) {
     //only notify if the current value in the cache is not more recent (a new update could have overraken the supervision notification)
-    if (!this.getCopy(tag.getId()).getCacheTimestamp().after(tag.getCacheTimestamp())) {
+    if (!isOvertaken(tag)) {
       notifyListenersWithSupervision(tag);
     } else {
       log.info("Filtering out Tag supervison notification as newer value in cache - tag id is " + tag.getId());
     }
   }
 
+  @Override
+  public void notifyListenersOfSupervisionChanges(final Collection<T> tags) {
+    List<T> notifiedTags = new ArrayList<>(tags.size());
+    for (T tag : tags) {
+      if (!isOvertaken(tag)) {
+        notifiedTags.add(tag);
+      } else {
+        log.info("Filtering out Tag supervison notification as newer value in cache - tag id is " + tag.getId());
+      }
+    }
+    listenerLock.readLock().lock();
+    try {
+      for (CacheSupervisionListener< ? super T> cacheListener : listenersWithSupervision) {
+        for (T tag : notifiedTags) {
+          cacheListener.onSupervisionChange(tag);
+        }
+      }
+    } finally {
+      listenerLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param tag a tag copy with supervision status applied
+   * @return true if the tag in the cache has been updated since the copy was made
+   */
+  private boolean isOvertaken(final T tag) {
+    acquireReadLockOnKey(tag.getId());
+    try {
+      return get(tag.getId()).getCacheTimestamp().after(tag.getCacheTimestamp());
+    } finally {
+      releaseReadLockOnKey(tag.getId());
+    }
+  }
+
   /**
    * Private method for notifying all listeners registered for supervision changes
    * to Tags (i.e. they get a Tag update call on a supervision change also)
@@ -123,6 +230,10 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
       throw new IllegalArgumentException("Attempting to retrieve a Tag from the cache with a NULL or empty name parameter.");
     }
 
+    if (nameIndexReady) {
+      return !nameIndex.get(name).isEmpty();
+    }
+
     // This will prevent wildcard searches
     if (name.contains("*")) {
       name = name.replace("*", "\\*");
@@ -157,6 +268,13 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
       throw new IllegalArgumentException("Attempting to retrieve a Tag from the cache with a NULL or empty name parameter.");
     }
 
+    if (nameIndexReady) {
+      for (T tag : getTags(nameIndex.get(name))) {
+        return tag;
+      }
+      return null;
+    }
+
     // This will prevent wildcard searches
     if (name.contains("*")) {
       name = name.replace("*", "\\*");
@@ -186,6 +304,10 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
    * A regular expression matcher. '?' and '*' may be used.
    * The search is always case insensitive.
    * <p>
+   * The tag name index is used if available; only the names starting with
+   * the characters before the first wildcard are then scanned. Otherwise an
+   * Ehcache Search query is run.
+   * <p>
    * WARN: Expressions starting with a leading wildcard character are
    * potentially very expensive (ie. full scan) for indexed caches
    *
@@ -216,6 +338,9 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
         }
       }
     }
+    else if (nameIndexReady) {
+      resultList = getTags(nameIndex.find(regex, maxResults));
+    }
     else {
       try {
         Ehcache ehcache = getCache();
@@ -0,0 +1,196 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.tag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of the tag names of a tag cache, used to answer name
+ * lookups without running an Ehcache Search query over the whole cache.
+ *
+ * <p>Names are kept lower case in a sorted map, so exact lookups are a single
+ * map access and wildcard lookups only scan the names starting with the
+ * literal prefix of the expression. The wildcard syntax is the one of
+ * {@link net.sf.ehcache.search.expression.ILike}: '*' matches any sequence of
+ * characters, '?' a single character, and '\' escapes the next character.
+ *
+ * <p>Lookups never lock. Updates are serialized, which is cheap since they
+ * only happen on preload and configuration changes.
+ */
+class TagNameIndex {
+
+  /** Lower case tag name -> ids of the tags with this name */
+  private final NavigableMap<String, Set<Long>> idsByName = new ConcurrentSkipListMap<>();
+
+  /** Tag id -> lower case name under which it is indexed */
+  private final Map<Long, String> namesById = new ConcurrentHashMap<>();
+
+  /**
+   * Adds a tag to the index, or moves it if its name changed.
+   *
+   * @param id the tag id
+   * @param name the tag name (tags without name are not indexed)
+   */
+  void add(final Long id, final String name) {
+    if (name == null) {
+      remove(id);
+      return;
+    }
+    String key = toKey(name);
+    if (key.equals(namesById.get(id))) {
+      return;
+    }
+    synchronized (this) {
+      String previous = namesById.put(id, key);
+      if (previous != null) {
+        removeId(previous, id);
+      }
+      Set<Long> ids = idsByName.get(key);
+      if (ids == null) {
+        ids = ConcurrentHashMap.newKeySet();
+        idsByName.put(key, ids);
+      }
+      ids.add(id);
+    }
+  }
+
+  /**
+   * @param id the tag to remove from the index
+   */
+  synchronized void remove(final Long id) {
+    String previous = namesById.remove(id);
+    if (previous != null) {
+      removeId(previous, id);
+    }
+  }
+
+  /**
+   * Removes all tags from the index.
+   */
+  synchronized void clear() {
+    idsByName.clear();
+    namesById.clear();
+  }
+
+  /**
+   * @return the number of indexed tags
+   */
+  int size() {
+    return namesById.size();
+  }
+
+  /**
+   * Case insensitive exact lookup.
+   *
+   * @param name the tag name (no wildcards)
+   * @return the ids of the tags with this name, empty if none
+   */
+  Set<Long> get(final String name) {
+    Set<Long> ids = idsByName.get(toKey(name));
+    return ids == null ? Collections.<Long>emptySet() : Collections.unmodifiableSet(ids);
+  }
+
+  /**
+   * Case insensitive wildcard lookup.
+   *
+   * @param expression the name expression, which may contain '*' and '?'
+   * @param maxResults the maximum number of ids to return
+   * @return the ids of the tags whose name matches the expression, in name order
+   */
+  List<Long> find(final String expression, final int maxResults) {
+    StringBuilder prefix = new StringBuilder();
+    StringBuilder regex = new StringBuilder();
+    StringBuilder literal = new StringBuilder();
+    boolean wildcard = false;
+
+    for (int i = 0; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (c == '\\' && i + 1 < expression.length()) {
+        literal.append(expression.charAt(++i));
+      } else if (c == '*' || c == '?') {
+        if (!wildcard) {
+          prefix.append(literal);
+          wildcard = true;
+        }
+        appendLiteral(regex, literal);
+        regex.append(c == '*' ? ".*" : ".");
+      } else {
+        literal.append(c);
+      }
+    }
+
+    List<Long> result = new ArrayList<>();
+    if (!wildcard) {
+      addIds(result, idsByName.get(toKey(literal.toString())), maxResults);
+      return result;
+    }
+    appendLiteral(regex, literal);
+
+    String start = toKey(prefix.toString());
+    Pattern pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+    for (Map.Entry<String, Set<Long>> entry : idsByName.tailMap(start, true).entrySet()) {
+      if (!entry.getKey().startsWith(start) || result.size() >= maxResults) {
+        break;
+      }
+      if (pattern.matcher(entry.getKey()).matches()) {
+        addIds(result, entry.getValue(), maxResults);
+      }
+    }
+    return result;
+  }
+
+  private void removeId(final String key, final Long id) {
+    Set<Long> ids = idsByName.get(key);
+    if (ids != null) {
+      ids.remove(id);
+      if (ids.isEmpty()) {
+        idsByName.remove(key);
+      }
+    }
+  }
+
+  private static void appendLiteral(final StringBuilder regex, final StringBuilder literal) {
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(toKey(literal.toString())));
+      literal.setLength(0);
+    }
+  }
+
+  private static void addIds(final List<Long> result, final Set<Long> ids, final int maxResults) {
+    if (ids != null) {
+      for (Long id : ids) {
+        if (result.size() >= maxResults) {
+          return;
+        }
+        result.add(id);
+      }
+    }
+  }
+
+  private static String toKey(final String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,127 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.alarm;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cern.c2mon.server.common.alarm.AlarmCondition;
+import cern.c2mon.server.common.alarm.RangeAlarmCondition;
+import cern.c2mon.server.common.alarm.ValueAlarmCondition;
+import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagAlarmEvaluatorTest {
+
+  @Test
+  public void rangeConditionsMatchConditionEvaluation() {
+    Random random = new Random(42);
+    Map<Long, AlarmCondition> conditions = new HashMap<>();
+    for (long id = 0; id < 300; id++) {
+      Double min = random.nextInt(4) == 0 ? null : (double) random.nextInt(100);
+      Double max = random.nextInt(4) == 0 ? null : (double) random.nextInt(100);
+      conditions.put(id, new RangeAlarmCondition(min, max));
+    }
+    conditions.put(300L, new RangeAlarmCondition(5, 10));
+    TagAlarmEvaluator evaluator = new TagAlarmEvaluator(conditions);
+
+    for (int i = 0; i < 1000; i++) {
+      Double value = random.nextBoolean() ? (double) random.nextInt(110) - 5 : random.nextDouble() * 110 - 5;
+      assertSameStates(conditions, evaluator, value);
+    }
+    assertSameStates(conditions, evaluator, 7);
+  }
+
+  @Test
+  public void valueConditionsMatchConditionEvaluation() {
+    Map<Long, AlarmCondition> conditions = new HashMap<>();
+    conditions.put(1L, new ValueAlarmCondition(1));
+    conditions.put(2L, new ValueAlarmCondition(2));
+    conditions.put(3L, new ValueAlarmCondition(2));
+    conditions.put(4L, new RangeAlarmCondition(2, 3));
+    conditions.put(5L, new RangeAlarmCondition(null, null));
+    TagAlarmEvaluator evaluator = new TagAlarmEvaluator(conditions);
+
+    for (int value = 0; value < 5; value++) {
+      assertSameStates(conditions, evaluator, value);
+    }
+  }
+
+  @Test
+  public void enumValuesAreEvaluatedByTheirCondition() {
+    Map<Long, AlarmCondition> conditions = new HashMap<>();
+    conditions.put(1L, new ValueAlarmCondition("DOWN"));
+    conditions.put(2L, new ValueAlarmCondition("RUNNING"));
+    TagAlarmEvaluator evaluator = new TagAlarmEvaluator(conditions);
+
+    assertSameStates(conditions, evaluator, SupervisionStatus.DOWN);
+    assertSameStates(conditions, evaluator, SupervisionStatus.RUNNING);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void valueTypeMismatchStillFails() {
+    Map<Long, AlarmCondition> conditions = new HashMap<>();
+    conditions.put(1L, new ValueAlarmCondition(true));
+    TagAlarmEvaluator evaluator = new TagAlarmEvaluator(conditions);
+
+    evaluator.evaluate(1).getState(1L, conditions.get(1L));
+  }
+
+  @Test
+  public void changedConditionMakesEvaluatorStale() {
+    Map<Long, AlarmCondition> conditions = new HashMap<>();
+    conditions.put(1L, new RangeAlarmCondition(0, 10));
+    TagAlarmEvaluator evaluator = new TagAlarmEvaluator(conditions);
+    assertTrue(evaluator.isCompiledFor(conditions.keySet()));
+
+    TagAlarmEvaluator.Evaluation evaluation = evaluator.evaluate(20);
+    assertEquals(AlarmCondition.ACTIVE, evaluation.getState(1L, new RangeAlarmCondition(10, 30)));
+    assertTrue(evaluation.isStale());
+
+    conditions.put(2L, new ValueAlarmCondition(3));
+    assertFalse(evaluator.isCompiledFor(conditions.keySet()));
+  }
+
+  @Test
+  public void equalConditionCopyIsNotStale() {
+    Map<Long, AlarmCondition> conditions = new HashMap<>();
+    conditions.put(1L, new RangeAlarmCondition(0, 10));
+    conditions.put(2L, new ValueAlarmCondition(5));
+    TagAlarmEvaluator evaluator = new TagAlarmEvaluator(conditions);
+
+    TagAlarmEvaluator.Evaluation evaluation = evaluator.evaluate(5);
+    assertEquals(AlarmCondition.ACTIVE, evaluation.getState(1L, new RangeAlarmCondition(0, 10)));
+    assertEquals(AlarmCondition.ACTIVE, evaluation.getState(2L, new ValueAlarmCondition(5)));
+    assertFalse(evaluation.isStale());
+  }
+
+  private static void assertSameStates(final Map<Long, AlarmCondition> conditions, final TagAlarmEvaluator evaluator,
+                                       final Object value) {
+    TagAlarmEvaluator.Evaluation evaluation = evaluator.evaluate(value);
+    for (Map.Entry<Long, AlarmCondition> entry : conditions.entrySet()) {
+      assertEquals("alarm " + entry.getKey() + " for value " + value,
+          entry.getValue().evaluateState(value), evaluation.getState(entry.getKey(), entry.getValue()));
+    }
+    assertFalse(evaluation.isStale());
+  }
+}
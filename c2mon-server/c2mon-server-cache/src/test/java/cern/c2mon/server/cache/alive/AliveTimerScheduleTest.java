@@ -0,0 +1,97 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.alive;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.common.alive.AliveTimer;
+import cern.c2mon.server.common.alive.AliveTimerCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AliveTimerScheduleTest {
+
+  private static final int ALIVE_INTERVAL = 60;
+
+  private AliveTimerSchedule schedule;
+
+  @Before
+  public void beforeTest() {
+    schedule = new AliveTimerSchedule();
+  }
+
+  @Test
+  public void expiredTimerIsReturnedAtItsDeadline() throws InterruptedException {
+    AliveTimer aliveTimer = createActiveTimer(1L);
+    schedule.schedule(aliveTimer);
+
+    assertNull(schedule.pollExpired(0, TimeUnit.MILLISECONDS));
+    assertEquals(Long.valueOf(1L), schedule.pollExpired(1, TimeUnit.SECONDS));
+    assertTrue(System.currentTimeMillis() >= AliveTimerSchedule.getDeadline(aliveTimer));
+    assertEquals(0, schedule.getScheduledCount());
+  }
+
+  @Test
+  public void updatedTimerIsOnlyReturnedAtItsNewDeadline() throws InterruptedException {
+    AliveTimer aliveTimer = createActiveTimer(1L);
+    schedule.schedule(aliveTimer);
+    aliveTimer.setLastUpdate(aliveTimer.getLastUpdate() + 200);
+    schedule.schedule(aliveTimer);
+
+    assertNull(schedule.pollExpired(150, TimeUnit.MILLISECONDS));
+    assertEquals(Long.valueOf(1L), schedule.pollExpired(1, TimeUnit.SECONDS));
+    assertNull(schedule.pollExpired(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void stoppedTimerIsNotReturned() throws InterruptedException {
+    AliveTimer aliveTimer = createActiveTimer(1L);
+    schedule.schedule(aliveTimer);
+    aliveTimer.setActive(false);
+    schedule.schedule(aliveTimer);
+
+    assertNull(schedule.pollExpired(200, TimeUnit.MILLISECONDS));
+    assertTrue(schedule.getInactiveTimers().contains(1L));
+
+    schedule.remove(1L);
+    assertFalse(schedule.getInactiveTimers().contains(1L));
+  }
+
+  @Test
+  public void timersAreReturnedInDeadlineOrder() throws InterruptedException {
+    AliveTimer late = createActiveTimer(1L);
+    late.setLastUpdate(late.getLastUpdate() + 50);
+    schedule.schedule(late);
+    schedule.schedule(createActiveTimer(2L));
+
+    assertEquals(Long.valueOf(2L), schedule.pollExpired(1, TimeUnit.SECONDS));
+    assertEquals(Long.valueOf(1L), schedule.pollExpired(1, TimeUnit.SECONDS));
+  }
+
+  private static AliveTimer createActiveTimer(final Long id) {
+    AliveTimer aliveTimer = new AliveTimerCacheObject(id, 10L, "E_TEST", 20L, AliveTimer.ALIVE_TYPE_EQUIPMENT, ALIVE_INTERVAL);
+    aliveTimer.setActive(true);
+    aliveTimer.setLastUpdate(System.currentTimeMillis());
+    return aliveTimer;
+  }
+}
@@ -34,6 +34,8 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import cern.c2mon.server.common.process.Process;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.common.process.ProcessPIKSnapshot;
 
 import cern.c2mon.server.cache.AliveTimerCache;
 import cern.c2mon.server.cache.AliveTimerFacade;
@@ -41,6 +43,7 @@ import cern.c2mon.server.cache.EquipmentFacade;
 import cern.c2mon.server.cache.ProcessCache;
 import cern.c2mon.server.cache.ProcessFacade;
 import cern.c2mon.server.cache.SubEquipmentFacade;
+import cern.c2mon.server.cache.config.CacheProperties;
 import cern.c2mon.shared.common.ConfigurationException;
 
 /**
@@ -70,7 +73,7 @@ public class ProcessFacadeImplTest {
     subEquipmentFacade = control.createMock(SubEquipmentFacade.class);
     aliveTimerFacade = control.createMock(AliveTimerFacade.class);
     aliveTimerCache = control.createMock(AliveTimerCache.class);
-    processFacade = new ProcessFacadeImpl(equipmentFacade, processCache, subEquipmentFacade, aliveTimerCache, aliveTimerFacade, new ServerProperties());
+    processFacade = new ProcessFacadeImpl(equipmentFacade, processCache, subEquipmentFacade, aliveTimerCache, aliveTimerFacade, new ServerProperties(), new CacheProperties());
   }
 
   @Test(expected=ConfigurationException.class)
@@ -97,4 +100,78 @@ public class ProcessFacadeImplTest {
     Process process = processFacade.createCacheObject(1L, properties);
     control.verify();
   }
+
+  @Test
+  public void testPIKSnapshotIsLoadedOnce() {
+    ProcessCacheObject process = new ProcessCacheObject(1L, "P_NAME", 4L, 3, 500);
+    process.setProcessPIK(123456L);
+
+    processCache.acquireReadLockOnKey(1L);
+    EasyMock.expect(processCache.get(1L)).andReturn(process);
+    processCache.releaseReadLockOnKey(1L);
+
+    control.replay();
+    ProcessPIKSnapshot snapshot = processFacade.getPIKSnapshot(1L);
+    assertSame(snapshot, processFacade.getPIKSnapshot(1L));
+    control.verify();
+
+    assertEquals("P_NAME", snapshot.getProcessName());
+    assertTrue(snapshot.matches(123456L));
+    assertFalse(snapshot.matches(654321L));
+    assertFalse(snapshot.matches(null));
+  }
+
+  @Test
+  public void testSetProcessPIKRefreshesSnapshot() {
+    ProcessCacheObject process = new ProcessCacheObject(1L, "P_NAME", 4L, 3, 500);
+
+    processCache.acquireWriteLockOnKey(1L);
+    EasyMock.expect(processCache.getCopy(1L)).andReturn(process);
+    processCache.put(1L, process);
+    processCache.releaseWriteLockOnKey(1L);
+
+    control.replay();
+    processFacade.setProcessPIK(1L, 123456L);
+    assertTrue(processFacade.getPIKSnapshot(1L).matches(123456L));
+    control.verify();
+  }
+
+  @Test
+  public void testPIKSnapshotIsReloadedAfterInvalidation() {
+    ProcessCacheObject process = new ProcessCacheObject(1L, "P_NAME", 4L, 3, 500);
+    process.setProcessPIK(123456L);
+
+    processCache.acquireReadLockOnKey(1L);
+    EasyMock.expectLastCall().times(2);
+    EasyMock.expect(processCache.get(1L)).andReturn(process).times(2);
+    processCache.releaseReadLockOnKey(1L);
+    EasyMock.expectLastCall().times(2);
+
+    control.replay();
+    processFacade.getPIKSnapshot(1L);
+    processFacade.invalidatePIKSnapshot(1L);
+    processFacade.getPIKSnapshot(1L);
+    control.verify();
+  }
+
+  @Test
+  public void testPIKSnapshotNotKeptInClusterMode() {
+    CacheProperties cacheProperties = new CacheProperties();
+    cacheProperties.setMode("multi");
+    processFacade = new ProcessFacadeImpl(equipmentFacade, processCache, subEquipmentFacade, aliveTimerCache, aliveTimerFacade,
+        new ServerProperties(), cacheProperties);
+    ProcessCacheObject process = new ProcessCacheObject(1L, "P_NAME", 4L, 3, 500);
+    process.setProcessPIK(123456L);
+
+    processCache.acquireReadLockOnKey(1L);
+    EasyMock.expectLastCall().times(2);
+    EasyMock.expect(processCache.get(1L)).andReturn(process).times(2);
+    processCache.releaseReadLockOnKey(1L);
+    EasyMock.expectLastCall().times(2);
+
+    control.replay();
+    processFacade.getPIKSnapshot(1L);
+    processFacade.getPIKSnapshot(1L);
+    control.verify();
+  }
 }
@@ -0,0 +1,75 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.tag;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TagNameIndexTest {
+
+  private TagNameIndex index;
+
+  @Before
+  public void setUp() {
+    index = new TagNameIndex();
+    index.add(1L, "CPU.LOAD.host1");
+    index.add(2L, "CPU.LOAD.host2");
+    index.add(3L, "cpu.temp.host1");
+    index.add(4L, "MEMORY.host1");
+    index.add(5L, "a*b");
+  }
+
+  @Test
+  public void exactLookupIsCaseInsensitive() {
+    assertEquals(new HashSet<>(Arrays.asList(1L)), index.get("cpu.load.HOST1"));
+    assertTrue(index.get("cpu.load").isEmpty());
+    assertEquals(Arrays.asList(1L), index.find("CPU.LOAD.HOST1", 10));
+  }
+
+  @Test
+  public void wildcardLookup() {
+    assertEquals(Arrays.asList(1L, 2L), index.find("cpu.load.*", 10));
+    assertEquals(Arrays.asList(1L, 3L), index.find("cpu.*.host1", 10));
+    assertEquals(Arrays.asList(1L, 2L), index.find("cpu.load.host?", 10));
+    assertEquals(Arrays.asList(1L, 3L, 4L), index.find("*host1", 10));
+    assertEquals(Arrays.asList(1L), index.find("cpu.*", 1));
+  }
+
+  @Test
+  public void escapedWildcardsAreLiterals() {
+    index.add(6L, "axxb");
+    assertEquals(Arrays.asList(5L), index.find("a\\*b", 10));
+    assertEquals(Arrays.asList(5L, 6L), index.find("a*b", 10));
+  }
+
+  @Test
+  public void renameAndRemove() {
+    index.add(1L, "DISK.host1");
+    assertTrue(index.get("cpu.load.host1").isEmpty());
+    assertEquals(Arrays.asList(1L), index.find("disk.*", 10));
+
+    index.remove(1L);
+    assertTrue(index.find("disk.*", 10).isEmpty());
+    assertEquals(4, index.size());
+  }
+}
@@ -17,8 +17,12 @@
 package cern.c2mon.server.cache.dbaccess;
 
 import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.ResultHandler;
 
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
+import cern.c2mon.server.cache.dbaccess.structure.DBKeysetBatch;
 import cern.c2mon.shared.common.Cacheable;
 
 /**
@@ -36,4 +40,22 @@ public interface BatchLoaderMapper<T extends Cacheable> extends SimpleLoaderMapp
    * @return the list of records
    */
   List<T> getRowBatch(DBBatch dbBatch);
+
+  /**
+   * Return the next page of records in id order, used for streaming the
+   * table into the cache.
+   *
+   * @param keysetBatch the last id of the previous page and the page size
+   * @return the list of records
+   */
+  List<T> getKeysetBatch(DBKeysetBatch keysetBatch);
+
+  /**
+   * Passes the configuration columns of every record, that is all except its
+   * current value and state, to the handler: one map per row with the record
+   * id under "ID". Only needed by the caches restored from a local store.
+   *
+   * @param handler receives the rows
+   */
+  void getConfigurationRows(ResultHandler<Map<String, Object>> handler);
 }
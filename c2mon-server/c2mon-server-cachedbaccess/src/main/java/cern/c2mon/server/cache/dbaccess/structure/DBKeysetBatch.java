@@ -0,0 +1,42 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.dbaccess.structure;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Specifies a page of records for keyset pagination: the records with
+ * the smallest ids above a given id are loaded. Unlike {@link DBBatch},
+ * the page size does not depend on how sparse the ids are.
+ */
+@Data
+@AllArgsConstructor
+public class DBKeysetBatch {
+
+  /**
+   * Only records with an id above this one are loaded (null to start
+   * with the first record).
+   */
+  private Long afterId;
+
+  /**
+   * Maximum number of cache objects to load.
+   */
+  private Integer size;
+
+}
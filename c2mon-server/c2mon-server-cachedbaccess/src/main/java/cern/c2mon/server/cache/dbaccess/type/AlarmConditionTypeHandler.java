@@ -28,10 +28,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import cern.c2mon.server.common.alarm.AlarmCondition;
+import cern.c2mon.server.common.alarm.AlarmConditionCodec;
 
 /**
  * iBatis TypeHandler class for converting AlarmCondition implementations
- * into XML String stored as VARCHAR in the database.
+ * into XML String stored as VARCHAR in the database. Uses the
+ * {@link AlarmConditionCodec}, so alarms can be loaded concurrently.
  * @author Mark Brightwell
  *
  */
@@ -48,7 +50,7 @@ public class AlarmConditionTypeHandler implements TypeHandler {
 
     if ((conditionString = rs.getString(columnName)) != null) {
       try {
-        alarmCondition = AlarmCondition.fromConfigXML(conditionString);
+        alarmCondition = AlarmConditionCodec.fromXML(conditionString);
       } catch (RuntimeException e) {
         LOGGER.error("Error during XML parsing of alarm condition - the condition will be set to null in the server.", e);
         alarmCondition = null;
@@ -79,7 +81,7 @@ public class AlarmConditionTypeHandler implements TypeHandler {
     if (alarmCondition != null) {
       String conditionXml = null;
       try {
-        conditionXml = ((AlarmCondition) alarmCondition).toConfigXML();
+        conditionXml = AlarmConditionCodec.toXML((AlarmCondition) alarmCondition);
       } catch (RuntimeException e) {
         LOGGER.error("Unable to encode alarm condition in XML - will be persisted as null.");
       }
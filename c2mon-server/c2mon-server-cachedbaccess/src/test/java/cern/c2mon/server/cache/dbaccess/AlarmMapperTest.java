@@ -17,6 +17,8 @@
 package cern.c2mon.server.cache.dbaccess;
 
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
+import cern.c2mon.server.cache.dbaccess.structure.DBKeysetBatch;
+import cern.c2mon.server.common.alarm.Alarm;
 import cern.c2mon.server.common.alarm.AlarmCacheObject;
 import cern.c2mon.server.common.alarm.AlarmCondition;
 import cern.c2mon.server.test.CacheObjectComparison;
@@ -24,6 +26,7 @@ import org.junit.Test;
 
 import javax.annotation.Resource;
 import java.sql.Timestamp;
+import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -82,6 +85,17 @@ public class AlarmMapperTest extends AbstractMapperTest {
     }
   }
 
+  @Test
+  public void testGetKeysetBatch() {
+    List<Alarm> firstPage = alarmMapper.getKeysetBatch(new DBKeysetBatch(null, 3));
+    assertEquals(Math.min(3, alarmMapper.getNumberItems()), firstPage.size());
+
+    Long lastId = firstPage.get(firstPage.size() - 1).getId();
+    for (Alarm alarm : alarmMapper.getKeysetBatch(new DBKeysetBatch(lastId, 3))) {
+      assertTrue(alarm.getId() > lastId);
+    }
+  }
+
   @Test
   public void testUpdateAlarm() {
     AlarmCacheObject alarmOriginal = (AlarmCacheObject) alarmMapper.getItem(350000L);
@@ -30,6 +30,7 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
+import cern.c2mon.server.cache.dbaccess.structure.DBKeysetBatch;
 import cern.c2mon.server.common.datatag.DataTag;
 import cern.c2mon.server.common.datatag.DataTagCacheObject;
 import cern.c2mon.server.common.metadata.Metadata;
@@ -95,6 +96,24 @@ public class DataTagMapperTest extends AbstractMapperTest {
     assertTrue(datatags2.size() == 1); // since there are only 16 entries in the db
   }
 
+  @Test
+  public void testGetKeysetBatch() {
+    int total = 0;
+    Long afterId = null;
+    List<DataTag> page;
+    do {
+      page = dataTagMapper.getKeysetBatch(new DBKeysetBatch(afterId, 5));
+      assertTrue(page.size() <= 5);
+      for (DataTag dataTag : page) {
+        assertTrue(afterId == null || dataTag.getId() > afterId);
+        afterId = dataTag.getId();
+      }
+      total += page.size();
+    } while (page.size() == 5);
+
+    assertEquals(dataTagMapper.getNumberItems(), total);
+  }
+
   @Test
   public void loadEmptyRowBatch() {
     DBBatch dbBatch = new DBBatch(100L, 200L);
@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.loading;
 
+import java.util.List;
 import java.util.Map;
 
 import cern.c2mon.shared.common.Cacheable;
@@ -49,4 +50,34 @@ public interface BatchCacheLoaderDAO<T extends Cacheable> extends SimpleCacheLoa
    */
   Map<Object, T> getBatchAsMap(Long firstRow, Long lastRow);
 
+  /**
+   * Returns the next page of elements in id order (keyset pagination). The
+   * elements are returned as mapped from the DB: {@link #completeBatch(List)}
+   * must be called on them before they are put in the cache, which allows the
+   * next page to be fetched while the previous one is being completed.
+   *
+   * @param afterId only elements with a higher id are returned; null for the first page
+   * @param size the maximum number of elements returned
+   * @return the elements, ordered by id; empty once all have been returned
+   */
+  List<T> getKeysetBatch(Long afterId, Integer size);
+
+  /**
+   * Performs the post-DB-access logic on a page of elements returned by
+   * {@link #getKeysetBatch(Long, Integer)}.
+   *
+   * @param batch the elements as returned from the DB
+   * @return the elements ready to load into the cache
+   */
+  List<T> completeBatch(List<T> batch);
+
+  /**
+   * Returns a checksum of the configuration of every element in the DB, that
+   * is of all its columns except its current value and state. Used to find
+   * the elements changed in the DB since a local cache store was written.
+   *
+   * @return the checksums by element id
+   */
+  Map<Long, Integer> getConfigurationChecksums();
+
 }
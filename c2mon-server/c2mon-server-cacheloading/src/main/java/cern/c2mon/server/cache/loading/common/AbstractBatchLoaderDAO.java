@@ -16,10 +16,17 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.loading.common;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
 
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
@@ -27,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import cern.c2mon.server.cache.dbaccess.BatchLoaderMapper;
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
+import cern.c2mon.server.cache.dbaccess.structure.DBKeysetBatch;
 import cern.c2mon.server.cache.loading.BatchCacheLoaderDAO;
 import cern.c2mon.shared.common.Cacheable;
 
@@ -83,4 +91,55 @@ public abstract class AbstractBatchLoaderDAO<T extends Cacheable> extends Abstra
     return returnMap;
   }
 
+  @Override
+  public List<T> getKeysetBatch(Long afterId, Integer size) {
+    return batchLoaderMapper.getKeysetBatch(new DBKeysetBatch(afterId, size));
+  }
+
+  @Override
+  public List<T> completeBatch(List<T> batch) {
+    List<T> completed = new ArrayList<>(batch.size());
+    for (T element : batch) {
+      if (element != null) {
+        completed.add(doPostDbLoading(element));
+      } else {
+        log.warn("Null value retrieved from DB by Mapper {}", batchLoaderMapper.getClass().getSimpleName());
+      }
+    }
+    return completed;
+  }
+
+  @Override
+  public Map<Long, Integer> getConfigurationChecksums() {
+    Map<Long, Integer> checksums = new HashMap<>();
+    batchLoaderMapper.getConfigurationRows(context -> {
+      Map<String, Object> row = context.getResultObject();
+      Long id = ((Number) row.get("ID")).longValue();
+      // an element may span several rows (e.g. one per alarm of a tag)
+      checksums.merge(id, checksum(row), Integer::sum);
+    });
+    return checksums;
+  }
+
+  /**
+   * @param row the columns of a row, by name
+   * @return a checksum of the row, independent of the column order
+   */
+  static int checksum(final Map<String, Object> row) {
+    CRC32 crc = new CRC32();
+    for (Map.Entry<String, Object> column : new TreeMap<>(row).entrySet()) {
+      Object value = column.getValue();
+      if (value instanceof Clob) {
+        try {
+          Clob clob = (Clob) value;
+          value = clob.getSubString(1, (int) clob.length());
+        } catch (SQLException e) {
+          throw new IllegalStateException("Unable to read column " + column.getKey(), e);
+        }
+      }
+      crc.update((column.getKey() + "=" + value + ";").getBytes(StandardCharsets.UTF_8));
+    }
+    return (int) crc.getValue();
+  }
+
 }
@@ -16,9 +16,15 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.loading.common;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PreDestroy;
 
 import cern.c2mon.server.cache.loading.BatchCacheLoaderDAO;
 import cern.c2mon.shared.common.Cacheable;
@@ -72,6 +78,16 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
    */
   private final BatchCacheLoaderDAO<T> batchCacheLoaderDAO;
 
+  /**
+   * If true, the table is streamed in id order instead of loading row ranges
+   */
+  private boolean streaming = false;
+
+  /**
+   * Optional local store from which the cache is restored instead of the DB
+   */
+  private LocalCacheStore localCacheStore;
+
   /**
    * Constructor (used in Spring XML to instantiate the loaders
    * for the different caches).
@@ -91,18 +107,67 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
     this.threadNamePrefix = threadNamePrefix;
   }
 
+  /**
+   * Sets a local store that is written at shutdown and used to load the cache
+   * at the next startup, reloading from the DB only the objects whose
+   * configuration changed in the meantime. Only to be used if this server is
+   * the only one holding the cache.
+   *
+   * @param localCacheStore the store, or null to always load from the DB
+   */
+  public void setLocalCacheStore(final LocalCacheStore localCacheStore) {
+    this.localCacheStore = localCacheStore;
+  }
+
+  /**
+   * Switches between the two preload modes. By default the DB row range is
+   * split into batches which are all submitted at once to the loading
+   * threads. In streaming mode the table is read page by page in id order
+   * (keyset pagination), while the previous pages are completed and put in
+   * the cache on the loading threads; reading waits as long as all loading
+   * threads are busy.
+   *
+   * @param streaming true to use the streaming mode
+   */
+  public void setStreaming(final boolean streaming) {
+    this.streaming = streaming;
+  }
+
   @Override
   public void preload() {
     log.debug("preload() - Start preloading data for cache " + cache.getName());
     Integer lastRow = batchCacheLoaderDAO.getMaxRow(); // 0 if no cache objects!
 
+    if (localCacheStore != null && localCacheStore.exists()
+        && localCacheStore.restore(cache, batchCacheLoaderDAO.getConfigurationChecksums(), batchCacheLoaderDAO::getItem)) {
+      return;
+    }
+
     cacheLoadingThreadPoolTaskExecutor.setThreadNamePrefix(this.threadNamePrefix);
     cacheLoadingThreadPoolTaskExecutor.initialize();
 
+    CacheLoadingProgress progress = new CacheLoadingProgress(cache.getName(), lastRow);
+    try {
+      if (streaming) {
+        streamingPreload(progress);
+      } else {
+        batchPreload(lastRow, progress);
+      }
+    } finally {
+      cacheLoadingThreadPoolTaskExecutor.shutdown();
+    }
+    progress.finish();
+    log.debug("preload() - Finished preload for cache " + cache.getName());
+  }
+
+  /**
+   * Loads the cache by submitting one task per row range.
+   */
+  private void batchPreload(final Integer lastRow, final CacheLoadingProgress progress) {
     Integer firstRow = 0;
     LinkedList<Callable<Object>> tasks = new LinkedList<Callable<Object>>();
     while (firstRow <= lastRow) {
-      MapLoaderTask mapTask = new MapLoaderTask(firstRow + 1, firstRow + batchSize);
+      MapLoaderTask mapTask = new MapLoaderTask(firstRow + 1, firstRow + batchSize, progress);
       tasks.push(mapTask);
       firstRow += batchSize;
     }
@@ -116,8 +181,65 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
     } catch (InterruptedException e) {
       log.error("Interrupted while waiting for cache loading threads to terminate.", e);
     }
-    cacheLoadingThreadPoolTaskExecutor.shutdown();
-    log.debug("preload() - Finished preload for cache " + cache.getName());
+  }
+
+  /**
+   * Loads the cache by reading the table page by page on this thread and
+   * completing the pages on the loading threads. At most one page per
+   * loading thread is in progress at any time, so the executor queue can
+   * never overflow.
+   */
+  private void streamingPreload(final CacheLoadingProgress progress) {
+    int maxPagesInProgress = cacheLoadingThreadPoolTaskExecutor.getMaxPoolSize();
+    Semaphore pagesInProgress = new Semaphore(maxPagesInProgress);
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    try {
+      Long afterId = null;
+      List<T> page;
+      do {
+        page = batchCacheLoaderDAO.getKeysetBatch(afterId, batchSize);
+        for (T element : page) {
+          if (element != null && (afterId == null || element.getId() > afterId)) {
+            afterId = element.getId();
+          }
+        }
+        if (!page.isEmpty()) {
+          pagesInProgress.acquire();
+          try {
+            cacheLoadingThreadPoolTaskExecutor.execute(new PageLoaderTask(page, progress, pagesInProgress, failure));
+          } catch (RuntimeException e) {
+            pagesInProgress.release();
+            throw e;
+          }
+        }
+      } while (page.size() >= batchSize && failure.get() == null);
+
+      // wait for the last pages to be in the cache
+      pagesInProgress.acquire(maxPagesInProgress);
+    } catch (InterruptedException e) {
+      log.error("Interrupted while streaming cache {} from the database.", cache.getName(), e);
+      Thread.currentThread().interrupt();
+    }
+
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  /**
+   * Writes the cache content to the local store, if one is set.
+   */
+  @PreDestroy
+  public void saveLocalCacheStore() {
+    if (localCacheStore != null) {
+      try {
+        localCacheStore.save(cache, batchCacheLoaderDAO.getConfigurationChecksums());
+      } catch (IOException | RuntimeException e) {
+        log.warn("Unable to save cache {} to local store - it will be loaded from the DB at next startup", cache.getName(), e);
+        localCacheStore.delete();
+      }
+    }
   }
 
   /**
@@ -135,10 +257,12 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
 
     long firstId;
     long lastId;
+    CacheLoadingProgress progress;
 
-    public MapLoaderTask(long startRow, long endRow) {
+    public MapLoaderTask(long startRow, long endRow, CacheLoadingProgress progress) {
      this.firstId = startRow;
      this.lastId = endRow;
+     this.progress = progress;
     }
 
     @Override
@@ -151,8 +275,48 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
         }
         cache.putQuiet(new Element(key, cacheLoaderMap.get(key)));
       }
+      progress.add(cacheLoaderMap.size());
       return null;
     }
   }
 
+  /**
+   * Task completing a page of cache objects read in streaming mode and
+   * putting them in the cache in a single bulk operation. Releases its
+   * permit once done, allowing the next page to be read.
+   */
+  private class PageLoaderTask implements Runnable {
+
+    private final List<T> page;
+    private final CacheLoadingProgress progress;
+    private final Semaphore pagesInProgress;
+    private final AtomicReference<RuntimeException> failure;
+
+    PageLoaderTask(List<T> page, CacheLoadingProgress progress, Semaphore pagesInProgress,
+                   AtomicReference<RuntimeException> failure) {
+      this.page = page;
+      this.progress = progress;
+      this.pagesInProgress = pagesInProgress;
+      this.failure = failure;
+    }
+
+    @Override
+    public void run() {
+      try {
+        List<T> objects = batchCacheLoaderDAO.completeBatch(page);
+        List<Element> elements = new ArrayList<>(objects.size());
+        for (T object : objects) {
+          elements.add(new Element(object.getId(), object));
+        }
+        cache.putAll(elements);
+        progress.add(elements.size());
+      } catch (RuntimeException e) {
+        log.error("Exception caught while loading a page of cache {}", cache.getName(), e);
+        failure.compareAndSet(null, e);
+      } finally {
+        pagesInProgress.release();
+      }
+    }
+  }
+
 }
@@ -0,0 +1,91 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps track of the number of objects loaded into a cache during the
+ * preload and logs the progress and load rate at regular intervals.
+ */
+@Slf4j
+class CacheLoadingProgress {
+
+  /**
+   * Minimum time between two progress log messages
+   */
+  private static final long LOG_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+  private final String cacheName;
+
+  private final long expected;
+
+  private final long start = System.nanoTime();
+
+  private final AtomicLong loaded = new AtomicLong();
+
+  private final AtomicLong nextLog = new AtomicLong(start + LOG_INTERVAL);
+
+  /**
+   * @param cacheName the name of the cache being loaded
+   * @param expected the number of objects to load, as counted in the DB
+   */
+  CacheLoadingProgress(final String cacheName, final long expected) {
+    this.cacheName = cacheName;
+    this.expected = expected;
+  }
+
+  /**
+   * Records that objects have been loaded into the cache.
+   *
+   * @param count the number of loaded objects
+   */
+  void add(final int count) {
+    long total = loaded.addAndGet(count);
+    long now = System.nanoTime();
+    long logTime = nextLog.get();
+    if (now >= logTime && nextLog.compareAndSet(logTime, now + LOG_INTERVAL)) {
+      log.info("Preloading cache {}: {}/{} objects ({}%), {} objects/s", cacheName, total, expected,
+          expected > 0 ? total * 100 / expected : 100, rate(total, now));
+    }
+  }
+
+  /**
+   * @return the number of objects loaded so far
+   */
+  long getLoaded() {
+    return loaded.get();
+  }
+
+  /**
+   * Logs the final number of loaded objects and the average load rate.
+   */
+  void finish() {
+    long total = loaded.get();
+    long now = System.nanoTime();
+    log.info("Preloaded {} objects into cache {} in {}ms ({} objects/s)", total, cacheName,
+        TimeUnit.NANOSECONDS.toMillis(now - start), rate(total, now));
+  }
+
+  private long rate(final long total, final long now) {
+    long elapsed = Math.max(now - start, 1);
+    return total * TimeUnit.SECONDS.toNanos(1) / elapsed;
+  }
+}
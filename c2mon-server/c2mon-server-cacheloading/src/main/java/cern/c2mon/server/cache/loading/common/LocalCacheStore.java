@@ -0,0 +1,373 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Restartable local store for a single cache, written when the server shuts
+ * down and read back instead of the database at the next startup. It is an
+ * open-source replacement for the Ehcache "localRestartable" persistence in
+ * single server mode.
+ *
+ * <p>The file holds a header, the configuration checksums of the database
+ * items and blocks of serialized cache objects:
+ * <pre>
+ * [int magic][int version][int itemCount][int blockCount][long objectCount]
+ * [int length][int crc32][length bytes: itemCount x ([long id][int checksum])]
+ * blockCount x ([int length][int crc32][length bytes: int n, n objects])
+ * </pre>
+ * The configuration checksum of every database item (see
+ * {@link cern.c2mon.server.cache.loading.BatchCacheLoaderDAO#getConfigurationChecksums()})
+ * is recorded when writing the store and compared at restore time: the items
+ * added or changed in the database since are reloaded from it, and those
+ * removed from it are not restored. If too many items changed, or any block
+ * checksum does not match, the whole cache is loaded from the database. The
+ * file is deleted after a restore, so a server crash can never lead to a stale
+ * store being read.
+ *
+ * <p>The current value and state of the items are not part of the
+ * configuration checksums: the store holds the latest ones of the cache.
+ */
+@Slf4j
+public class LocalCacheStore {
+
+  private static final int MAGIC = 0x43324D53; // "C2MS"
+
+  static final int VERSION = 2;
+
+  private static final int HEADER_SIZE = 24;
+
+  private static final int CHECKSUM_ENTRY_SIZE = 12;
+
+  private static final int BLOCK_HEADER_SIZE = 8;
+
+  /** Number of cache objects serialized together in one block */
+  private static final int OBJECTS_PER_BLOCK = 1000;
+
+  /**
+   * Above this share of items changed in the database, reloading them one by
+   * one would be slower than loading the whole cache
+   */
+  private static final double MAX_CHANGED_RATIO = 0.1d;
+
+  private final Path file;
+
+  /**
+   * @param file the store file; its directory is created if necessary
+   */
+  public LocalCacheStore(final Path file) {
+    this.file = file;
+  }
+
+  /**
+   * @param directory the directory holding the local stores
+   * @param cacheName the name of the cache
+   * @return the store of the given cache
+   */
+  public static LocalCacheStore forCache(final String directory, final String cacheName) {
+    return new LocalCacheStore(Paths.get(directory, cacheName + ".store"));
+  }
+
+  /**
+   * @return the store file
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * @return true if there is a store to restore
+   */
+  public boolean exists() {
+    return Files.exists(file);
+  }
+
+  /**
+   * Writes all objects of the cache to the store. The file is written next
+   * to the existing store and moved in place once complete.
+   *
+   * @param cache the cache to save
+   * @param dbChecksums the configuration checksums of the items in the database, by id
+   * @throws IOException if the store cannot be written
+   */
+  public void save(final Ehcache cache, final Map<Long, Integer> dbChecksums) throws IOException {
+    long start = System.currentTimeMillis();
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+    List<?> keys = cache.getKeys();
+    int blockCount = (keys.size() + OBJECTS_PER_BLOCK - 1) / OBJECTS_PER_BLOCK;
+    long objectCount = 0;
+
+    try (FileOutputStream fileStream = new FileOutputStream(tmpFile.toFile());
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream, 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(dbChecksums.size());
+      out.writeInt(blockCount);
+      out.writeLong(0L); // object count, patched below
+
+      ByteBuffer checksums = ByteBuffer.allocate(dbChecksums.size() * CHECKSUM_ENTRY_SIZE);
+      for (Map.Entry<Long, Integer> checksum : dbChecksums.entrySet()) {
+        checksums.putLong(checksum.getKey()).putInt(checksum.getValue());
+      }
+      out.writeInt(checksums.capacity());
+      out.writeInt(checksum(checksums.array(), 0, checksums.capacity()));
+      out.write(checksums.array());
+
+      for (int from = 0; from < keys.size(); from += OBJECTS_PER_BLOCK) {
+        List<Cacheable> block = new ArrayList<>(OBJECTS_PER_BLOCK);
+        for (Object key : keys.subList(from, Math.min(from + OBJECTS_PER_BLOCK, keys.size()))) {
+          Element element = cache.getQuiet(key);
+          if (element != null && element.getObjectValue() != null) {
+            block.add((Cacheable) element.getObjectValue());
+          }
+        }
+        byte[] bytes = encodeBlock(block);
+        out.writeInt(bytes.length);
+        out.writeInt(checksum(bytes, 0, bytes.length));
+        out.write(bytes);
+        objectCount += block.size();
+      }
+      out.flush();
+      fileStream.getFD().sync();
+    }
+
+    try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+      ByteBuffer count = ByteBuffer.allocate(8);
+      count.putLong(objectCount).flip();
+      channel.write(count, HEADER_SIZE - 8);
+      channel.force(false);
+    }
+    Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    log.info("Saved {} objects of cache {} to local store {} in {}ms", objectCount, cache.getName(), file,
+        System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Loads the cache from the store, if there is a valid one. Blocks are
+   * decoded in parallel. The items changed in the database since the store
+   * was written are then reloaded from it.
+   *
+   * @param cache the (empty) cache to load
+   * @param dbChecksums the current configuration checksums of the items in the database, by id
+   * @param dbLoader loads an item from the database, returns null if not found
+   * @return true if the cache was loaded, false if it still needs to be
+   *         loaded from the database
+   */
+  public boolean restore(final Ehcache cache, final Map<Long, Integer> dbChecksums,
+                         final Function<Long, ? extends Cacheable> dbLoader) {
+    if (!exists()) {
+      return false;
+    }
+    long start = System.currentTimeMillis();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      int blockCount = readHeader(channel);
+
+      Set<Long> changed = new HashSet<>();
+      Map<Long, Integer> storedChecksums = readChecksums(channel);
+      for (Map.Entry<Long, Integer> checksum : dbChecksums.entrySet()) {
+        if (!checksum.getValue().equals(storedChecksums.get(checksum.getKey()))) {
+          changed.add(checksum.getKey());
+        }
+      }
+      if (changed.size() > dbChecksums.size() * MAX_CHANGED_RATIO) {
+        log.info("{} of the {} items of cache {} changed in the database since local store {} was written - ignoring it",
+            changed.size(), dbChecksums.size(), cache.getName(), file);
+        return false;
+      }
+
+      List<byte[]> blocks = readBlocks(channel, blockCount);
+      long objectCount = blocks.parallelStream().mapToLong(block -> {
+        long restored = 0;
+        for (Cacheable object : decodeBlock(block)) {
+          // items removed from the database are not restored
+          if (dbChecksums.containsKey(object.getId()) && !changed.contains(object.getId())) {
+            cache.putQuiet(new Element(object.getId(), object));
+            restored++;
+          }
+        }
+        return restored;
+      }).sum();
+
+      int reloaded = 0;
+      for (Long id : dbChecksums.keySet()) {
+        if (changed.contains(id) || !cache.isKeyInCache(id)) {
+          Cacheable object = dbLoader.apply(id);
+          if (object != null) {
+            cache.putQuiet(new Element(id, object));
+            reloaded++;
+          }
+        }
+      }
+
+      log.info("Restored {} objects of cache {} from local store {} and reloaded {} from the database in {}ms",
+          objectCount, cache.getName(), file, reloaded, System.currentTimeMillis() - start);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Unable to restore cache {} from local store {} - loading it from the database", cache.getName(), file, e);
+      cache.removeAll();
+      return false;
+    } finally {
+      delete();
+    }
+  }
+
+  /**
+   * Removes the store file, if any.
+   */
+  public void delete() {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Unable to delete local cache store {}", file, e);
+    }
+  }
+
+  /**
+   * Reads and verifies the header of the store.
+   *
+   * @return the number of blocks
+   * @throws IOException if the file cannot be read or has an unknown format
+   */
+  private static int readHeader(final FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    readFully(channel, header);
+    if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+      throw new IOException("Unknown store format");
+    }
+    header.getInt(); // item count, implied by the length of the checksums
+    return header.getInt();
+  }
+
+  /**
+   * Reads and verifies the configuration checksums recorded with the store.
+   *
+   * @return the checksums by item id
+   * @throws IOException if the file cannot be read or is corrupt
+   */
+  private static Map<Long, Integer> readChecksums(final FileChannel channel) throws IOException {
+    ByteBuffer checksums = ByteBuffer.wrap(readSection(channel, "checksums"));
+    Map<Long, Integer> result = new HashMap<>(checksums.capacity() / CHECKSUM_ENTRY_SIZE * 2);
+    while (checksums.remaining() >= CHECKSUM_ENTRY_SIZE) {
+      result.put(checksums.getLong(), checksums.getInt());
+    }
+    return result;
+  }
+
+  /**
+   * Reads and verifies all blocks of the store.
+   *
+   * @return the block contents
+   * @throws IOException if the file cannot be read or is corrupt
+   */
+  private static List<byte[]> readBlocks(final FileChannel channel, final int blockCount) throws IOException {
+    List<byte[]> blocks = new ArrayList<>(blockCount);
+    for (int i = 0; i < blockCount; i++) {
+      blocks.add(readSection(channel, "block " + i));
+    }
+    return blocks;
+  }
+
+  /**
+   * Reads a section of the store: [int length][int crc32][length bytes].
+   */
+  private static byte[] readSection(final FileChannel channel, final String name) throws IOException {
+    ByteBuffer sectionHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+    readFully(channel, sectionHeader);
+    int length = sectionHeader.getInt();
+    int crc = sectionHeader.getInt();
+    if (length < 0 || length > channel.size() - channel.position()) {
+      throw new IOException("Truncated " + name);
+    }
+    byte[] bytes = new byte[length];
+    readFully(channel, ByteBuffer.wrap(bytes));
+    if (checksum(bytes, 0, length) != crc) {
+      throw new IOException("Checksum mismatch in " + name);
+    }
+    return bytes;
+  }
+
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of store");
+      }
+    }
+    buffer.flip();
+  }
+
+  private static byte[] encodeBlock(final List<Cacheable> objects) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(objects.size() * 512);
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeInt(objects.size());
+      for (Cacheable object : objects) {
+        out.writeObject(object);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<Cacheable> decodeBlock(final byte[] block) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(block))) {
+      int size = in.readInt();
+      List<Cacheable> objects = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        objects.add((Cacheable) in.readObject());
+      }
+      return objects;
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Unable to decode block of local cache store", e);
+    }
+  }
+
+  private static int checksum(final byte[] bytes, final int offset, final int length) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, offset, length);
+    return (int) crc.getValue();
+  }
+}
@@ -30,4 +30,20 @@ public class CacheLoadingProperties {
    * thrown at startup)
    */
   private int queueSize = 1000;
+
+  /**
+   * Load the tag, rule and alarm caches by streaming each table in id order
+   * (keyset pagination) instead of submitting one task per row range up
+   * front. The queueSize does not need to cover the whole table in this mode
+   */
+  private boolean streaming = false;
+
+  /**
+   * Directory of the local cache stores. If set, the tag, rule and alarm
+   * caches are written to this directory at shutdown and reloaded from there
+   * at the next startup, instead of being loaded from the database. Only the
+   * objects whose configuration changed in the database meanwhile are loaded
+   * from it. Ignored in "multi" cache mode
+   */
+  private String localStorePath;
 }
@@ -0,0 +1,182 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LocalCacheStoreTest {
+
+  private static final int NB_TAGS = 2500;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private CacheManager cacheManager;
+
+  private Cache cache;
+
+  private LocalCacheStore store;
+
+  /** Configuration checksums of the tags in the "database" */
+  private Map<Long, Integer> dbChecksums;
+
+  /** Ids of the tags reloaded from the "database" */
+  private List<Long> reloaded;
+
+  private Function<Long, DataTagCacheObject> dbLoader;
+
+  @Before
+  public void beforeTest() {
+    cacheManager = new CacheManager(new Configuration().name("localCacheStoreTest"));
+    cache = new Cache(new CacheConfiguration("tagCache", 0));
+    cacheManager.addCache(cache);
+    store = LocalCacheStore.forCache(folder.getRoot().getAbsolutePath(), cache.getName());
+    dbChecksums = new HashMap<>();
+    reloaded = new ArrayList<>();
+    dbLoader = id -> {
+      reloaded.add(id);
+      return dbChecksums.containsKey(id) ? createTag(id, "reloaded" + id) : null;
+    };
+
+    for (long id = 1; id <= NB_TAGS; id++) {
+      cache.put(new Element(id, createTag(id, "tag" + id)));
+      dbChecksums.put(id, (int) id);
+    }
+  }
+
+  @After
+  public void afterTest() {
+    cacheManager.shutdown();
+  }
+
+  @Test
+  public void saveAndRestore() throws Exception {
+    store.save(cache, dbChecksums);
+    cache.removeAll();
+
+    assertTrue(store.restore(cache, dbChecksums, dbLoader));
+    assertEquals(NB_TAGS, cache.getSize());
+    assertTrue(reloaded.isEmpty());
+    DataTagCacheObject tag = (DataTagCacheObject) cache.get(1234L).getObjectValue();
+    assertEquals("tag1234", tag.getName());
+    assertEquals(1234d, tag.getValue());
+  }
+
+  @Test
+  public void storeIsDeletedAfterRestore() throws Exception {
+    store.save(cache, dbChecksums);
+    cache.removeAll();
+
+    assertTrue(store.restore(cache, dbChecksums, dbLoader));
+    assertFalse(Files.exists(store.getFile()));
+    cache.removeAll();
+    assertFalse(store.restore(cache, dbChecksums, dbLoader));
+  }
+
+  @Test
+  public void restoreReloadsItemsChangedInDatabaseWithSameItemCount() throws Exception {
+    store.save(cache, dbChecksums);
+    cache.removeAll();
+
+    // same number of items: one edited, one deleted and one inserted
+    dbChecksums.put(10L, -10);
+    dbChecksums.remove(20L);
+    dbChecksums.put(NB_TAGS + 1L, NB_TAGS + 1);
+
+    assertTrue(store.restore(cache, dbChecksums, dbLoader));
+    assertEquals(NB_TAGS, cache.getSize());
+    assertEquals(2, reloaded.size());
+    assertEquals("reloaded10", ((DataTagCacheObject) cache.get(10L).getObjectValue()).getName());
+    assertEquals("reloaded" + (NB_TAGS + 1), ((DataTagCacheObject) cache.get(NB_TAGS + 1L).getObjectValue()).getName());
+    assertNull(cache.get(20L));
+    assertEquals("tag11", ((DataTagCacheObject) cache.get(11L).getObjectValue()).getName());
+  }
+
+  @Test
+  public void restoreReloadsItemsMissingFromStore() throws Exception {
+    cache.remove(30L);
+    store.save(cache, dbChecksums);
+    cache.removeAll();
+
+    assertTrue(store.restore(cache, dbChecksums, dbLoader));
+    assertEquals(NB_TAGS, cache.getSize());
+    assertEquals("reloaded30", ((DataTagCacheObject) cache.get(30L).getObjectValue()).getName());
+  }
+
+  @Test
+  public void restoreIgnoresStoreIfTooManyItemsChanged() throws Exception {
+    store.save(cache, dbChecksums);
+    cache.removeAll();
+
+    for (long id = 1; id <= NB_TAGS / 2; id++) {
+      dbChecksums.put(id, -1);
+    }
+
+    assertFalse(store.restore(cache, dbChecksums, dbLoader));
+    assertEquals(0, cache.getSize());
+    assertTrue(reloaded.isEmpty());
+  }
+
+  @Test
+  public void restoreRejectsCorruptStore() throws Exception {
+    store.save(cache, dbChecksums);
+    cache.removeAll();
+
+    Path file = store.getFile();
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      long position = raf.length() - 10;
+      raf.seek(position);
+      int value = raf.read();
+      raf.seek(position);
+      raf.write(value ^ 0xFF);
+    }
+
+    assertFalse(store.restore(cache, dbChecksums, dbLoader));
+    assertEquals(0, cache.getSize());
+  }
+
+  private static DataTagCacheObject createTag(final long id, final String name) {
+    DataTagCacheObject tag = new DataTagCacheObject(id, name, Double.class.getName(), (short) 0);
+    tag.setValue((double) id);
+    return tag;
+  }
+}
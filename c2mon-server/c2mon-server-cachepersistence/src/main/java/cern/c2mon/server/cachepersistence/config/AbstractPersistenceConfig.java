@@ -2,7 +2,9 @@ package cern.c2mon.server.cachepersistence.config;
 
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.config.CacheProperties;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
@@ -21,4 +23,8 @@ public abstract class AbstractPersistenceConfig {
 
   @Autowired
   protected ThreadPoolTaskExecutor cachePersistenceThreadPoolTaskExecutor;
+
+  @Autowired
+  @Qualifier("cacheSqlSessionFactory")
+  protected SqlSessionFactory cacheSqlSessionFactory;
 }
@@ -29,7 +29,7 @@ public class AlarmPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<Alarm> alarmPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(alarmMapper, alarmCache);
+    return new CachePersistenceDAOImpl<>(alarmMapper, alarmCache, cacheSqlSessionFactory, AlarmMapper.class);
   }
 
   @Bean
@@ -26,7 +26,7 @@ public class ControlTagPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<ControlTag> controlTagPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(controlTagMapper, controlTagCache);
+    return new CachePersistenceDAOImpl<>(controlTagMapper, controlTagCache, cacheSqlSessionFactory, ControlTagMapper.class);
   }
 
   @Bean
@@ -26,7 +26,7 @@ public class DataTagPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<DataTag> dataTagPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(dataTagMapper, dataTagCache);
+    return new CachePersistenceDAOImpl<>(dataTagMapper, dataTagCache, cacheSqlSessionFactory, DataTagMapper.class);
   }
 
   @Bean
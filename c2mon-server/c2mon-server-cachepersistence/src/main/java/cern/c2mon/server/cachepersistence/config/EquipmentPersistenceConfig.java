@@ -26,7 +26,7 @@ public class EquipmentPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<Equipment> equipmentPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(equipmentMapper, equipmentCache);
+    return new CachePersistenceDAOImpl<>(equipmentMapper, equipmentCache, cacheSqlSessionFactory, EquipmentMapper.class);
   }
 
   @Bean
@@ -26,7 +26,7 @@ public class ProcessPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<Process> processPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(processMapper, processCache);
+    return new CachePersistenceDAOImpl<>(processMapper, processCache, cacheSqlSessionFactory, ProcessMapper.class);
   }
 
   @Bean
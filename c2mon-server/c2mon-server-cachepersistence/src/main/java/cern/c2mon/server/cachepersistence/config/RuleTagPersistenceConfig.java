@@ -26,7 +26,7 @@ public class RuleTagPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<RuleTag> ruleTagPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(ruleTagMapper, ruleTagCache);
+    return new CachePersistenceDAOImpl<>(ruleTagMapper, ruleTagCache, cacheSqlSessionFactory, RuleTagMapper.class);
   }
 
   @Bean
@@ -26,7 +26,7 @@ public class SubEquipmentPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<SubEquipment> subEquipmentPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(subEquipmentMapper, subEquipmentCache);
+    return new CachePersistenceDAOImpl<>(subEquipmentMapper, subEquipmentCache, cacheSqlSessionFactory, SubEquipmentMapper.class);
   }
 
   @Bean
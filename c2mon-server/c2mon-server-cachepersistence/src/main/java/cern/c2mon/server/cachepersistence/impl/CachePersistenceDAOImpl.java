@@ -19,6 +19,9 @@ package cern.c2mon.server.cachepersistence.impl;
 import java.util.List;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +38,10 @@ import cern.c2mon.shared.common.Cacheable;
  * to the database. The cache object needs to have a corresponding
  * {@link PersistenceMapper}.
  *
+ * <p>If a {@link SqlSessionFactory} is provided, batches are written with
+ * the MyBatis batch executor, i.e. the updates of a batch are sent to the
+ * database as a single JDBC batch instead of one round-trip per object.
+ *
  * @author Mark Brightwell
  *
  * @param <T> the type of the cache object
@@ -55,6 +62,17 @@ public class CachePersistenceDAOImpl<T extends Cacheable> implements CachePersis
    */
   private C2monCache<Long, T> cache;
 
+  /**
+   * Factory of the batch sessions used by {@link #persistBatch(List)}; if null,
+   * batches are persisted through the auto-commit mapper.
+   */
+  private SqlSessionFactory sqlSessionFactory;
+
+  /**
+   * The mapper interface used for creating the batch mapper from the session.
+   */
+  private Class<? extends PersistenceMapper<T>> mapperInterface;
+
   /**
    * Constructor required cache and the persistence bean for this cache.
    *
@@ -67,6 +85,21 @@ public class CachePersistenceDAOImpl<T extends Cacheable> implements CachePersis
     this.cache = cache;
   }
 
+  /**
+   * Constructor for a DAO persisting batches with the MyBatis batch executor.
+   *
+   * @param persistenceMapper the mapper bean for this cache
+   * @param cache the cache that is being persisted
+   * @param sqlSessionFactory the factory the mapper bean was created from
+   * @param mapperInterface the interface of the mapper bean
+   */
+  public CachePersistenceDAOImpl(final PersistenceMapper<T> persistenceMapper, final C2monCache<Long, T> cache,
+                                 final SqlSessionFactory sqlSessionFactory, final Class<? extends PersistenceMapper<T>> mapperInterface) {
+    this(persistenceMapper, cache);
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.mapperInterface = mapperInterface;
+  }
+
   /**
    * Persists a single cacheable
    * setting).
@@ -85,13 +118,36 @@ public class CachePersistenceDAOImpl<T extends Cacheable> implements CachePersis
   @Transactional(value = "cacheTransactionManager")
   @Override
   public void persistBatch(final List<Long> keyList) {
+    if (sqlSessionFactory == null) {
+      persistBatch(keyList, persistenceMapper);
+      return;
+    }
+
+    // the session joins the Spring transaction, so the statements are
+    // only committed (or rolled back) together with it
+    SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      persistBatch(keyList, session.getMapper(mapperInterface));
+      session.flushStatements();
+    } finally {
+      session.close();
+    }
+  }
+
+  /**
+   * Writes the current cache values of the given keys with the given mapper.
+   *
+   * @param keyList keys of the elements that need persisting
+   * @param mapper the mapper used to issue the updates
+   */
+  private void persistBatch(final List<Long> keyList, final PersistenceMapper<T> mapper) {
     T cacheObject;
     for (Long key : keyList) {
       try {
         cacheObject = cache.getCopy(key);
         //do not persist unconfigured tags TODO could remove as unconfigured not used
         if (cacheObject != null && (!(cacheObject instanceof Tag) || !((Tag) cacheObject).isInUnconfigured())) {
-          persistenceMapper.updateCacheable(cacheObject);
+          mapper.updateCacheable(cacheObject);
         }
       } catch (CacheElementNotFoundException ex) {
         log.warn("Cache element with id {} could not be persisted as not found in cache " +
@@ -1,5 +1,8 @@
 package cern.c2mon.server.client.config;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -29,5 +32,25 @@ public class ClientProperties {
     private int initialConsumers = 5;
 
     private int maxConsumers = 10;
+
+    /**
+     * Tag topics on which value updates are published in batches, as one json
+     * array per message. Only list topics whose subscribers all understand
+     * batched messages; "*" enables batching on every tag topic. Empty by
+     * default, i.e. one message per update.
+     */
+    private Set<String> batchedTopics = new HashSet<>();
+
+    /**
+     * Maximum time (in ms) an update waits on a batched topic before the
+     * batch is published
+     */
+    private int batchWindow = 50;
+
+    /**
+     * Maximum number of updates in one batch. A full batch is published
+     * without waiting for the end of the window.
+     */
+    private int batchSize = 200;
   }
 }
@@ -0,0 +1,190 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.client.publish;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jms.JmsException;
+
+import cern.c2mon.server.common.alarm.TagWithAlarms;
+import cern.c2mon.shared.client.serializer.TransferTagSerializer;
+import cern.c2mon.shared.client.tag.TransferTagValueImpl;
+import cern.c2mon.shared.util.jms.JmsSender;
+
+/**
+ * Collects tag value updates per topic and publishes them as one json array
+ * per message, either when the batch is full or when the batch window has
+ * elapsed.
+ *
+ * <p>Updates of one topic are published in the order they were added. If the
+ * publication of a batch fails, all the tags it contained are passed to the
+ * failure handler for re-publication.
+ */
+@Slf4j
+class TagValueBatcher {
+
+  private final JmsSender jmsSender;
+
+  private final int batchSize;
+
+  private final long batchWindow;
+
+  private final Consumer<List<TagWithAlarms>> failureHandler;
+
+  private final Map<String, TopicBatch> batches = new ConcurrentHashMap<>();
+
+  private final AtomicLong publishedMessages = new AtomicLong(0);
+
+  private final AtomicLong publishedUpdates = new AtomicLong(0);
+
+  private ScheduledExecutorService flushTimer;
+
+  /**
+   * @param jmsSender used to publish the batches
+   * @param batchSize maximum number of updates in one message
+   * @param batchWindow maximum time in ms an update waits before publication
+   * @param failureHandler called with the tags of a batch which could not be published
+   */
+  TagValueBatcher(final JmsSender jmsSender, final int batchSize, final long batchWindow,
+                  final Consumer<List<TagWithAlarms>> failureHandler) {
+    if (batchSize < 1 || batchWindow < 1) {
+      throw new IllegalArgumentException("Batch size and window must be positive");
+    }
+    this.jmsSender = jmsSender;
+    this.batchSize = batchSize;
+    this.batchWindow = batchWindow;
+    this.failureHandler = failureHandler;
+  }
+
+  /**
+   * Starts the timer publishing the batches at the end of each window.
+   */
+  synchronized void start() {
+    if (flushTimer == null) {
+      flushTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "TagValueBatcher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      flushTimer.scheduleWithFixedDelay(this::flush, batchWindow, batchWindow, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops the timer and publishes whatever is still pending.
+   */
+  synchronized void stop() {
+    if (flushTimer != null) {
+      flushTimer.shutdown();
+      flushTimer = null;
+    }
+    flush();
+  }
+
+  /**
+   * Adds an update to the batch of the given topic, publishing the batch in
+   * the calling thread if it is full.
+   *
+   * @param topic the destination topic
+   * @param tagWithAlarms the tag, kept for re-publication
+   * @param tagValue the update to publish
+   */
+  void add(final String topic, final TagWithAlarms tagWithAlarms, final TransferTagValueImpl tagValue) {
+    batches.computeIfAbsent(topic, TopicBatch::new).add(tagWithAlarms, tagValue);
+  }
+
+  /**
+   * Publishes the pending updates of all topics.
+   */
+  void flush() {
+    for (TopicBatch batch : batches.values()) {
+      try {
+        batch.publish();
+      } catch (RuntimeException e) {
+        log.error("flush - Unexpected exception while publishing tag batch to topic " + batch.topic, e);
+      }
+    }
+  }
+
+  /**
+   * @return the number of batch messages published so far
+   */
+  long getPublishedMessages() {
+    return publishedMessages.get();
+  }
+
+  /**
+   * @return the number of updates published in batches so far
+   */
+  long getPublishedUpdates() {
+    return publishedUpdates.get();
+  }
+
+  /**
+   * Pending updates of one topic. Publication happens under the lock of the
+   * batch, which keeps the messages of a topic in order.
+   */
+  private final class TopicBatch {
+
+    private final String topic;
+
+    private List<TagWithAlarms> tags = new ArrayList<>();
+
+    private List<TransferTagValueImpl> values = new ArrayList<>();
+
+    private TopicBatch(final String topic) {
+      this.topic = topic;
+    }
+
+    private synchronized void add(final TagWithAlarms tagWithAlarms, final TransferTagValueImpl tagValue) {
+      tags.add(tagWithAlarms);
+      values.add(tagValue);
+      if (values.size() >= batchSize) {
+        publish();
+      }
+    }
+
+    private synchronized void publish() {
+      if (values.isEmpty()) {
+        return;
+      }
+      List<TagWithAlarms> sentTags = tags;
+      List<TransferTagValueImpl> sentValues = values;
+      tags = new ArrayList<>();
+      values = new ArrayList<>();
+
+      try {
+        jmsSender.sendToTopic(TransferTagSerializer.toJsonArray(sentValues), topic);
+        publishedMessages.incrementAndGet();
+        publishedUpdates.addAndGet(sentValues.size());
+      } catch (JmsException e) {
+        log.error("publish - Error publishing batch of " + sentValues.size() + " tag updates to topic " + topic
+            + " - submitting for republication", e);
+        failureHandler.accept(sentTags);
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package cern.c2mon.server.client.publish;
 
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -41,6 +42,8 @@ import cern.c2mon.server.client.util.TransferObjectFactory;
 import cern.c2mon.server.common.alarm.Alarm;
 import cern.c2mon.server.common.alarm.TagWithAlarms;
 import cern.c2mon.server.common.alarm.TagWithAlarmsImpl;
+import cern.c2mon.server.common.latency.LatencyMonitor;
+import cern.c2mon.server.common.latency.LatencyStage;
 import cern.c2mon.server.common.republisher.Publisher;
 import cern.c2mon.server.common.republisher.Republisher;
 import cern.c2mon.server.common.republisher.RepublisherFactory;
@@ -103,6 +106,14 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
 
   private ClientProperties properties;
 
+  /** Topics on which updates are published in batches */
+  private final Set<String> batchedTopics;
+
+  /** Collects the updates of the batched topics, null if batching is disabled */
+  private final TagValueBatcher batcher;
+
+  private LatencyMonitor latencyMonitor = LatencyMonitor.DISABLED;
+
   /**
    * Default Constructor
    * @param jmsSender Used for sending JMS messages and waiting for a response
@@ -128,6 +139,18 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
     this.tagLocationService = tagLocationService;
     this.republisher = RepublisherFactory.createRepublisher(this, "Tag");
     this.properties = properties;
+    this.batchedTopics = properties.getJms().getBatchedTopics();
+    if (batchedTopics.isEmpty()) {
+      this.batcher = null;
+    } else {
+      this.batcher = new TagValueBatcher(jmsSender, properties.getJms().getBatchSize(), properties.getJms().getBatchWindow(),
+          tags -> tags.forEach(republisher::publicationFailed));
+    }
+  }
+
+  @Autowired(required = false)
+  public void setLatencyMonitor(final LatencyMonitor latencyMonitor) {
+    this.latencyMonitor = latencyMonitor;
   }
 
   /**
@@ -147,6 +170,11 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
     if (republicationDelay != 0)
       republisher.setRepublicationDelay(republicationDelay);
     republisher.start();
+
+    if (batcher != null) {
+      log.info("init - Publishing tag updates in batches on topics " + batchedTopics);
+      batcher.start();
+    }
   }
 
   /**
@@ -155,6 +183,9 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
   @PreDestroy
   public void shutdown() {
     log.info("shutdown - Stopping tag publisher.");
+    if (batcher != null) {
+      batcher.stop();
+    }
     republisher.stop();
   }
 
@@ -171,18 +202,37 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
     TagWithAlarms tagWithAlarms = new TagWithAlarmsImpl(tag, alarms);
     try {
       publish(tagWithAlarms);
+      latencyMonitor.recordSince(LatencyStage.CLIENT_PUBLISH, tag, tag.getCacheTimestamp());
     } catch (JmsException e) {
       log.error("notifyOnUpdate - Error publishing tag update to topic for tag " + tagWithAlarms.getTag().getId() + " - submitting for republication", e);
       republisher.publicationFailed(tagWithAlarms);
     }
   }
 
+  /**
+   * Publishes the tag update, either straight away or, on a batched topic,
+   * as part of the next batch of that topic. In the latter case a failed
+   * publication is submitted for re-publication by the batcher.
+   */
   @Override
   public void publish(final TagWithAlarms tagWithAlarms) {
     TransferTagValueImpl tagValue = TransferObjectFactory.createTransferTagValue(tagWithAlarms);
-    log.trace("publish - Publishing tag update to client: " + TransferTagSerializer.toJson(tagValue));
+    String topic = TopicProvider.topicFor(tagWithAlarms.getTag(), properties);
 
-    jmsSender.sendToTopic(TransferTagSerializer.toJson(tagValue), TopicProvider.topicFor(tagWithAlarms.getTag(), properties));
+    if (batcher != null && isBatched(topic)) {
+      batcher.add(topic, tagWithAlarms, tagValue);
+      return;
+    }
+
+    String json = TransferTagSerializer.toJson(tagValue);
+    if (log.isTraceEnabled()) {
+      log.trace("publish - Publishing tag update to client: " + json);
+    }
+    jmsSender.sendToTopic(json, topic);
+  }
+
+  private boolean isBatched(final String topic) {
+    return batchedTopics.contains("*") || batchedTopics.contains(topic);
   }
 
   @Override
@@ -194,9 +244,11 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
         String topic = TopicProvider.topicFor(tagWithAlarms.getTag(), properties);
         TransferTagImpl tag = TransferObjectFactory.createTransferTag(tagWithAlarms, aliveTimerFacade.isRegisteredAliveTimer(tagId), topic);
 
-        log.trace("notifyOnConfigurationUpdate - Publishing configuration update to client: " + TransferTagSerializer.toJson(tag));
-
-        jmsSender.sendToTopic(TransferTagSerializer.toJson(tag), topic);
+        String json = TransferTagSerializer.toJson(tag);
+        if (log.isTraceEnabled()) {
+          log.trace("notifyOnConfigurationUpdate - Publishing configuration update to client: " + json);
+        }
+        jmsSender.sendToTopic(json, topic);
       } catch (JmsException e) {
         log.error("notifyOnConfigurationUpdate - Error publishing configuration update to topic for tag " + tagWithAlarms.getTag().getId()
             + " - submitting for republication", e);
@@ -222,4 +274,15 @@ public class TagValuePublisher implements AlarmAggregatorListener, Configuration
   public int getSizeUnpublishedList() {
     return republisher.getSizeUnpublishedList();
   }
+
+  /**
+   * @return the average number of tag updates per batch message, 0 if batching is disabled
+   */
+  @ManagedOperation(description = "Returns the average number of tag updates sent per batch message")
+  public double getAverageBatchSize() {
+    if (batcher == null || batcher.getPublishedMessages() == 0) {
+      return 0;
+    }
+    return (double) batcher.getPublishedUpdates() / batcher.getPublishedMessages();
+  }
 }
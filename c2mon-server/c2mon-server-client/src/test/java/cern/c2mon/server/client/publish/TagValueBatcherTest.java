@@ -0,0 +1,138 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.client.publish;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jms.UncategorizedJmsException;
+
+import cern.c2mon.server.common.alarm.TagWithAlarms;
+import cern.c2mon.server.common.alarm.TagWithAlarmsImpl;
+import cern.c2mon.shared.client.serializer.TransferTagSerializer;
+import cern.c2mon.shared.client.tag.TagMode;
+import cern.c2mon.shared.client.tag.TransferTagValueImpl;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+import cern.c2mon.shared.util.jms.JmsSender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link TagValueBatcher}.
+ */
+public class TagValueBatcherTest {
+
+  private static final String TOPIC = "c2mon.client.tag.1";
+
+  private final List<String> sentMessages = new ArrayList<>();
+
+  private final List<TagWithAlarms> failedTags = new ArrayList<>();
+
+  private boolean failSending = false;
+
+  private TagValueBatcher batcher;
+
+  @Before
+  public void beforeTest() {
+    JmsSender sender = new JmsSender() {
+      @Override
+      public String sendRequestToQueue(String text, String jmsQueue, long timeout) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void sendToTopic(String text, String jmsTopic) {
+        if (failSending) {
+          throw new UncategorizedJmsException("Broker down");
+        }
+        assertEquals(TOPIC, jmsTopic);
+        sentMessages.add(text);
+      }
+
+      @Override
+      public void send(String text) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void sendToQueue(String text, String jmsQueueName) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    batcher = new TagValueBatcher(sender, 3, 60000, failedTags::addAll);
+  }
+
+  @Test
+  public void fullBatchIsPublishedImmediately() {
+    for (long id = 1; id <= 4; id++) {
+      batcher.add(TOPIC, new TagWithAlarmsImpl(null, null), createValue(id));
+    }
+
+    assertEquals(1, sentMessages.size());
+    List<TransferTagValueImpl> batch = TransferTagSerializer.fromJsonArray(sentMessages.get(0), TransferTagValueImpl.class);
+    assertEquals(3, batch.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Long.valueOf(i + 1), batch.get(i).getId());
+      assertEquals(Double.valueOf(i + 1), batch.get(i).getValue());
+    }
+
+    batcher.flush();
+    assertEquals(2, sentMessages.size());
+    assertEquals(Long.valueOf(4), TransferTagSerializer.fromJsonArray(sentMessages.get(1), TransferTagValueImpl.class).get(0).getId());
+    assertEquals(2.0, (double) batcher.getPublishedUpdates() / batcher.getPublishedMessages(), 0.0);
+  }
+
+  @Test
+  public void emptyBatchIsNotPublished() {
+    batcher.flush();
+    assertTrue(sentMessages.isEmpty());
+  }
+
+  @Test
+  public void failedBatchIsHandedBack() {
+    failSending = true;
+    TagWithAlarms tag = new TagWithAlarmsImpl(null, null);
+    batcher.add(TOPIC, tag, createValue(1L));
+    batcher.flush();
+
+    assertEquals(1, failedTags.size());
+    assertTrue(failedTags.get(0) == tag);
+    assertEquals(0, batcher.getPublishedMessages());
+
+    failSending = false;
+    batcher.flush();
+    assertTrue(sentMessages.isEmpty());
+  }
+
+  @Test
+  public void singleUpdatesAreNotArrays() {
+    assertTrue(TransferTagSerializer.isJsonArray(" [{}]"));
+    assertTrue(!TransferTagSerializer.isJsonArray(TransferTagSerializer.toJson(createValue(1L))));
+  }
+
+  private static TransferTagValueImpl createValue(final Long id) {
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    TransferTagValueImpl value = new TransferTagValueImpl(id, id.doubleValue(), "", new DataTagQualityImpl(), TagMode.OPERATIONAL,
+        now, now, now, "test tag");
+    value.setValueClassName(Double.class.getName());
+    return value;
+  }
+}
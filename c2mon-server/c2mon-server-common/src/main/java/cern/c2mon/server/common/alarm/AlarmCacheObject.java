@@ -166,6 +166,9 @@ public class AlarmCacheObject implements Cloneable, Cacheable, Alarm {
      if (this.lastPublication != null) {
        alarmCacheObject.lastPublication = (AlarmPublication) lastPublication.clone();
      }
+     if (this.metadata != null) {
+       alarmCacheObject.metadata = metadata.clone();
+     }
      return alarmCacheObject;
   }
 
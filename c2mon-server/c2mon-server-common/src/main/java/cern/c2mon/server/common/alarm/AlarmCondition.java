@@ -17,6 +17,7 @@
 package cern.c2mon.server.common.alarm;
 
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -92,8 +93,33 @@ public abstract class AlarmCondition implements Serializable {
    * Returns a standardised XML representation of the AlarmCondition object.
    *
    * @throws RuntimeException if errors occur during encoding to XML
+   * @see AlarmConditionCodec#toXML(AlarmCondition)
    */
-  public final synchronized String toConfigXML() {
+  public final String toConfigXML() {
+    return AlarmConditionCodec.toXML(this);
+  }
+
+  /**
+   * Serializes the built-in conditions in the compact binary form of
+   * {@link AlarmConditionCodec}.
+   *
+   * @return the object to serialize in place of this condition
+   * @throws ObjectStreamException never
+   */
+  protected Object writeReplace() throws ObjectStreamException {
+    if (AlarmConditionCodec.isEncodable(this)) {
+      return new AlarmConditionCodec.SerializedForm(AlarmConditionCodec.encode(this));
+    }
+    return this;
+  }
+
+  /**
+   * Returns the XML representation of any AlarmCondition subclass, built
+   * from its protected fields by reflection.
+   *
+   * @throws RuntimeException if errors occur during encoding to XML
+   */
+  final String toConfigXMLWithReflection() {
     // The concrete subclass of AlarmCondition
     Class conditionClass = this.getClass();
     // The declared fields of this subclass
@@ -152,7 +178,7 @@ public abstract class AlarmCondition implements Serializable {
    * @param pElement DOM element containing the XML representation of an
    * AlarmCondition object, as created by the toConfigXML() method.
    */
-  public static final synchronized AlarmCondition fromConfigXML(Element pElement) {
+  public static final AlarmCondition fromConfigXML(Element pElement) {
     Class alarmConditionClass = null;
     AlarmCondition alarmCondition = null;
 
@@ -203,12 +229,23 @@ public abstract class AlarmCondition implements Serializable {
   /**
    * Create an AlarmCondition object from its standardized XML representation.
    *
-   * @param pElement DOM element containing the XML representation of an
-   * AlarmCondition object, as created by the toConfigXML() method.
+   * @param pXML the XML representation of an AlarmCondition object, as
+   * created by the toConfigXML() method.
+   *
+   * @throws RuntimeException if errors occur during parsing of XML
+   * @see AlarmConditionCodec#fromXML(String)
+   */
+  public static final AlarmCondition fromConfigXML(String pXML) {
+    return AlarmConditionCodec.fromXML(pXML);
+  }
+
+  /**
+   * Create an AlarmCondition object of any subclass from its XML
+   * representation, using a DOM parser and reflection.
    *
    * @throws RuntimeException if errors occur during parsing of XML
    */
-  public static final synchronized AlarmCondition fromConfigXML(String pXML) {
+  static final synchronized AlarmCondition fromConfigXMLWithReflection(String pXML) {
     if (xmlParser == null) {
       try {
         xmlParser = new SimpleXMLParser();
@@ -0,0 +1,457 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.alarm;
+
+import java.io.Serializable;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import cern.c2mon.shared.common.type.TypeConverter;
+
+/**
+ * Thread-safe encoding and decoding of the built-in {@link AlarmCondition}
+ * implementations ({@link ValueAlarmCondition} and {@link RangeAlarmCondition})
+ * without reflection.
+ *
+ * <p>Two formats are supported:
+ * <ul>
+ * <li>the configuration XML stored in the database, identical to the one
+ * produced by {@link AlarmCondition#toConfigXML()}. It is read with a StAX
+ * parser, without building a DOM and without class lookups;
+ * <li>a compact binary form, used when alarm conditions are serialized (cache
+ * store, cluster). Only conditions whose values are {@code null},
+ * {@link Boolean}, numeric primitive wrappers or {@link String} can be
+ * encoded, see {@link #isEncodable(AlarmCondition)}.
+ * </ul>
+ *
+ * <p>Other condition classes are delegated to the reflective methods of
+ * {@link AlarmCondition}.
+ *
+ * <p>The binary layout (big-endian) is:
+ * <pre>
+ * header : byte version, byte conditionType
+ * value  : alarmValue                  (conditionType VALUE)
+ * range  : minValue, maxValue          (conditionType RANGE)
+ * values : byte valueType, [primitive | int length, UTF-8 bytes]
+ * </pre>
+ */
+public final class AlarmConditionCodec {
+
+  /** Current version of the binary encoding */
+  public static final byte VERSION = 1;
+
+  private static final byte CONDITION_VALUE = 1;
+  private static final byte CONDITION_RANGE = 2;
+
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_BYTE = 2;
+  private static final byte TYPE_SHORT = 3;
+  private static final byte TYPE_INTEGER = 4;
+  private static final byte TYPE_LONG = 5;
+  private static final byte TYPE_FLOAT = 6;
+  private static final byte TYPE_DOUBLE = 7;
+  private static final byte TYPE_STRING = 8;
+
+  private static final String VALUE_CONDITION_CLASS = ValueAlarmCondition.class.getName();
+  private static final String RANGE_CONDITION_CLASS = RangeAlarmCondition.class.getName();
+
+  /** XMLInputFactory is not guaranteed to be thread-safe, so one per thread */
+  private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  });
+
+  private AlarmConditionCodec() {
+    // only static methods
+  }
+
+  /**
+   * Creates an AlarmCondition from its configuration XML.
+   *
+   * @param xml the XML, as created by {@link #toXML(AlarmCondition)}
+   * @return the alarm condition
+   * @throws RuntimeException if the XML cannot be parsed
+   */
+  public static AlarmCondition fromXML(final String xml) {
+    XMLStreamReader reader = null;
+    try {
+      reader = INPUT_FACTORY.get().createXMLStreamReader(new StringReader(xml));
+      reader.nextTag();
+      String conditionClass = reader.getAttributeValue(null, "class");
+
+      if (VALUE_CONDITION_CLASS.equals(conditionClass)) {
+        ValueAlarmCondition condition = new ValueAlarmCondition();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+          if (reader.getLocalName().equals("alarm-value")) {
+            condition.setAlarmValue(readValue(reader));
+          } else {
+            throw new IllegalArgumentException("Unknown field " + reader.getLocalName() + " of ValueAlarmCondition");
+          }
+        }
+        return condition;
+      }
+
+      if (RANGE_CONDITION_CLASS.equals(conditionClass)) {
+        RangeAlarmCondition condition = new RangeAlarmCondition();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+          switch (reader.getLocalName()) {
+          case "min-value":
+            condition.minValue = (Comparable) readValue(reader);
+            break;
+          case "max-value":
+            condition.maxValue = (Comparable) readValue(reader);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown field " + reader.getLocalName() + " of RangeAlarmCondition");
+          }
+        }
+        return condition;
+      }
+    } catch (XMLStreamException e) {
+      throw new RuntimeException("Unable to parse alarm condition XML: " + xml, e);
+    } finally {
+      close(reader);
+    }
+
+    return AlarmCondition.fromConfigXMLWithReflection(xml);
+  }
+
+  /**
+   * Returns the configuration XML of an AlarmCondition, as stored in the
+   * database.
+   *
+   * @param condition the condition to encode
+   * @return the XML representation
+   */
+  public static String toXML(final AlarmCondition condition) {
+    StringBuilder str;
+    if (condition.getClass() == ValueAlarmCondition.class) {
+      str = openCondition(VALUE_CONDITION_CLASS);
+      appendField(str, "alarm-value", ((ValueAlarmCondition) condition).getAlarmValue());
+    } else if (condition.getClass() == RangeAlarmCondition.class) {
+      RangeAlarmCondition range = (RangeAlarmCondition) condition;
+      str = openCondition(RANGE_CONDITION_CLASS);
+      appendField(str, "min-value", range.getMinimumValue());
+      appendField(str, "max-value", range.getMaximumValue());
+    } else {
+      return condition.toConfigXMLWithReflection();
+    }
+    str.append("</AlarmCondition>\n");
+    return str.toString();
+  }
+
+  /**
+   * @param condition the condition to check
+   * @return true if {@link #encode(AlarmCondition)} will succeed
+   */
+  public static boolean isEncodable(final AlarmCondition condition) {
+    if (condition.getClass() == ValueAlarmCondition.class) {
+      return typeOf(((ValueAlarmCondition) condition).getAlarmValue()) >= 0;
+    } else if (condition.getClass() == RangeAlarmCondition.class) {
+      RangeAlarmCondition range = (RangeAlarmCondition) condition;
+      return typeOf(range.getMinimumValue()) >= 0 && typeOf(range.getMaximumValue()) >= 0;
+    }
+    return false;
+  }
+
+  /**
+   * Encodes a condition in the compact binary form.
+   *
+   * @param condition the condition to encode
+   * @return the binary representation
+   * @throws IllegalArgumentException if the condition is not encodable
+   */
+  public static byte[] encode(final AlarmCondition condition) {
+    if (!isEncodable(condition)) {
+      throw new IllegalArgumentException("Alarm condition not supported by binary encoding: " + condition);
+    }
+    if (condition instanceof ValueAlarmCondition) {
+      Object value = ((ValueAlarmCondition) condition).getAlarmValue();
+      ByteBuffer buffer = ByteBuffer.allocate(2 + sizeOf(value));
+      buffer.put(VERSION).put(CONDITION_VALUE);
+      putValue(buffer, value);
+      return buffer.array();
+    }
+    RangeAlarmCondition range = (RangeAlarmCondition) condition;
+    ByteBuffer buffer = ByteBuffer.allocate(2 + sizeOf(range.getMinimumValue()) + sizeOf(range.getMaximumValue()));
+    buffer.put(VERSION).put(CONDITION_RANGE);
+    putValue(buffer, range.getMinimumValue());
+    putValue(buffer, range.getMaximumValue());
+    return buffer.array();
+  }
+
+  /**
+   * Decodes a condition from its compact binary form.
+   *
+   * @param bytes the binary representation, as created by {@link #encode(AlarmCondition)}
+   * @return the alarm condition
+   * @throws IllegalArgumentException if the bytes are not a valid encoding
+   */
+  public static AlarmCondition decode(final byte[] bytes) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      byte version = buffer.get();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported binary alarm condition version: " + version);
+      }
+      byte conditionType = buffer.get();
+      switch (conditionType) {
+      case CONDITION_VALUE:
+        return new ValueAlarmCondition(getValue(buffer));
+      case CONDITION_RANGE:
+        return new RangeAlarmCondition((Comparable) getValue(buffer), (Comparable) getValue(buffer));
+      default:
+        throw new IllegalArgumentException("Unknown binary alarm condition type: " + conditionType);
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated binary alarm condition", e);
+    }
+  }
+
+  /**
+   * Reads the value of the current field element, converted to the type given
+   * by its "type" attribute. Leaves the reader on the end of the element.
+   */
+  private static Object readValue(final XMLStreamReader reader) throws XMLStreamException {
+    String type = reader.getAttributeValue(null, "type");
+    return parseValue(reader.getElementText(), type);
+  }
+
+  private static Object parseValue(final String text, final String type) {
+    if (type == null) {
+      return text;
+    }
+    try {
+      switch (type) {
+      case "String":
+      case "java.lang.String":
+        return text;
+      case "Boolean":
+      case "java.lang.Boolean":
+        return Boolean.valueOf(text.trim());
+      case "Byte":
+      case "java.lang.Byte":
+        return Byte.valueOf(text.trim());
+      case "Short":
+      case "java.lang.Short":
+        return Short.valueOf(text.trim());
+      case "Integer":
+      case "java.lang.Integer":
+        return Integer.valueOf(text.trim());
+      case "Long":
+      case "java.lang.Long":
+        return Long.valueOf(text.trim());
+      case "Float":
+      case "java.lang.Float":
+        return Float.valueOf(text.trim());
+      case "Double":
+      case "java.lang.Double":
+        return Double.valueOf(text.trim());
+      default:
+        break;
+      }
+    } catch (NumberFormatException e) {
+      // the TypeConverter is more lenient (e.g. "1.0" for an Integer)
+    }
+    return TypeConverter.cast(text, type);
+  }
+
+  private static StringBuilder openCondition(final String conditionClass) {
+    StringBuilder str = new StringBuilder(160);
+    str.append("<AlarmCondition class=\"").append(conditionClass).append("\">\n");
+    return str;
+  }
+
+  private static void appendField(final StringBuilder str, final String name, final Object value) {
+    if (value == null) {
+      return;
+    }
+    String className = value.getClass().getName();
+    str.append("  <").append(name).append(" type=\"");
+    str.append(className.startsWith("java.lang.") ? className.substring(10) : className);
+    str.append("\">");
+    appendEscaped(str, value.toString());
+    str.append("</").append(name).append(">\n");
+  }
+
+  private static void appendEscaped(final StringBuilder str, final String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+      case '<':
+        str.append("&lt;");
+        break;
+      case '>':
+        str.append("&gt;");
+        break;
+      case '&':
+        str.append("&amp;");
+        break;
+      default:
+        str.append(c);
+      }
+    }
+  }
+
+  private static void close(final XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // nothing left to release
+      }
+    }
+  }
+
+  private static byte typeOf(final Object value) {
+    if (value == null) {
+      return TYPE_NULL;
+    } else if (value instanceof Boolean) {
+      return TYPE_BOOLEAN;
+    } else if (value instanceof Byte) {
+      return TYPE_BYTE;
+    } else if (value instanceof Short) {
+      return TYPE_SHORT;
+    } else if (value instanceof Integer) {
+      return TYPE_INTEGER;
+    } else if (value instanceof Long) {
+      return TYPE_LONG;
+    } else if (value instanceof Float) {
+      return TYPE_FLOAT;
+    } else if (value instanceof Double) {
+      return TYPE_DOUBLE;
+    } else if (value instanceof String) {
+      return TYPE_STRING;
+    }
+    return -1;
+  }
+
+  private static int sizeOf(final Object value) {
+    switch (typeOf(value)) {
+    case TYPE_NULL:
+      return 1;
+    case TYPE_BOOLEAN:
+    case TYPE_BYTE:
+      return 2;
+    case TYPE_SHORT:
+      return 3;
+    case TYPE_INTEGER:
+    case TYPE_FLOAT:
+      return 5;
+    case TYPE_LONG:
+    case TYPE_DOUBLE:
+      return 9;
+    default:
+      return 5 + ((String) value).getBytes(StandardCharsets.UTF_8).length;
+    }
+  }
+
+  private static void putValue(final ByteBuffer buffer, final Object value) {
+    byte type = typeOf(value);
+    buffer.put(type);
+    switch (type) {
+    case TYPE_NULL:
+      break;
+    case TYPE_BOOLEAN:
+      buffer.put((Boolean) value ? (byte) 1 : (byte) 0);
+      break;
+    case TYPE_BYTE:
+      buffer.put((Byte) value);
+      break;
+    case TYPE_SHORT:
+      buffer.putShort((Short) value);
+      break;
+    case TYPE_INTEGER:
+      buffer.putInt((Integer) value);
+      break;
+    case TYPE_LONG:
+      buffer.putLong((Long) value);
+      break;
+    case TYPE_FLOAT:
+      buffer.putFloat((Float) value);
+      break;
+    case TYPE_DOUBLE:
+      buffer.putDouble((Double) value);
+      break;
+    default:
+      byte[] encoded = ((String) value).getBytes(StandardCharsets.UTF_8);
+      buffer.putInt(encoded.length);
+      buffer.put(encoded);
+    }
+  }
+
+  private static Object getValue(final ByteBuffer buffer) {
+    byte type = buffer.get();
+    switch (type) {
+    case TYPE_NULL:
+      return null;
+    case TYPE_BOOLEAN:
+      return buffer.get() != 0;
+    case TYPE_BYTE:
+      return buffer.get();
+    case TYPE_SHORT:
+      return buffer.getShort();
+    case TYPE_INTEGER:
+      return buffer.getInt();
+    case TYPE_LONG:
+      return buffer.getLong();
+    case TYPE_FLOAT:
+      return buffer.getFloat();
+    case TYPE_DOUBLE:
+      return buffer.getDouble();
+    case TYPE_STRING:
+      int length = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        throw new IllegalArgumentException("Invalid string length in binary alarm condition: " + length);
+      }
+      String result = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+      return result;
+    default:
+      throw new IllegalArgumentException("Unknown value type in binary alarm condition: " + type);
+    }
+  }
+
+  /**
+   * Serialized form of the built-in alarm conditions: the binary encoding
+   * instead of the default serialization of the condition fields.
+   */
+  static final class SerializedForm implements Serializable {
+
+    private static final long serialVersionUID = 6530420858417446251L;
+
+    private final byte[] bytes;
+
+    SerializedForm(final byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    private Object readResolve() {
+      return decode(bytes);
+    }
+  }
+}
@@ -47,6 +47,9 @@ public class ValueAlarmCondition extends AlarmCondition {
   /** the value for which the condition is supposed to return ACTIVE */
   protected Object alarmValue;
 
+  /** the String alarm value converted to the enum type of the evaluated tag value */
+  private transient volatile Enum< ? > enumAlarmValue;
+
   /**
    * Default Constructor This constructor should only used when creating an
    * AlarmCondition object from its XML representation.
@@ -80,8 +83,13 @@ public class ValueAlarmCondition extends AlarmCondition {
 
     Object enumAdaptedAlarmValue;
     if (pValue.getClass().isEnum() && alarmValue.getClass().equals(String.class)) {
-      Class< ? extends Enum> enumClass = (Class< ? extends Enum>) pValue.getClass();
-      enumAdaptedAlarmValue = Enum.valueOf(enumClass, (String) alarmValue);
+      Enum< ? > enumValue = enumAlarmValue;
+      if (enumValue == null || !enumValue.getClass().equals(pValue.getClass())) {
+        Class< ? extends Enum> enumClass = (Class< ? extends Enum>) pValue.getClass();
+        enumValue = Enum.valueOf(enumClass, (String) alarmValue);
+        enumAlarmValue = enumValue;
+      }
+      enumAdaptedAlarmValue = enumValue;
     } else if (!pValue.getClass().equals(alarmValue.getClass())) {
       throw new IllegalStateException("The passed tag value type does not match the expected type for this alarm (" + pValue.getClass() + " != " + alarmValue.getClass() + ")");
     } else {
@@ -104,6 +112,7 @@ public class ValueAlarmCondition extends AlarmCondition {
    */
   public final void setAlarmValue(final Object pAlarmValue) {
     this.alarmValue = pAlarmValue;
+    this.enumAlarmValue = null;
   }
 
   /**
@@ -442,6 +442,10 @@ public final class CommandTagCacheObject<T> implements CommandTag<T>, Cacheable,
         clone.hwAddress = this.hwAddress.clone();
       }
 
+      if (metadata != null) {
+        clone.metadata = this.metadata.clone();
+      }
+
       return clone;
     }
 }
@@ -12,6 +12,8 @@ import org.springframework.core.io.support.ResourcePropertySource;
 
 import java.io.IOException;
 
+import cern.c2mon.server.common.latency.LatencyMonitor;
+
 /**
  * This class is responsible for configuring the C2MON server environment,
  * which involves processing user-defined property overrides.
@@ -30,6 +32,11 @@ public class CommonModule implements ApplicationListener<ApplicationEnvironmentP
     return new PropertySourcesPlaceholderConfigurer();
   }
 
+  @Bean
+  public LatencyMonitor latencyMonitor(ServerProperties properties) {
+    return new LatencyMonitor(properties.getLatency().isEnabled());
+  }
+
   /**
    * Listens for the {@link ApplicationEnvironmentPreparedEvent} and injects
    * ${c2mon.server.properties} into the environment with the highest precedence
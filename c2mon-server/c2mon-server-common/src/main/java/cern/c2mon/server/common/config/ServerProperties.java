@@ -26,11 +26,22 @@ public class ServerProperties {
    */
   private boolean testMode = false;
 
+  /**
+   * Allow DAQs to publish their tag updates in the compact binary format. If
+   * disabled, all DAQs are asked to use JSON during the connection handshake
+   */
+  private boolean binaryDaqUpdates = true;
+
   /**
    * JMS properties
    */
   private final Jms jms = new Jms();
 
+  /**
+   * Latency instrumentation properties
+   */
+  private final Latency latency = new Latency();
+
   @Data
   public static class Jms {
 
@@ -46,4 +57,14 @@ public class ServerProperties {
      */
     private boolean embedded = true;
   }
+
+  @Data
+  public static class Latency {
+
+    /**
+     * Enable/disable the recording of the tag update latencies, exported
+     * over JMX as cern.c2mon:name=latencyMonitor
+     */
+    private boolean enabled = false;
+  }
 }
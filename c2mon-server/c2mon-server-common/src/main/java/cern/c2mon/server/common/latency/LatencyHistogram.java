@@ -0,0 +1,177 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.latency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in microseconds, with a bounded relative
+ * error (in the spirit of HdrHistogram).
+ *
+ * <p>Values below {@link #SUB_BUCKET_COUNT} are counted exactly. Above, each
+ * power of two range is split in {@link #SUB_BUCKET_COUNT}/2 linear buckets,
+ * so a recorded value is known within about 6%. Values above
+ * {@link #MAX_TRACKABLE_VALUE} (one hour) are counted in the last bucket.
+ *
+ * <p>Recording only increments counters and never blocks, so it can be
+ * called from any thread on the update path. Snapshots taken while values
+ * are recorded may be slightly inconsistent (e.g. count and buckets off by
+ * the values in flight).
+ */
+public final class LatencyHistogram {
+
+  static final int SUB_BUCKET_BITS = 5;
+
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+  /** One hour */
+  static final long MAX_TRACKABLE_VALUE = 3_600_000_000L;
+
+  private final AtomicLongArray counts = new AtomicLongArray(bucketIndex(MAX_TRACKABLE_VALUE) + 1);
+
+  private final AtomicLong totalValue = new AtomicLong();
+
+  private final AtomicLong maxValue = new AtomicLong();
+
+  /**
+   * @param value the latency in microseconds, negative values (clock skew
+   *              between hosts) are recorded as 0
+   */
+  public void record(final long value) {
+    long bounded = value < 0 ? 0 : Math.min(value, MAX_TRACKABLE_VALUE);
+    counts.incrementAndGet(bucketIndex(bounded));
+    totalValue.addAndGet(bounded);
+
+    long max = maxValue.get();
+    while (bounded > max && !maxValue.compareAndSet(max, bounded)) {
+      max = maxValue.get();
+    }
+  }
+
+  /**
+   * Clears all recorded values.
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+    totalValue.set(0);
+    maxValue.set(0);
+  }
+
+  /**
+   * @return a copy of the current values
+   */
+  public Snapshot getSnapshot() {
+    long[] snapshotCounts = new long[counts.length()];
+    long count = 0;
+    for (int i = 0; i < snapshotCounts.length; i++) {
+      snapshotCounts[i] = counts.get(i);
+      count += snapshotCounts[i];
+    }
+    return new Snapshot(snapshotCounts, count, totalValue.get(), maxValue.get());
+  }
+
+  static int bucketIndex(final long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (int) ((value >> shift) - SUB_BUCKET_HALF_COUNT);
+  }
+
+  /**
+   * @return the highest value counted in the bucket
+   */
+  static long highestValueOf(final int bucketIndex) {
+    if (bucketIndex < SUB_BUCKET_COUNT) {
+      return bucketIndex;
+    }
+    int shift = (bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+    long subBucket = (bucketIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * Recorded values at a point in time.
+   */
+  public static final class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long total;
+    private final long max;
+
+    private Snapshot(final long[] counts, final long count, final long total, final long max) {
+      this.counts = counts;
+      this.count = count;
+      this.total = total;
+      this.max = max;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return the mean of the recorded values, 0 if there are none
+     */
+    public double getMean() {
+      return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * @return the highest recorded value
+     */
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value below which the given percentage of the recorded
+     *         values are (within the histogram precision), 0 if none
+     */
+    public long getValueAtPercentile(final double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(highestValueOf(i), max);
+        }
+      }
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d mean=%.0fus p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus",
+          count, getMean(), getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99),
+          getValueAtPercentile(99.9), max);
+    }
+  }
+}
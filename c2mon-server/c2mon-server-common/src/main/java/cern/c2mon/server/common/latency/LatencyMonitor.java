@@ -0,0 +1,220 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.latency;
+
+import java.sql.Timestamp;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.tag.Tag;
+
+/**
+ * Collects the latencies of the tag updates in a {@link LatencyHistogram} per
+ * {@link LatencyStage}, and per stage and DAQ priority and per stage and
+ * process for the updates of data tags.
+ *
+ * <p>When disabled, all record methods return immediately. When enabled, a
+ * record costs a few atomic increments and never blocks.
+ *
+ * <p>All latencies are in microseconds.
+ */
+@ManagedResource(objectName = "cern.c2mon:name=latencyMonitor", description = "Latency of the tag updates per stage")
+public class LatencyMonitor {
+
+  /**
+   * Monitor recording nothing, to be used when none is configured.
+   */
+  public static final LatencyMonitor DISABLED = new LatencyMonitor(false);
+
+  private final boolean enabled;
+
+  private final Map<LatencyStage, LatencyHistogram> stages = new EnumMap<>(LatencyStage.class);
+
+  private final Map<LatencyStage, ConcurrentMap<Integer, LatencyHistogram>> byPriority = new EnumMap<>(LatencyStage.class);
+
+  private final Map<LatencyStage, ConcurrentMap<Long, LatencyHistogram>> byProcess = new EnumMap<>(LatencyStage.class);
+
+  /**
+   * @param enabled false to record nothing
+   */
+  public LatencyMonitor(final boolean enabled) {
+    this.enabled = enabled;
+    for (LatencyStage stage : LatencyStage.values()) {
+      stages.put(stage, new LatencyHistogram());
+      byPriority.put(stage, new ConcurrentHashMap<>());
+      byProcess.put(stage, new ConcurrentHashMap<>());
+    }
+  }
+
+  /**
+   * @return true if latencies are recorded
+   */
+  @ManagedAttribute(description = "True if the latencies are recorded")
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the current time to pass to {@link #recordSince}, 0 if disabled
+   */
+  public long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the time elapsed since {@link #start()} was called.
+   *
+   * @param stage the measured stage
+   * @param tag the tag the stage was for, null if not related to a single tag
+   * @param startNanos the value returned by {@link #start()}
+   */
+  public void recordSince(final LatencyStage stage, final Tag tag, final long startNanos) {
+    if (enabled) {
+      record(stage, tag, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+  }
+
+  /**
+   * Records the time elapsed between a timestamp of a tag and now.
+   *
+   * @param stage the measured stage
+   * @param tag the tag the stage was for
+   * @param from the timestamp at the beginning of the stage, ignored if null
+   */
+  public void recordSince(final LatencyStage stage, final Tag tag, final Timestamp from) {
+    if (enabled && from != null) {
+      record(stage, tag, TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() - from.getTime()));
+    }
+  }
+
+  /**
+   * Records a latency, split by the priority and process of the tag if it is
+   * a data tag.
+   *
+   * @param stage the measured stage
+   * @param tag the tag the stage was for, null if not related to a single tag
+   * @param latency the latency in microseconds
+   */
+  public void record(final LatencyStage stage, final Tag tag, final long latency) {
+    if (!enabled) {
+      return;
+    }
+    if (tag instanceof DataTag) {
+      DataTag dataTag = (DataTag) tag;
+      int priority = dataTag.getAddress() == null ? 0 : dataTag.getAddress().getPriority();
+      record(stage, priority, dataTag.getProcessId(), latency);
+    } else {
+      stages.get(stage).record(latency);
+    }
+  }
+
+  /**
+   * Records a latency, split by priority and process.
+   *
+   * @param stage the measured stage
+   * @param priority the DAQ priority of the update
+   * @param processId the id of the process the update comes from, ignored if null
+   * @param latency the latency in microseconds
+   */
+  public void record(final LatencyStage stage, final int priority, final Long processId, final long latency) {
+    if (!enabled) {
+      return;
+    }
+    stages.get(stage).record(latency);
+    byPriority.get(stage).computeIfAbsent(priority, key -> new LatencyHistogram()).record(latency);
+    if (processId != null) {
+      byProcess.get(stage).computeIfAbsent(processId, key -> new LatencyHistogram()).record(latency);
+    }
+  }
+
+  /**
+   * @param stage the stage
+   * @return the latencies of all updates of the stage
+   */
+  public LatencyHistogram.Snapshot getSnapshot(final LatencyStage stage) {
+    return stages.get(stage).getSnapshot();
+  }
+
+  /**
+   * @param stage the stage
+   * @return the latencies of the stage, by DAQ priority
+   */
+  public Map<Integer, LatencyHistogram.Snapshot> getSnapshotByPriority(final LatencyStage stage) {
+    Map<Integer, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+    byPriority.get(stage).forEach((priority, histogram) -> snapshots.put(priority, histogram.getSnapshot()));
+    return snapshots;
+  }
+
+  /**
+   * @param stage the stage
+   * @return the latencies of the stage, by process id
+   */
+  public Map<Long, LatencyHistogram.Snapshot> getSnapshotByProcess(final LatencyStage stage) {
+    Map<Long, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+    byProcess.get(stage).forEach((processId, histogram) -> snapshots.put(processId, histogram.getSnapshot()));
+    return snapshots;
+  }
+
+  @ManagedOperation(description = "Percentile of the latency of a stage, in microseconds")
+  public long getPercentile(final String stage, final double percentile) {
+    return getSnapshot(LatencyStage.valueOf(stage)).getValueAtPercentile(percentile);
+  }
+
+  @ManagedOperation(description = "Latency percentiles of all stages")
+  public String getSummary() {
+    StringBuilder summary = new StringBuilder();
+    for (LatencyStage stage : LatencyStage.values()) {
+      summary.append(stage).append(" (").append(stage.getDescription()).append("): ")
+          .append(getSnapshot(stage)).append('\n');
+    }
+    return summary.toString();
+  }
+
+  @ManagedOperation(description = "Latency percentiles of a stage, by DAQ priority")
+  public String getSummaryByPriority(final String stage) {
+    StringBuilder summary = new StringBuilder();
+    getSnapshotByPriority(LatencyStage.valueOf(stage)).forEach((priority, snapshot) ->
+        summary.append("priority ").append(priority).append(": ").append(snapshot).append('\n'));
+    return summary.toString();
+  }
+
+  @ManagedOperation(description = "Latency percentiles of a stage, by process id")
+  public String getSummaryByProcess(final String stage) {
+    StringBuilder summary = new StringBuilder();
+    getSnapshotByProcess(LatencyStage.valueOf(stage)).forEach((processId, snapshot) ->
+        summary.append("process ").append(processId).append(": ").append(snapshot).append('\n'));
+    return summary.toString();
+  }
+
+  @ManagedOperation(description = "Clears all recorded latencies")
+  public void reset() {
+    for (LatencyStage stage : LatencyStage.values()) {
+      stages.get(stage).reset();
+      byPriority.get(stage).clear();
+      byProcess.get(stage).clear();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.latency;
+
+/**
+ * The stages of a tag update for which the latency is measured by the
+ * {@link LatencyMonitor}.
+ */
+public enum LatencyStage {
+
+  DAQ_SEND("Source timestamp to publication by the DAQ"),
+  JMS_RECEIVE("Publication by the DAQ to reception by the server"),
+  CACHE_UPDATE("Update of the cache with an incoming value"),
+  DAQ_TO_SERVER("Publication by the DAQ to update of the cache"),
+  RULE_EVALUATION("Evaluation of a rule"),
+  ALARM_EVALUATION("Evaluation of the alarms of a tag"),
+  CLIENT_PUBLISH("Update of the cache to publication to the clients"),
+  HISTORY_PERSIST("Update of the cache to storage in the history database"),
+  ELASTICSEARCH_PERSIST("Update of the cache to submission for indexing in Elasticsearch"),
+  END_TO_END("Publication by the DAQ to notification of the cache listeners");
+
+  private final String description;
+
+  LatencyStage(final String description) {
+    this.description = description;
+  }
+
+  /**
+   * @return what is measured for this stage
+   */
+  public String getDescription() {
+    return description;
+  }
+}
@@ -51,4 +51,19 @@ public class Metadata implements Serializable, Cloneable {
   public void removeMetadata(String key) {
     metadata.remove(key);
   }
+
+  /**
+   * The clone gets its own map; the metadata values themselves are shared.
+   */
+  @Override
+  public Metadata clone() {
+    try {
+      Metadata clone = (Metadata) super.clone();
+      clone.metadata = new HashMap<>(metadata);
+      return clone;
+    }
+    catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("Metadata is Cloneable", e);
+    }
+  }
 }
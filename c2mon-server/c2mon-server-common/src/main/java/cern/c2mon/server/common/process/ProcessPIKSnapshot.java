@@ -0,0 +1,68 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.process;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable view on the identification fields of a {@link Process} which are
+ * needed to validate incoming DAQ updates (id, name and PIK).
+ *
+ * <p>Snapshots can be shared freely between JMS consumer threads, so checking
+ * the PIK of an update does not require a lock on the Process cache object.
+ * A new snapshot must be published whenever the PIK of the Process changes.
+ */
+@Getter
+@ToString
+public final class ProcessPIKSnapshot {
+
+  private final Long processId;
+
+  private final String processName;
+
+  /**
+   * The PIK registered for the Process, or {@code null} if the Process is
+   * currently not connected
+   */
+  private final Long processPIK;
+
+  public ProcessPIKSnapshot(final Long processId, final String processName, final Long processPIK) {
+    this.processId = processId;
+    this.processName = processName;
+    this.processPIK = processPIK;
+  }
+
+  /**
+   * Creates a snapshot from the current state of the passed Process. The
+   * caller is responsible for holding at least a read lock on the Process.
+   *
+   * @param process the Process cache object
+   * @return a new snapshot
+   */
+  public static ProcessPIKSnapshot of(final Process process) {
+    return new ProcessPIKSnapshot(process.getId(), process.getName(), process.getProcessPIK());
+  }
+
+  /**
+   * @param processPIK the PIK sent with a DAQ update (may be {@code null})
+   * @return {@code true} if a PIK is registered and it equals the passed one
+   */
+  public boolean matches(final Long processPIK) {
+    return this.processPIK != null && this.processPIK.equals(processPIK);
+  }
+}
@@ -0,0 +1,155 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import cern.c2mon.server.common.config.C2monCacheName;
+import cern.c2mon.shared.common.type.TypeConverter;
+import cern.c2mon.shared.rule.RuleEvaluationException;
+import cern.c2mon.shared.rule.RuleExpression;
+import cern.c2mon.shared.rule.SimpleRuleExpression;
+import cern.c2mon.shared.rule.compiler.CompiledExpression;
+
+/**
+ * Position-indexed binding of the input tags of a rule.
+ *
+ * <p>Every input tag is assigned to a slot and the cache holding the tag is
+ * resolved once, when the binding is created. The rule evaluation can then
+ * fetch the input values by slot from the right cache, without building a map
+ * and without probing all tag caches for every input.
+ *
+ * <p>A binding is immutable and only valid for the {@link RuleExpression} it
+ * was created for. It is therefore dropped by the {@link RuleTag} whenever the
+ * rule text changes.
+ */
+public final class RuleInputBinding {
+
+  private final RuleExpression expression;
+
+  /** The compiled form of the expression, or null if not available */
+  private final CompiledExpression compiledExpression;
+
+  /** Input tag id of every slot */
+  private final Long[] inputTagIds;
+
+  /** Cache holding the input tag of every slot (null if unknown) */
+  private final C2monCacheName[] cacheNames;
+
+  private RuleInputBinding(final RuleExpression expression, final CompiledExpression compiledExpression,
+                           final Long[] inputTagIds, final C2monCacheName[] cacheNames) {
+    this.expression = expression;
+    this.compiledExpression = compiledExpression;
+    this.inputTagIds = inputTagIds;
+    this.cacheNames = cacheNames;
+  }
+
+  /**
+   * Creates the binding of the passed rule expression. If the expression can
+   * be compiled, the slots follow the numbering of the compiled expression;
+   * otherwise the order of {@link RuleExpression#getInputTagIds()}.
+   *
+   * @param expression the rule expression
+   * @param locator returns the cache holding a given input tag, or null if
+   *          the tag cannot be found in any cache
+   * @return a new binding
+   */
+  public static RuleInputBinding create(final RuleExpression expression, final Function<Long, C2monCacheName> locator) {
+    CompiledExpression compiled = null;
+    if (expression instanceof SimpleRuleExpression) {
+      compiled = ((SimpleRuleExpression) expression).getCompiledExpression();
+    }
+
+    Long[] inputTagIds;
+    if (compiled != null) {
+      inputTagIds = new Long[compiled.getInputCount()];
+      for (int slot = 0; slot < inputTagIds.length; slot++) {
+        inputTagIds[slot] = compiled.getInputTagId(slot);
+      }
+    } else {
+      inputTagIds = expression.getInputTagIds().toArray(new Long[0]);
+    }
+
+    C2monCacheName[] cacheNames = new C2monCacheName[inputTagIds.length];
+    for (int slot = 0; slot < inputTagIds.length; slot++) {
+      cacheNames[slot] = locator.apply(inputTagIds[slot]);
+    }
+    return new RuleInputBinding(expression, compiled, inputTagIds, cacheNames);
+  }
+
+  /**
+   * @return the rule expression this binding was created for
+   */
+  public RuleExpression getExpression() {
+    return this.expression;
+  }
+
+  /**
+   * @return the number of input slots
+   */
+  public int getInputCount() {
+    return this.inputTagIds.length;
+  }
+
+  /**
+   * @param slot the slot index
+   * @return the id of the input tag bound to the slot
+   */
+  public Long getInputTagId(final int slot) {
+    return this.inputTagIds[slot];
+  }
+
+  /**
+   * @param slot the slot index
+   * @return the cache holding the input tag of the slot, or null if the tag
+   *         could not be located when the binding was created
+   */
+  public C2monCacheName getCacheName(final int slot) {
+    return this.cacheNames[slot];
+  }
+
+  /**
+   * Evaluates the rule expression with the inputs passed by slot. The compiled
+   * expression is used whenever possible; all other cases are delegated to
+   * {@link RuleExpression#evaluate(Map, Class)}.
+   *
+   * @param inputs the input tags, indexed by slot
+   * @param resultType the class to which the rule result shall be casted
+   * @return the casted rule result
+   * @throws RuleEvaluationException in case of errors during the rule evaluation
+   */
+  public <T> T evaluate(final Object[] inputs, final Class<T> resultType) throws RuleEvaluationException {
+    if (this.compiledExpression != null) {
+      Object result = this.compiledExpression.evaluate(inputs, false);
+      if (result != null) {
+        try {
+          return TypeConverter.castToType(result, resultType);
+        } catch (ClassCastException ce) {
+          throw new RuleEvaluationException("Rule result cannot be converted to " + resultType.getName());
+        }
+      }
+    }
+
+    Map<Long, Object> inputsById = new HashMap<>(inputs.length * 2);
+    for (int slot = 0; slot < inputs.length; slot++) {
+      inputsById.put(this.inputTagIds[slot], inputs[slot]);
+    }
+    return this.expression.evaluate(inputsById, resultType);
+  }
+}
@@ -103,4 +103,20 @@ public interface RuleTag extends Tag, Cacheable {
    */
   Long getLowestProcessId();
 
+  /**
+   * Returns the position-indexed binding of the rule inputs, as last set by
+   * the rule evaluation. It is dropped whenever the rule text changes.
+   *
+   * @return the input binding, or null if none is set
+   */
+  RuleInputBinding getInputBinding();
+
+  /**
+   * Sets the binding of the rule inputs. The binding is not persisted and
+   * not distributed, it may therefore be lost at any time.
+   *
+   * @param inputBinding the new binding, or null to drop it
+   */
+  void setInputBinding(RuleInputBinding inputBinding);
+
 }
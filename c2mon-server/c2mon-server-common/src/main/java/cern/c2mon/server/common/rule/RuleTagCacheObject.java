@@ -55,6 +55,11 @@ public class RuleTagCacheObject extends AbstractTagCacheObject implements RuleTa
      */
     private RuleExpression ruleExpression;
 
+    /**
+     * Binding of the rule inputs to the tag caches, used by the rule evaluation.
+     */
+    private transient volatile RuleInputBinding inputBinding;
+
     /**
      * Reference to all the Equipments providing tags for this rule.
      */
@@ -129,13 +134,9 @@ public class RuleTagCacheObject extends AbstractTagCacheObject implements RuleTa
                 ruleTagCacheObject.parentProcesses.add(procId);
             }
         }
-        ruleTagCacheObject.ruleExpression = null;
-        if (this.ruleExpression != null && ruleText != null) {
-          // TODO: Test correct clone support to all rule objects and replace then again the statement
-//         ruleTagCacheObject.ruleExpression = (RuleExpression) this.ruleExpression.clone();
-          ruleTagCacheObject.setRuleText(ruleText);
-        }
-
+        // The parsed expression (and the input binding built on it) is never
+        // modified once created, so the clone shares it rather than parsing
+        // the rule text again
         return ruleTagCacheObject;
     }
 
@@ -178,6 +179,7 @@ public class RuleTagCacheObject extends AbstractTagCacheObject implements RuleTa
      */
     public void setRuleText(String ruleText) {
         this.ruleText = ruleText;
+        this.inputBinding = null;
 
         if (this.ruleText != null) {
             try {
@@ -191,6 +193,20 @@ public class RuleTagCacheObject extends AbstractTagCacheObject implements RuleTa
 
     }
 
+    @Override
+    public RuleInputBinding getInputBinding() {
+        RuleInputBinding binding = this.inputBinding;
+        if (binding != null && binding.getExpression() != ruleExpression) {
+            return null;
+        }
+        return binding;
+    }
+
+    @Override
+    public void setInputBinding(RuleInputBinding inputBinding) {
+        this.inputBinding = inputBinding;
+    }
+
     @Override
     public Timestamp getTimestamp() {
         return getCacheTimestamp();
@@ -235,6 +235,9 @@ public abstract class AbstractTagCacheObject implements DataTagConstants, Clonea
     if (cacheTimestamp != null) {
       cacheObject.cacheTimestamp = (Timestamp) cacheTimestamp.clone();
     }
+    if (metadata != null) {
+      cacheObject.metadata = metadata.clone();
+    }
     return cacheObject;
   }
 
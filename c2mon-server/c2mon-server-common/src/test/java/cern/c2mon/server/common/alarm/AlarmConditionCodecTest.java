@@ -0,0 +1,152 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.alarm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AlarmConditionCodecTest {
+
+  @Test
+  public void xmlIsCompatibleWithReflectiveEncoding() {
+    AlarmCondition[] conditions = new AlarmCondition[] {
+        new ValueAlarmCondition(Boolean.TRUE),
+        new ValueAlarmCondition("DOWN"),
+        new RangeAlarmCondition(3.5f, 7.25f),
+        new RangeAlarmCondition(null, 100L)
+    };
+    for (AlarmCondition condition : conditions) {
+      String xml = condition.toConfigXML();
+      assertEquals(condition.toConfigXMLWithReflection(), xml);
+      assertEquals(condition, AlarmCondition.fromConfigXML(xml));
+      assertEquals(condition, AlarmCondition.fromConfigXMLWithReflection(xml));
+    }
+  }
+
+  @Test
+  public void readStoredXml() {
+    String xml = "<AlarmCondition class=\"cern.c2mon.server.common.alarm.RangeAlarmCondition\">\n"
+        + "  <min-value type=\"Integer\">10</min-value>\n"
+        + "  <max-value type=\"java.lang.Integer\">20</max-value>\n"
+        + "</AlarmCondition>";
+
+    AlarmCondition condition = AlarmConditionCodec.fromXML(xml);
+
+    assertEquals(new RangeAlarmCondition(10, 20), condition);
+    assertEquals(AlarmCondition.ACTIVE, condition.evaluateState(15));
+    assertEquals(AlarmCondition.TERMINATE, condition.evaluateState(21));
+  }
+
+  @Test
+  public void specialCharactersAreEscaped() {
+    ValueAlarmCondition condition = new ValueAlarmCondition("a < b && c > d");
+
+    assertEquals(condition, AlarmConditionCodec.fromXML(AlarmConditionCodec.toXML(condition)));
+  }
+
+  @Test
+  public void enumValues() {
+    AlarmCondition condition = AlarmConditionCodec.fromXML("<AlarmCondition class=\"cern.c2mon.server.common.alarm.ValueAlarmCondition\">"
+        + "<alarm-value type=\"String\">DOWN</alarm-value></AlarmCondition>");
+
+    assertEquals(AlarmCondition.ACTIVE, condition.evaluateState(SupervisionStatus.DOWN));
+    assertEquals(AlarmCondition.TERMINATE, condition.evaluateState(SupervisionStatus.RUNNING));
+    assertEquals(AlarmCondition.ACTIVE, condition.evaluateState(SupervisionStatus.DOWN));
+  }
+
+  @Test
+  public void binaryRoundTrip() {
+    AlarmCondition[] conditions = new AlarmCondition[] {
+        new ValueAlarmCondition(Boolean.FALSE),
+        new ValueAlarmCondition((short) 3),
+        new ValueAlarmCondition("\u00e9tat"),
+        new RangeAlarmCondition(1.5d, null),
+        new RangeAlarmCondition((byte) 1, (byte) 2),
+        new RangeAlarmCondition(-5L, 5L)
+    };
+    for (AlarmCondition condition : conditions) {
+      assertTrue(AlarmConditionCodec.isEncodable(condition));
+      assertEquals(condition, AlarmConditionCodec.decode(AlarmConditionCodec.encode(condition)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decodeRejectsTruncatedBytes() {
+    byte[] bytes = AlarmConditionCodec.encode(new ValueAlarmCondition(42L));
+    byte[] truncated = new byte[bytes.length - 1];
+    System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+    AlarmConditionCodec.decode(truncated);
+  }
+
+  @Test
+  public void javaSerializationUsesBinaryForm() throws Exception {
+    RangeAlarmCondition condition = new RangeAlarmCondition(0.0f, 1.0f);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream stream = new ObjectOutputStream(out)) {
+      stream.writeObject(condition);
+    }
+    Object read;
+    try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      read = stream.readObject();
+    }
+
+    assertEquals(condition, read);
+  }
+
+  @Test
+  public void otherConditionsUseReflection() {
+    TestCondition condition = new TestCondition();
+    condition.threshold = 12;
+    assertFalse(AlarmConditionCodec.isEncodable(condition));
+
+    AlarmCondition read = AlarmCondition.fromConfigXML(condition.toConfigXML());
+
+    assertTrue(read instanceof TestCondition);
+    assertEquals(Integer.valueOf(12), ((TestCondition) read).threshold);
+  }
+
+  public static class TestCondition extends AlarmCondition {
+
+    private static final long serialVersionUID = 1L;
+
+    protected Integer threshold;
+
+    @Override
+    public String evaluateState(final Object value) {
+      return threshold.equals(value) ? ACTIVE : TERMINATE;
+    }
+
+    @Override
+    public Object clone() {
+      TestCondition clone = new TestCondition();
+      clone.threshold = threshold;
+      return clone;
+    }
+  }
+}
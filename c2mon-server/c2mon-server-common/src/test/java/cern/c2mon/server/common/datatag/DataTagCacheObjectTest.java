@@ -0,0 +1,58 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.datatag;
+
+import java.sql.Timestamp;
+
+import org.junit.Test;
+
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class DataTagCacheObjectTest {
+
+  @Test
+  public void cloneCopiesMutableState() throws CloneNotSupportedException {
+    Timestamp timestamp = new Timestamp(1000L);
+    DataTagCacheObject tag = new DataTagCacheObject(1L, "tag", Double.class.getName(), (short) 0);
+    tag.setValue(1.0d);
+    tag.setDataTagQuality(new DataTagQualityImpl());
+    tag.setSourceTimestamp(new Timestamp(timestamp.getTime()));
+    tag.setDaqTimestamp(new Timestamp(timestamp.getTime()));
+    tag.setCacheTimestamp(new Timestamp(timestamp.getTime()));
+    tag.getAlarmIds().add(10L);
+    tag.getMetadata().addMetadata("building", "864");
+
+    DataTagCacheObject clone = tag.clone();
+    tag.getSourceTimestamp().setTime(2000L);
+    tag.getDaqTimestamp().setTime(2000L);
+    tag.getCacheTimestamp().setTime(2000L);
+    tag.getAlarmIds().add(11L);
+    tag.getMetadata().addMetadata("floor", "2");
+
+    assertEquals(timestamp, clone.getSourceTimestamp());
+    assertEquals(timestamp, clone.getDaqTimestamp());
+    assertEquals(timestamp, clone.getCacheTimestamp());
+    assertEquals(1, clone.getAlarmIds().size());
+    assertEquals(1, clone.getMetadata().getMetadata().size());
+    assertNotSame(tag.getDataTagQuality(), clone.getDataTagQuality());
+    assertTrue(tag.getValue() == clone.getValue());
+  }
+}
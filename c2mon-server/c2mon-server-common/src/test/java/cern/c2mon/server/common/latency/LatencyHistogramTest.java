@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.latency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void bucketsCoverAllValues() {
+    for (long value = 0; value < 1_000_000; value++) {
+      int bucket = LatencyHistogram.bucketIndex(value);
+      assertTrue(value <= LatencyHistogram.highestValueOf(bucket));
+      assertTrue(bucket == 0 || value > LatencyHistogram.highestValueOf(bucket - 1));
+    }
+  }
+
+  @Test
+  public void smallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int value = 1; value <= 10; value++) {
+      histogram.record(value);
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    assertEquals(10, snapshot.getCount());
+    assertEquals(5.5, snapshot.getMean(), 0.0001);
+    assertEquals(5, snapshot.getValueAtPercentile(50));
+    assertEquals(9, snapshot.getValueAtPercentile(90));
+    assertEquals(10, snapshot.getValueAtPercentile(100));
+    assertEquals(10, snapshot.getMax());
+  }
+
+  @Test
+  public void percentilesAreWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Random random = new Random(42);
+    List<Long> values = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      long value = (long) Math.exp(random.nextDouble() * 15);
+      values.add(value);
+      histogram.record(value);
+    }
+    values.sort(null);
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    for (double percentile : new double[] {50, 90, 99, 99.9}) {
+      long expected = values.get((int) Math.ceil(percentile / 100 * values.size()) - 1);
+      long actual = snapshot.getValueAtPercentile(percentile);
+      assertTrue(percentile + ": " + actual + " instead of " + expected,
+          actual >= expected && actual <= expected + expected / 16 + 1);
+    }
+  }
+
+  @Test
+  public void outOfRangeValuesAreBounded() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    assertEquals(2, snapshot.getCount());
+    assertEquals(0, snapshot.getValueAtPercentile(50));
+    assertEquals(LatencyHistogram.MAX_TRACKABLE_VALUE, snapshot.getMax());
+    assertEquals(LatencyHistogram.MAX_TRACKABLE_VALUE, snapshot.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void concurrentRecording() throws InterruptedException {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        for (int value = 0; value < 10_000; value++) {
+          histogram.record(value);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(40_000, histogram.getSnapshot().getCount());
+    assertEquals(9_999, histogram.getSnapshot().getMax());
+
+    histogram.reset();
+    assertEquals(0, histogram.getSnapshot().getCount());
+  }
+}
@@ -0,0 +1,104 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import cern.c2mon.server.common.config.C2monCacheName;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.shared.rule.RuleEvaluationException;
+import cern.c2mon.shared.rule.RuleExpression;
+import cern.c2mon.shared.rule.RuleFormatException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RuleInputBindingTest {
+
+  @Test
+  public void slotsFollowTheOrderOfTheExpression() throws RuleFormatException {
+    RuleInputBinding binding = RuleInputBinding.create(RuleExpression.createExpression("(#3 = 1) & (#1 > #3) [2], true [3]"),
+        id -> id == 3L ? C2monCacheName.RULETAG : C2monCacheName.DATATAG);
+
+    assertEquals(2, binding.getInputCount());
+    assertEquals(Long.valueOf(3L), binding.getInputTagId(0));
+    assertEquals(Long.valueOf(1L), binding.getInputTagId(1));
+    assertEquals(C2monCacheName.RULETAG, binding.getCacheName(0));
+    assertEquals(C2monCacheName.DATATAG, binding.getCacheName(1));
+  }
+
+  @Test
+  public void unknownInputHasNoCache() throws RuleFormatException {
+    RuleInputBinding binding = RuleInputBinding.create(RuleExpression.createExpression("#1 + #2"),
+        id -> id == 1L ? C2monCacheName.CONTROLTAG : null);
+
+    assertEquals(C2monCacheName.CONTROLTAG, binding.getCacheName(0));
+    assertNull(binding.getCacheName(1));
+  }
+
+  @Test
+  public void evaluateSimpleRule() throws RuleFormatException, RuleEvaluationException {
+    RuleExpression expression = RuleExpression.createExpression("#10 + #20 * 2");
+    RuleInputBinding binding = RuleInputBinding.create(expression, id -> C2monCacheName.DATATAG);
+    Object[] inputs = new Object[] {createTag(10L, 1.5d, true), createTag(20L, 2, true)};
+
+    assertEquals(Double.valueOf(5.5d), binding.evaluate(inputs, Double.class));
+    assertEquals(expression.evaluate(toMap(inputs), Float.class), binding.evaluate(inputs, Float.class));
+  }
+
+  @Test
+  public void evaluateRuleWithInvalidInput() throws RuleFormatException, RuleEvaluationException {
+    RuleExpression expression = RuleExpression.createExpression("(#10 = 1) | (#20 = 1) [1], true [0]");
+    RuleInputBinding binding = RuleInputBinding.create(expression, id -> C2monCacheName.DATATAG);
+    Object[] inputs = new Object[] {createTag(10L, 1, true), createTag(20L, 0, false)};
+
+    assertEquals(expression.evaluate(toMap(inputs), Integer.class), binding.evaluate(inputs, Integer.class));
+  }
+
+  @Test
+  public void evaluateConditionedRule() throws RuleFormatException, RuleEvaluationException {
+    RuleExpression expression = RuleExpression.createExpression("(#10 < 5) & (#20 = true) [1], (#10 >= 5) [2], true [3]");
+    RuleInputBinding binding = RuleInputBinding.create(expression, id -> C2monCacheName.DATATAG);
+    Object[] inputs = new Object[binding.getInputCount()];
+    for (int slot = 0; slot < inputs.length; slot++) {
+      Long id = binding.getInputTagId(slot);
+      inputs[slot] = createTag(id, id == 10L ? (Object) 7 : (Object) Boolean.TRUE, true);
+    }
+
+    assertEquals(Integer.valueOf(2), binding.evaluate(inputs, Integer.class));
+  }
+
+  private static DataTagCacheObject createTag(final Long id, final Object value, final boolean valid) {
+    DataTagCacheObject tag = new DataTagCacheObject(id);
+    tag.setValue(value);
+    if (valid) {
+      tag.getDataTagQuality().validate();
+    }
+    return tag;
+  }
+
+  private static Map<Long, Object> toMap(final Object[] inputs) {
+    Map<Long, Object> map = new HashMap<>();
+    for (Object input : inputs) {
+      map.put(((DataTagCacheObject) input).getId(), input);
+    }
+    return map;
+  }
+}
@@ -0,0 +1,39 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.rule;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class RuleTagCacheObjectTest {
+
+  @Test
+  public void cloneSharesTheParsedExpression() throws CloneNotSupportedException {
+    RuleTagCacheObject ruleTag = new RuleTagCacheObject(1L, "rule", Boolean.class.getName(), (short) 0,
+        "(#10 = 1) | (#20 = 1) [1], true [0]");
+    assertNotNull(ruleTag.getRuleExpression());
+
+    RuleTagCacheObject clone = ruleTag.clone();
+
+    assertSame(ruleTag.getRuleExpression(), clone.getRuleExpression());
+    assertEquals(ruleTag.getRuleText(), clone.getRuleText());
+    assertEquals(2, clone.getRuleInputTagIds().size());
+  }
+}
@@ -47,13 +47,17 @@ public interface ConfigProgressMonitor {
    * Will be called when all changes are done on the server before sending
    * to the DAQ layer.
    *
+   * <p>There is one part per DAQ request: one per process, or more for a
+   * process whose changes are sent in several chunks.
+   *
    * @param nbParts total number of DAQ callbacks
    */
   void daqTotalParts(int nbParts);
 
   /**
    * Called when DAQ part completed. If daqTotalParts(n) is called beforehand,
-   * this method will be called n times.
+   * this method will be called n times (unless the configuration is cancelled).
+   * Parts complete in the order the DAQs reply.
    */
   void incrementDaqProgress();
 
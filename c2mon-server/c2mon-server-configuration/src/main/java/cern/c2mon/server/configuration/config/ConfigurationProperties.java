@@ -13,6 +13,18 @@ public class ConfigurationProperties {
 
   private boolean allowRunningProcessRemoval = true;
 
+  /**
+   * Maximum number of DAQs reconfigured at the same time
+   */
+  private int daqConfigParallelism = 16;
+
+  /**
+   * Maximum number of changes sent to a DAQ in a single reconfiguration
+   * request. Larger change sets are split and sent one chunk after the other
+   * (0 = never split)
+   */
+  private int daqConfigChunkSize = 1000;
+
   /**
    * JDBC properties
    */
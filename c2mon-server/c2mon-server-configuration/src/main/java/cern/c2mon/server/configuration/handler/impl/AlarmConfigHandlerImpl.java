@@ -81,6 +81,7 @@ public class AlarmConfigHandlerImpl implements AlarmConfigHandler {
       AlarmCacheObject alarm = (AlarmCacheObject) alarmCache.getCopy(alarmId);
       alarmConfigTransacted.doRemoveAlarm(alarmId, alarmReport);
       alarmCache.remove(alarmId); //will be skipped if rollback exception thrown in do method
+      alarmFacade.removeCompiledConditions(alarm.getTagId());
         
       alarm.setState(AlarmCondition.TERMINATE);
       alarm.setInfo("Alarm was removed");
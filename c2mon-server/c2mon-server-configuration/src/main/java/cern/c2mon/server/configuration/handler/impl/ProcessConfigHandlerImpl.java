@@ -152,6 +152,7 @@ public class ProcessConfigHandlerImpl implements ProcessConfigHandler {
           processFacade.removeAliveTimer(processId);
           jmsContainerManager.unsubscribe(process);
           processCache.remove(processId);
+          processFacade.invalidatePIKSnapshot(processId);
          }
         return processChange;
       } catch (RuntimeException ex) {
@@ -144,6 +144,7 @@ public class ProcessConfigTransactedImpl implements ProcessConfigTransacted {
       processFacade.updateConfig(processCopy, properties);
       processDAO.updateConfig(processCopy);
       processCache.put(id, processCopy);
+      processFacade.invalidatePIKSnapshot(id);
     }
     finally {
       processCache.releaseWriteLockOnKey(id);
@@ -23,6 +23,11 @@ import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import lombok.extern.slf4j.Slf4j;
 import org.simpleframework.xml.Serializer;
@@ -33,6 +38,7 @@ import org.simpleframework.xml.transform.RegistryMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
+import org.springframework.util.CustomizableThreadFactory;
 
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.ProcessCache;
@@ -47,6 +53,7 @@ import cern.c2mon.server.configuration.handler.*;
 import cern.c2mon.server.configuration.handler.impl.CommandTagConfigHandler;
 import cern.c2mon.server.configuration.parser.ConfigurationParser;
 import cern.c2mon.server.daq.JmsContainerManager;
+import cern.c2mon.server.daq.config.DaqProperties;
 import cern.c2mon.server.daq.out.ProcessCommunicationManager;
 import cern.c2mon.shared.client.configuration.*;
 import cern.c2mon.shared.client.configuration.ConfigConstants.Action;
@@ -129,6 +136,21 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
    */
   private boolean daqConfigEnabled;
 
+  /**
+   * Maximum number of DAQs reconfigured at the same time.
+   */
+  private final int daqConfigParallelism;
+
+  /**
+   * Maximum number of changes sent to a DAQ in a single request.
+   */
+  private int daqConfigChunkSize;
+
+  /**
+   * Time in milliseconds a DAQ has to reply to a single request.
+   */
+  private final long daqConfigTimeout;
+
   /**
    * The directory name in C2MON home where the configreports will be saved.
    */
@@ -165,6 +187,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
                                  ConfigurationParser configParser,
                                  SequenceDAO sequenceDAO,
                                  ConfigurationProperties properties,
+                                 DaqProperties daqProperties,
                                  ServerProperties serverProperties) {
     super();
     this.processCommunicationManager = processCommunicationManager;
@@ -185,6 +208,9 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
     this.configParser = configParser;
     this.sequenceDAO = sequenceDAO;
     this.daqConfigEnabled = properties.isDaqConfigEnabled();
+    this.daqConfigParallelism = Math.max(1, properties.getDaqConfigParallelism());
+    this.daqConfigChunkSize = properties.getDaqConfigChunkSize();
+    this.daqConfigTimeout = daqProperties.getJms().getConfigurationTimeout();
     this.reportDirectory = serverProperties.getHome() + "/reports";
   }
 
@@ -333,66 +359,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
 
     //send events to Process if enabled, convert the responses and introduce them into the existing report; else set all DAQs to restart
     if (daqConfigEnabled) {
-      if (configProgressMonitor != null){
-        configProgressMonitor.daqTotalParts(processLists.size());
-        configProgressMonitor.resetCounter();
-      }
-
-      log.info(configId + " Reconfiguring " + processLists.keySet().size()+ " processes ...");
-
-      for (Long processId : processLists.keySet()) {
-        if (!cancelRequested){
-          List<Change> processChangeEvents = processLists.get(processId);
-          if (processFacade.isRunning(processId) && !processFacade.isRebootRequired(processId)) {
-            try {
-              log.trace(configId + " Sending " + processChangeEvents.size() + " change events to process " + processId + "...");
-              ConfigurationChangeEventReport processReport = processCommunicationManager.sendConfiguration(processId, processChangeEvents);
-              if (!processReport.getChangeReports().isEmpty()) {
-
-                log.trace(configId + " Received " + processReport.getChangeReports().size() + " back from process.");
-              } else {
-                log.trace(configId + " Received 0 reports back from process");
-              }
-              for (ChangeReport changeReport : processReport.getChangeReports()) {
-                ConfigurationElementReport convertedReport =
-                  ConfigurationReportConverter.fromProcessReport(changeReport, daqReportPlaceholder.get(changeReport.getChangeId()));
-                daqReportPlaceholder.get(changeReport.getChangeId()).addSubReport(convertedReport);
-                //if change report has REBOOT status, mark this DAQ for a reboot in the configuration
-                if (changeReport.isReboot()) {
-                  report.addProcessToReboot(processCache.get(processId).getName());
-                  elementPlaceholder.get(changeReport.getChangeId()).setDaqStatus(Status.RESTART);
-                  //TODO set flag & tag to indicate that process restart is needed
-                } else if (changeReport.isFail()) {
-                  log.debug(configId + " changeRequest failed at process " + processCache.get(processId).getName());
-                  report.addStatus(Status.FAILURE);
-                  report.setStatusDescription("Failed to apply the configuration successfully. See details in the report below.");
-                  elementPlaceholder.get(changeReport.getChangeId()).setDaqStatus(Status.FAILURE);
-                } else { //success, override default failure
-                  if (elementPlaceholder.get(changeReport.getChangeId()).getDaqStatus().equals(Status.RESTART)) {
-                    elementPlaceholder.get(changeReport.getChangeId()).setDaqStatus(Status.OK);
-                  }
-                }
-              }
-            } catch (Exception e) {
-              String errorMessage = "Error during DAQ reconfiguration: unsuccessful application of configuration (possible timeout) to Process " + processCache.get(processId).getName();
-              log.error(errorMessage, e);
-              processFacade.requiresReboot(processId, true);
-              report.addProcessToReboot(processCache.get(processId).getName());
-              report.addStatus(Status.FAILURE);
-              report.setStatusDescription(report.getStatusDescription() + errorMessage + "\n");
-            }
-          } else {
-            processFacade.requiresReboot(processId, true);
-            report.addProcessToReboot(processCache.get(processId).getName());
-            report.addStatus(Status.RESTART);
-          }
-          if (configProgressMonitor != null) {
-            configProgressMonitor.incrementDaqProgress();
-          }
-        } else {
-          log.info("Interrupting configuration " + configId + " due to cancel request.");
-        }
-      }
+      reconfigureProcesses(configId, processLists, elementPlaceholder, daqReportPlaceholder, report, configProgressMonitor);
     } else {
       log.debug("DAQ runtime reconfiguration not enabled - setting required restart flags");
       if (!processLists.isEmpty()){
@@ -418,6 +385,244 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
     return report;
   }
 
+  /**
+   * Sends the changes to the DAQs and merges their reports into the
+   * configuration report.
+   *
+   * <p>Up to {@code daqConfigParallelism} DAQs are reconfigured at the same
+   * time. The changes of a DAQ are sent in chunks of at most
+   * {@code daqConfigChunkSize} changes, one chunk after the other, so the DAQ
+   * applies them incrementally and in order. The replies are merged on the
+   * calling thread as they arrive, and each chunk counts as one DAQ progress
+   * part.
+   *
+   * <p>The wait for the replies is bounded by the DAQ configuration timeout
+   * multiplied by the number of chunks sent. The DAQs which have not replied
+   * by then are marked for a reboot.
+   */
+  private void reconfigureProcesses(final int configId, final Map<Long, List<Change>> processLists,
+                                    final Map<Long, ConfigurationElement> elementPlaceholder,
+                                    final Map<Long, ConfigurationElementReport> daqReportPlaceholder,
+                                    final ConfigurationReport report,
+                                    final ConfigProgressMonitor configProgressMonitor) {
+    Map<Long, List<List<Change>>> processChunks = new LinkedHashMap<>();
+    int totalParts = 0;
+    for (Map.Entry<Long, List<Change>> processList : processLists.entrySet()) {
+      List<List<Change>> chunks = splitIntoChunks(processList.getValue());
+      processChunks.put(processList.getKey(), chunks);
+      totalParts += chunks.size();
+    }
+
+    if (configProgressMonitor != null){
+      configProgressMonitor.daqTotalParts(totalParts);
+      configProgressMonitor.resetCounter();
+    }
+
+    log.info(configId + " Reconfiguring " + processLists.keySet().size()+ " processes ...");
+
+    BlockingQueue<DaqReply> replies = new LinkedBlockingQueue<>();
+    ExecutorService executor = null;
+    Map<Long, Integer> pendingParts = new HashMap<>();
+    try {
+      for (Map.Entry<Long, List<List<Change>>> entry : processChunks.entrySet()) {
+        Long processId = entry.getKey();
+        if (cancelRequested) {
+          log.info("Interrupting configuration " + configId + " due to cancel request.");
+          continue;
+        }
+        if (processFacade.isRunning(processId) && !processFacade.isRebootRequired(processId)) {
+          if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.min(daqConfigParallelism, processChunks.size()),
+                new CustomizableThreadFactory("DaqReconfiguration-"));
+          }
+          executor.execute(new ProcessReconfigurationTask(configId, processId, entry.getValue(), replies));
+          pendingParts.put(processId, entry.getValue().size());
+        } else {
+          processFacade.requiresReboot(processId, true);
+          report.addProcessToReboot(processCache.get(processId).getName());
+          report.addStatus(Status.RESTART);
+          incrementDaqProgress(configProgressMonitor, entry.getValue().size());
+        }
+      }
+
+      int sentParts = 0;
+      for (Integer parts : pendingParts.values()) {
+        sentParts += parts;
+      }
+      long deadline = System.currentTimeMillis() + daqConfigTimeout * sentParts;
+
+      while (!pendingParts.isEmpty()) {
+        DaqReply reply = replies.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        if (reply == null) {
+          for (Map.Entry<Long, Integer> pending : pendingParts.entrySet()) {
+            reportDaqFailure(pending.getKey(), "Error during DAQ reconfiguration: no reply within " + daqConfigTimeout * sentParts
+                + "ms from Process " + processCache.get(pending.getKey()).getName(), null, report);
+            incrementDaqProgress(configProgressMonitor, pending.getValue());
+          }
+          break;
+        }
+        int remainingParts = pendingParts.get(reply.processId) - reply.parts;
+        if (remainingParts > 0) {
+          pendingParts.put(reply.processId, remainingParts);
+        } else {
+          pendingParts.remove(reply.processId);
+        }
+
+        if (reply.processReport != null) {
+          mergeProcessReport(configId, reply.processId, reply.processReport, elementPlaceholder, daqReportPlaceholder, report);
+          incrementDaqProgress(configProgressMonitor, reply.parts);
+        } else if (reply.exception != null) {
+          reportDaqFailure(reply.processId, "Error during DAQ reconfiguration: unsuccessful application of configuration (possible timeout) to Process "
+              + processCache.get(reply.processId).getName(), reply.exception, report);
+          incrementDaqProgress(configProgressMonitor, reply.parts);
+        } else {
+          log.info("Interrupting configuration " + configId + " of process " + reply.processId + " due to cancel request.");
+        }
+      }
+    } catch (InterruptedException e) {
+      log.error(configId + " Interrupted while waiting for the DAQ reconfiguration replies", e);
+      Thread.currentThread().interrupt();
+      report.addStatus(Status.FAILURE);
+      report.setStatusDescription(report.getStatusDescription() + "Interrupted while waiting for the DAQ reconfiguration replies\n");
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Marks a DAQ whose reconfiguration failed for a reboot and records the
+   * failure in the configuration report.
+   */
+  private void reportDaqFailure(final Long processId, final String errorMessage, final Throwable cause, final ConfigurationReport report) {
+    log.error(errorMessage, cause);
+    processFacade.requiresReboot(processId, true);
+    report.addProcessToReboot(processCache.get(processId).getName());
+    report.addStatus(Status.FAILURE);
+    report.setStatusDescription(report.getStatusDescription() + errorMessage + "\n");
+  }
+
+  /**
+   * Converts the reply of a DAQ to a configuration chunk and introduces it
+   * into the configuration report.
+   */
+  private void mergeProcessReport(final int configId, final Long processId, final ConfigurationChangeEventReport processReport,
+                                  final Map<Long, ConfigurationElement> elementPlaceholder,
+                                  final Map<Long, ConfigurationElementReport> daqReportPlaceholder,
+                                  final ConfigurationReport report) {
+    if (!processReport.getChangeReports().isEmpty()) {
+
+      log.trace(configId + " Received " + processReport.getChangeReports().size() + " back from process.");
+    } else {
+      log.trace(configId + " Received 0 reports back from process");
+    }
+    for (ChangeReport changeReport : processReport.getChangeReports()) {
+      ConfigurationElementReport convertedReport =
+        ConfigurationReportConverter.fromProcessReport(changeReport, daqReportPlaceholder.get(changeReport.getChangeId()));
+      daqReportPlaceholder.get(changeReport.getChangeId()).addSubReport(convertedReport);
+      //if change report has REBOOT status, mark this DAQ for a reboot in the configuration
+      if (changeReport.isReboot()) {
+        report.addProcessToReboot(processCache.get(processId).getName());
+        elementPlaceholder.get(changeReport.getChangeId()).setDaqStatus(Status.RESTART);
+        //TODO set flag & tag to indicate that process restart is needed
+      } else if (changeReport.isFail()) {
+        log.debug(configId + " changeRequest failed at process " + processCache.get(processId).getName());
+        report.addStatus(Status.FAILURE);
+        report.setStatusDescription("Failed to apply the configuration successfully. See details in the report below.");
+        elementPlaceholder.get(changeReport.getChangeId()).setDaqStatus(Status.FAILURE);
+      } else { //success, override default failure
+        if (elementPlaceholder.get(changeReport.getChangeId()).getDaqStatus().equals(Status.RESTART)) {
+          elementPlaceholder.get(changeReport.getChangeId()).setDaqStatus(Status.OK);
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits the changes of a DAQ into chunks of at most daqConfigChunkSize
+   * changes, keeping their order.
+   */
+  private List<List<Change>> splitIntoChunks(final List<Change> changes) {
+    if (daqConfigChunkSize <= 0 || changes.size() <= daqConfigChunkSize) {
+      return Collections.singletonList(changes);
+    }
+    List<List<Change>> chunks = new ArrayList<>();
+    for (int from = 0; from < changes.size(); from += daqConfigChunkSize) {
+      chunks.add(new ArrayList<>(changes.subList(from, Math.min(from + daqConfigChunkSize, changes.size()))));
+    }
+    return chunks;
+  }
+
+  private static void incrementDaqProgress(final ConfigProgressMonitor configProgressMonitor, final int parts) {
+    if (configProgressMonitor != null) {
+      for (int i = 0; i < parts; i++) {
+        configProgressMonitor.incrementDaqProgress();
+      }
+    }
+  }
+
+  /**
+   * Sends the chunks of changes of one DAQ, one after the other, and posts
+   * a reply per chunk. After a failure or a cancel request, the remaining
+   * chunks are not sent and are covered by the last reply.
+   */
+  private class ProcessReconfigurationTask implements Runnable {
+
+    private final int configId;
+    private final Long processId;
+    private final List<List<Change>> chunks;
+    private final BlockingQueue<DaqReply> replies;
+
+    ProcessReconfigurationTask(int configId, Long processId, List<List<Change>> chunks, BlockingQueue<DaqReply> replies) {
+      this.configId = configId;
+      this.processId = processId;
+      this.chunks = chunks;
+      this.replies = replies;
+    }
+
+    @Override
+    public void run() {
+      for (int i = 0; i < chunks.size(); i++) {
+        int remainingParts = chunks.size() - i;
+        if (cancelRequested) {
+          replies.add(new DaqReply(processId, remainingParts, null, null));
+          return;
+        }
+        List<Change> chunk = chunks.get(i);
+        try {
+          log.trace(configId + " Sending " + chunk.size() + " change events to process " + processId
+              + " (chunk " + (i + 1) + "/" + chunks.size() + ")...");
+          replies.add(new DaqReply(processId, 1, processCommunicationManager.sendConfiguration(processId, chunk), null));
+        } catch (Throwable t) {
+          replies.add(new DaqReply(processId, remainingParts, null, t));
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Outcome of sending one or more chunks of changes to a DAQ: its report,
+   * the exception that prevented it, or neither if the configuration was
+   * cancelled.
+   */
+  private static final class DaqReply {
+
+    private final Long processId;
+    /** Number of chunks covered by this reply */
+    private final int parts;
+    private final ConfigurationChangeEventReport processReport;
+    private final Throwable exception;
+
+    DaqReply(Long processId, int parts, ConfigurationChangeEventReport processReport, Throwable exception) {
+      this.processId = processId;
+      this.parts = parts;
+      this.processReport = processReport;
+      this.exception = exception;
+    }
+  }
+
   /**
    * Determine if the configuration can be applied in parallel.
    *
@@ -644,6 +849,13 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
     this.daqConfigEnabled = daqConfigEnabled;
   }
 
+  /**
+   * @param daqConfigChunkSize the maximum number of changes sent to a DAQ in a single request (0 = never split)
+   */
+  public void setDaqConfigChunkSize(final int daqConfigChunkSize) {
+    this.daqConfigChunkSize = daqConfigChunkSize;
+  }
+
   /**
    * Set the (absolute) directory where the config reports should be saved.
    * @param reportDirectory report directory
@@ -39,10 +39,12 @@ import cern.c2mon.server.common.subequipment.SubEquipment;
 import cern.c2mon.server.common.subequipment.SubEquipmentCacheObject;
 import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.server.configuration.config.ConfigurationModule;
+import cern.c2mon.server.configuration.config.ConfigurationProperties;
 import cern.c2mon.server.configuration.config.ProcessCommunicationManagerMock;
 import cern.c2mon.server.configuration.junit.ConfigurationCachePopulationRule;
 import cern.c2mon.server.configuration.junit.ConfigurationDatabasePopulationRule;
 import cern.c2mon.server.configuration.helper.ObjectEqualityComparison;
+import cern.c2mon.server.configuration.impl.ConfigurationLoaderImpl;
 import cern.c2mon.server.daq.JmsContainerManager;
 import cern.c2mon.server.daq.config.DaqModule;
 import cern.c2mon.server.daq.update.JmsContainerManagerImpl;
@@ -69,6 +71,9 @@ import cern.c2mon.shared.daq.config.Change;
 import cern.c2mon.shared.daq.config.ChangeReport;
 import cern.c2mon.shared.daq.config.ChangeReport.CHANGE_STATE;
 import cern.c2mon.shared.daq.config.ConfigurationChangeEventReport;
+import cern.c2mon.shared.daq.config.DataTagUpdate;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.*;
@@ -82,6 +87,7 @@ import javax.xml.transform.TransformerException;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
@@ -207,6 +213,9 @@ public class ConfigurationLoaderTest {
   @Autowired
   private JmsContainerManagerImpl jmsContainerManager;
 
+  @Autowired
+  private ConfigurationProperties configurationProperties;
+
   /**
    * Clears DB of failed previous tests and resets the mock before each test.
    *
@@ -227,6 +236,8 @@ public class ConfigurationLoaderTest {
     // DefaultMessageListenerContainers inside will keep trying to connect to
     // a JMS broker (which will not be running)
     jmsContainerManager.stop();
+
+    ((ConfigurationLoaderImpl) configurationLoader).setDaqConfigChunkSize(configurationProperties.getDaqConfigChunkSize());
   }
 
   @Test
@@ -1415,4 +1426,162 @@ public class ConfigurationLoaderTest {
     processList = converter.convert(list);
     assertTrue(processList.size() == 0);
   }
+
+  /**
+   * The changes of a DAQ are sent in chunks, one after the other and in the
+   * order of the configuration.
+   */
+  @Test
+  public void testDaqChangesSentInOrderedChunks() {
+    ((ConfigurationLoaderImpl) configurationLoader).setDaqConfigChunkSize(2);
+    Capture<List<Change>> chunks = newCapture(CaptureType.ALL);
+    expect(mockManager.sendConfiguration(eq(50L), capture(chunks))).andAnswer(reportChanges(CHANGE_STATE.SUCCESS)).times(3);
+    replay(mockManager);
+
+    ConfigurationReport report = configurationLoader.applyConfiguration(40);
+
+    assertEquals(Status.OK, report.getStatus());
+    assertTrue(report.getProcessesToReboot().isEmpty());
+    assertEquals(3, chunks.getValues().size());
+    assertEquals(2, chunks.getValues().get(0).size());
+    assertEquals(2, chunks.getValues().get(1).size());
+    assertEquals(1, chunks.getValues().get(2).size());
+    long expectedTagId = 200000L;
+    for (List<Change> chunk : chunks.getValues()) {
+      for (Change change : chunk) {
+        assertEquals(expectedTagId++, ((DataTagUpdate) change).getDataTagId());
+      }
+    }
+    verify(mockManager);
+  }
+
+  /**
+   * A failing chunk stops the reconfiguration of the DAQ, which is then
+   * marked for a reboot.
+   */
+  @Test
+  public void testFailingChunkStopsDaqReconfiguration() {
+    ((ConfigurationLoaderImpl) configurationLoader).setDaqConfigChunkSize(2);
+    final AtomicInteger calls = new AtomicInteger();
+    final IAnswer<ConfigurationChangeEventReport> success = reportChanges(CHANGE_STATE.SUCCESS);
+    expect(mockManager.sendConfiguration(eq(50L), isA(List.class))).andAnswer(new IAnswer<ConfigurationChangeEventReport>() {
+
+      @Override
+      public ConfigurationChangeEventReport answer() throws Throwable {
+        if (calls.incrementAndGet() == 2) {
+          throw new RuntimeException("No reply from the DAQ");
+        }
+        return success.answer();
+      }
+    }).anyTimes();
+    replay(mockManager);
+
+    ConfigurationReport report = configurationLoader.applyConfiguration(40);
+
+    assertEquals(2, calls.get());
+    assertEquals(Status.FAILURE, report.getStatus());
+    assertTrue(report.getProcessesToReboot().contains("P_TESTHANDLER03"));
+    assertTrue(processFacade.isRebootRequired(50L));
+  }
+
+  /**
+   * An error thrown while sending a chunk must not leave the configuration
+   * waiting for the DAQ reply.
+   */
+  @Test
+  public void testErrorDuringDaqReconfiguration() {
+    expect(mockManager.sendConfiguration(eq(50L), isA(List.class))).andThrow(new Error("DAQ communication error"));
+    replay(mockManager);
+
+    ConfigurationReport report = configurationLoader.applyConfiguration(40);
+
+    assertEquals(Status.FAILURE, report.getStatus());
+    assertTrue(report.getProcessesToReboot().contains("P_TESTHANDLER03"));
+    verify(mockManager);
+  }
+
+  /**
+   * The reports of all reconfigured DAQs are merged into the configuration
+   * report.
+   */
+  @Test
+  public void testReportsMergedFromSeveralDaqs() {
+    processFacade.start(51L, "hostname", new Timestamp(System.currentTimeMillis()));
+    expect(mockManager.sendConfiguration(eq(50L), isA(List.class))).andAnswer(reportChanges(CHANGE_STATE.SUCCESS));
+    expect(mockManager.sendConfiguration(eq(51L), isA(List.class))).andAnswer(reportChanges(CHANGE_STATE.REBOOT));
+    replay(mockManager);
+
+    ConfigurationReport report = configurationLoader.applyConfiguration(41);
+
+    assertEquals(3, report.getElementReports().size());
+    for (ConfigurationElementReport elementReport : report.getElementReports()) {
+      assertEquals(1, elementReport.getSubreports().size());
+    }
+    assertEquals(Collections.singleton("P_TESTHANDLER04"), report.getProcessesToReboot());
+    verify(mockManager);
+  }
+
+  /**
+   * Each chunk sent to a DAQ counts as one DAQ progress part.
+   */
+  @Test
+  public void testDaqProgressCountsChunks() {
+    ((ConfigurationLoaderImpl) configurationLoader).setDaqConfigChunkSize(2);
+    expect(mockManager.sendConfiguration(eq(50L), isA(List.class))).andAnswer(reportChanges(CHANGE_STATE.SUCCESS)).times(3);
+    replay(mockManager);
+
+    DaqProgressCounter progress = new DaqProgressCounter();
+    configurationLoader.applyConfiguration(40, progress);
+
+    assertEquals(3, progress.daqTotalParts);
+    assertEquals(3, progress.daqProgress);
+    verify(mockManager);
+  }
+
+  /**
+   * @return a mock answer reporting all the changes sent to the DAQ with the given state
+   */
+  private static IAnswer<ConfigurationChangeEventReport> reportChanges(final CHANGE_STATE state) {
+    return new IAnswer<ConfigurationChangeEventReport>() {
+
+      @Override
+      public ConfigurationChangeEventReport answer() throws Throwable {
+        List<Change> changeList = (List<Change>) EasyMock.getCurrentArguments()[1];
+        ConfigurationChangeEventReport report = new ConfigurationChangeEventReport();
+        for (Change change : changeList) {
+          ChangeReport changeReport = new ChangeReport(change);
+          changeReport.setState(state);
+          report.appendChangeReport(changeReport);
+        }
+        return report;
+      }
+    };
+  }
+
+  private static class DaqProgressCounter implements ConfigProgressMonitor {
+    int daqTotalParts;
+    int daqProgress;
+
+    @Override
+    public void serverTotalParts(int nbParts) {
+    }
+
+    @Override
+    public void incrementServerProgress(String description) {
+    }
+
+    @Override
+    public void daqTotalParts(int nbParts) {
+      daqTotalParts = nbParts;
+    }
+
+    @Override
+    public void incrementDaqProgress() {
+      daqProgress++;
+    }
+
+    @Override
+    public void resetCounter() {
+    }
+  }
 }
@@ -539,4 +539,35 @@ insert into timconfig (configid, configname, configdesc, author, configstate, cr
   values (35, 'remove device', 'remove device 300', 'jusalmon', '?', sysdate);
 insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
   values (35, 35, 'REMOVE', 'Device', '300');
-  
\ No newline at end of file
+  
+-- update the max value of 5 datatags of process 50 (DAQ reconfiguration split in chunks)
+insert into timconfig (configid, configname, configdesc, author, configstate, createdate)
+  values (40, 'update datatags of one process', 'update datatags 200000 to 200004', 'c2mon', '?', sysdate);
+insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
+  values (400, 40, 'UPDATE', 'DataTag', '200000');
+insert into timconfigval (seqid, elementfield, elementvalue) values (400, 'maxValue', '100');
+insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
+  values (401, 40, 'UPDATE', 'DataTag', '200001');
+insert into timconfigval (seqid, elementfield, elementvalue) values (401, 'maxValue', '101');
+insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
+  values (402, 40, 'UPDATE', 'DataTag', '200002');
+insert into timconfigval (seqid, elementfield, elementvalue) values (402, 'maxValue', '102');
+insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
+  values (403, 40, 'UPDATE', 'DataTag', '200003');
+insert into timconfigval (seqid, elementfield, elementvalue) values (403, 'maxValue', '103');
+insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
+  values (404, 40, 'UPDATE', 'DataTag', '200004');
+insert into timconfigval (seqid, elementfield, elementvalue) values (404, 'maxValue', '104');
+
+-- update the max value of datatags of processes 50 and 51
+insert into timconfig (configid, configname, configdesc, author, configstate, createdate)
+  values (41, 'update datatags of two processes', 'update datatags 200000, 200001 and 200010', 'c2mon', '?', sysdate);
+insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
+  values (410, 41, 'UPDATE', 'DataTag', '200000');
+insert into timconfigval (seqid, elementfield, elementvalue) values (410, 'maxValue', '110');
+insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
+  values (411, 41, 'UPDATE', 'DataTag', '200001');
+insert into timconfigval (seqid, elementfield, elementvalue) values (411, 'maxValue', '111');
+insert into timconfigelt (seqid, configid, modetype, elementtype, elementpkey)
+  values (412, 41, 'UPDATE', 'DataTag', '200010');
+insert into timconfigval (seqid, elementfield, elementvalue) values (412, 'maxValue', '112');
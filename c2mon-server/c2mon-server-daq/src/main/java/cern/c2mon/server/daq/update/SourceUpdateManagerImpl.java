@@ -17,13 +17,17 @@
 package cern.c2mon.server.daq.update;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
 
 import cern.c2mon.server.common.config.ServerProperties;
+import cern.c2mon.server.common.latency.LatencyMonitor;
+import cern.c2mon.server.common.latency.LatencyStage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
@@ -41,6 +45,7 @@ import cern.c2mon.server.cache.ProcessCache;
 import cern.c2mon.server.cache.ProcessFacade;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.process.Process;
+import cern.c2mon.server.common.process.ProcessPIKSnapshot;
 import cern.c2mon.server.common.thread.Event;
 import cern.c2mon.server.supervision.SupervisionManager;
 import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
@@ -102,6 +107,8 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
 
   private final ServerProperties properties;
 
+  private LatencyMonitor latencyMonitor = LatencyMonitor.DISABLED;
+
   /**
    * For management only. Number of JMS threads
    * currently active.
@@ -125,6 +132,13 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
   private static final int SWITCH_OFF_COUNTDOWN = 10000;
   private volatile AtomicInteger switchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
 
+  /**
+   * For management only. Number of update messages accepted and rejected
+   * by the process PIK check.
+   */
+  private final AtomicLong validatedUpdateMessages = new AtomicLong(0);
+  private final AtomicLong rejectedUpdateMessages = new AtomicLong(0);
+
   private static final Boolean IGNORE_UPDATE = false;
   private static final Boolean ACCEPT_UPDATE = true;
 
@@ -146,6 +160,11 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
     this.properties = properties;
   }
 
+  @Autowired(required = false)
+  public void setLatencyMonitor(final LatencyMonitor latencyMonitor) {
+    this.latencyMonitor = latencyMonitor;
+  }
+
   /**
    * Implementation of the interface of the Source Update Management module.
    *
@@ -163,6 +182,7 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
       activeUpdateThreads.getAndIncrement();
       Collection<SourceDataTagValue> values = dataTagValueUpdate.getValues();
       if (values != null ) {
+        long receptionTime = System.currentTimeMillis();
 
         for(SourceDataTagValue sourceDataTagValue : values){
 
@@ -171,7 +191,7 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
             processControl(sourceDataTagValue);
           } else {
             //else is a normal DataTag update
-            processDataTag(sourceDataTagValue);
+            processDataTag(sourceDataTagValue, dataTagValueUpdate.getProcessId(), receptionTime);
           }
           //log in file
           sourceDataTagValue.log();
@@ -204,9 +224,11 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
 
       // We do the process PIK checking in order to accept or not the update
       if(this.checkProcessPIK(update)) {
+        validatedUpdateMessages.incrementAndGet();
         processUpdates(update);
       }
       else {
+        rejectedUpdateMessages.incrementAndGet();
         log.warn("Received update(s) for Process #" + update.getProcessId()
             + " with wrong PIK: Ignoring " + update.getValues().size() + " updates");
       }
@@ -247,18 +269,39 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
   /**
    * Performs the necessary operations on reception of a data tag.
    * @param sourceDataTagValue the incoming data tag value
+   * @param processId the id of the process the value comes from
+   * @param receptionTime the time the value was received
    * @throw NullPointerException if passed null SourceDataTagValue
    */
-  private void processDataTag(final SourceDataTagValue sourceDataTagValue) {
+  private void processDataTag(final SourceDataTagValue sourceDataTagValue, final Long processId, final long receptionTime) {
     try {
       log.trace("Processing incoming update for datatag #" + sourceDataTagValue.getId());
+      long start = latencyMonitor.start();
       dataTagFacade.updateFromSource(sourceDataTagValue.getId(), sourceDataTagValue);
+      if (latencyMonitor.isEnabled()) {
+        recordLatencies(sourceDataTagValue, processId, receptionTime, start);
+      }
 
     } catch (CacheElementNotFoundException cacheEx) {
       log.warn("Received unrecognized data tag #" + sourceDataTagValue.getId() + ": ignoring the update");
     }
   }
 
+  private void recordLatencies(final SourceDataTagValue sourceDataTagValue, final Long processId, final long receptionTime,
+                               final long start) {
+    int priority = sourceDataTagValue.getPriority();
+    latencyMonitor.record(LatencyStage.CACHE_UPDATE, priority, processId,
+        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    if (sourceDataTagValue.getDaqTimestamp() != null) {
+      long daqTime = sourceDataTagValue.getDaqTimestamp().getTime();
+      latencyMonitor.record(LatencyStage.JMS_RECEIVE, priority, processId, TimeUnit.MILLISECONDS.toMicros(receptionTime - daqTime));
+      if (sourceDataTagValue.getTimestamp() != null) {
+        latencyMonitor.record(LatencyStage.DAQ_SEND, priority, processId,
+            TimeUnit.MILLISECONDS.toMicros(daqTime - sourceDataTagValue.getTimestamp().getTime()));
+      }
+    }
+  }
+
   /**
    * For management onlu.
    * @return the number of JMS container threads currently running in the server
@@ -269,13 +312,57 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
   }
 
   /**
-   * Function to check all possible process PIK scenarios
+   * For management only.
+   * @return the number of update messages accepted by the process PIK check
+   */
+  @ManagedAttribute(description = "Number of update messages accepted by the process PIK check")
+  public long getValidatedUpdateMessages() {
+    return validatedUpdateMessages.get();
+  }
+
+  /**
+   * For management only.
+   * @return the number of update messages rejected because of a wrong or missing process PIK
+   */
+  @ManagedAttribute(description = "Number of update messages rejected because of a wrong or missing process PIK")
+  public long getRejectedUpdateMessages() {
+    return rejectedUpdateMessages.get();
+  }
+
+  /**
+   * Function to check all possible process PIK scenarios.
+   *
+   * <p>The common case (a PIK is registered and the update carries the same
+   * one) is decided on the immutable PIK snapshot of the process, without
+   * locking it. All other cases are handled by {@link #checkProcessPIKLocked}.
    *
    * @param dataTagValueUpdate Update with all information
    * @return {@link #IGNORE_UPDATE} if PIK registered in server but no PIK or wrong PIK sent
    *         {@link #ACCEPT_UPDATE} in any other case
    */
   private Boolean checkProcessPIK(final DataTagValueUpdate dataTagValueUpdate) {
+    try {
+      ProcessPIKSnapshot snapshot = this.processFacade.getPIKSnapshot(dataTagValueUpdate.getProcessId());
+      if (snapshot.matches(dataTagValueUpdate.getProcessPIK())) {
+        return ACCEPT_UPDATE;
+      }
+    } catch (CacheElementNotFoundException cacheEx) {
+      log.warn("Receive updates from unrecognized Process #" + dataTagValueUpdate.getProcessId() +  ": Ignoring the updates", cacheEx);
+      return ACCEPT_UPDATE;
+    }
+
+    return checkProcessPIKLocked(dataTagValueUpdate);
+  }
+
+  /**
+   * Checks the process PIK while holding the write lock on the process, so
+   * that a missing PIK can be registered atomically.
+   *
+   * @param dataTagValueUpdate Update with all information
+   * @return {@link #IGNORE_UPDATE} if PIK registered in server but no PIK or wrong PIK sent
+   *         {@link #ACCEPT_UPDATE} in any other case
+   */
+  private Boolean checkProcessPIKLocked(final DataTagValueUpdate dataTagValueUpdate) {
     Process process;
 
     processCache.acquireWriteLockOnKey(dataTagValueUpdate.getProcessId());
@@ -35,6 +35,8 @@ import cern.c2mon.server.cache.C2monBufferedCacheListener;
 import cern.c2mon.server.cache.CacheRegistrationService;
 import cern.c2mon.server.common.component.Lifecycle;
 import cern.c2mon.server.common.config.ServerConstants;
+import cern.c2mon.server.common.latency.LatencyMonitor;
+import cern.c2mon.server.common.latency.LatencyStage;
 import cern.c2mon.server.common.tag.Tag;
 
 /**
@@ -58,6 +60,9 @@ public class TagDocumentListener implements C2monBufferedCacheListener<Tag>, Sma
   @Autowired
   private TagDocumentConverter converter;
 
+  @Autowired(required = false)
+  private LatencyMonitor latencyMonitor = LatencyMonitor.DISABLED;
+
   private Lifecycle listenerContainer;
 
   private volatile boolean running = false;
@@ -87,6 +92,9 @@ public class TagDocumentListener implements C2monBufferedCacheListener<Tag>, Sma
         .collect(Collectors.toList());
 
     persistenceManager.storeData(tagDocuments);
+    if (latencyMonitor.isEnabled()) {
+      loggables.forEach(tag -> latencyMonitor.recordSince(LatencyStage.ELASTICSEARCH_PERSIST, tag, tag.getCacheTimestamp()));
+    }
   }
 
   @Override
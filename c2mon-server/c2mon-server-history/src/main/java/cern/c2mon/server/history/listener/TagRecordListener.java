@@ -32,6 +32,8 @@ import cern.c2mon.server.cache.C2monBufferedCacheListener;
 import cern.c2mon.server.cache.CacheRegistrationService;
 import cern.c2mon.server.common.component.Lifecycle;
 import cern.c2mon.server.common.config.ServerConstants;
+import cern.c2mon.server.common.latency.LatencyMonitor;
+import cern.c2mon.server.common.latency.LatencyStage;
 import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.server.history.logger.BatchLogger;
 
@@ -70,6 +72,8 @@ public class TagRecordListener implements C2monBufferedCacheListener<Tag>, Smart
    */
   private volatile boolean running = false;
 
+  private LatencyMonitor latencyMonitor = LatencyMonitor.DISABLED;
+
   /**
    * Autowired constructor.
    *
@@ -83,6 +87,11 @@ public class TagRecordListener implements C2monBufferedCacheListener<Tag>, Smart
     this.tagLogger = tagLogger;
   }
 
+  @Autowired(required = false)
+  public void setLatencyMonitor(final LatencyMonitor latencyMonitor) {
+    this.latencyMonitor = latencyMonitor;
+  }
+
   /**
    * Registers to be notified of all Tag updates (data, rule and control tags).
    */
@@ -109,6 +118,11 @@ public class TagRecordListener implements C2monBufferedCacheListener<Tag>, Smart
         tagsToLog.add(tag);
     }
     tagLogger.log(tagsToLog);
+    if (latencyMonitor.isEnabled()) {
+      for (Tag tag : tagsToLog) {
+        latencyMonitor.recordSince(LatencyStage.HISTORY_PERSIST, tag, tag.getCacheTimestamp());
+      }
+    }
   }
 
   @Override
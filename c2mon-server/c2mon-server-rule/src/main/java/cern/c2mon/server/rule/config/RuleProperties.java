@@ -14,4 +14,17 @@ public class RuleProperties {
    * Number of threads that the rule evaluation engine will use
    */
   private int numEvaluationThreads = 1;
+
+  /**
+   * Time window (in ms) during which rule evaluation requests are collected
+   * and coalesced before being evaluated in dependency order. Set to 0 to
+   * evaluate the rules directly on every input tag update
+   */
+  private int schedulingWindow = 10;
+
+  /**
+   * Number of threads evaluating independent rules in parallel, when the
+   * scheduling window is enabled
+   */
+  private int numSchedulerThreads = Runtime.getRuntime().availableProcessors();
 }
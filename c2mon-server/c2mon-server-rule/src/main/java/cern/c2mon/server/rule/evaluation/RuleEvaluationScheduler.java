@@ -0,0 +1,277 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.rule.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Schedules rule evaluations in waves.
+ *
+ * <p>Evaluation requests are collected during a short window. All requests
+ * for the same rule within the window are coalesced into a single
+ * evaluation. When the window expires, the pending rules are sorted by their
+ * depth in the rule dependency graph (a rule using other rules as input comes
+ * after them) and evaluated level by level. The rules of a level are
+ * independent from each other and are evaluated in parallel on a
+ * work-stealing pool.
+ *
+ * <p>Waves never overlap: requests arriving while a wave is running are
+ * evaluated in the next wave. Requests still pending at shutdown are
+ * evaluated before the scheduler stops.
+ */
+@Slf4j
+public class RuleEvaluationScheduler {
+
+  /** Maximum time to wait for the wave in progress at shutdown */
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  /** Evaluates a single rule */
+  private final Consumer<Long> evaluation;
+
+  /** Returns the ids of the rules which are used as input by a given rule */
+  private final Function<Long, Collection<Long>> ruleInputs;
+
+  /** Time during which requests are collected before a wave is started */
+  private final long windowMillis;
+
+  /** Ids of the rules to evaluate in the next wave */
+  private final Set<Long> pendingRules = ConcurrentHashMap.newKeySet();
+
+  /** Set if a wave is scheduled but has not yet collected the pending rules */
+  private final AtomicBoolean waveScheduled = new AtomicBoolean(false);
+
+  private final ScheduledExecutorService dispatcher;
+
+  private final ForkJoinPool evaluationPool;
+
+  private final AtomicLong requestCount = new AtomicLong();
+
+  private final AtomicLong evaluationCount = new AtomicLong();
+
+  private final AtomicLong waveCount = new AtomicLong();
+
+  /**
+   * @param evaluation evaluates the rule with the given id
+   * @param ruleInputs returns the ids of the rules used as input by the rule
+   *          with the given id
+   * @param windowMillis time in milliseconds during which requests are
+   *          collected before being evaluated
+   * @param parallelism number of threads evaluating independent rules
+   */
+  public RuleEvaluationScheduler(final Consumer<Long> evaluation, final Function<Long, Collection<Long>> ruleInputs,
+                                 final long windowMillis, final int parallelism) {
+    this.evaluation = evaluation;
+    this.ruleInputs = ruleInputs;
+    this.windowMillis = windowMillis;
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, "RuleScheduler"));
+    // the wave not yet started at shutdown is run by shutdown() itself
+    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    this.dispatcher = executor;
+    this.evaluationPool = new ForkJoinPool(Math.max(1, parallelism));
+  }
+
+  /**
+   * Requests the evaluation of the given rules in the next wave.
+   *
+   * @param ruleIds ids of the rules to evaluate
+   */
+  public void schedule(final Collection<Long> ruleIds) {
+    requestCount.addAndGet(ruleIds.size());
+    pendingRules.addAll(ruleIds);
+    if (waveScheduled.compareAndSet(false, true)) {
+      try {
+        dispatcher.schedule(this::runWave, windowMillis, TimeUnit.MILLISECONDS);
+      } catch (RuntimeException e) {
+        waveScheduled.set(false);
+        log.warn("Unable to schedule the evaluation of rules " + ruleIds, e);
+      }
+    }
+  }
+
+  /**
+   * Stops the scheduler. The wave in progress is completed and the pending
+   * evaluations are run on the calling thread before the evaluation pool is
+   * closed.
+   */
+  public void shutdown() {
+    dispatcher.shutdown();
+    try {
+      if (!dispatcher.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("Rule evaluation wave still running after " + SHUTDOWN_TIMEOUT_SECONDS + " seconds");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (!pendingRules.isEmpty()) {
+      log.info("Evaluating " + pendingRules.size() + " pending rules before stopping the rule scheduler");
+      runWave();
+    }
+    evaluationPool.shutdown();
+  }
+
+  /**
+   * Collects the pending rules and evaluates them level by level.
+   */
+  private void runWave() {
+    // reset first: requests arriving from now on need a new wave
+    waveScheduled.set(false);
+
+    List<Long> rules = new ArrayList<>(pendingRules.size());
+    Iterator<Long> it = pendingRules.iterator();
+    while (it.hasNext()) {
+      rules.add(it.next());
+      it.remove();
+    }
+    if (rules.isEmpty()) {
+      return;
+    }
+    waveCount.incrementAndGet();
+
+    try {
+      for (List<Long> level : orderByDependencies(rules, ruleInputs)) {
+        evaluate(level);
+      }
+    } catch (Exception e) {
+      log.error("Unexpected exception caught while evaluating rules " + rules, e);
+    }
+  }
+
+  private void evaluate(final List<Long> level) throws InterruptedException {
+    if (level.size() == 1 || evaluationPool.getParallelism() == 1) {
+      for (Long ruleId : level) {
+        evaluate(ruleId);
+      }
+    } else {
+      List<Callable<Void>> tasks = new ArrayList<>(level.size());
+      for (Long ruleId : level) {
+        tasks.add(() -> {
+          evaluate(ruleId);
+          return null;
+        });
+      }
+      evaluationPool.invokeAll(tasks);
+    }
+  }
+
+  private void evaluate(final Long ruleId) {
+    evaluationCount.incrementAndGet();
+    try {
+      evaluation.accept(ruleId);
+    } catch (Exception e) {
+      log.error(ruleId + " Unexpected exception caught while evaluating rule", e);
+    }
+  }
+
+  /**
+   * Groups the rules by their depth in the rule dependency graph. Rules only
+   * depending on data and control tags have depth 0; other rules are one
+   * level deeper than their deepest input rule. Input rules which are not part
+   * of the passed collection are taken into account for the depth, but are
+   * not evaluated.
+   *
+   * @param rules the ids of the rules to order
+   * @param ruleInputs returns the ids of the rules used as input by a rule
+   * @return the rules grouped by level, from the lowest to the highest depth
+   */
+  static List<List<Long>> orderByDependencies(final Collection<Long> rules,
+                                              final Function<Long, Collection<Long>> ruleInputs) {
+    Map<Long, Integer> depths = new HashMap<>();
+    TreeMap<Integer, List<Long>> levels = new TreeMap<>();
+    for (Long ruleId : rules) {
+      int depth = getDepth(ruleId, ruleInputs, depths, new HashSet<>());
+      levels.computeIfAbsent(depth, d -> new ArrayList<>()).add(ruleId);
+    }
+    return new ArrayList<>(levels.values());
+  }
+
+  private static int getDepth(final Long ruleId, final Function<Long, Collection<Long>> ruleInputs,
+                              final Map<Long, Integer> depths, final Set<Long> path) {
+    Integer depth = depths.get(ruleId);
+    if (depth != null) {
+      return depth;
+    }
+    if (!path.add(ruleId)) {
+      log.warn(ruleId + " Rule is part of a dependency cycle " + path);
+      return 0;
+    }
+
+    int result = 0;
+    for (Long inputRuleId : ruleInputs.apply(ruleId)) {
+      result = Math.max(result, getDepth(inputRuleId, ruleInputs, depths, path) + 1);
+    }
+    path.remove(ruleId);
+    depths.put(ruleId, result);
+    return result;
+  }
+
+  /**
+   * @return the number of rules waiting for the next wave
+   */
+  public int getQueueDepth() {
+    return pendingRules.size();
+  }
+
+  /**
+   * @return the number of evaluation requests received
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * @return the number of evaluations performed
+   */
+  public long getEvaluationCount() {
+    return evaluationCount.get();
+  }
+
+  /**
+   * @return the number of waves run
+   */
+  public long getWaveCount() {
+    return waveCount.get();
+  }
+
+  /**
+   * @return the number of requests per performed evaluation (1 if no request
+   *         was coalesced)
+   */
+  public double getCoalescingRatio() {
+    long evaluations = evaluationCount.get();
+    return evaluations == 0 ? 1d : (double) requestCount.get() / evaluations;
+  }
+}
@@ -17,26 +17,35 @@
 package cern.c2mon.server.rule.evaluation;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 
 import javax.annotation.PostConstruct;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.SmartLifecycle;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.cache.C2monCacheListener;
 import cern.c2mon.server.cache.CacheRegistrationService;
+import cern.c2mon.server.cache.ControlTagCache;
+import cern.c2mon.server.cache.DataTagCache;
 import cern.c2mon.server.cache.RuleTagCache;
 import cern.c2mon.server.cache.TagLocationService;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.component.Lifecycle;
+import cern.c2mon.server.common.config.C2monCacheName;
 import cern.c2mon.server.common.config.ServerConstants;
+import cern.c2mon.server.common.latency.LatencyMonitor;
+import cern.c2mon.server.common.latency.LatencyStage;
 import cern.c2mon.shared.common.datatag.TagQualityStatus;
+import cern.c2mon.server.common.rule.RuleInputBinding;
 import cern.c2mon.server.common.rule.RuleTag;
 import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.server.rule.config.RuleProperties;
@@ -52,15 +61,24 @@ import static cern.c2mon.shared.common.type.TypeConverter.*;
  * to the RuleUpdateBuffer where rapid successive updates are
  * clustered into a single update.
  *
+ * <p>Unless disabled, the evaluations triggered by tag updates go through
+ * a {@link RuleEvaluationScheduler}, which coalesces them per rule and
+ * evaluates them in dependency order.
+ *
  * @author mbrightw
  *
  */
 @Slf4j
 @Service
+@ManagedResource(objectName = "cern.c2mon:name=ruleEvaluator")
 public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycle, RuleEvaluator {
 
   private final RuleTagCache ruleTagCache;
 
+  private final DataTagCache dataTagCache;
+
+  private final ControlTagCache controlTagCache;
+
   /** This temporary buffer is used to filter out intermediate rule evaluation results. */
   private final RuleUpdateBuffer ruleUpdateBuffer;
 
@@ -70,6 +88,14 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
 
   private final RuleProperties properties;
 
+  /**
+   * Scheduler of the evaluations triggered by tag updates; null if the
+   * rules are evaluated directly.
+   */
+  private final RuleEvaluationScheduler scheduler;
+
+  private LatencyMonitor latencyMonitor = LatencyMonitor.DISABLED;
+
   /**
    * Listener container lifecycle hook.
    */
@@ -82,16 +108,31 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
 
   @Autowired
   public RuleEvaluatorImpl(RuleTagCache ruleTagCache,
+                           DataTagCache dataTagCache,
+                           ControlTagCache controlTagCache,
                            RuleUpdateBuffer ruleUpdateBuffer,
                            TagLocationService tagLocationService,
                            CacheRegistrationService cacheRegistrationService,
                            RuleProperties properties) {
     super();
     this.ruleTagCache = ruleTagCache;
+    this.dataTagCache = dataTagCache;
+    this.controlTagCache = controlTagCache;
     this.ruleUpdateBuffer = ruleUpdateBuffer;
     this.tagLocationService = tagLocationService;
     this.cacheRegistrationService = cacheRegistrationService;
     this.properties = properties;
+    if (properties.getSchedulingWindow() > 0) {
+      this.scheduler = new RuleEvaluationScheduler(this::evaluateRule, this::getInputRuleIds,
+          properties.getSchedulingWindow(), properties.getNumSchedulerThreads());
+    } else {
+      this.scheduler = null;
+    }
+  }
+
+  @Autowired(required = false)
+  public void setLatencyMonitor(final LatencyMonitor latencyMonitor) {
+    this.latencyMonitor = latencyMonitor;
   }
 
   /**
@@ -131,12 +172,61 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
     if (tag.getRuleIds().size() > 0) {
         log.trace(tag.getId() + " Triggering re-evaluation for " + tag.getRuleIds().size() + " rules : " + tag.getRuleIds());
 
+        if (scheduler != null) {
+          scheduler.schedule(tag.getRuleIds());
+          return;
+        }
+
         while (rulesIterator.hasNext()) {
            evaluateRule(rulesIterator.next());
         }
     }
   }
 
+  /**
+   * Returns the ids of the rules used as input by the given rule. Used by the
+   * scheduler for ordering the evaluations.
+   *
+   * @param ruleId the id of a rule
+   * @return the ids of the input rules, empty if the rule is not found
+   */
+  private Collection<Long> getInputRuleIds(final Long ruleId) {
+    try {
+      List<Long> inputRuleIds = null;
+      for (Long inputTagId : ruleTagCache.get(ruleId).getRuleInputTagIds()) {
+        if (ruleTagCache.hasKey(inputTagId)) {
+          if (inputRuleIds == null) {
+            inputRuleIds = new ArrayList<>();
+          }
+          inputRuleIds.add(inputTagId);
+        }
+      }
+      return inputRuleIds == null ? Collections.<Long>emptyList() : inputRuleIds;
+    } catch (CacheElementNotFoundException cacheEx) {
+      return Collections.emptyList();
+    }
+  }
+
+  @ManagedAttribute(description = "Number of rules waiting for evaluation in the scheduler")
+  public int getSchedulerQueueDepth() {
+    return scheduler == null ? 0 : scheduler.getQueueDepth();
+  }
+
+  @ManagedAttribute(description = "Number of evaluation requests per performed rule evaluation")
+  public double getSchedulerCoalescingRatio() {
+    return scheduler == null ? 1d : scheduler.getCoalescingRatio();
+  }
+
+  @ManagedAttribute(description = "Number of rule evaluation requests received by the scheduler")
+  public long getSchedulerRequestCount() {
+    return scheduler == null ? 0 : scheduler.getRequestCount();
+  }
+
+  @ManagedAttribute(description = "Number of rule evaluations performed by the scheduler")
+  public long getSchedulerEvaluationCount() {
+    return scheduler == null ? 0 : scheduler.getEvaluationCount();
+  }
+
   /**
    * Performs the rule evaluation for a given tag id. In case that
    * the id does not belong to a rule a warning message is logged to
@@ -149,6 +239,7 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
     log.trace((new StringBuffer("").append(pRuleId).append(" evaluateRule() called")).toString());
 
     final Timestamp ruleResultTimestamp = new Timestamp(System.currentTimeMillis());
+    final long start = latencyMonitor.start();
 
     // We synchronize on the rule reference object from the cache
     // in order to avoid simultaneous evaluations for the same rule
@@ -163,30 +254,25 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
       RuleTag rule = ruleTagCache.get(pRuleId);
 
       if (rule.getRuleExpression() != null) {
-        final Collection<Long> ruleInputTagIds = rule.getRuleExpression().getInputTagIds();
+        final RuleInputBinding binding = getInputBinding(rule);
 
-        // Retrieve all input tags for the rule
-        final Map<Long, Object> tags = new Hashtable<Long, Object>(ruleInputTagIds.size());
+        // Retrieve all input tags for the rule, by slot
+        final Object[] inputs = new Object[binding.getInputCount()];
 
-        Tag tag = null;
         Long actualTag = null;
         try {
-          for (Long inputTagId : ruleInputTagIds) {
-            actualTag = inputTagId;
+          for (int slot = 0; slot < inputs.length; slot++) {
+            actualTag = binding.getInputTagId(slot);
             // We don't use a read lock here, because a tag change would anyway
             // result in another rule evaluation
-            // look for tag in datatag, rule and control caches
-            tag = tagLocationService.get(inputTagId);
-
-            // put reference to cache object in map
-            tags.put(inputTagId, tag);
+            inputs[slot] = getInputTag(rule, binding, slot);
           }
 
           // Retrieve class type of resulting value, in order to cast correctly
           // the evaluation result
           Class<?> ruleResultClass = getType(rule.getDataType());
 
-          Object value = rule.getRuleExpression().evaluate(tags, ruleResultClass);
+          Object value = binding.evaluate(inputs, ruleResultClass);
           ruleUpdateBuffer.update(pRuleId, value, "Rule result", ruleResultTimestamp);
         } catch (CacheElementNotFoundException cacheEx) {
           log.warn(pRuleId + " evaluateRule - Failed to locate tag with id " + actualTag + " in any tag cache (during rule evaluation) - unable to evaluate rule.",
@@ -218,6 +304,58 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
     } finally {
       ruleTagCache.releaseWriteLockOnKey(pRuleId);
     }
+    latencyMonitor.recordSince(LatencyStage.RULE_EVALUATION, null, start);
+  }
+
+  /**
+   * Returns the input binding of the rule, creating it if the rule does not
+   * hold one yet (first evaluation or rule text changed). Must be called with
+   * the write lock on the rule.
+   *
+   * @param rule the rule to evaluate
+   * @return the binding of the rule inputs
+   */
+  private RuleInputBinding getInputBinding(final RuleTag rule) {
+    RuleInputBinding binding = rule.getInputBinding();
+    if (binding == null) {
+      binding = RuleInputBinding.create(rule.getRuleExpression(), tagLocationService::getCacheName);
+      rule.setInputBinding(binding);
+    }
+    return binding;
+  }
+
+  /**
+   * Fetches the input tag of the given slot from the cache resolved by the
+   * binding. If the tag could not be located when the binding was created, or
+   * has since moved to another cache, all tag caches are searched and the
+   * binding is dropped, so it gets resolved again on the next evaluation.
+   *
+   * @throws CacheElementNotFoundException if the tag is in none of the tag caches
+   */
+  private Tag getInputTag(final RuleTag rule, final RuleInputBinding binding, final int slot) {
+    final Long tagId = binding.getInputTagId(slot);
+    final C2monCacheName cacheName = binding.getCacheName(slot);
+
+    if (cacheName != null) {
+      try {
+        switch (cacheName) {
+          case DATATAG:
+            return dataTagCache.get(tagId);
+          case RULETAG:
+            return ruleTagCache.get(tagId);
+          case CONTROLTAG:
+            return controlTagCache.get(tagId);
+          default:
+            break;
+        }
+      } catch (CacheElementNotFoundException cacheEx) {
+        log.debug(rule.getId() + " Input tag " + tagId + " is no longer in the " + cacheName + " cache - resolving rule inputs again");
+      }
+    }
+
+    // look for tag in datatag, rule and control caches
+    rule.setInputBinding(null);
+    return tagLocationService.get(tagId);
   }
 
   /**
@@ -255,6 +393,9 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
   public void stop() {
     log.debug("Stopping rule evaluator");
     listenerContainer.stop();
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
     running = false;
   }
 
@@ -0,0 +1,146 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.rule.evaluation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RuleEvaluationSchedulerTest {
+
+  /** Rule 3 uses rules 1 and 2, rule 4 uses rule 3, rule 5 uses no rule */
+  private static final Map<Long, Collection<Long>> RULE_INPUTS = new HashMap<>();
+
+  static {
+    RULE_INPUTS.put(3L, Arrays.asList(1L, 2L));
+    RULE_INPUTS.put(4L, Collections.singletonList(3L));
+  }
+
+  private static final Function<Long, Collection<Long>> INPUTS =
+      id -> RULE_INPUTS.getOrDefault(id, Collections.<Long>emptyList());
+
+  private final Queue<Long> evaluated = new ConcurrentLinkedQueue<>();
+
+  private RuleEvaluationScheduler scheduler;
+
+  @After
+  public void afterTest() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void orderByDependencies() {
+    List<List<Long>> levels = RuleEvaluationScheduler.orderByDependencies(Arrays.asList(4L, 5L, 1L, 3L), INPUTS);
+
+    assertEquals(3, levels.size());
+    assertEquals(Arrays.asList(5L, 1L), levels.get(0));
+    assertEquals(Collections.singletonList(3L), levels.get(1));
+    assertEquals(Collections.singletonList(4L), levels.get(2));
+  }
+
+  @Test
+  public void orderWithCycle() {
+    Map<Long, Collection<Long>> cyclic = new HashMap<>();
+    cyclic.put(1L, Collections.singletonList(2L));
+    cyclic.put(2L, Collections.singletonList(1L));
+
+    List<List<Long>> levels = RuleEvaluationScheduler.orderByDependencies(Arrays.asList(1L, 2L), cyclic::get);
+
+    assertEquals(2, levels.size());
+  }
+
+  @Test
+  public void requestsAreCoalesced() throws InterruptedException {
+    scheduler = new RuleEvaluationScheduler(evaluated::add, INPUTS, 50, 1);
+    for (int i = 0; i < 10; i++) {
+      scheduler.schedule(Arrays.asList(1L, 2L));
+    }
+    assertEquals(2, scheduler.getQueueDepth());
+
+    waitForEvaluations(2);
+
+    assertEquals(20, scheduler.getRequestCount());
+    assertEquals(2, scheduler.getEvaluationCount());
+    assertEquals(10d, scheduler.getCoalescingRatio(), 0.001);
+    assertEquals(1, scheduler.getWaveCount());
+    assertEquals(0, scheduler.getQueueDepth());
+  }
+
+  @Test
+  public void rulesAreEvaluatedAfterTheirInputs() throws InterruptedException {
+    scheduler = new RuleEvaluationScheduler(evaluated::add, INPUTS, 20, 4);
+    scheduler.schedule(Arrays.asList(4L, 3L));
+    scheduler.schedule(Arrays.asList(2L, 1L, 5L));
+
+    waitForEvaluations(5);
+
+    List<Long> order = Arrays.asList(evaluated.toArray(new Long[0]));
+    assertTrue(order.indexOf(3L) > order.indexOf(1L));
+    assertTrue(order.indexOf(3L) > order.indexOf(2L));
+    assertTrue(order.indexOf(4L) > order.indexOf(3L));
+  }
+
+  @Test
+  public void failingEvaluationDoesNotStopTheWave() throws InterruptedException {
+    scheduler = new RuleEvaluationScheduler(id -> {
+      evaluated.add(id);
+      if (id == 1L) {
+        throw new IllegalStateException("test");
+      }
+    }, INPUTS, 10, 1);
+    scheduler.schedule(Arrays.asList(1L, 3L));
+
+    waitForEvaluations(2);
+  }
+
+  @Test
+  public void pendingEvaluationsAreRunOnShutdown() {
+    scheduler = new RuleEvaluationScheduler(evaluated::add, INPUTS, 60000, 2);
+    scheduler.schedule(Arrays.asList(3L, 1L, 2L));
+
+    scheduler.shutdown();
+
+    List<Long> order = Arrays.asList(evaluated.toArray(new Long[0]));
+    assertEquals(3, order.size());
+    assertEquals(Long.valueOf(3L), order.get(2));
+    assertEquals(0, scheduler.getQueueDepth());
+  }
+
+  private void waitForEvaluations(final int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (evaluated.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    // leave time for unexpected additional evaluations
+    Thread.sleep(100);
+    assertEquals(count, evaluated.size());
+  }
+}
@@ -16,8 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.supervision.alive;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
@@ -31,25 +30,40 @@ import org.springframework.stereotype.Service;
 import cern.c2mon.server.cache.AliveTimerCache;
 import cern.c2mon.server.cache.AliveTimerFacade;
 import cern.c2mon.server.cache.ClusterCache;
+import cern.c2mon.server.cache.alive.AliveTimerSchedule;
+import cern.c2mon.server.cache.config.CacheProperties;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.alive.AliveTimer;
 import cern.c2mon.server.common.config.ServerConstants;
 import cern.c2mon.server.supervision.SupervisionManager;
 
 /**
- * Timer that regularly checks all the active alive timers monitoring
- * the connections to the DAQs, Equipment and SubEquipment.
+ * Thread supervising the active alive timers monitoring the connections
+ * to the DAQs, Equipment and SubEquipment.
  *
  * <p>Notice that an alive timer is considered expired when alive-interval
  *  + alive-interval/3 milliseconds have expired since the last alive
  *  message arrived, where alive-interval is specific to the AliveTimer
  *  object (see <code>hasExpired</code> in {@link AliveTimerFacade}).
  *
+ * <p>The thread waits on the {@link AliveTimerSchedule} for the next
+ * deadline, so an expiration is detected as soon as it happens and only
+ * the timers which actually expire are looked at. Every
+ * {@link #SCAN_INTERVAL} milliseconds, it also checks how many timers are
+ * stopped and warns the administrators if there are too many.
+ *
+ * <p>The schedule only knows the timers updated on this server. In a
+ * cluster ("multi" cache mode), the timers started or updated on the other
+ * servers are therefore added to it from the shared cache every
+ * {@link #SCAN_INTERVAL} milliseconds, so they are still supervised if the
+ * server which updated them goes down, and the stopped timers are counted
+ * in the shared cache.
+ *
  * @author Mark Brightwell
  *
  */
 @Service
-public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
+public class AliveTimerChecker implements Runnable, SmartLifecycle {
 
   /**
    * Log4j Logger for this class.
@@ -72,14 +86,14 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
 
   /**
    * Cluster cache key for retrieving the time of last check
-   * of the alives. Across server cluster it assures that
-   * the alive check only takes place on a single server.
+   * of the stopped alives. Across server cluster it assures that
+   * the warning check only takes place on a single server.
    */
   private static final String LAST_ALIVE_TIMER_CHECK_LONG = "c2mon.supervision.AliveTimerChecker.lastAliveTimerCheck";
 
   /**
-   * How often the timer checks whether the alive
-   * timer have expired.
+   * How often the number of stopped alive timers is
+   * checked.
    */
   private static final int SCAN_INTERVAL = 10000;
 
@@ -96,9 +110,9 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   private volatile boolean running = false;
 
   /**
-   * Timer object
+   * Supervision thread
    */
-  private Timer timer;
+  private Thread checkerThread;
 
   /**
    * Reference to alive timer facade.
@@ -110,6 +124,11 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
    */
   private AliveTimerCache aliveTimerCache;
 
+  /**
+   * Deadlines of the active alive timers.
+   */
+  private AliveTimerSchedule aliveTimerSchedule;
+
   /**
    * Reference to the SupervisionManager bean.
    */
@@ -135,23 +154,34 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
 
   private static final int SWITCH_OFF_COUNTDOWN = 60; //10mins
 
+  /**
+   * True if the alive timers may be updated by other servers of a cluster
+   */
+  private final boolean clustered;
+
   /**
    * Constructor.
    * @param cache the alive timer cache
    * @param aliveTimerFacade the alive timer facade bean
+   * @param aliveTimerSchedule the deadlines of the alive timers
    * @param supervisionManager the supervision manager bean
    * @param clusterCache Reference to the clusterCache to share values accross teh cluster nodes
+   * @param cacheProperties the cache properties, giving the cache mode
    */
   @Autowired
   public AliveTimerChecker(final AliveTimerCache cache,
                            final AliveTimerFacade aliveTimerFacade,
+                           final AliveTimerSchedule aliveTimerSchedule,
                            final SupervisionManager supervisionManager,
-                           final ClusterCache clusterCache) {
+                           final ClusterCache clusterCache,
+                           final CacheProperties cacheProperties) {
     super();
     this.aliveTimerCache = cache;
     this.aliveTimerFacade = aliveTimerFacade;
+    this.aliveTimerSchedule = aliveTimerSchedule;
     this.supervisionManager = supervisionManager;
     this.clusterCache = clusterCache;
+    this.clustered = "multi".equals(cacheProperties.getMode());
   }
 
   /**
@@ -173,18 +203,28 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   }
 
   /**
-   * Starts the timer. Alive timers will be checked from then on.
+   * Starts the supervision thread. Alive timers will be checked from then on.
+   * The timers already in the cache (loaded from the DB or started before the
+   * thread) are added to the schedule first.
    */
   @Override
   public synchronized void start() {
     LOGGER.info("Starting the C2MON alive timer mechanism.");
-    timer = new Timer("AliveChecker");
-    timer.schedule(this, INITIAL_SCAN_DELAY, SCAN_INTERVAL);
+    for (Long currentId : aliveTimerCache.getKeys()) {
+      try {
+        aliveTimerSchedule.schedule(aliveTimerCache.getCopy(currentId));
+      } catch (CacheElementNotFoundException cacheEx) {
+        LOGGER.debug("Alive timer {} removed from the cache during start up.", currentId);
+      }
+    }
+    checkerThread = new Thread(this, "AliveChecker");
+    checkerThread.setDaemon(true);
     running = true;
+    checkerThread.start();
   }
 
   /**
-   * Stops the timer mechanism. No more checks are made on the
+   * Stops the supervision thread. No more checks are made on the
    * alive timers.
    *
    * <p>Can be restarted using the start method.
@@ -192,65 +232,121 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   @Override
   public synchronized void stop() {
     LOGGER.info("Stopping the C2MON alive timer mechanism.");
-    timer.cancel();
     running = false;
+    checkerThread.interrupt();
   }
 
   /**
-   * Run method of the AliveTimerManager thread.
+   * Run method of the AliveTimerChecker thread.
    */
   @Override
   public void run() {
-    clusterCache.acquireWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_LONG);
     try {
-      Long lastCheck = (Long) clusterCache.getCopy(LAST_ALIVE_TIMER_CHECK_LONG);
-      if (System.currentTimeMillis() - lastCheck.longValue() < 9000) { //results in check on a single server
-        LOGGER.debug("Skipping alive check as already performed.");
-      } else {
-        if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug("run() : checking alive timers ... ");
-        }
-        short aliveDownCount = 0;
+      Thread.sleep(INITIAL_SCAN_DELAY);
+      long nextScan = System.currentTimeMillis();
+      while (running) {
         try {
-          for (Long currentId : aliveTimerCache.getKeys()) {
-            AliveTimer aliveTimerCopy = null;
-            boolean aliveExpiration = false;
-            aliveTimerCopy = aliveTimerCache.getCopy(currentId);
-
-            if (aliveTimerCopy.isActive()) {
-              if (aliveTimerFacade.hasExpired(currentId)) {
-                aliveTimerFacade.stop(currentId);
-                aliveExpiration = true;
-                aliveDownCount++;
-              }
-            } else {
-              aliveDownCount++;
-            }
-
-            if (aliveExpiration) {
-              onAliveTimerExpiration(currentId);
-            }
-
+          Long expiredId = aliveTimerSchedule.pollExpired(Math.max(0, nextScan - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+          if (expiredId != null) {
+            checkExpiration(expiredId);
           }
-          if (!alarmActive && aliveDownCount > WARNING_THRESHOLD) {
-            alarmActive = true;
-            SMS_LOGGER.warn("Over " + WARNING_THRESHOLD + " DAQ/Equipment are currently down.");
-          } else if (alarmActive && warningSwitchOffCountDown.decrementAndGet() == 0) {
-            SMS_LOGGER.warn("DAQ/Equipment status back to normal (" + aliveDownCount + " detected as down)");
-            alarmActive = false;
-            warningSwitchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
+          if (System.currentTimeMillis() >= nextScan) {
+            checkStoppedTimers(clustered ? scanSharedCache() : countInactiveTimers());
+            nextScan = System.currentTimeMillis() + SCAN_INTERVAL;
           }
-        } catch (CacheElementNotFoundException cacheEx) {
-          LOGGER.warn("Failed to locate alive timer in cache on expiration check (may happen exceptionally if just removed).", cacheEx);
+        } catch (InterruptedException e) {
+          throw e;
         } catch (Exception e) {
           LOGGER.error("Unexpected exception when checking the alive timers", e);
         }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("AliveTimerChecker thread interrupted - stopping.");
+    }
+  }
+
+  /**
+   * Stops an alive timer whose deadline has passed and notifies the
+   * supervision manager, unless it was updated in the meantime.
+   *
+   * @param aliveTimerId the alive timer whose deadline has passed
+   */
+  private void checkExpiration(final Long aliveTimerId) {
+    try {
+      if (aliveTimerFacade.stopIfExpired(aliveTimerId)) {
+        onAliveTimerExpiration(aliveTimerId);
+      }
+    } catch (CacheElementNotFoundException cacheEx) {
+      LOGGER.debug("Alive timer {} expired after being removed from the cache.", aliveTimerId);
+      aliveTimerSchedule.remove(aliveTimerId);
+    }
+  }
+
+  /**
+   * Adds the active timers of the shared cache to the schedule, including
+   * those started or updated on other servers of the cluster.
+   *
+   * @return the number of stopped alive timers in the cache
+   */
+  private int scanSharedCache() {
+    int aliveDownCount = 0;
+    for (Long currentId : aliveTimerCache.getKeys()) {
+      try {
+        AliveTimer aliveTimer = aliveTimerCache.getCopy(currentId);
+        if (aliveTimer.isActive()) {
+          // an outdated copy is harmless: the deadline is checked again under lock before stopping
+          aliveTimerSchedule.schedule(aliveTimer);
+        } else {
+          aliveDownCount++;
+        }
+      } catch (CacheElementNotFoundException cacheEx) {
+        LOGGER.debug("Alive timer {} removed from the cache during scan.", currentId);
+        aliveTimerSchedule.remove(currentId);
+      }
+    }
+    return aliveDownCount;
+  }
+
+  /**
+   * @return the number of stopped alive timers known to the schedule, which
+   *         are all the stopped timers when this server is the only one
+   */
+  private int countInactiveTimers() {
+    int aliveDownCount = 0;
+    for (Long currentId : aliveTimerSchedule.getInactiveTimers()) {
+      if (aliveTimerCache.hasKey(currentId)) {
+        aliveDownCount++;
+      } else {
+        aliveTimerSchedule.remove(currentId);
+      }
+    }
+    return aliveDownCount;
+  }
+
+  /**
+   * Sends a warning to the administrators if too many alive timers are
+   * stopped.
+   *
+   * @param aliveDownCount the number of stopped alive timers
+   */
+  private void checkStoppedTimers(final int aliveDownCount) {
+    clusterCache.acquireWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_LONG);
+    try {
+      Long lastCheck = (Long) clusterCache.getCopy(LAST_ALIVE_TIMER_CHECK_LONG);
+      if (System.currentTimeMillis() - lastCheck.longValue() < 9000) { //results in check on a single server
+        LOGGER.debug("Skipping alive check as already performed.");
+      } else {
+        if (!alarmActive && aliveDownCount > WARNING_THRESHOLD) {
+          alarmActive = true;
+          SMS_LOGGER.warn("Over " + WARNING_THRESHOLD + " DAQ/Equipment are currently down.");
+        } else if (alarmActive && warningSwitchOffCountDown.decrementAndGet() == 0) {
+          SMS_LOGGER.warn("DAQ/Equipment status back to normal (" + aliveDownCount + " detected as down)");
+          alarmActive = false;
+          warningSwitchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
+        }
         lastCheck = Long.valueOf(System.currentTimeMillis());
         clusterCache.put(LAST_ALIVE_TIMER_CHECK_LONG, lastCheck);
-        if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug("run() : finished checking alive timers ... ");
-        }
-      } // end of else block
+      }
     } finally {
       clusterCache.releaseWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_LONG);
     }
@@ -259,7 +355,7 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   /**
    * Notifies the supervision manager.
    *
-   * @param pAliveTimer the alive timer that has expired
+   * @param aliveTimerId the alive timer that has expired
    */
   private void onAliveTimerExpiration(final Long aliveTimerId) {
     supervisionManager.onAliveTimerExpiration(aliveTimerId);
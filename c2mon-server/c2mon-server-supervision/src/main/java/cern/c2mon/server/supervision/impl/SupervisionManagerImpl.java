@@ -41,6 +41,7 @@ import cern.c2mon.server.common.subequipment.SubEquipment;
 import cern.c2mon.server.supervision.SupervisionManager;
 import cern.c2mon.shared.common.datatag.SourceDataTagValue;
 import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionStatus;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateFormat;
 import cern.c2mon.shared.daq.process.*;
 
 
@@ -404,8 +405,17 @@ public class SupervisionManagerImpl implements SupervisionManager, SmartLifecycl
       }
 
       // We get the configuration XML file (empty by default)
-      processConfigurationResponse.setConfigurationXML(processXMLProvider.getProcessConfigXML(processCopy));
-      log.info("onProcessConfiguration - Returning configuration XML to DAQ " + processCopy.getName());
+      String configurationXML = processXMLProvider.getProcessConfigXML(processCopy);
+      String configurationHash = ProcessConfigurationResponse.hash(configurationXML);
+      processConfigurationResponse.setConfigurationHash(configurationHash);
+      if (configurationHash.equals(processConfigurationRequest.getConfigurationHash())) {
+        // the DAQ already has this configuration in its local cache
+        processConfigurationResponse.setConfigurationXML(ProcessConfigurationResponse.CONF_UNCHANGED);
+        log.info("onProcessConfiguration - Configuration of DAQ " + processCopy.getName() + " is unchanged since its last request");
+      } else {
+        processConfigurationResponse.setConfigurationXML(configurationXML);
+        log.info("onProcessConfiguration - Returning configuration XML to DAQ " + processCopy.getName());
+      }
     } catch (CacheElementNotFoundException cacheEx) {
       log.warn("onProcessConfiguration - process not found in cache (name = "
           + processConfigurationRequest.getProcessName() + ") - unable to accept connection request.", cacheEx);
@@ -966,6 +976,9 @@ public class SupervisionManagerImpl implements SupervisionManager, SmartLifecycl
     // Process name (NO_PROCESS by default)
     processConnectionResponse.setProcessName(processConnectionRequest.getProcessName());
 
+    // Tag update format, chosen among the formats announced by the DAQ
+    processConnectionResponse.setUpdateFormat(selectUpdateFormat(processConnectionRequest).getName());
+
     // Print some debug information
     if (log.isDebugEnabled()) {
       StringBuilder str = new StringBuilder("onProcessConnection([");
@@ -1042,4 +1055,19 @@ public class SupervisionManagerImpl implements SupervisionManager, SmartLifecycl
 
     return this.xmlConverter.toXml(processConnectionResponse);
   }
+
+  /**
+   * Select the format in which the connecting DAQ should publish its tag
+   * updates. JSON is used unless both sides support the binary format.
+   *
+   * @param processConnectionRequest the connection request of the DAQ
+   * @return the format the DAQ should use
+   */
+  private DataTagValueUpdateFormat selectUpdateFormat(final ProcessConnectionRequest processConnectionRequest) {
+    if (properties.isBinaryDaqUpdates()
+        && DataTagValueUpdateFormat.BINARY.isContainedIn(processConnectionRequest.getUpdateFormats())) {
+      return DataTagValueUpdateFormat.BINARY;
+    }
+    return DataTagValueUpdateFormat.JSON;
+  }
 }
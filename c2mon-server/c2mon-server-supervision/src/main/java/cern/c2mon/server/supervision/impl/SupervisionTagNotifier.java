@@ -18,10 +18,20 @@ package cern.c2mon.server.supervision.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +89,12 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
    */
   private static final Logger LOGGER = LoggerFactory.getLogger(SupervisionTagNotifier.class);
 
+  /**
+   * Number of tags processed together on one propagation thread, and
+   * notified to the cache listeners in one call.
+   */
+  static final int BATCH_SIZE = 500;
+
   /**
    * Register for notifications from the SupervisionNotifier bean.
    */
@@ -140,6 +156,12 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
   /** For distributed locking on the cluster */
   private final ClusterCache clusterCache;
 
+  /**
+   * Threads on which the batches of tags of large supervision changes
+   * are processed.
+   */
+  private final ExecutorService propagationExecutor;
+
   /**
    * Constructor.
    * @param supervisionNotifier notifier bean
@@ -189,6 +211,21 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
     this.dataTagCache = cacheProvider.getDataTagCache();
     this.ruleTagCache = cacheProvider.getRuleTagCache();
     this.clusterCache = cacheProvider.getClusterCache();
+
+    AtomicInteger threadCount = new AtomicInteger();
+    this.propagationExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+      Thread thread = new Thread(runnable, "SupervisionTagNotifier-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Stops the propagation threads on bean destruction.
+   */
+  @PreDestroy
+  public void shutdown() {
+    propagationExecutor.shutdown();
   }
 
   /**
@@ -268,14 +305,21 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
   }
 
   /**
-   * Notifies all equipments under this process. Will use event in local map.
+   * Notifies the tags of all equipments under this process, as a single propagation.
    * @param processId process id
    */
   private void notifyProcessTags(final Long processId) {
     Process process = processCache.getCopy(processId);
+    Collection<Long> tagIds = new ArrayList<>();
     for (Long equipmentId : process.getEquipmentIds()) { //no lock required as get copy
-      notifyEquipmentTags(equipmentId);
+      try {
+        tagIds.addAll(equipmentFacade.getDataTagIds(equipmentId));
+      } catch (CacheElementNotFoundException cacheEx) {
+        LOGGER.warn("Unable to locate Equipment element during Tag supervision "
+            + "change callback (so no invalidation callbacks performed for associated Tags)", cacheEx);
+      }
     }
+    notifyTags(tagIds);
   }
 
   /**
@@ -284,17 +328,7 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
    */
   private void notifyEquipmentTags(final Long equipementId) {
     try {
-      //local map so as not to notify rules twice; lock on map when modifying
-      Map<Long, Boolean> notifiedRules = new HashMap<>();
-      Collection<Long> tagIds = equipmentFacade.getDataTagIds(equipementId);
-      for (Long id : tagIds) {
-       try {
-         callCacheNotification(id, notifiedRules); //recursively notifies all dependent rules also, once only
-       } catch (CacheElementNotFoundException cacheEx) {
-         LOGGER.warn("Unable to locate Tag/Rule cache element during Tag supervision " //TODO ask DAQ refresh
-             + "change callback (some Tags/Rules may have been omitted)", cacheEx);
-       }
-      }
+      notifyTags(equipmentFacade.getDataTagIds(equipementId));
     } catch (CacheElementNotFoundException cacheEx) {
       LOGGER.warn("Unable to locate Equipment element during Tag supervision "
           + "change callback (so no invalidation callbacks performed for associated Tags)", cacheEx);
@@ -308,17 +342,7 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
    */
   private void notifySubEquipmentTags(final Long subEquipmentId) {
     try {
-      //local map so as not to notify rules twice; lock on map when modifying
-      Map<Long, Boolean> notifiedRules = new HashMap<>();
-      Collection<Long> tagIds = subEquipmentFacade.getDataTagIds(subEquipmentId);
-      for (Long id : tagIds) {
-       try {
-         callCacheNotification(id, notifiedRules); //recursively notifies all dependent rules also, once only
-       } catch (CacheElementNotFoundException cacheEx) {
-         LOGGER.warn("Unable to locate Tag/Rule cache element during Tag supervision " //TODO ask DAQ refresh
-             + "change callback (some Tags/Rules may have been omitted)", cacheEx);
-       }
-      }
+      notifyTags(subEquipmentFacade.getDataTagIds(subEquipmentId));
     } catch (CacheElementNotFoundException cacheEx) {
       LOGGER.warn("Unable to locate SubEquipment element during Tag supervision "
           + "change callback (so no invalidation callbacks performed for associated Tags)", cacheEx);
@@ -326,55 +350,139 @@ public class SupervisionTagNotifier implements SupervisionListener, SmartLifecyc
   }
 
   /**
-   * Private recursive method for calling all listeners; recursive calls for
-   * calling the notification for all dependent rules also.
-   * @param id tag id
-   * @param notifiedRules map for preventing multiple notifications for rules
+   * Propagates the current supervision status to the given DataTags and to
+   * all rules depending on them, directly or through other rules.
+   *
+   * <p>The DataTags are notified first, then the rules level by level: each
+   * level contains the rules depending on the tags of the previous one which
+   * have not been notified yet in this propagation, so every rule is
+   * notified exactly once. Within a level, the tags are split in batches of
+   * {@link #BATCH_SIZE} which are processed on the propagation threads.
+   *
+   * @param dataTagIds ids of the DataTags affected by the supervision change
    */
-  private void callCacheNotification(final Long id, final Map<Long, Boolean> notifiedRules) {
-    synchronized (notifiedRules) {
-      Tag tagCopy = tagLocationService.getCopy(id);
-      if (!notifiedRules.containsKey(tagCopy.getId())) {
-        LOGGER.trace("Performing supervision notification for tag " + id);
-        boolean dirtyTagContext = false;
+  private void notifyTags(final Collection<Long> dataTagIds) {
+    SupervisionEvents events = new SupervisionEvents();
+    Set<Long> notifiedRules = new HashSet<>();
+    Collection<Long> tagIds = dataTagIds;
+    while (!tagIds.isEmpty()) {
+      Set<Long> dependentRules = ConcurrentHashMap.newKeySet();
+      notifyLevel(new ArrayList<>(tagIds), events, dependentRules);
+
+      dependentRules.removeAll(notifiedRules);
+      notifiedRules.addAll(dependentRules);
+      tagIds = dependentRules;
+    }
+  }
 
-        for (Long procId : tagCopy.getProcessIds()) {
-          if (processEventCache.hasKey(procId)) { //null never override a value, so if statement ok out of lock
-            supervisionAppender.addSupervisionQuality(tagCopy, processEventCache.getCopy(procId));
-            dirtyTagContext = true;
-          }
-        }
-        for (Long eqId : tagCopy.getEquipmentIds()) {
-          if (equipmentEventCache.hasKey(eqId)) {
-            supervisionAppender.addSupervisionQuality(tagCopy, equipmentEventCache.getCopy(eqId));
-            dirtyTagContext = true;
-          }
-        }
-        for (Long subEqId : tagCopy.getSubEquipmentIds()) {
-          if (subEquipmentEventCache.hasKey(subEqId)) {
-            supervisionAppender.addSupervisionQuality(tagCopy, subEquipmentEventCache.getCopy(subEqId));
-            dirtyTagContext = true;
-          }
-        }
+  /**
+   * Notifies one level of tags, in parallel batches, and waits for all of
+   * them to be done.
+   *
+   * @param tagIds the tags to notify
+   * @param events supervision events of this propagation
+   * @param dependentRules collects the ids of the rules depending on the notified tags
+   */
+  private void notifyLevel(final List<Long> tagIds, final SupervisionEvents events, final Set<Long> dependentRules) {
+    if (tagIds.size() <= BATCH_SIZE) {
+      notifyBatch(tagIds, events, dependentRules);
+      return;
+    }
+    List<Future<?>> batches = new ArrayList<>(tagIds.size() / BATCH_SIZE + 1);
+    for (int from = 0; from < tagIds.size(); from += BATCH_SIZE) {
+      List<Long> batch = tagIds.subList(from, Math.min(from + BATCH_SIZE, tagIds.size()));
+      batches.add(propagationExecutor.submit(() -> notifyBatch(batch, events, dependentRules)));
+    }
+    for (Future<?> batch : batches) {
+      try {
+        batch.get();
+      } catch (ExecutionException e) {
+        LOGGER.error("Unexpected exception while propagating a supervision change to a batch of Tags", e.getCause());
+      } catch (InterruptedException e) {
+        LOGGER.warn("Interrupted while propagating a supervision change to Tags", e);
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
 
-        if (dirtyTagContext) {
+  /**
+   * Adds the supervision status to a batch of tags and notifies the cache
+   * listeners for the whole batch.
+   *
+   * @param tagIds the tags to notify
+   * @param events supervision events of this propagation
+   * @param dependentRules collects the ids of the rules depending on the notified tags
+   */
+  private void notifyBatch(final List<Long> tagIds, final SupervisionEvents events, final Set<Long> dependentRules) {
+    List<DataTag> dataTags = new ArrayList<>();
+    List<RuleTag> ruleTags = new ArrayList<>();
+    for (Long id : tagIds) {
+      try {
+        Tag tagCopy = tagLocationService.getCopy(id);
+        LOGGER.trace("Performing supervision notification for tag " + id);
+        if (events.addSupervisionQuality(tagCopy)) {
           if (tagCopy instanceof DataTag) {
-            dataTagCache.notifyListenersOfSupervisionChange((DataTag) tagCopy);
+            dataTags.add((DataTag) tagCopy);
           } else if (tagCopy instanceof RuleTag) {
-            ruleTagCache.notifyListenersOfSupervisionChange((RuleTag) tagCopy);
+            ruleTags.add((RuleTag) tagCopy);
           } else {
             throw new IllegalArgumentException("Unexpected call with Tag parameter that is neither DataTag or RuleTag; "
                 + "type is " + tagCopy.getClass().getSimpleName());
           }
         }
+        dependentRules.addAll(tagCopy.getRuleIds());
+      } catch (CacheElementNotFoundException cacheEx) {
+        LOGGER.warn("Unable to locate Tag/Rule cache element during Tag supervision " //TODO ask DAQ refresh
+            + "change callback (some Tags/Rules may have been omitted)", cacheEx);
+      }
+    }
+    if (!dataTags.isEmpty()) {
+      dataTagCache.notifyListenersOfSupervisionChanges(dataTags);
+    }
+    if (!ruleTags.isEmpty()) {
+      ruleTagCache.notifyListenersOfSupervisionChanges(ruleTags);
+    }
+  }
+
+  /**
+   * Supervision events of the Processes and (Sub)Equipment, read once per
+   * propagation from the event caches.
+   */
+  private class SupervisionEvents {
+
+    private final Map<Long, Optional<SupervisionEvent>> processEvents = new ConcurrentHashMap<>();
+    private final Map<Long, Optional<SupervisionEvent>> equipmentEvents = new ConcurrentHashMap<>();
+    private final Map<Long, Optional<SupervisionEvent>> subEquipmentEvents = new ConcurrentHashMap<>();
+
+    /**
+     * @param tagCopy the tag copy to which the supervision status is added
+     * @return true if a supervision status was added to the tag
+     */
+    boolean addSupervisionQuality(final Tag tagCopy) {
+      boolean dirtyTagContext = false;
+      for (Long procId : tagCopy.getProcessIds()) {
+        dirtyTagContext |= addSupervisionQuality(tagCopy, processEvents, processEventCache, procId);
       }
+      for (Long eqId : tagCopy.getEquipmentIds()) {
+        dirtyTagContext |= addSupervisionQuality(tagCopy, equipmentEvents, equipmentEventCache, eqId);
+      }
+      for (Long subEqId : tagCopy.getSubEquipmentIds()) {
+        dirtyTagContext |= addSupervisionQuality(tagCopy, subEquipmentEvents, subEquipmentEventCache, subEqId);
+      }
+      return dirtyTagContext;
+    }
 
-      Collection<Long> ruleIds;
-      ruleIds = new ArrayList<>(tagCopy.getRuleIds());
-      for (Long ruleId : ruleIds) {
-        callCacheNotification(ruleId, notifiedRules);
-        notifiedRules.put(ruleId, true);
+    private boolean addSupervisionQuality(final Tag tagCopy, final Map<Long, Optional<SupervisionEvent>> events,
+                                          final C2monCache<Long, SupervisionEvent> eventCache, final Long id) {
+      //null never override a value, so if statement ok out of lock
+      Optional<SupervisionEvent> event = events.computeIfAbsent(id,
+          key -> eventCache.hasKey(key) ? Optional.of(eventCache.getCopy(key)) : Optional.empty());
+      if (event.isPresent()) {
+        supervisionAppender.addSupervisionQuality(tagCopy, event.get());
+        return true;
       }
+      return false;
     }
   }
 
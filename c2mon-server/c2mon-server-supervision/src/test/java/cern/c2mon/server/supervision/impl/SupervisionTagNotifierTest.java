@@ -23,6 +23,7 @@ import cern.c2mon.server.cache.config.CacheModule;
 import cern.c2mon.server.cache.dbaccess.config.CacheDbAccessModule;
 import cern.c2mon.server.common.config.CommonModule;
 import cern.c2mon.server.supervision.config.SupervisionModule;
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.easymock.IMocksControl;
 import org.junit.Before;
@@ -37,9 +38,11 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import cern.c2mon.server.cache.*;
 import cern.c2mon.server.cache.supervision.SupervisionAppender;
+import cern.c2mon.server.common.datatag.DataTag;
 import cern.c2mon.server.common.datatag.DataTagCacheObject;
 import cern.c2mon.server.common.equipment.EquipmentCacheObject;
 import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.common.rule.RuleTag;
 import cern.c2mon.server.common.rule.RuleTagCacheObject;
 import cern.c2mon.server.common.subequipment.SubEquipmentCacheObject;
 import cern.c2mon.server.supervision.SupervisionNotifier;
@@ -48,6 +51,8 @@ import cern.c2mon.shared.client.supervision.SupervisionEventImpl;
 import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionEntity;
 import cern.c2mon.shared.common.supervision.SupervisionConstants.SupervisionStatus;
 
+import static org.junit.Assert.assertEquals;
+
 /**
  * Unit test of SupervisionTagNotifier class.
  *
@@ -219,25 +224,24 @@ public class SupervisionTagNotifierTest {
     EasyMock.expect(equipmentFacade.getDataTagIds(30L)).andReturn(Arrays.asList(100L, 101L));
     EasyMock.expect(tagLocationService.getCopy(100L)).andReturn(dataTag);
     EasyMock.expect(tagLocationService.getCopy(101L)).andReturn(dataTag2);
-    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag).times(2);
+    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag); //only once although used by 2 different tags
     EasyMock.expect(tagLocationService.getCopy(201L)).andReturn(ruleTag2);
     EasyMock.expect(tagLocationService.getCopy(202L)).andReturn(ruleTag3);
     supervisionAppender.addSupervisionQuality(dataTag, event);
-    dataTagCache.notifyListenersOfSupervisionChange(dataTag);
     supervisionAppender.addSupervisionQuality(dataTag2, event);
-    dataTagCache.notifyListenersOfSupervisionChange(dataTag2);
+    dataTagCache.notifyListenersOfSupervisionChanges(Arrays.<DataTag>asList(dataTag, dataTag2));
     supervisionAppender.addSupervisionQuality(ruleTag,event);
-    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag); //only once although uses triggered by 2 different tags
     supervisionAppender.addSupervisionQuality(ruleTag2,event);
-    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag2);
     supervisionAppender.addSupervisionQuality(ruleTag3,event);
-    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag3);
+    Capture<Collection<RuleTag>> notifiedRules = EasyMock.newCapture();
+    ruleTagCache.notifyListenersOfSupervisionChanges(EasyMock.capture(notifiedRules));
 
     mockControl.replay();
 
     supervisionTagNotifier.notifySupervisionEvent(event);
 
     mockControl.verify();
+    assertEquals(new HashSet<RuleTag>(Arrays.asList(ruleTag, ruleTag2, ruleTag3)), new HashSet<>(notifiedRules.getValue()));
   }
 
   /**
@@ -252,25 +256,24 @@ public class SupervisionTagNotifierTest {
     EasyMock.expect(equipmentFacade.getDataTagIds(30L)).andReturn(Arrays.asList(100L, 101L));
     EasyMock.expect(tagLocationService.getCopy(100L)).andReturn(dataTag);
     EasyMock.expect(tagLocationService.getCopy(101L)).andReturn(dataTag2);
-    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag).times(2);
+    EasyMock.expect(tagLocationService.getCopy(200L)).andReturn(ruleTag); //only once although used by 2 different tags
     EasyMock.expect(tagLocationService.getCopy(201L)).andReturn(ruleTag2);
     EasyMock.expect(tagLocationService.getCopy(202L)).andReturn(ruleTag3);
-    supervisionAppender.addSupervisionQuality(dataTag,event);
-    dataTagCache.notifyListenersOfSupervisionChange(dataTag);
-    supervisionAppender.addSupervisionQuality(dataTag2,event);
-    dataTagCache.notifyListenersOfSupervisionChange(dataTag2);
+    supervisionAppender.addSupervisionQuality(dataTag, event);
+    supervisionAppender.addSupervisionQuality(dataTag2, event);
+    dataTagCache.notifyListenersOfSupervisionChanges(Arrays.<DataTag>asList(dataTag, dataTag2));
     supervisionAppender.addSupervisionQuality(ruleTag,event);
-    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag); //only once although uses triggered by 2 different tags
     supervisionAppender.addSupervisionQuality(ruleTag2,event);
-    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag2);
     supervisionAppender.addSupervisionQuality(ruleTag3,event);
-    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag3);
+    Capture<Collection<RuleTag>> notifiedRules = EasyMock.newCapture();
+    ruleTagCache.notifyListenersOfSupervisionChanges(EasyMock.capture(notifiedRules));
 
     mockControl.replay();
 
     supervisionTagNotifier.notifySupervisionEvent(event);
 
     mockControl.verify();
+    assertEquals(new HashSet<RuleTag>(Arrays.asList(ruleTag, ruleTag2, ruleTag3)), new HashSet<>(notifiedRules.getValue()));
   }
 
   @Test
@@ -282,21 +285,21 @@ public class SupervisionTagNotifierTest {
     EasyMock.expect(subEquipmentFacade.getDataTagIds(50L)).andReturn(Arrays.asList(102L, 103L));
     EasyMock.expect(tagLocationService.getCopy(102L)).andReturn(dataTag3);
     EasyMock.expect(tagLocationService.getCopy(103L)).andReturn(dataTag4);
-    EasyMock.expect(tagLocationService.getCopy(203L)).andReturn(ruleTag4).times(2);
-    EasyMock.expect(tagLocationService.getCopy(204L)).andReturn(ruleTag5).times(2);
+    EasyMock.expect(tagLocationService.getCopy(203L)).andReturn(ruleTag4);
+    EasyMock.expect(tagLocationService.getCopy(204L)).andReturn(ruleTag5);
     supervisionAppender.addSupervisionQuality(dataTag3, event);
-    dataTagCache.notifyListenersOfSupervisionChange(dataTag3);
     supervisionAppender.addSupervisionQuality(dataTag4, event);
-    dataTagCache.notifyListenersOfSupervisionChange(dataTag4);
+    dataTagCache.notifyListenersOfSupervisionChanges(Arrays.<DataTag>asList(dataTag3, dataTag4));
     supervisionAppender.addSupervisionQuality(ruleTag4, event);
-    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag4);
     supervisionAppender.addSupervisionQuality(ruleTag5, event);
-    ruleTagCache.notifyListenersOfSupervisionChange(ruleTag5);
+    Capture<Collection<RuleTag>> notifiedRules = EasyMock.newCapture();
+    ruleTagCache.notifyListenersOfSupervisionChanges(EasyMock.capture(notifiedRules));
 
     mockControl.replay();
 
     supervisionTagNotifier.notifySupervisionEvent(event);
 
     mockControl.verify();
+    assertEquals(new HashSet<RuleTag>(Arrays.asList(ruleTag4, ruleTag5)), new HashSet<>(notifiedRules.getValue()));
   }
 }
@@ -29,6 +29,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 import static cern.c2mon.shared.common.type.TypeConverter.cast;
 import static cern.c2mon.shared.common.type.TypeConverter.getType;
@@ -72,6 +73,63 @@ public class TransferTagSerializer {
     return result;
   }
 
+  /**
+   * Converts a batch of TagValues into a single json array. Jackson is used to do this.
+   * @param tagUpdates The tags which need to be serialized into one json string.
+   * @param <T>
+   * @return The json String, or null if the serialization failed
+   */
+  public static <T extends TagValueUpdate> String toJsonArray(Collection<T> tagUpdates) {
+    String result = null;
+
+    try {
+      result = mapper.writeValueAsString(tagUpdates);
+    } catch (JsonProcessingException e) {
+      log.error("Serializing of tagUpdate batch failed: " + e.getMessage());
+    }
+
+    return result;
+  }
+
+  /**
+   * Checks whether a json String holds a batch of tag updates, as created by {@link #toJsonArray(Collection)},
+   * rather than a single one.
+   * @param json the json String received from the server
+   * @return True if the string is a json array
+   */
+  public static boolean isJsonArray(String json) {
+    for (int i = 0; i < json.length(); i++) {
+      char c = json.charAt(i);
+      if (!Character.isWhitespace(c)) {
+        return c == '[';
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Converts a json array created by {@link #toJsonArray(Collection)} back into a list of TagValueUpdates.
+   * The embedded tag values are casted into the given class type of each tag.
+   * @param tagUpdatesJson The json array
+   * @param dataType The data type of the tags in the array
+   * @param <T>
+   * @return The list of TagValueUpdates, or null if the deserialization failed
+   */
+  public static <T extends TagValueUpdate> List<T> fromJsonArray(String tagUpdatesJson, Class<T> dataType) {
+    List<T> result = null;
+
+    try {
+      result = mapper.readValue(tagUpdatesJson, mapper.getTypeFactory().constructCollectionType(List.class, dataType));
+      for (T tag : result) {
+        tag.setValue(convertTagValue(tag));
+      }
+    } catch (IOException e) {
+      log.warn("Error occurred while converting the json array back to objects: " + e.getMessage());
+    }
+
+    return result;
+  }
+
   /**
    *
    * @param tagUpdateJson Converts the json String into a TagValueUpdate instance. By doing this the embedded Tag value will be casted into the given
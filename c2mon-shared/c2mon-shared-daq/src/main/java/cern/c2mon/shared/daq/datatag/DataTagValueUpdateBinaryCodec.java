@@ -0,0 +1,438 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.daq.datatag;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagQualityCode;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+
+/**
+ * Compact binary encoding of a {@link DataTagValueUpdate}.
+ *
+ * <p>The layout (big-endian) is:
+ * <pre>
+ * header      : int magic, byte version
+ * process     : long processId, byte hasPIK, [long processPIK]
+ * dictionary  : int tagCount, { long id, string name, byte controlTag }*
+ * values      : int valueCount, { int tagIndex, byte valueType, [value],
+ *               string valueDescription, byte qualityCode, string qualityDescription,
+ *               long timestamp, long daqTimestamp, int priority,
+ *               byte guaranteedDelivery, int timeToLive, byte simulated }*
+ * string      : int length (-1 for null), UTF-8 bytes
+ * </pre>
+ *
+ * <p>Each tag id and name is written only once per message in the dictionary,
+ * even if several values of the same tag are part of the update. Values are
+ * written as primitives; only {@code null}, {@link Boolean}, the numeric
+ * primitive wrappers and {@link String} values can be encoded. Updates
+ * carrying any other value type must be sent as JSON, see
+ * {@link #isEncodable(DataTagValueUpdate)}.
+ *
+ * <p>This class is stateless and thread-safe.
+ */
+public final class DataTagValueUpdateBinaryCodec {
+
+  /** Magic number at the start of every message ("C2MU") */
+  public static final int MAGIC = 0x43324D55;
+
+  /** Current version of the encoding */
+  public static final byte VERSION = 1;
+
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_BYTE = 2;
+  private static final byte TYPE_SHORT = 3;
+  private static final byte TYPE_INTEGER = 4;
+  private static final byte TYPE_LONG = 5;
+  private static final byte TYPE_FLOAT = 6;
+  private static final byte TYPE_DOUBLE = 7;
+  private static final byte TYPE_STRING = 8;
+
+  private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+  /** Estimated number of bytes per value, used to size the output buffer */
+  private static final int VALUE_SIZE_ESTIMATE = 96;
+
+  private static final SourceDataTagQualityCode[] QUALITY_CODES;
+
+  static {
+    int max = 0;
+    for (SourceDataTagQualityCode code : SourceDataTagQualityCode.values()) {
+      max = Math.max(max, code.getQualityCode());
+    }
+    QUALITY_CODES = new SourceDataTagQualityCode[max + 1];
+    for (SourceDataTagQualityCode code : SourceDataTagQualityCode.values()) {
+      QUALITY_CODES[code.getQualityCode()] = code;
+    }
+  }
+
+  /**
+   * Check whether all values of the given update can be encoded with this
+   * codec.
+   *
+   * @param update the update to check
+   * @return {@code true} if {@link #encode(DataTagValueUpdate)} will succeed
+   */
+  public boolean isEncodable(final DataTagValueUpdate update) {
+    Collection<SourceDataTagValue> values = update.getValues();
+    if (values != null) {
+      for (SourceDataTagValue value : values) {
+        if (value.getId() == null || typeOf(value.getValue()) < 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Encode the given update.
+   *
+   * @param update the update to encode
+   * @return the binary representation of the update
+   * @throws IllegalArgumentException if the update contains a value which
+   *                                  cannot be encoded
+   */
+  public byte[] encode(final DataTagValueUpdate update) {
+    Collection<SourceDataTagValue> values = update.getValues();
+    int valueCount = (values != null ? values.size() : 0);
+
+    Map<Long, Integer> dictionary = new HashMap<>(valueCount * 2);
+    int[] tagIndexes = new int[valueCount];
+    ArrayList<SourceDataTagValue> dictionaryEntries = new ArrayList<>(valueCount);
+
+    int position = 0;
+    if (values != null) {
+      for (SourceDataTagValue value : values) {
+        Integer index = dictionary.get(value.getId());
+        if (index == null) {
+          index = dictionaryEntries.size();
+          dictionary.put(value.getId(), index);
+          dictionaryEntries.add(value);
+        }
+        tagIndexes[position++] = index;
+      }
+    }
+
+    Writer writer = new Writer(64 + valueCount * VALUE_SIZE_ESTIMATE);
+    writer.putInt(MAGIC);
+    writer.putByte(VERSION);
+
+    writer.putLong(update.getProcessId() != null ? update.getProcessId() : -1L);
+    if (update.getProcessPIK() != null) {
+      writer.putByte((byte) 1);
+      writer.putLong(update.getProcessPIK());
+    } else {
+      writer.putByte((byte) 0);
+    }
+
+    writer.putInt(dictionaryEntries.size());
+    for (SourceDataTagValue entry : dictionaryEntries) {
+      writer.putLong(entry.getId());
+      writer.putString(entry.getName());
+      writer.putBoolean(entry.isControlTag());
+    }
+
+    writer.putInt(valueCount);
+    position = 0;
+    if (values != null) {
+      for (SourceDataTagValue value : values) {
+        writer.putInt(tagIndexes[position++]);
+        putValue(writer, value.getValue());
+        writer.putString(value.getValueDescription());
+
+        // a value without quality is sent with the UNKNOWN quality code
+        SourceDataTagQuality quality = value.getQuality();
+        SourceDataTagQualityCode qualityCode = (quality != null && quality.getQualityCode() != null
+            ? quality.getQualityCode() : SourceDataTagQualityCode.UNKNOWN);
+        writer.putByte((byte) qualityCode.getQualityCode());
+        writer.putString(quality != null ? quality.getDescription() : null);
+
+        writer.putTimestamp(value.getTimestamp());
+        writer.putTimestamp(value.getDaqTimestamp());
+        writer.putInt(value.getPriority());
+        writer.putBoolean(value.isGuaranteedDelivery());
+        writer.putInt(value.getTimeToLive());
+        writer.putBoolean(value.isSimulated());
+      }
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decode an update previously encoded with {@link #encode(DataTagValueUpdate)}.
+   *
+   * @param bytes the binary representation
+   * @return the decoded update
+   * @throws IllegalArgumentException if the bytes are not a valid encoding or
+   *                                  were produced by an unsupported version
+   */
+  public DataTagValueUpdate decode(final byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IllegalArgumentException("Not a binary DataTagValueUpdate message (bad magic number)");
+      }
+      byte version = buffer.get();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported binary DataTagValueUpdate version: " + version);
+      }
+
+      long rawProcessId = buffer.getLong();
+      Long processId = (rawProcessId != -1L ? rawProcessId : null);
+      Long processPIK = (buffer.get() != 0 ? buffer.getLong() : null);
+
+      int tagCount = buffer.getInt();
+      long[] ids = new long[tagCount];
+      String[] names = new String[tagCount];
+      boolean[] controlTags = new boolean[tagCount];
+      for (int i = 0; i < tagCount; i++) {
+        ids[i] = buffer.getLong();
+        names[i] = getString(buffer);
+        controlTags[i] = buffer.get() != 0;
+      }
+
+      int valueCount = buffer.getInt();
+      ArrayList<SourceDataTagValue> values = new ArrayList<>(valueCount);
+      for (int i = 0; i < valueCount; i++) {
+        int index = buffer.getInt();
+        SourceDataTagValue value = new SourceDataTagValue();
+        value.setId(ids[index]);
+        value.setName(names[index]);
+        value.setControlTag(controlTags[index]);
+        value.setValue(getValue(buffer));
+        value.setValueDescription(getString(buffer));
+
+        SourceDataTagQuality quality = new SourceDataTagQuality(toQualityCode(buffer.get()));
+        quality.setDescription(getString(buffer));
+        value.setQuality(quality);
+
+        value.setTimestamp(getTimestamp(buffer));
+        value.setDaqTimestamp(getTimestamp(buffer));
+        value.setPriority(buffer.getInt());
+        value.setGuaranteedDelivery(buffer.get() != 0);
+        value.setTimeToLive(buffer.getInt());
+        value.setSimulated(buffer.get() != 0);
+        values.add(value);
+      }
+
+      DataTagValueUpdate update = new DataTagValueUpdate(processId, processPIK);
+      update.setValues(values);
+      return update;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated or corrupted binary DataTagValueUpdate message", e);
+    }
+  }
+
+  private static byte typeOf(final Object value) {
+    if (value == null) {
+      return TYPE_NULL;
+    } else if (value instanceof Boolean) {
+      return TYPE_BOOLEAN;
+    } else if (value instanceof Byte) {
+      return TYPE_BYTE;
+    } else if (value instanceof Short) {
+      return TYPE_SHORT;
+    } else if (value instanceof Integer) {
+      return TYPE_INTEGER;
+    } else if (value instanceof Long) {
+      return TYPE_LONG;
+    } else if (value instanceof Float) {
+      return TYPE_FLOAT;
+    } else if (value instanceof Double) {
+      return TYPE_DOUBLE;
+    } else if (value instanceof String) {
+      return TYPE_STRING;
+    }
+    return -1;
+  }
+
+  private static void putValue(final Writer writer, final Object value) {
+    byte type = typeOf(value);
+    writer.putByte(type);
+    switch (type) {
+      case TYPE_NULL:
+        break;
+      case TYPE_BOOLEAN:
+        writer.putBoolean((Boolean) value);
+        break;
+      case TYPE_BYTE:
+        writer.putByte((Byte) value);
+        break;
+      case TYPE_SHORT:
+        writer.putShort((Short) value);
+        break;
+      case TYPE_INTEGER:
+        writer.putInt((Integer) value);
+        break;
+      case TYPE_LONG:
+        writer.putLong((Long) value);
+        break;
+      case TYPE_FLOAT:
+        writer.putFloat((Float) value);
+        break;
+      case TYPE_DOUBLE:
+        writer.putDouble((Double) value);
+        break;
+      case TYPE_STRING:
+        writer.putString((String) value);
+        break;
+      default:
+        throw new IllegalArgumentException("Value type not supported by binary encoding: " + value.getClass().getName());
+    }
+  }
+
+  private static Object getValue(final ByteBuffer buffer) {
+    byte type = buffer.get();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_BOOLEAN:
+        return buffer.get() != 0;
+      case TYPE_BYTE:
+        return buffer.get();
+      case TYPE_SHORT:
+        return buffer.getShort();
+      case TYPE_INTEGER:
+        return buffer.getInt();
+      case TYPE_LONG:
+        return buffer.getLong();
+      case TYPE_FLOAT:
+        return buffer.getFloat();
+      case TYPE_DOUBLE:
+        return buffer.getDouble();
+      case TYPE_STRING:
+        return getString(buffer);
+      default:
+        throw new IllegalArgumentException("Unknown value type in binary DataTagValueUpdate message: " + type);
+    }
+  }
+
+  private static String getString(final ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    String result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return result;
+  }
+
+  private static Timestamp getTimestamp(final ByteBuffer buffer) {
+    long time = buffer.getLong();
+    return (time != NULL_TIMESTAMP ? new Timestamp(time) : null);
+  }
+
+  private static SourceDataTagQualityCode toQualityCode(final byte code) {
+    if (code >= 0 && code < QUALITY_CODES.length && QUALITY_CODES[code] != null) {
+      return QUALITY_CODES[code];
+    }
+    return SourceDataTagQualityCode.UNKNOWN;
+  }
+
+  /**
+   * Minimal growable big-endian buffer. Used instead of a
+   * {@code DataOutputStream} to avoid the per-call synchronisation and the
+   * 64KB limit of {@code writeUTF}.
+   */
+  private static final class Writer {
+
+    private byte[] bytes;
+
+    private int size;
+
+    Writer(final int initialCapacity) {
+      this.bytes = new byte[initialCapacity];
+    }
+
+    void putByte(final byte value) {
+      ensureCapacity(1);
+      this.bytes[this.size++] = value;
+    }
+
+    void putBoolean(final boolean value) {
+      putByte(value ? (byte) 1 : (byte) 0);
+    }
+
+    void putShort(final short value) {
+      ensureCapacity(2);
+      this.bytes[this.size++] = (byte) (value >>> 8);
+      this.bytes[this.size++] = (byte) value;
+    }
+
+    void putInt(final int value) {
+      ensureCapacity(4);
+      this.bytes[this.size++] = (byte) (value >>> 24);
+      this.bytes[this.size++] = (byte) (value >>> 16);
+      this.bytes[this.size++] = (byte) (value >>> 8);
+      this.bytes[this.size++] = (byte) value;
+    }
+
+    void putLong(final long value) {
+      putInt((int) (value >>> 32));
+      putInt((int) value);
+    }
+
+    void putFloat(final float value) {
+      putInt(Float.floatToIntBits(value));
+    }
+
+    void putDouble(final double value) {
+      putLong(Double.doubleToLongBits(value));
+    }
+
+    void putTimestamp(final Timestamp value) {
+      putLong(value != null ? value.getTime() : NULL_TIMESTAMP);
+    }
+
+    void putString(final String value) {
+      if (value == null) {
+        putInt(-1);
+        return;
+      }
+      byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+      putInt(encoded.length);
+      ensureCapacity(encoded.length);
+      System.arraycopy(encoded, 0, this.bytes, this.size, encoded.length);
+      this.size += encoded.length;
+    }
+
+    byte[] toByteArray() {
+      byte[] result = new byte[this.size];
+      System.arraycopy(this.bytes, 0, result, 0, this.size);
+      return result;
+    }
+
+    private void ensureCapacity(final int additional) {
+      if (this.size + additional > this.bytes.length) {
+        byte[] grown = new byte[Math.max(this.bytes.length * 2, this.size + additional)];
+        System.arraycopy(this.bytes, 0, grown, 0, this.size);
+        this.bytes = grown;
+      }
+    }
+  }
+}
@@ -24,7 +24,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.jms.support.converter.MessageConversionException;
 import org.springframework.jms.support.converter.MessageConverter;
 
-import javax.annotation.PostConstruct;
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
@@ -32,9 +32,16 @@ import javax.jms.TextMessage;
 import java.io.IOException;
 
 /**
- * Converter class used to convert between JSON messages and
+ * Converter class used to convert between JMS messages and
  * {@link DataTagValueUpdate} instances.
  *
+ * <p>Incoming messages are decoded according to their type: a
+ * {@link TextMessage} is parsed as JSON and a {@link BytesMessage} with the
+ * {@link DataTagValueUpdateBinaryCodec}. Outgoing messages are written in the
+ * {@link DataTagValueUpdateFormat} set on this converter, which is JSON unless
+ * the server agreed to another format during the connection handshake. Updates
+ * which cannot be represented in the binary format are always sent as JSON.
+ *
  * @author Mark Brightwell
  */
 @Slf4j
@@ -42,12 +49,35 @@ public class DataTagValueUpdateConverter implements MessageConverter {
 
   private ObjectMapper mapper;
 
+  private final DataTagValueUpdateBinaryCodec binaryCodec = new DataTagValueUpdateBinaryCodec();
+
+  /**
+   * Format used for outgoing messages. Agreed per connection, hence volatile.
+   */
+  private volatile DataTagValueUpdateFormat format = DataTagValueUpdateFormat.JSON;
+
   public DataTagValueUpdateConverter() {
     this.mapper = new ObjectMapper();
     mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     mapper.enable(DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY);
   }
 
+  /**
+   * @return the format used for outgoing messages
+   */
+  public DataTagValueUpdateFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Set the format used for outgoing messages.
+   *
+   * @param format the format agreed with the server
+   */
+  public void setFormat(final DataTagValueUpdateFormat format) {
+    this.format = (format != null ? format : DataTagValueUpdateFormat.JSON);
+  }
+
   /**
    * Converts an incoming tag update into a {@link DataTagValueUpdate} object.
    *
@@ -62,8 +92,12 @@ public class DataTagValueUpdateConverter implements MessageConverter {
       throw new MessageConversionException("Message must not be null!");
     }
 
+    if (message instanceof BytesMessage) {
+      return fromBytesMessage((BytesMessage) message);
+    }
+
     if (!(message instanceof TextMessage)) {
-      throw new MessageConversionException("Message must be an instance of TextMessage!");
+      throw new MessageConversionException("Message must be an instance of TextMessage or BytesMessage!");
     }
 
     try {
@@ -77,6 +111,19 @@ public class DataTagValueUpdateConverter implements MessageConverter {
     }
   }
 
+  private DataTagValueUpdate fromBytesMessage(final BytesMessage message) throws JMSException {
+    byte[] bytes = new byte[(int) message.getBodyLength()];
+    message.readBytes(bytes);
+
+    try {
+      return binaryCodec.decode(bytes);
+    } catch (RuntimeException e) {
+      log.error("Exception caught while decoding incoming binary update", e);
+      throw new MessageConversionException("Exception caught while decoding incoming binary update of "
+          + bytes.length + " bytes", e);
+    }
+  }
+
   /**
    * Converts a {@link DataTagValueUpdate} to a JMS {@link Message}
    *
@@ -88,6 +135,13 @@ public class DataTagValueUpdateConverter implements MessageConverter {
    */
   @Override
   public Message toMessage(final Object tag, final Session session) throws JMSException {
+    if (format == DataTagValueUpdateFormat.BINARY && tag instanceof DataTagValueUpdate
+        && binaryCodec.isEncodable((DataTagValueUpdate) tag)) {
+      BytesMessage message = session.createBytesMessage();
+      message.writeBytes(binaryCodec.encode((DataTagValueUpdate) tag));
+      return message;
+    }
+
     try {
       String json = mapper.writeValueAsString(tag);
       return session.createTextMessage(json);
@@ -0,0 +1,84 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.daq.datatag;
+
+/**
+ * Wire formats which can be used to transport a
+ * {@link cern.c2mon.shared.common.datatag.DataTagValueUpdate} from the DAQ to
+ * the server.
+ *
+ * <p>The format is agreed upon during the process connection handshake. JSON
+ * is always supported and is used whenever the other side did not announce
+ * support for anything else.
+ */
+public enum DataTagValueUpdateFormat {
+
+  /** Jackson JSON, sent as a {@code TextMessage} */
+  JSON("json"),
+
+  /** {@link DataTagValueUpdateBinaryCodec} encoding, sent as a {@code BytesMessage} */
+  BINARY("binary");
+
+  private final String name;
+
+  DataTagValueUpdateFormat(final String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return the name of the format as used in the connection handshake
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Resolve a format from its handshake name.
+   *
+   * @param name the format name (may be {@code null})
+   * @return the matching format, or {@link #JSON} if the name is unknown
+   */
+  public static DataTagValueUpdateFormat fromName(final String name) {
+    if (name != null) {
+      for (DataTagValueUpdateFormat format : values()) {
+        if (format.name.equalsIgnoreCase(name.trim())) {
+          return format;
+        }
+      }
+    }
+    return JSON;
+  }
+
+  /**
+   * Check whether a comma-separated list of format names, as announced in a
+   * connection request, contains this format.
+   *
+   * @param names comma-separated format names (may be {@code null})
+   * @return {@code true} if this format is part of the list
+   */
+  public boolean isContainedIn(final String names) {
+    if (names == null) {
+      return this == JSON;
+    }
+    for (String name : names.split(",")) {
+      if (this.name.equalsIgnoreCase(name.trim())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
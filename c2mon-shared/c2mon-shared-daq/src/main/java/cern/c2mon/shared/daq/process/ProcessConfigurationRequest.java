@@ -60,6 +60,14 @@ public class ProcessConfigurationRequest implements ProcessRequest {
    */
   @Element
   private Long processPIK = NO_PIK;
+
+  /**
+   * Hash of the configuration the DAQ has cached locally (see
+   * {@link ProcessConfigurationResponse#getConfigurationHash()}). Optional,
+   * as DAQs without a configuration cache do not send it.
+   */
+  @Element(required = false)
+  private String configurationHash;
   
   
   /**
@@ -113,6 +121,22 @@ public class ProcessConfigurationRequest implements ProcessRequest {
   public final Long getProcessPIK() {
     return this.processPIK;
   }
+
+  /**
+   * Sets the hash of the configuration cached by the DAQ.
+   *
+   * @param configurationHash The hash, or {@code null} if nothing is cached
+   */
+  public final void setConfigurationHash(final String configurationHash) {
+    this.configurationHash = configurationHash;
+  }
+
+  /**
+   * @return The hash of the configuration cached by the DAQ, or {@code null}
+   */
+  public final String getConfigurationHash() {
+    return this.configurationHash;
+  }
   
   @Override
   public final String toString() {
@@ -17,6 +17,9 @@
 package cern.c2mon.shared.daq.process;
 
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
 
 import org.slf4j.Logger;
@@ -58,6 +61,12 @@ public class ProcessConfigurationResponse implements ProcessResponse {
    */
   public static final String NO_XML = "NO_XML";
 
+  /**
+   * Sent instead of the configuration XML when its hash matches the one of
+   * the configuration cached by the DAQ, which can then use its cached copy.
+   */
+  public static final String CONF_UNCHANGED = "CONF_UNCHANGED";
+
   /**
    * Unique name of the Process that wishes to connect.
    */
@@ -70,6 +79,13 @@ public class ProcessConfigurationResponse implements ProcessResponse {
   @Element
   private String configurationXML = NO_XML;
 
+  /**
+   * SHA-256 hash (hexadecimal) of the configuration XML. Optional, as older
+   * servers do not send it.
+   */
+  @Element(required = false)
+  private String configurationHash;
+
   
   /**
    * Constructor
@@ -122,6 +138,41 @@ public class ProcessConfigurationResponse implements ProcessResponse {
     return this.configurationXML;
   }
 
+  /**
+   * Sets the hash of the configuration XML.
+   *
+   * @param configurationHash The hash, see {@link #hash(String)}
+   */
+  public final void setConfigurationHash(final String configurationHash) {
+    this.configurationHash = configurationHash;
+  }
+
+  /**
+   * @return The hash of the configuration XML, or {@code null} if the server did not send one
+   */
+  public final String getConfigurationHash() {
+    return this.configurationHash;
+  }
+
+  /**
+   * Computes the hash identifying a configuration XML.
+   *
+   * @param configurationXML The configuration XML
+   * @return The SHA-256 hash of the UTF-8 encoded XML, in hexadecimal
+   */
+  public static String hash(final String configurationXML) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(configurationXML.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+  }
+
   
   @Override
   public final String toString() {
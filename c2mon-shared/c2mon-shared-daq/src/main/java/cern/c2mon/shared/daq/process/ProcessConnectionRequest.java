@@ -73,6 +73,14 @@ public class ProcessConnectionRequest implements ProcessRequest {
    */
   @Element
   protected Timestamp processStartupTime = new Timestamp(System.currentTimeMillis());
+
+  /**
+   * Comma-separated list of the tag update formats supported by the DAQ (see
+   * {@link cern.c2mon.shared.daq.datatag.DataTagValueUpdateFormat}). Optional,
+   * as older DAQs only support JSON.
+   */
+  @Element(required = false)
+  protected String updateFormats;
   
   /**
    * Empty Constructor
@@ -143,6 +151,14 @@ public class ProcessConnectionRequest implements ProcessRequest {
     return this.processStartupTime;
   }
   
+  /**
+   * @return The comma-separated tag update formats supported by the DAQ, or
+   *         {@code null} if none were announced.
+   */
+  public final String getUpdateFormats() {
+    return this.updateFormats;
+  }
+
   /**
    * Sets the Process Name
    * 
@@ -170,6 +186,15 @@ public class ProcessConnectionRequest implements ProcessRequest {
     this.processStartupTime = processStartupTime;
   }
   
+  /**
+   * Sets the tag update formats supported by the DAQ
+   *
+   * @param updateFormats Comma-separated format names.
+   */
+  public void setUpdateFormats(final String updateFormats) {
+    this.updateFormats = updateFormats;
+  }
+
   @Override
   public final String toString() {
     return ("Process Name: " + this.processName + ", StartUp Time: " + this.processStartupTime + 
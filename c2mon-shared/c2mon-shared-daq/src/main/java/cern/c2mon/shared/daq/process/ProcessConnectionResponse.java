@@ -70,6 +70,14 @@ public class ProcessConnectionResponse implements ProcessResponse {
   @Element
   private Long processPIK = NO_PIK;
 
+  /**
+   * The tag update format the DAQ should use, chosen by the server among the
+   * formats announced in the connection request. Optional, as older servers
+   * do not send it (the DAQ then falls back to JSON).
+   */
+  @Element(required = false)
+  private String updateFormat;
+
   /**
    * Empty Constructor
    * 
@@ -126,6 +134,24 @@ public class ProcessConnectionResponse implements ProcessResponse {
     return this.processPIK;
   }
 
+  /**
+   * Sets the tag update format the DAQ should use.
+   *
+   * @param updateFormat The format name
+   */
+  public final void setUpdateFormat(final String updateFormat) {
+    this.updateFormat = updateFormat;
+  }
+
+  /**
+   * Returns the tag update format the DAQ should use
+   *
+   * @return The format name, or {@code null} if the server did not choose one
+   */
+  public final String getUpdateFormat() {
+    return this.updateFormat;
+  }
+
   @Override
   public final String toString() {
     return ("Process Name: " + this.processName + ", " + "Process PIK: " + this.processPIK);
@@ -0,0 +1,173 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.daq.datatag;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagQualityCode;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DataTagValueUpdateBinaryCodecTest {
+
+  private DataTagValueUpdateBinaryCodec codec;
+
+  private DataTagValueUpdate update;
+
+  @Before
+  public void beforeTest() {
+    codec = new DataTagValueUpdateBinaryCodec();
+    update = new DataTagValueUpdate(11L, 12345L);
+  }
+
+  @Test
+  public void encodeAndDecodePrimitiveValues() {
+    Object[] values = new Object[] {null, true, (byte) 3, (short) 10, 1, 100L, 1.111f, 1.1d, "testText"};
+    for (int i = 0; i < values.length; i++) {
+      update.addValue(createValue(100L + i, values[i]));
+    }
+
+    DataTagValueUpdate decoded = codec.decode(codec.encode(update));
+
+    assertEquals(update.getProcessId(), decoded.getProcessId());
+    assertEquals(update.getProcessPIK(), decoded.getProcessPIK());
+    assertEquals(values.length, decoded.getValues().size());
+
+    Iterator<SourceDataTagValue> expected = update.getValues().iterator();
+    for (SourceDataTagValue actual : decoded.getValues()) {
+      assertEquals(expected.next(), actual);
+    }
+  }
+
+  @Test
+  public void encodeAndDecodeRepeatedTag() {
+    update.addValue(createValue(100L, 1.0d));
+    update.addValue(createValue(101L, 2.0d));
+    update.addValue(createValue(100L, 3.0d));
+
+    DataTagValueUpdate decoded = codec.decode(codec.encode(update));
+
+    ArrayList<SourceDataTagValue> values = new ArrayList<>(decoded.getValues());
+    assertEquals(3, values.size());
+    assertEquals(Long.valueOf(100L), values.get(2).getId());
+    assertEquals("tag100", values.get(2).getName());
+    assertEquals(3.0d, values.get(2).getValue());
+  }
+
+  @Test
+  public void encodeAndDecodeInvalidQuality() {
+    SourceDataTagValue value = createValue(100L, null);
+    value.setQuality(new SourceDataTagQuality(SourceDataTagQualityCode.DATA_UNAVAILABLE, "Not connected"));
+    value.setTimestamp(null);
+    update.addValue(value);
+
+    SourceDataTagValue decoded = codec.decode(codec.encode(update)).getValues().iterator().next();
+
+    assertEquals(SourceDataTagQualityCode.DATA_UNAVAILABLE, decoded.getQuality().getQualityCode());
+    assertEquals("Not connected", decoded.getQuality().getDescription());
+    assertNull(decoded.getTimestamp());
+    assertNull(decoded.getValue());
+  }
+
+  @Test
+  public void encodeAndDecodeMissingQuality() {
+    SourceDataTagValue value = createValue(100L, 42);
+    value.setQuality(null);
+    update.addValue(value);
+
+    SourceDataTagValue decoded = codec.decode(codec.encode(update)).getValues().iterator().next();
+
+    assertEquals(SourceDataTagQualityCode.UNKNOWN, decoded.getQuality().getQualityCode());
+    assertNull(decoded.getQuality().getDescription());
+    assertEquals(42, decoded.getValue());
+  }
+
+  @Test
+  public void decodeWithoutPIK() {
+    update = new DataTagValueUpdate(11L);
+    update.addValue(createValue(100L, 42));
+
+    DataTagValueUpdate decoded = codec.decode(codec.encode(update));
+
+    assertNull(decoded.getProcessPIK());
+    assertEquals(Long.valueOf(11L), decoded.getProcessId());
+  }
+
+  @Test
+  public void nonPrimitiveValuesAreNotEncodable() {
+    update.addValue(createValue(100L, 1));
+    assertTrue(codec.isEncodable(update));
+
+    update.addValue(createValue(101L, new Integer[] {1, 2, 3}));
+    assertFalse(codec.isEncodable(update));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decodeRejectsUnknownVersion() {
+    update.addValue(createValue(100L, 1));
+    byte[] bytes = codec.encode(update);
+    bytes[4] = (byte) (DataTagValueUpdateBinaryCodec.VERSION + 1);
+
+    codec.decode(bytes);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decodeRejectsTruncatedMessage() {
+    update.addValue(createValue(100L, "value"));
+    byte[] bytes = codec.encode(update);
+    byte[] truncated = new byte[bytes.length - 3];
+    System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+    codec.decode(truncated);
+  }
+
+  @Test
+  public void encodingIsStable() {
+    update.addValue(createValue(100L, 1));
+
+    assertArrayEquals(codec.encode(update), codec.encode(update));
+  }
+
+  @Test
+  public void formatNegotiation() {
+    assertTrue(DataTagValueUpdateFormat.BINARY.isContainedIn("binary,json"));
+    assertFalse(DataTagValueUpdateFormat.BINARY.isContainedIn("json"));
+    assertFalse(DataTagValueUpdateFormat.BINARY.isContainedIn(null));
+    assertTrue(DataTagValueUpdateFormat.JSON.isContainedIn(null));
+    assertEquals(DataTagValueUpdateFormat.JSON, DataTagValueUpdateFormat.fromName(null));
+    assertEquals(DataTagValueUpdateFormat.BINARY, DataTagValueUpdateFormat.fromName("BINARY"));
+  }
+
+  private static SourceDataTagValue createValue(final Long id, final Object value) {
+    SourceDataTagValue result = new SourceDataTagValue(id, "tag" + id, false, value, new SourceDataTagQuality(),
+        new Timestamp(System.currentTimeMillis()), 2, true, "description", 666);
+    result.setSimulated(true);
+    return result;
+  }
+}
@@ -20,21 +20,41 @@ import cern.c2mon.pmanager.IFallback;
 import cern.c2mon.pmanager.fallback.exception.DataFallbackException;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Abstract class that holds all the common functionality to the different
- * fallback files that may exists
+ * Controls one fallback log, i.e. the append-only store of the objects which
+ * could not be written to the database.
+ *
+ * <p>The log is split into segment files named
+ * {@code <fallback file>.<index of the first record>.seg}, which are written
+ * and read back through {@link FileChannel}s. Every object is stored as a
+ * binary record: its length, a CRC32 checksum and its
+ * {@link IFallback#toString()} representation in UTF-8. The read back
+ * progress is kept in an index file holding the number of processed records
+ * together with their byte offset, so that resuming does not require to
+ * re-read the already processed records. Segments are deleted as soon as all
+ * their records have been processed.
+ *
+ * <p>A fallback file written in the former text format (one object per line,
+ * with a separate counter file) is converted into a log when the controller
+ * is created.
  *
  * @author mruizgar
  *
@@ -44,23 +64,62 @@ public class FallbackFileController {
     /** Log4j Logger for tags that cannot be logged to the database */
     public static final Logger LOG = LoggerFactory.getLogger("HistoryFallbackLogger");
 
-    /** The file storing the datatags */
+    /** Size of the record header: payload length and CRC32 checksum */
+    static final int RECORD_HEADER_SIZE = 8;
+
+    /** Size of the index file contents: processed records and their offset */
+    private static final int INDEX_SIZE = 12;
+
+    /** File name extension of the segments */
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /** The fallback file, whose path prefixes the names of the segments */
     private File dataFile;
 
-    /** The file storing the line counter */
+    /** The index file storing the read back progress */
     private File counterFile;
 
-    /** Stream file output for the fallback log */
-    private BufferedWriter output;
+    /** Size (in bytes) above which a new segment is started */
+    private final long segmentSize;
+
+    /** The segment files, by the index of their first record */
+    private final TreeMap<Integer, File> segments = new TreeMap<>();
+
+    /** Channel appending to the last segment */
+    private FileChannel output;
+
+    /** Size of the segment that is currently written */
+    private long outputPosition;
+
+    /** Channel on the segment that is currently read back */
+    private FileChannel inputBuf;
+
+    /** Index of the first record of the segment that is currently read back */
+    private int inputSegment;
+
+    /** Index of the next record to read back */
+    private int readIndex;
+
+    /** Byte offset of the next record to read back in its segment */
+    private long readPosition;
+
+    /**
+     * Records before this index are known to be unreadable (corrupted segment
+     * tail) and are read back as null objects
+     */
+    private int unreadableUntil;
 
-    /** Stream file output for the file storing the line counter */
-    private BufferedWriter dOutput;
+    /** Number of processed records stored in the index file */
+    private int indexedLines;
 
-    /** Stream file input for the file storing the line counter */
-    private BufferedReader dInput;
+    /** Byte offset of the first unprocessed record, as stored in the index file */
+    private long indexedPosition;
 
-    /** Stream file input for the fallback log file */
-    private BufferedReader inputBuf;
+    /**
+     * Offsets of the records read back since the last index update (the first
+     * element is the offset of record {@link #indexedLines})
+     */
+    private final List<Long> readOffsets = new ArrayList<>();
 
     /**
      * Counter for the file, that shows the number of lines that are still in
@@ -90,7 +149,7 @@ public class FallbackFileController {
     }
 
     /**
-     * @return the counterFile
+     * @return the index file storing the read back progress
      */
     public final File getCounterFile() {
         return counterFile;
@@ -112,65 +171,19 @@ public class FallbackFileController {
     }
 
     /**
-     * @return the output
+     * @return the channel writing to the last segment, or null if closed
      */
-    public final BufferedWriter getOutput() {
+    public final FileChannel getOutput() {
         return output;
     }
 
     /**
-     * @param out
-     *            the output to set
-     */
-    public final void setOutput(final BufferedWriter out) {
-        this.output = out;
-    }
-
-    /**
-     * @return the input
+     * @return the channel reading back the current segment, or null if closed
      */
-    public final BufferedReader getInput() {
+    public final FileChannel getInput() {
         return inputBuf;
     }
 
-    /**
-     * @param in
-     *            the input to set
-     */
-    public final void setInput(final BufferedReader in) {
-        this.inputBuf = in;
-    }
-
-    /**
-     * @return the dInput
-     */
-    public final BufferedReader getDInput() {
-        return dInput;
-    }
-
-    /**
-     * @param in
-     *            the dInput to set
-     */
-    public final void setDInput(final BufferedReader in) {
-        dInput = in;
-    }
-
-    /**
-     * @return the dOutput
-     */
-    public final BufferedWriter getDOutput() {
-        return dOutput;
-    }
-
-    /**
-     * @param out
-     *            the dOutput to set
-     */
-    public final void setDOutput(final BufferedWriter out) {
-        dOutput = out;
-    }
-
     /**
      * @return the readBackLines
      */
@@ -187,18 +200,25 @@ public class FallbackFileController {
     }
 
     /**
-     * Gets the absolute path of the counter file, given the absolute path of
-     * its corresponding fallback file
+     * @return the files of the segments currently making up the log
+     */
+    public final List<File> getSegmentFiles() {
+        return new ArrayList<>(segments.values());
+    }
+
+    /**
+     * Gets the absolute path of a file stored next to the fallback file,
+     * given the absolute path of the fallback file
      *
      * @param filePath
      *            The absolute path of its corresponding fallback file
-     * @return The absolute path of the counter file
+     * @param prefix
+     *            The prefix added to the name of the fallback file
+     * @return The absolute path of the file
      */
-    private String getCounterPath(final String filePath) {
+    private static String getSiblingPath(final String filePath, final String prefix) {
         int index = filePath.lastIndexOf('/');
-        String counterPath = filePath.substring(0, index + 1) + ".Counter"
-                + filePath.substring(index + 1, filePath.length());
-        return counterPath;
+        return filePath.substring(0, index + 1) + prefix + filePath.substring(index + 1, filePath.length());
     }
 
     /**
@@ -208,207 +228,302 @@ public class FallbackFileController {
      *            path of the fallback file
      */
     public FallbackFileController(final String fallbackPath) {
-        // Set the paths for the fallback files
+        this(fallbackPath, FallbackProperties.getInstance().getSegmentSize());
+    }
+
+    /**
+     * Constructor for the class
+     *
+     * @param fallbackPath
+     *            path of the fallback file
+     * @param segmentSize
+     *            size (in bytes) above which a new segment is started
+     */
+    public FallbackFileController(final String fallbackPath, final long segmentSize) {
         this.dataFile = new File(fallbackPath);
-        this.counterFile = new File(getCounterPath(fallbackPath));
+        this.counterFile = new File(getSiblingPath(fallbackPath, ".Index"));
+        this.segmentSize = segmentSize;
 
-        // Initialize the fallback log file
-        if (!dataFile.exists()) {
-            try {
-                if (dataFile.createNewFile()) {
-                    LOG.info("constructor() : The file " + dataFile.getName()
-                            + " has been created");
+        try {
+            loadSegments();
+            readIndexFile();
+            convertTextFile(new File(getSiblingPath(fallbackPath, ".Counter")));
+            if (getNumberOfLines() > 0 && getReadBackLines() == getNumberOfLines()) {
+                // all records were processed but the log was not cleared yet
+                clearFileContents();
+            }
+            LOG.info("FallbackFileController() - The " + dataFile.getName() + " log holds " + getNumberOfLines()
+                    + " records in " + segments.size() + " segments, " + getReadBackLines() + " of them already processed");
+        } catch (Exception e) {
+            LOG.error("Error while trying to initialize the lines counter for the fallback file", e);
+        }
+    }
+
+    /**
+     * Finds the segments of the log and counts their records. Only the last
+     * segment needs to be scanned, since the other ones are complete. A
+     * partially written record at the end of the last segment (e.g. after a
+     * crash) is truncated.
+     *
+     * @throws IOException if the last segment cannot be read
+     */
+    private void loadSegments() throws IOException {
+        File directory = dataFile.getAbsoluteFile().getParentFile();
+        String prefix = dataFile.getName() + ".";
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(prefix) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segments.put(Integer.valueOf(name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                    } catch (NumberFormatException e) {
+                        LOG.warn("loadSegments() - Ignoring file " + name + " which is not a fallback segment");
+                    }
                 }
-            } catch (IOException e) {
-                LOG.error("constructor() - Error while creating the logfile", e);
             }
         }
+        if (segments.isEmpty()) {
+            numberOfLines = 0;
+            createSegment(0);
+            return;
+        }
 
-        // Initialize the counter holder file
-        if (!counterFile.exists()) {
-            try {
-                if (counterFile.createNewFile()) {
-                    LOG.info("constructor() : The file " + counterFile.getName()
-                            + " has been created");
+        Map.Entry<Integer, File> last = segments.lastEntry();
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(last.getValue().toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            if (size > 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                while (position + RECORD_HEADER_SIZE <= size) {
+                    int length = buffer.getInt((int) position);
+                    if (length < 0 || position + RECORD_HEADER_SIZE + length > size) {
+                        break;
+                    }
+                    position += RECORD_HEADER_SIZE + length;
+                    records++;
                 }
-                initializeCounterFile();
-            } catch (IOException e) {
-                LOG.error("constructor() - Error while creating the counterfile", e);
+            }
+            if (position < size) {
+                LOG.warn("loadSegments() - Truncating " + (size - position) + " bytes of an incomplete record at the end of "
+                        + last.getValue().getName());
+                channel.truncate(position);
             }
         }
+        numberOfLines = last.getKey() + records;
+    }
 
-        // There is a counter in the file and must be read
-        try {
-            // initialize the lines counter
-            setNumberOfLines(calcNumberOfLines());
-            // Initialize the counter for the number of lines already proccessed
-            // and prepared the
-            // file descriptor to point to the next line to read
-            setReadBackLines(readCounter());
-            LOG.info("FallbackFileController() - The number of lines of the "
-                    + dataFile.getName() + " file is " + getNumberOfLines());
-        } catch (Exception e) {
-            LOG
-                    .error("Error while trying to initialize the lines counter for the fallback file", e);
+    /**
+     * Reads the read back progress from the index file and places the reader
+     * on the first unprocessed record.
+     *
+     * @throws DataFallbackException if the index file cannot be read
+     */
+    private void readIndexFile() throws DataFallbackException {
+        int lines = 0;
+        long position = 0;
+        if (counterFile.exists() && counterFile.length() == INDEX_SIZE) {
+            try (FileChannel channel = FileChannel.open(counterFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(INDEX_SIZE);
+                readFully(channel, buffer, 0);
+                buffer.flip();
+                lines = buffer.getInt();
+                position = buffer.getLong();
+            } catch (IOException e) {
+                throw new DataFallbackException("readIndexFile() - The index could not be read " + e.getMessage());
+            }
+        }
+        if (lines > numberOfLines) {
+            LOG.warn("readIndexFile() - The index of " + dataFile.getName() + " does not match the log, reading back from the start");
+            lines = 0;
+            position = 0;
         }
+        Integer first = segments.isEmpty() ? null : segments.firstKey();
+        if (first != null && lines < first) {
+            // the index is behind the oldest segment, which can only start at a processed record
+            lines = first;
+            position = 0;
+        }
+        indexedLines = lines;
+        indexedPosition = position;
+        readBackLines = lines;
+        readIndex = lines;
+        readPosition = position;
+        inputSegment = segmentOf(lines);
+        unreadableUntil = 0;
+        readOffsets.clear();
+        if (LOG.isDebugEnabled())
+            LOG.debug("The index file " + counterFile.getName() + " has been read");
     }
 
     /**
-     * Reads the number that is stored in the counter file and which represents
-     * the already committed data
+     * Converts a fallback file written in the former text format, if any, into
+     * records of the log. Only the lines that were not yet processed according
+     * to the former counter file are kept. Both text files are deleted
+     * afterwards.
      *
-     * @return The counter stored in the counter file
-     * @throws DataFallbackException
-     *             An exception is thrown when the counter cannot be read from
-     *             the file
+     * @param textCounterFile the counter file of the text format
+     * @throws DataFallbackException if the text file cannot be converted
      */
-    private int readCounter() throws DataFallbackException {
-        final int counter;
-        openCounterDataInputStream();
-        try {
+    private void convertTextFile(final File textCounterFile) throws DataFallbackException {
+        if (!dataFile.isFile()) {
+            return;
+        }
+        int processed = 0;
+        if (textCounterFile.isFile()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(textCounterFile))) {
+                String line = reader.readLine();
+                if (line != null) {
+                    processed = Integer.parseInt(line.trim());
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOG.warn("convertTextFile() - The counter file " + textCounterFile.getName() + " could not be read, converting all lines");
+            }
+        }
+
+        int converted = 0;
+        openFallbackOutputStream();
+        try (BufferedReader reader = new BufferedReader(new FileReader(dataFile))) {
             String line;
-            line = dInput.readLine();
-            if (line != null) {
-                counter = new Integer(line).intValue();
-                // Put the reading descriptor in the first line that has not
-                // been yet processed
-                goToLine(counter);
-                if (LOG.isDebugEnabled())
-                    LOG.debug("The counter file " + counterFile.getName() + " has been read");
-            } else {
-                throw new DataFallbackException(
-                        "readCounter() - The counter could not be read, the counter file is empty");
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                if (lineNumber++ >= processed) {
+                    writeRecords(encode(line), 1);
+                    converted++;
+                }
             }
         } catch (IOException e) {
-            LOG.error("Exception is: " + e.getMessage());
-            throw new DataFallbackException("readCounter() - The counter could not be read "
-                    + e.getMessage());
-        } finally {
-            closeCounterDataInputStream();
+            throw new DataFallbackException("convertTextFile() - The file " + dataFile.getName() + " could not be converted " + e.getMessage());
         }
-        return counter;
+        if (!dataFile.delete() || (textCounterFile.exists() && !textCounterFile.delete())) {
+            LOG.error("convertTextFile() - The text files of " + dataFile.getName() + " could not be deleted after conversion");
+        }
+        LOG.info("convertTextFile() - Converted " + converted + " lines of the text file " + dataFile.getName() + " into the log");
     }
 
     /**
-     * It prepares the file descriptor to read from a certain number of lines
+     * It prepares the reader to read from a certain record on. The offsets of
+     * the records read back since the last index update are kept in memory,
+     * so placing the reader anywhere between the last processed record and the
+     * current position does not need any I/O.
      *
      * @param lineNumber
-     *            The number of lines to be read to prepare the file descriptor
+     *            The index of the next record to read
      * @throws DataFallbackException
      *             An exception is thrown if there was any problems while
      *             reading the file
      */
     public final void goToLine(final int lineNumber) throws DataFallbackException {
-        boolean moreLines = true;
-        int readlines = 0;
-
-        openFallbackInputStream();
-        if (lineNumber != 0) {
-            try {
-                while (moreLines && readlines < lineNumber) {
-                    if (getInput().readLine() == null)
-                        moreLines = false;
-                    else
-                        readlines++;
-                }
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
-            }
+        int target = Math.min(lineNumber, numberOfLines);
+        int segment = segmentOf(target);
+        long position;
+        int known = target - indexedLines;
+        if (known >= 0 && known < readOffsets.size()) {
+            position = readOffsets.get(known);
+        } else if (target == readIndex && segment == inputSegment) {
+            position = readPosition;
+        } else if (known >= 0 && segmentOf(indexedLines) == segment) {
+            position = skipRecords(segment, indexedLines, indexedPosition, target);
+        } else {
+            position = skipRecords(segment, segment, 0, target);
         }
+        closeFallbackInputStream();
+        inputSegment = segment;
+        readIndex = target;
+        readPosition = position;
+        openFallbackInputStream();
     }
 
     /**
-     * Create a stream to read from the counter file
+     * Computes the offset of a record by skipping the preceding records of its
+     * segment, reading their headers only.
      *
-     * @throws DataFallbackException
-     *             An exception is thrown when the input stream cannot be opened
-     */
-    private void openCounterDataInputStream() throws DataFallbackException {
-        if (dInput == null) {
-            if (LOG.isDebugEnabled())
-                LOG.debug("openDataInputStream() ; Opening the reader for the "
-                        + counterFile.getName() + " file");
-            try {
-                dInput = new BufferedReader(new FileReader(counterFile));
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
+     * @param segment the first record index of the segment
+     * @param fromIndex index of a record of the segment with known offset
+     * @param fromPosition offset of that record
+     * @param target index of the record to find
+     * @return the offset of the target record
+     * @throws DataFallbackException if the segment cannot be read
+     */
+    private long skipRecords(final int segment, final int fromIndex, final long fromPosition, final int target)
+            throws DataFallbackException {
+        File file = segments.get(segment);
+        if (file == null) {
+            return 0;
+        }
+        long position = fromPosition;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            long size = channel.size();
+            for (int index = fromIndex; index < target && position + RECORD_HEADER_SIZE <= size; index++) {
+                header.clear();
+                readFully(channel, header, position);
+                int length = header.getInt(0);
+                if (length < 0) {
+                    break;
+                }
+                position += RECORD_HEADER_SIZE + length;
             }
+        } catch (IOException e) {
+            throw new DataFallbackException(e.getMessage());
         }
+        return position;
     }
 
     /**
-     * Close the input stream opened for the counter file
-     *
-     * @throws DataFallbackException
-     *             An exception is thrown if the stream could not be closed
+     * @param index a record index
+     * @return the first record index of the segment holding the record, or
+     *         the index itself if there is no such segment
      */
-    private void closeCounterDataInputStream() throws DataFallbackException {
-        if (LOG.isDebugEnabled())
-            LOG.debug("Closing the counter file reader for the file " + counterFile.getName());
-        if (dInput != null) {
-            try {
-                dInput.close();
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
-            } finally {
-                dInput = null;
-            }
-        }
+    private int segmentOf(final int index) {
+        Integer segment = segments.floorKey(index);
+        return segment == null ? index : segment;
     }
 
     /**
-     * It opens the counter binary file for writing
-     *
-     * @throws DataFallbackException
-     *             An exception is thrown if the file can not be opened for
-     *             wrtiting
+     * @param segment the first record index of the segment
+     * @return the file of the segment
      */
-    private void openCounterDataOutputStream() throws DataFallbackException {
-        if (dOutput == null) {
-            if (LOG.isDebugEnabled())
-                LOG.debug("openDataOutputStream() ; Opening the writer for the "
-                        + counterFile.getName() + " file");
-            try {
-                dOutput = new BufferedWriter(new FileWriter(counterFile));
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
-            }
-        }
+    private File segmentFile(final int segment) {
+        return new File(dataFile.getPath() + "." + String.format("%010d", segment) + SEGMENT_SUFFIX);
     }
 
     /**
-     * The output stream for the counter file is closed
+     * Creates an empty segment file and adds it to the log
      *
-     * @throws DataFallbackException
-     *             An exception is thrown if the descriptor cannot be closed
+     * @param segment the index of the first record of the segment
      */
-    private void closeCounterDataOutputStream() throws DataFallbackException {
-        if (LOG.isDebugEnabled())
-            LOG.debug("Closing the counter file writer for the file " + counterFile.getName());
-        if (dOutput != null) {
-            try {
-                dOutput.close();
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
-            } finally {
-                dOutput = null;
+    private void createSegment(final int segment) {
+        File file = segmentFile(segment);
+        try {
+            if (file.createNewFile()) {
+                LOG.info("createSegment() : The file " + file.getName() + " has been created");
             }
+        } catch (IOException e) {
+            LOG.error("createSegment() - Error while creating the segment " + file.getName(), e);
         }
+        segments.put(segment, file);
     }
 
     /**
-     * It opens a file output stream
+     * It opens the channel appending to the last segment, creating a first
+     * segment if needed
      *
      * @throws DataFallbackException
      *             An exception is thrown if the output stream cannot be opened.
      */
     public final void openFallbackOutputStream() throws DataFallbackException {
         if (output == null) {
+            if (segments.isEmpty()) {
+                createSegment(numberOfLines);
+            }
+            File file = segments.lastEntry().getValue();
             if (LOG.isDebugEnabled())
-                LOG.debug("openOutputStream() : Opening the writer for the "
-                        + dataFile.getName() + " file");
+                LOG.debug("openOutputStream() : Opening the writer for the " + file.getName() + " file");
             try {
-                output = new BufferedWriter(new FileWriter(dataFile, true));
+                output = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                outputPosition = output.size();
             } catch (IOException e) {
                 throw new DataFallbackException(e.getMessage());
             }
@@ -416,24 +531,36 @@ public class FallbackFileController {
     }
 
     /**
-     * It opens a file input stream
+     * It opens the channel reading back the segment holding the next record
+     * to read
      *
      * @throws DataFallbackException
      *             An exception is thrown if the input stream cannot be opened
      */
     public final void openFallbackInputStream() throws DataFallbackException {
         if (inputBuf == null) {
+            File file = segments.get(inputSegment);
+            if (file == null) {
+                return;
+            }
             if (LOG.isDebugEnabled())
-                LOG.debug("openFallbackInputStream() : Opening the reader for the "
-                        + dataFile.getName() + "file");
+                LOG.debug("openFallbackInputStream() : Opening the reader for the " + file.getName() + " file");
             try {
-                setInput(new BufferedReader(new FileReader(dataFile)));
+                setInput(FileChannel.open(file.toPath(), StandardOpenOption.READ));
             } catch (IOException e) {
                 throw new DataFallbackException(e.getMessage());
             }
         }
     }
 
+    /**
+     * @param in
+     *            the input to set
+     */
+    private void setInput(final FileChannel in) {
+        this.inputBuf = in;
+    }
+
     /**
      * It closes the input stream
      *
@@ -444,8 +571,7 @@ public class FallbackFileController {
         if (getInput() != null) {
             try {
                 if (LOG.isDebugEnabled())
-                    LOG.debug("closeInputStream() : Closing the file reader for the file "
-                            + dataFile.getName());
+                    LOG.debug("closeInputStream() : Closing the reader for the file " + dataFile.getName());
                 getInput().close();
             } catch (IOException e) {
                 throw new DataFallbackException(e.getMessage());
@@ -477,33 +603,68 @@ public class FallbackFileController {
     }
 
     /**
-     * It sets the file counter to zero
+     * Stores the given progress in the index file
+     *
+     * @param lines the number of processed records
+     * @param position the offset of the first unprocessed record in its segment
+     * @throws DataFallbackException if the index file cannot be written
+     */
+    private void writeIndexFile(final int lines, final long position) throws DataFallbackException {
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_SIZE);
+        buffer.putInt(lines).putLong(position).flip();
+        try (FileChannel channel = FileChannel.open(counterFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+        } catch (IOException e) {
+            throw new DataFallbackException(e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes an object representation as a record
+     *
+     * @param line the string representation of the object
+     * @return the record bytes
+     */
+    private static byte[] encode(final String line) {
+        byte[] payload = line.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+                .putInt(payload.length).putInt((int) crc.getValue()).put(payload).array();
+    }
+
+    /**
+     * Appends encoded records to the log. A new segment is started first if
+     * the records would make the current segment grow beyond the segment size.
+     *
+     * @param records the encoded records
+     * @param count the number of records
+     * @throws DataFallbackException if the records cannot be written
      */
-    private void initializeCounterFile() {
+    private void writeRecords(final byte[] records, final int count) throws DataFallbackException {
         try {
-            openCounterDataOutputStream();
-            dOutput.write("0");
-            dOutput.newLine();
-            dOutput.flush();
-            if (LOG.isDebugEnabled())
-                LOG
-                        .debug("initializeCounterFile() - The counter file has been updated with zero");
-        } catch (IOException e) {
-            LOG
-                    .error("initializeCounterFile() - Error while trying to write in the counter file");
-        } catch (DataFallbackException e) {
-            LOG.error("initializeCounterFile() - The counter file could not be opened");
-        } finally {
-            try {
-                closeCounterDataOutputStream();
-            } catch (DataFallbackException ex) {
-                LOG.error("initializeCounterFile() - The counter file could not be closed");
+            if (outputPosition > 0 && outputPosition + records.length > segmentSize) {
+                closeFallbackOutputStream();
+                createSegment(numberOfLines);
+                openFallbackOutputStream();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(records);
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
             }
+            outputPosition += records.length;
+            numberOfLines += count;
+        } catch (IOException e) {
+            throw new DataFallbackException(
+                    "writeLine() : An error has ocurred while trying to write in the "
+                            + getDataFile().getName() + " log " + e.getMessage());
         }
     }
 
     /**
-     * It writes an object into one of the fallback files
+     * It writes an object into the fallback log
      *
      * @param object
      *            The IFallback object to be written to the fallback file
@@ -511,194 +672,286 @@ public class FallbackFileController {
      *             An exception is thrown if the tag cannot be written to the
      *             fallback file
      */
-
     public final void writeLine(final IFallback object) throws DataFallbackException {
+        writeRecords(encode(object.toString()), 1);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("writeLine() - The object with id " + object.getId() + " has been logged to the " + dataFile.getPath()
+                    + " log");
+        }
+    }
 
-        String str = object.toString();
-        try {
-            output.write(str);
-            output.newLine();
-            output.flush();
-        } catch (IOException e) {
-            throw new DataFallbackException(
-                    "writeLine() : An error has ocurred while trying to write in the "
-                            + getDataFile().getName() + " file " + e.getMessage());
+    /**
+     * It writes a list of objects into the fallback log, using one write per
+     * segment
+     *
+     * @param objects
+     *            The IFallback objects to be written to the fallback file
+     * @throws DataFallbackException
+     *             An exception is thrown if the objects cannot be written to
+     *             the fallback file
+     */
+    public final void writeLines(final List objects) throws DataFallbackException {
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        int count = 0;
+        for (Object object : objects) {
+            byte[] record = encode(object.toString());
+            if (count > 0 && outputPosition + pending.size() + record.length > segmentSize) {
+                writeRecords(pending.toByteArray(), count);
+                pending.reset();
+                count = 0;
+            }
+            pending.write(record, 0, record.length);
+            count++;
+        }
+        if (count > 0) {
+            writeRecords(pending.toByteArray(), count);
         }
         if (LOG.isDebugEnabled()) {
-            LOG.debug("writeLine() - The object with id " + object.getId() + " has been logged to the " + dataFile.getPath()
-                    + " file");
+            LOG.debug("writeLines() - " + objects.size() + " objects have been logged to the " + dataFile.getPath() + " log");
         }
     }
 
     /**
-     * It reads a list of objects from a fallback file
+     * It reads a list of objects from the fallback log
      *
      * @param numOfLines
-     *            The number of lines to be read from the fallback file
+     *            The number of records to be read from the fallback log
      * @param fallbackObj
      *            An IFallback object to which type (IFallback implementation)
-     *            the read lines will be transformed
-     * @return A List of objects representing, each of it, a line from the
-     *         fallback file
+     *            the read records will be transformed
+     * @return A List of objects representing, each of it, a record from the
+     *         fallback log (null for records which could not be read)
      * @throws DataFallbackException
      *             An exception is thrown if tags cannot be read from the
      *             fallback file
      */
     public final List readLines(final int numOfLines, final IFallback fallbackObj)
             throws DataFallbackException {
-        // line counter
-        int readlines = 0;
         List objects = new ArrayList();
-        String line = null;
-        IFallback obj;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
 
-        // Process each line until we reach the specified number of lines or the
-        // end of file
-        boolean moreLines = true;
         try {
-            while (moreLines && readlines < numOfLines) {
-                line = getInput().readLine();
-                if (line == null) {
-                    moreLines = false;
-                } else {
-                    try {
-                        // Parse the line to get the datatags values
-                        obj = fallbackObj.getObject(line);
-                        objects.add(obj);
-                    } catch (DataFallbackException e) {
-                         LOG.error("readLines() - " + e.getMessage() + "" + line);
-                        // If the read line was not correct we add a NULL
-                        // dataTag so the line is taken in account
-                        // but not treated
-                        objects.add(null);
+            while (objects.size() < numOfLines && readIndex < numberOfLines) {
+                if (readIndex < unreadableUntil) {
+                    objects.add(null);
+                    readIndex++;
+                    continue;
+                }
+                openFallbackInputStream();
+                if (getInput() == null) {
+                    break;
+                }
+                Integer nextSegment = segments.higherKey(inputSegment);
+                if (readPosition + RECORD_HEADER_SIZE > getInput().size()) {
+                    if (nextSegment == null) {
+                        break;
+                    }
+                    nextSegment(nextSegment);
+                    continue;
+                }
+
+                header.clear();
+                readFully(getInput(), header, readPosition);
+                int length = header.getInt(0);
+                int checksum = header.getInt(4);
+                if (length < 0 || readPosition + RECORD_HEADER_SIZE + length > getInput().size()) {
+                    LOG.error("readLines() - Invalid record at offset " + readPosition + " of segment " + inputSegment
+                            + " of " + dataFile.getName() + ", the rest of the segment is skipped");
+                    if (nextSegment == null) {
+                        break;
                     }
-                    readlines++;
+                    unreadableUntil = nextSegment;
+                    nextSegment(nextSegment);
+                    continue;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(getInput(), payload, readPosition + RECORD_HEADER_SIZE);
+                addOffset(readIndex, readPosition);
+                readPosition += RECORD_HEADER_SIZE + length;
+                readIndex++;
+
+                CRC32 crc = new CRC32();
+                crc.update(payload.array(), 0, length);
+                String line = new String(payload.array(), StandardCharsets.UTF_8);
+                if ((int) crc.getValue() != checksum) {
+                    LOG.error("readLines() - Checksum mismatch for record " + (readIndex - 1) + ": " + line);
+                    objects.add(null);
+                    continue;
+                }
+                try {
+                    objects.add(fallbackObj.getObject(line));
+                } catch (DataFallbackException e) {
+                    LOG.error("readLines() - " + e.getMessage() + "" + line);
+                    // If the record was not correct we add a NULL object so the
+                    // record is taken in account but not treated
+                    objects.add(null);
                 }
             }
         } catch (IOException e) {
             throw new DataFallbackException(e.getMessage());
         }
         if (LOG.isDebugEnabled()) {
-            LOG.debug("readLines() - " + objects.size()
-                    + " lines has been read from the log file");
+            LOG.debug("readLines() - " + objects.size() + " records have been read from the log");
         }
         return objects;
     }
 
     /**
-     * Checks whether the fallback log file has any contents or not
+     * Moves the reader to the start of the given segment
      *
-     * @return A boolean indicating whether the file is empty (true) or not
-     *         (false)
-     */
-    public final boolean isFallBackFileEmpty() {
-        boolean isEmpty = false;
-        try {
-            openFallbackInputStream();
-            if (!getInput().ready()) {
-                isEmpty = true;
-            }
-        } catch (IOException e) {
-            LOG
-                    .error(
-                            "isFallBackFileEmpty() : A problem has ocurred while trying to determine if the file was empty",
-                            e);
-        } catch (Exception ex) {
-            LOG.error("isFallBackFileEmpty() : " + ex.getMessage());
-        } finally {
-            try {
-                closeFallbackInputStream();
-            } catch (Exception ex) {
-                LOG.error("isFallBackFileEmpty() : " + ex.getMessage());
-            }
+     * @param segment the first record index of the segment
+     * @throws DataFallbackException if the current segment cannot be closed
+     */
+    private void nextSegment(final int segment) throws DataFallbackException {
+        closeFallbackInputStream();
+        inputSegment = segment;
+        readPosition = 0;
+        if (readIndex < segment && unreadableUntil < segment) {
+            unreadableUntil = segment;
         }
-        if (LOG.isDebugEnabled())
-            LOG
-                    .debug("isFallBackFileEmpty() : The result of checking whether the file is empty or not is "
-                            + isEmpty);
-        return isEmpty;
     }
 
     /**
-     * It checks the number of lines that the fallback log file has
+     * Remembers the offset of a record read back since the last index update
      *
-     * @return Number of lines of the file
-     * @throws DataFallbackException
-     *             An exception is thrown if something wrong happens while
-     *             trying to read the file
+     * @param index the record index
+     * @param position the record offset in its segment
      */
-    private int calcNumberOfLines() throws DataFallbackException {
-        int lines = 0;
-        openFallbackInputStream();
-        try {
-            while (getInput().readLine() != null) {
-                lines++;
+    private void addOffset(final int index, final long position) {
+        if (index == indexedLines + readOffsets.size()) {
+            readOffsets.add(position);
+        }
+    }
+
+    /**
+     * Reads from a channel until the buffer is full
+     *
+     * @param channel the channel to read from
+     * @param buffer the buffer to fill
+     * @param position the channel position to read from
+     * @throws IOException if the end of the channel is reached first
+     */
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file at offset " + offset);
             }
-        } catch (IOException e) {
-            throw new DataFallbackException();
-        } finally {
-            closeFallbackInputStream();
+            offset += read;
         }
-        return lines;
     }
 
     /**
-     * It stores the current file counter (indicating the number of lines
-     * already processed from the file), so they won't be treated next time
+     * Checks whether the fallback log has any contents or not
+     *
+     * @return A boolean indicating whether the log is empty (true) or not
+     *         (false)
+     */
+    public final boolean isFallBackFileEmpty() {
+        boolean isEmpty = getNumberOfLines() == 0;
+        if (LOG.isDebugEnabled())
+            LOG.debug("isFallBackFileEmpty() : The result of checking whether the file is empty or not is "
+                    + isEmpty);
+        return isEmpty;
+    }
+
+    /**
+     * It stores the current number of processed records in the index file, so
+     * they won't be treated next time, and deletes the segments whose records
+     * have all been processed
      *
      * @throws DataFallbackException
      *             An exception is thrown if the counter could not be written to
      *             the file
      */
     public final void updateNumberOfProcessedLines() throws DataFallbackException {
+        int lines = Math.min(getReadBackLines(), numberOfLines);
+        int known = lines - indexedLines;
+        long position;
+        if (known >= 0 && known < readOffsets.size()) {
+            position = readOffsets.get(known);
+        } else if (lines == readIndex && segmentOf(lines) == inputSegment) {
+            position = readPosition;
+        } else if (known >= 0 && segmentOf(indexedLines) == segmentOf(lines)) {
+            position = skipRecords(segmentOf(lines), indexedLines, indexedPosition, lines);
+        } else {
+            position = skipRecords(segmentOf(lines), segmentOf(lines), 0, lines);
+        }
 
-        // Write the counter into the fallback counter file
-        openCounterDataOutputStream();
-        try {
-            this.getDOutput().write(new Integer(getReadBackLines()).toString());
-            getDOutput().newLine();
+        writeIndexFile(lines, position);
+        if (known > 0) {
+            readOffsets.subList(0, Math.min(known, readOffsets.size())).clear();
+        } else if (known < 0) {
+            readOffsets.clear();
+        }
+        indexedLines = lines;
+        indexedPosition = position;
+        if (LOG.isDebugEnabled())
+            LOG.debug("removeLines() - The index file has been updated with the value " + lines);
+
+        deleteProcessedSegments();
+    }
+
+    /**
+     * Deletes the segments (except the last one) whose records have all been
+     * processed
+     *
+     * @throws DataFallbackException if a segment cannot be deleted
+     */
+    private void deleteProcessedSegments() throws DataFallbackException {
+        Integer next;
+        while (segments.size() > 1 && (next = segments.higherKey(segments.firstKey())) <= indexedLines) {
+            Integer first = segments.firstKey();
+            if (first == inputSegment) {
+                closeFallbackInputStream();
+            }
+            File file = segments.remove(first);
+            if (!file.delete()) {
+                segments.put(first, file);
+                throw new DataFallbackException("The segment " + file.getAbsolutePath() + " could not be deleted");
+            }
             if (LOG.isDebugEnabled())
-                LOG.debug("removeLines() - The counter file has been updated with the value "
-                        + getReadBackLines());
-        } catch (IOException e) {
-            throw new DataFallbackException(e.getMessage());
+                LOG.debug("deleteProcessedSegments() - The segment " + file.getName() + " has been deleted");
+        }
+        if (!segments.containsKey(inputSegment)) {
+            goToLine(readIndex);
         }
-        closeCounterDataOutputStream();
     }
 
     /**
-     * Removes the contents of the fallback log file by deleting the file and
-     * creating it again and it also updates the counter stored in the
-     * counterfile
+     * Removes the contents of the fallback log by deleting all its segments
+     * and it also resets the index file
      *
      * @throws DataFallbackException
      *             An exception is thrown if the fallback file cannot be deleted
      */
     public final void clearFileContents() throws DataFallbackException {
-
-        // Delete the original file
-        if (!dataFile.delete()) {
-            LOG.error("clearFileContents() - The original file could not be deleted");
-            throw new DataFallbackException("The file " + dataFile.getAbsolutePath()
-                    + " could not be deleted");
-        } else {
-            LOG.info("clearFileContents() - The " + dataFile.getAbsolutePath()
-                    + " has been deleted");
-            try {
-                // Create again the fallback log file
-                if (dataFile.createNewFile()) {
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("clearFileContents() - The " + dataFile.getAbsolutePath()
-                                + " has been created");
-                }
-            } catch (IOException e) {
-                LOG.error("clearFileContents() : Error while creating the fallback file "
-                        + e.getMessage());
+        closeFallbackInputStream();
+        closeFallbackOutputStream();
+        while (!segments.isEmpty()) {
+            File file = segments.firstEntry().getValue();
+            if (file.exists() && !file.delete()) {
+                LOG.error("clearFileContents() - The segment " + file.getName() + " could not be deleted");
+                throw new DataFallbackException("The file " + file.getAbsolutePath()
+                        + " could not be deleted");
             }
-            // Reset the fallback counters
-            initializeCounterFile();
-
+            segments.pollFirstEntry();
         }
+        LOG.info("clearFileContents() - The segments of " + dataFile.getAbsolutePath() + " have been deleted");
+
+        // Reset the fallback counters
+        numberOfLines = 0;
+        readBackLines = 0;
+        readIndex = 0;
+        readPosition = 0;
+        inputSegment = 0;
+        unreadableUntil = 0;
+        indexedLines = 0;
+        indexedPosition = 0;
+        readOffsets.clear();
+        writeIndexFile(0, 0);
+        createSegment(0);
     }
 
     /**
@@ -710,8 +963,6 @@ public class FallbackFileController {
         try {
             closeFallbackInputStream();
             closeFallbackOutputStream();
-            closeCounterDataInputStream();
-            closeCounterDataOutputStream();
         } catch (Exception e) {
             LOG.error("finalize() - The opened streams to the files could not be closed");
         }
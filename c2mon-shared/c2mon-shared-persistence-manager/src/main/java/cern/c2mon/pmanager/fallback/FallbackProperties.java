@@ -44,6 +44,9 @@ public final class FallbackProperties {
     /** It indicates the number of lines that can be read from the fallback file at each time*/
     public static final String NUMBER_LINES_FROM_FILE = "2000";
 
+    /** It indicates the size (in bytes) above which a new fallback log segment is started*/
+    private static final String SEGMENT_SIZE = "67108864";
+
     /** It indicates with which frequency (each number of lines) the check for the disc size should be done*/
     private int freeSpaceCheckFrequency = Integer.parseInt(FREE_SPACE_CHECK_FREQUENCY);
 
@@ -53,6 +56,9 @@ public final class FallbackProperties {
     /** Number of lines that will be read in each go from the fallback file */
     private int numberLinesToReadFromFile = Integer.parseInt(NUMBER_LINES_FROM_FILE);
 
+    /** Size (in bytes) of the fallback log segments */
+    private long segmentSize = Long.parseLong(SEGMENT_SIZE);
+
     /** It indicates that an error while getting the free space in the system's disc has occurred*/
     public static final int CMD_FREE_SPACE_ERROR = -1;
 
@@ -89,6 +95,7 @@ public final class FallbackProperties {
             this.minimunDiscFreeSpace = Integer.parseInt(fallbackProperties.getProperty("fallback.minimum.freespace", FREE_SPACE_CHECK_FREQUENCY));
             this.freeSpaceCheckFrequency = Integer.parseInt(fallbackProperties.getProperty("fallback.discsize.check", DISC_SIZE_CHECK));
             this.numberLinesToReadFromFile = Integer.parseInt(fallbackProperties.getProperty("fallback.read.lines.per.iteration", NUMBER_LINES_FROM_FILE));
+            this.segmentSize = Long.parseLong(fallbackProperties.getProperty("fallback.segment.size", SEGMENT_SIZE));
           } else {
               LOG.warn(new StringBuffer("init() : Unable to find/read properties file ").append(PROPERTY_FILE_NAME).toString());
               LOG.info("init() : Using default values for the fallback parameters");
@@ -131,4 +138,11 @@ public final class FallbackProperties {
     public int getNumberLinesToReadFromFile() {
         return numberLinesToReadFromFile;
     }
+
+    /**
+     * @return the size (in bytes) above which a new fallback log segment is started
+     */
+    public long getSegmentSize() {
+        return segmentSize;
+    }
 }
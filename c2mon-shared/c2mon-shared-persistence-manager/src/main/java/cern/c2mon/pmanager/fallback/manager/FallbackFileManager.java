@@ -105,13 +105,8 @@ public class FallbackFileManager {
             fFileController.closeFallbackInputStream();
         // open the fallback log file output stream
         fFileController.openFallbackOutputStream();
-        final int size = data.size();
-        // Iterate through all the datatags and logged all the info that
-        // contains into the fallback log file
-        for (int i = 0; i != size; i++) {
-            fFileController.writeLine((IFallback) data.get(i));
-        }
-        fFileController.setNumberOfLines(fFileController.getNumberOfLines() + size);
+        // Log all the datatags into the fallback log file
+        fFileController.writeLines(data);
     }
 
     /**
@@ -134,7 +129,6 @@ public class FallbackFileManager {
             // open the fallback log file output stream
             fFileController.openFallbackOutputStream();
             fFileController.writeLine(fallbackObj);
-            fFileController.setNumberOfLines(fFileController.getNumberOfLines() + 1);
         } catch (DataFallbackException e) {
             throw new DataFallbackException(e.getMessage());
         }
@@ -20,6 +20,12 @@ package cern.c2mon.pmanager.fallback;
 import cern.c2mon.pmanager.fallback.exception.DataFallbackException;
 import cern.c2mon.pmanager.mock.FallbackImpl;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -40,9 +46,24 @@ public class FallbackFileControllerTest extends TestCase {
     /** The fallback file path */
     private static final String PATH = "/tmp/falback-test.txt";
 
+    /** Directory holding the segmented logs of the tests */
+    private File logDirectory;
+
     /** It sets up the class for the test */
     protected void setUp() {
+        logDirectory = new File(System.getProperty("java.io.tmpdir"), "fallback-log-test-" + System.nanoTime());
+        logDirectory.mkdirs();
+    }
 
+    /** Removes the logs written by the test */
+    protected void tearDown() {
+        File[] files = logDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        logDirectory.delete();
     }
 
     /**
@@ -158,4 +179,147 @@ public class FallbackFileControllerTest extends TestCase {
         assertNull(fFileController.getOutput());
     }
 
+    /**
+     * Tests that written objects are read back in order, across segments
+     */
+    public final void testWriteAndReadBack() throws DataFallbackException {
+        FallbackFileController fFileController = new FallbackFileController(logPath(), 100);
+        fFileController.openFallbackOutputStream();
+        fFileController.writeLines(createObjects(0, 10));
+        fFileController.writeLine(createObject(10));
+
+        assertEquals(11, fFileController.getNumberOfLines());
+        assertTrue(fFileController.getSegmentFiles().size() > 1);
+        assertEquals(lines(0, 11), lines(fFileController.readLines(20, new FallbackImpl())));
+    }
+
+    /**
+     * Tests that a new controller resumes reading after the last processed
+     * record, and that processed segments are deleted
+     */
+    public final void testResumeAfterRestart() throws DataFallbackException {
+        FallbackFileController fFileController = new FallbackFileController(logPath(), 100);
+        fFileController.openFallbackOutputStream();
+        fFileController.writeLines(createObjects(0, 20));
+        int segments = fFileController.getSegmentFiles().size();
+
+        assertEquals(12, fFileController.readLines(12, new FallbackImpl()).size());
+        fFileController.setReadBackLines(12);
+        fFileController.updateNumberOfProcessedLines();
+        assertTrue(fFileController.getSegmentFiles().size() < segments);
+        fFileController.finalize();
+
+        fFileController = new FallbackFileController(logPath(), 100);
+        assertEquals(20, fFileController.getNumberOfLines());
+        assertEquals(12, fFileController.getReadBackLines());
+        assertEquals(lines(12, 20), lines(fFileController.readLines(20, new FallbackImpl())));
+    }
+
+    /**
+     * Tests that the reader can be placed back on a record which was read but
+     * not committed
+     */
+    public final void testGoToLine() throws DataFallbackException {
+        FallbackFileController fFileController = new FallbackFileController(logPath(), 100);
+        fFileController.openFallbackOutputStream();
+        fFileController.writeLines(createObjects(0, 10));
+
+        fFileController.readLines(8, new FallbackImpl());
+        fFileController.goToLine(5);
+        assertEquals(lines(5, 10), lines(fFileController.readLines(10, new FallbackImpl())));
+
+        fFileController.goToLine(2);
+        assertEquals(lines(2, 4), lines(fFileController.readLines(2, new FallbackImpl())));
+    }
+
+    /**
+     * Tests that an incomplete record at the end of the log is dropped
+     */
+    public final void testTruncatedRecordIsDropped() throws DataFallbackException, IOException {
+        FallbackFileController fFileController = new FallbackFileController(logPath());
+        fFileController.openFallbackOutputStream();
+        fFileController.writeLines(createObjects(0, 3));
+        fFileController.finalize();
+
+        File segment = fFileController.getSegmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        fFileController = new FallbackFileController(logPath());
+        assertEquals(2, fFileController.getNumberOfLines());
+        assertEquals(lines(0, 2), lines(fFileController.readLines(10, new FallbackImpl())));
+    }
+
+    /**
+     * Tests that the unprocessed lines of a fallback file in the former text
+     * format are converted into the log
+     */
+    public final void testTextFileConversion() throws IOException, DataFallbackException {
+        try (FileWriter writer = new FileWriter(logPath())) {
+            for (String line : lines(0, 5)) {
+                writer.write(line + "\n");
+            }
+        }
+        try (FileWriter writer = new FileWriter(new File(logDirectory, ".Counterfallback.log"))) {
+            writer.write("2\n");
+        }
+
+        FallbackFileController fFileController = new FallbackFileController(logPath());
+        assertFalse(new File(logPath()).exists());
+        assertEquals(3, fFileController.getNumberOfLines());
+        assertEquals(lines(2, 5), lines(fFileController.readLines(10, new FallbackImpl())));
+    }
+
+    /**
+     * Tests that clearing the log removes all records
+     */
+    public final void testClearFileContents() throws DataFallbackException {
+        FallbackFileController fFileController = new FallbackFileController(logPath(), 100);
+        fFileController.openFallbackOutputStream();
+        fFileController.writeLines(createObjects(0, 10));
+        fFileController.readLines(10, new FallbackImpl());
+
+        fFileController.clearFileContents();
+        assertTrue(fFileController.isFallBackFileEmpty());
+        assertEquals(1, fFileController.getSegmentFiles().size());
+
+        fFileController.openFallbackOutputStream();
+        fFileController.writeLine(createObject(42));
+        assertEquals(lines(42, 43), lines(fFileController.readLines(10, new FallbackImpl())));
+    }
+
+    private String logPath() {
+        return new File(logDirectory, "fallback.log").getPath();
+    }
+
+    private static FallbackImpl createObject(final int i) {
+        FallbackImpl object = new FallbackImpl();
+        object.setObjectData("line " + i);
+        return object;
+    }
+
+    private static List<FallbackImpl> createObjects(final int from, final int to) {
+        List<FallbackImpl> objects = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            objects.add(createObject(i));
+        }
+        return objects;
+    }
+
+    private static List<String> lines(final int from, final int to) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            lines.add("line " + i);
+        }
+        return lines;
+    }
+
+    private static List<String> lines(final List objects) {
+        List<String> lines = new ArrayList<>();
+        for (Object object : objects) {
+            lines.add(String.valueOf(object));
+        }
+        return lines;
+    }
 }
@@ -23,6 +23,8 @@ import java.util.Map;
 import java.util.Set;
 
 import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.compiler.CompiledExpression;
+import cern.c2mon.shared.rule.compiler.RuleCompiler;
 import cern.c2mon.shared.rule.parser.InvalidExpressionParser;
 import cern.c2mon.shared.rule.parser.Parser;
 import cern.c2mon.shared.rule.parser.RuleConstant;
@@ -36,6 +38,17 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
      */
     private Object[] tokens = null;
 
+    /**
+     * Typed expression tree compiled from the tokens on first use, or null if
+     * the expression can only be interpreted.
+     */
+    private transient volatile CompiledExpression compiledExpression;
+
+    /**
+     * Whether the compilation of the tokens has already been attempted.
+     */
+    private transient volatile boolean compilationDone;
+
     public SimpleRuleExpression(final String pExpression) throws RuleFormatException {
         super(pExpression, RuleType.Simple);
         this.tokens = tokenize(pExpression);
@@ -520,9 +533,45 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
       return result;
     }
     
+    /**
+     * @return The expression compiled by the {@link RuleCompiler}, or null if it
+     * can only be evaluated by the interpreter.
+     */
+    public final CompiledExpression getCompiledExpression() {
+      if (!compilationDone) {
+        compiledExpression = RuleCompiler.compile(tokens);
+        compilationDone = true;
+      }
+      return compiledExpression;
+    }
+
+    /**
+     * Evaluates the compiled expression and falls back to the interpreter
+     * whenever the compiled one cannot handle the given inputs.
+     */
     @Override
     public final Object evaluate(final Map<Long, Object> pInputParams) throws RuleEvaluationException {
 
+      final CompiledExpression compiled = getCompiledExpression();
+      if (compiled != null) {
+        final Object result = compiled.evaluate(pInputParams, false);
+        if (result != null) {
+          return result;
+        }
+      }
+      return interpret(pInputParams);
+    }
+
+    /**
+     * Evaluates the expression by interpreting its tokens. This is the
+     * reference implementation for the compiled expression.
+     *
+     * @param pInputParams Map of value objects related to the input tag ids
+     * @return The rule result for the given input values
+     * @throws RuleEvaluationException In case of errors during the rule evaluation
+     */
+    public final Object interpret(final Map<Long, Object> pInputParams) throws RuleEvaluationException {
+
       if (hasInvalidTags(pInputParams) || usesTheInvalidKeyword()) {
         // invalid tags found!  =>
         return handleRuleWithInvalidTags(pInputParams);
@@ -533,6 +582,24 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
     
     @Override
     public final Object forceEvaluate(final Map<Long, Object> pInputParams)  {
+      final CompiledExpression compiled = getCompiledExpression();
+      if (compiled != null) {
+        final Object result = compiled.evaluate(pInputParams, true);
+        if (result != null) {
+          return result;
+        }
+      }
+      return forceInterpret(pInputParams);
+    }
+
+    /**
+     * Interpreter version of {@link #forceEvaluate(Map)}, kept as reference
+     * implementation for the compiled expression.
+     *
+     * @param pInputParams Map of value objects related to the input tag ids
+     * @return The rule result for the given input values, or null if it cannot be calculated
+     */
+    public final Object forceInterpret(final Map<Long, Object> pInputParams)  {
       try {
         return handleRuleWithNoInvalidTags(pInputParams);
       } catch (Exception e) {
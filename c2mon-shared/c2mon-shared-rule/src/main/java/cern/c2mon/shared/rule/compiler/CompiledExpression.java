@@ -0,0 +1,102 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.compiler;
+
+import java.util.Map;
+
+import cern.c2mon.shared.common.rule.RuleInputValue;
+
+/**
+ * Rule expression compiled by the {@link RuleCompiler} into a typed
+ * expression tree.
+ *
+ * <p>The rule inputs are bound to slots, numbered in the order in which the
+ * tags first appear in the expression. A compiled expression is immutable and
+ * can be shared between threads.
+ *
+ * <p>The compiled tree only handles the regular cases. For all others (invalid
+ * or missing inputs, type errors...) the evaluate methods return {@code null}
+ * and the caller must fall back to the interpreter, which remains the
+ * reference implementation.
+ */
+public final class CompiledExpression {
+
+  private final ExpressionNode root;
+
+  /** Input tag id of every slot */
+  private final Long[] inputTagIds;
+
+  CompiledExpression(final ExpressionNode root, final Long[] inputTagIds) {
+    this.root = root;
+    this.inputTagIds = inputTagIds;
+  }
+
+  /**
+   * @return the number of input slots
+   */
+  public int getInputCount() {
+    return this.inputTagIds.length;
+  }
+
+  /**
+   * @param slot the slot index
+   * @return the id of the input tag bound to the slot
+   */
+  public Long getInputTagId(final int slot) {
+    return this.inputTagIds[slot];
+  }
+
+  /**
+   * Evaluates the expression with the inputs looked up by tag id.
+   *
+   * @param inputs input values or {@link RuleInputValue}s, by tag id
+   * @param ignoreValidity if {@code true}, invalid inputs are used with their
+   *          current value (as done by {@code forceEvaluate})
+   * @return the result, or {@code null} if the interpreter must be used
+   */
+  public Object evaluate(final Map<Long, Object> inputs, final boolean ignoreValidity) {
+    Object[] slots = new Object[this.inputTagIds.length];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = inputs.get(this.inputTagIds[i]);
+    }
+    return evaluate(slots, ignoreValidity);
+  }
+
+  /**
+   * Evaluates the expression with the inputs passed by slot.
+   *
+   * @param inputs input values or {@link RuleInputValue}s, by slot index
+   * @param ignoreValidity if {@code true}, invalid inputs are used with their
+   *          current value (as done by {@code forceEvaluate})
+   * @return the result, or {@code null} if the interpreter must be used
+   */
+  public Object evaluate(final Object[] inputs, final boolean ignoreValidity) {
+    if (!ignoreValidity) {
+      // the interpreter uses a different parser as soon as one input is invalid
+      for (Object input : inputs) {
+        if (input instanceof RuleInputValue && !((RuleInputValue) input).isValid()) {
+          return null;
+        }
+      }
+    }
+    try {
+      return this.root.value(inputs);
+    } catch (Deoptimization e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.compiler;
+
+/**
+ * Thrown by an {@link ExpressionNode} when it meets an input that it cannot
+ * evaluate in exactly the same way as the interpreter (wrong type, missing or
+ * invalid value...). The evaluation is then repeated by the interpreter, which
+ * produces the reference result or error.
+ *
+ * <p>A single instance without stack trace is shared, so that bailing out does
+ * not allocate.
+ */
+final class Deoptimization extends RuntimeException {
+
+  private static final long serialVersionUID = -2617042312208497617L;
+
+  static final Deoptimization INSTANCE = new Deoptimization();
+
+  private Deoptimization() {
+    super(null, null, false, false);
+  }
+}
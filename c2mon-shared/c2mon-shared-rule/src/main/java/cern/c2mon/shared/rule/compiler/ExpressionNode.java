@@ -0,0 +1,464 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.compiler;
+
+import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.parser.Operator;
+
+/**
+ * Node of a compiled rule expression tree.
+ *
+ * <p>Every node knows its static result type, so that numeric and boolean
+ * sub-expressions are evaluated on primitives. Boxing only happens where the
+ * interpreter would return an object, i.e. for the result of the whole
+ * expression. Each node reproduces the result of
+ * {@link cern.c2mon.shared.rule.parser.Parser#calculateExpr} for the inputs it
+ * supports and throws {@link Deoptimization} for all others.
+ *
+ * <p>Like the interpreter, binary nodes always evaluate both operands.
+ */
+abstract class ExpressionNode {
+
+  /**
+   * Static result type of a node.
+   */
+  enum Type {
+    /** Always a number, evaluated by {@link ExpressionNode#number} */
+    NUMBER,
+    /** Always a boolean, evaluated by {@link ExpressionNode#bool} */
+    BOOLEAN,
+    /** Only known at evaluation time (inputs and String constants) */
+    OBJECT
+  }
+
+  abstract Type getType();
+
+  /**
+   * @param inputs the rule inputs, indexed by slot
+   * @return the result as the interpreter would return it
+   */
+  abstract Object value(Object[] inputs);
+
+  double number(final Object[] inputs) {
+    Object value = value(inputs);
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    throw Deoptimization.INSTANCE;
+  }
+
+  long integral(final Object[] inputs) {
+    Object value = value(inputs);
+    if (value instanceof Number) {
+      return ((Number) value).longValue();
+    }
+    throw Deoptimization.INSTANCE;
+  }
+
+  boolean bool(final Object[] inputs) {
+    Object value = value(inputs);
+    if (value instanceof Boolean) {
+      return ((Boolean) value).booleanValue();
+    }
+    throw Deoptimization.INSTANCE;
+  }
+
+  /**
+   * Checks whether a String can be handled by the compiled tree. The
+   * interpreter substitutes input values into its token array, where Strings
+   * (and Characters) starting with a parenthesis or equal to an unary
+   * operator change the structure of the expression.
+   *
+   * @param value a String input or constant
+   * @return {@code true} if the String is a plain operand for the interpreter
+   */
+  static boolean isPlainString(final String value) {
+    if (value.isEmpty()) {
+      return false;
+    }
+    char first = value.charAt(0);
+    return first != '(' && first != ')' && !value.equals("!") && !value.equals("-");
+  }
+
+  /**
+   * Literal of the rule (Double, Boolean or String).
+   */
+  static final class Constant extends ExpressionNode {
+
+    private final Object value;
+
+    private final Type type;
+
+    private final double number;
+
+    Constant(final Object value) {
+      this.value = value;
+      if (value instanceof Number) {
+        this.type = Type.NUMBER;
+        this.number = ((Number) value).doubleValue();
+      } else {
+        this.type = (value instanceof Boolean ? Type.BOOLEAN : Type.OBJECT);
+        this.number = Double.NaN;
+      }
+    }
+
+    @Override
+    Type getType() {
+      return this.type;
+    }
+
+    @Override
+    Object value(final Object[] inputs) {
+      return this.value;
+    }
+
+    @Override
+    double number(final Object[] inputs) {
+      if (this.type == Type.NUMBER) {
+        return this.number;
+      }
+      throw Deoptimization.INSTANCE;
+    }
+  }
+
+  /**
+   * Reference to a rule input tag, read from its slot.
+   */
+  static final class Input extends ExpressionNode {
+
+    private final int slot;
+
+    Input(final int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    Type getType() {
+      return Type.OBJECT;
+    }
+
+    @Override
+    Object value(final Object[] inputs) {
+      Object value = inputs[this.slot];
+      if (value instanceof RuleInputValue) {
+        value = ((RuleInputValue) value).getValue();
+      }
+      if (value == null || value instanceof Character
+          || (value instanceof String && !isPlainString((String) value))) {
+        throw Deoptimization.INSTANCE;
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Base class of nodes computing a number. The interpreter boxes all
+   * computed numbers as Double.
+   */
+  abstract static class NumberNode extends ExpressionNode {
+
+    @Override
+    final Type getType() {
+      return Type.NUMBER;
+    }
+
+    @Override
+    final Object value(final Object[] inputs) {
+      return Double.valueOf(number(inputs));
+    }
+
+    @Override
+    final long integral(final Object[] inputs) {
+      return (long) number(inputs);
+    }
+
+    @Override
+    final boolean bool(final Object[] inputs) {
+      throw Deoptimization.INSTANCE;
+    }
+
+    @Override
+    abstract double number(Object[] inputs);
+  }
+
+  /**
+   * Base class of nodes computing a boolean.
+   */
+  abstract static class BooleanNode extends ExpressionNode {
+
+    @Override
+    final Type getType() {
+      return Type.BOOLEAN;
+    }
+
+    @Override
+    final Object value(final Object[] inputs) {
+      return (bool(inputs) ? Boolean.TRUE : Boolean.FALSE);
+    }
+
+    @Override
+    final double number(final Object[] inputs) {
+      throw Deoptimization.INSTANCE;
+    }
+
+    @Override
+    final long integral(final Object[] inputs) {
+      throw Deoptimization.INSTANCE;
+    }
+
+    @Override
+    abstract boolean bool(Object[] inputs);
+  }
+
+  /**
+   * Operators +, -, *, / and ^.
+   */
+  static final class Arithmetic extends NumberNode {
+
+    private final Operator operator;
+
+    private final ExpressionNode left;
+
+    private final ExpressionNode right;
+
+    Arithmetic(final Operator operator, final ExpressionNode left, final ExpressionNode right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    double number(final Object[] inputs) {
+      double x = this.left.number(inputs);
+      double y = this.right.number(inputs);
+      switch (this.operator) {
+        case ADDITION:
+          return x + y;
+        case SUBTRACTION:
+          return x - y;
+        case MULTIPLICATION:
+          return x * y;
+        case DIVISION:
+          return x / y;
+        case RAISE_TO_POWER:
+          return Math.pow(x, y);
+        default:
+          throw Deoptimization.INSTANCE;
+      }
+    }
+  }
+
+  /**
+   * Operators && and || (bitwise on the long values).
+   */
+  static final class Bitwise extends NumberNode {
+
+    private final Operator operator;
+
+    private final ExpressionNode left;
+
+    private final ExpressionNode right;
+
+    Bitwise(final Operator operator, final ExpressionNode left, final ExpressionNode right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    double number(final Object[] inputs) {
+      long x = this.left.integral(inputs);
+      long y = this.right.integral(inputs);
+      return (this.operator == Operator.BITWISE_AND ? (x & y) : (x | y));
+    }
+  }
+
+  /**
+   * Unary minus.
+   */
+  static final class Negation extends NumberNode {
+
+    private final ExpressionNode operand;
+
+    Negation(final ExpressionNode operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    double number(final Object[] inputs) {
+      return -this.operand.number(inputs);
+    }
+  }
+
+  /**
+   * Operators & and | (logical, both operands are always evaluated).
+   */
+  static final class Logical extends BooleanNode {
+
+    private final Operator operator;
+
+    private final ExpressionNode left;
+
+    private final ExpressionNode right;
+
+    Logical(final Operator operator, final ExpressionNode left, final ExpressionNode right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean bool(final Object[] inputs) {
+      boolean x = this.left.bool(inputs);
+      boolean y = this.right.bool(inputs);
+      return (this.operator == Operator.LOGICAL_AND ? (x && y) : (x || y));
+    }
+  }
+
+  /**
+   * Unary !, which the interpreter defines as "not equal to true" for any
+   * operand type.
+   */
+  static final class Not extends BooleanNode {
+
+    private final ExpressionNode operand;
+
+    Not(final ExpressionNode operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    boolean bool(final Object[] inputs) {
+      switch (this.operand.getType()) {
+        case BOOLEAN:
+          return !this.operand.bool(inputs);
+        case NUMBER:
+          this.operand.number(inputs);
+          return true;
+        default:
+          return !Boolean.TRUE.equals(this.operand.value(inputs));
+      }
+    }
+  }
+
+  /**
+   * Operators &gt;, &lt;, &gt;= and &lt;=. Note that the interpreter returns
+   * {@code x.compareTo(y) >= 0} for all of them when comparing Strings.
+   */
+  static final class Comparison extends BooleanNode {
+
+    private final Operator operator;
+
+    private final ExpressionNode left;
+
+    private final ExpressionNode right;
+
+    /** Whether one of the operands is always a number */
+    private final boolean numeric;
+
+    Comparison(final Operator operator, final ExpressionNode left, final ExpressionNode right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+      this.numeric = (left.getType() == Type.NUMBER || right.getType() == Type.NUMBER);
+    }
+
+    @Override
+    boolean bool(final Object[] inputs) {
+      if (this.numeric) {
+        return compare(this.left.number(inputs), this.right.number(inputs));
+      }
+      Object x = this.left.value(inputs);
+      Object y = this.right.value(inputs);
+      if (x instanceof Number && y instanceof Number) {
+        return compare(((Number) x).doubleValue(), ((Number) y).doubleValue());
+      }
+      if (x instanceof String && y instanceof String) {
+        return ((String) x).compareTo((String) y) >= 0;
+      }
+      throw Deoptimization.INSTANCE;
+    }
+
+    private boolean compare(final double x, final double y) {
+      switch (this.operator) {
+        case GREATER_THAN_COMPARISON:
+          return x > y;
+        case LESS_THAN_COMPARISON:
+          return x < y;
+        case GREATER_THAN_OR_EQUALS_COMPARISON:
+          return x >= y;
+        case LESS_THAN_OR_EQUALS_COMPARISON:
+          return x <= y;
+        default:
+          throw Deoptimization.INSTANCE;
+      }
+    }
+  }
+
+  /**
+   * Operators = and !=. Numbers are compared by their double value, all other
+   * operands with {@link Object#equals(Object)}.
+   */
+  static final class Equality extends BooleanNode {
+
+    private final boolean negated;
+
+    private final ExpressionNode left;
+
+    private final ExpressionNode right;
+
+    Equality(final Operator operator, final ExpressionNode left, final ExpressionNode right) {
+      this.negated = (operator == Operator.NOT_EQUALS_COMPARISON);
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean bool(final Object[] inputs) {
+      return equal(inputs) != this.negated;
+    }
+
+    private boolean equal(final Object[] inputs) {
+      Type leftType = this.left.getType();
+      Type rightType = this.right.getType();
+      if (leftType == Type.NUMBER && rightType == Type.NUMBER) {
+        return this.left.number(inputs) == this.right.number(inputs);
+      }
+      if (leftType == Type.BOOLEAN && rightType == Type.BOOLEAN) {
+        return this.left.bool(inputs) == this.right.bool(inputs);
+      }
+      if (leftType == Type.NUMBER) {
+        double x = this.left.number(inputs);
+        return equalsNumber(x, this.right.value(inputs));
+      }
+      if (rightType == Type.NUMBER) {
+        Object x = this.left.value(inputs);
+        return equalsNumber(this.right.number(inputs), x);
+      }
+      Object x = this.left.value(inputs);
+      Object y = this.right.value(inputs);
+      if (x instanceof Number && y instanceof Number) {
+        return ((Number) x).doubleValue() == ((Number) y).doubleValue();
+      }
+      return x.equals(y);
+    }
+
+    private static boolean equalsNumber(final double x, final Object y) {
+      return y instanceof Number && ((Number) y).doubleValue() == x;
+    }
+  }
+}
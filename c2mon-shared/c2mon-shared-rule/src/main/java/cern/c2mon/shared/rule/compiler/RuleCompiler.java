@@ -0,0 +1,143 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.compiler;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cern.c2mon.shared.rule.RuleInputTagId;
+import cern.c2mon.shared.rule.parser.Operator;
+import cern.c2mon.shared.rule.parser.Parser;
+import cern.c2mon.shared.rule.parser.RuleConstant;
+
+/**
+ * Compiles the token array of a {@link cern.c2mon.shared.rule.SimpleRuleExpression}
+ * into a {@link CompiledExpression}.
+ *
+ * <p>The compiler follows the recursive decomposition of
+ * {@link Parser#eval(Object[])} step by step, so the resulting tree has exactly
+ * the structure the interpreter would use (including its right-associative
+ * handling of operators and its unary operator rules). As the structure only
+ * depends on the tokens, it is computed once instead of on every evaluation.
+ *
+ * <p>Expressions on which the interpreter always fails, or which use the
+ * {@link RuleConstant#INVALID_KEYWORD}, are not compiled.
+ */
+public final class RuleCompiler {
+
+  private RuleCompiler() {
+  }
+
+  /**
+   * @param tokens the tokens of the rule expression
+   * @return the compiled expression, or {@code null} if the expression has to
+   *         be interpreted
+   */
+  public static CompiledExpression compile(final Object[] tokens) {
+    for (Object token : tokens) {
+      if (RuleConstant.INVALID_KEYWORD.toString().equals(token)) {
+        return null;
+      }
+    }
+    Map<Long, Integer> slots = new LinkedHashMap<>();
+    try {
+      ExpressionNode root = compile(tokens, slots);
+      return new CompiledExpression(root, slots.keySet().toArray(new Long[slots.size()]));
+    } catch (RuntimeException e) {
+      // the interpreter fails on this expression whatever the input values
+      return null;
+    }
+  }
+
+  private static ExpressionNode compile(final Object[] token, final Map<Long, Integer> slots) {
+    Parser parser = Parser.getInstance();
+    if (!parser.isParenthesisBalanced(token)) {
+      throw new IllegalArgumentException("Parenthesis not balanced");
+    }
+
+    if (token.length == 1) {
+      return leaf(token[0], slots);
+    }
+
+    Object[] x = parser.extractExpressionFromTheLeft(token);
+
+    // "(" expression ")"
+    if (token[0] instanceof String && token[token.length - 1] instanceof String
+        && x.length == token.length - 2
+        && token[0].equals("(") && token[token.length - 1].equals(")")) {
+      return compile(x, slots);
+    }
+
+    // unary operators
+    if (x.length == token.length) {
+      ExpressionNode operand = compile(Arrays.copyOfRange(x, 1, x.length), slots);
+      if ("!".equals(x[0])) {
+        return new ExpressionNode.Not(operand);
+      } else if ("-".equals(x[0])) {
+        return new ExpressionNode.Negation(operand);
+      }
+      throw new IllegalArgumentException("Unknown unary operator " + x[0]);
+    }
+
+    int operatorIndex = ("(".equals(token[0]) ? (x.length + 2) : x.length);
+    Operator operator = Operator.fromString((String) token[operatorIndex]);
+    if (operator == null) {
+      throw new IllegalArgumentException("Unknown operator " + token[operatorIndex]);
+    }
+    Object[] y = Arrays.copyOfRange(token, operatorIndex + 1, token.length);
+
+    ExpressionNode left = compile(x, slots);
+    ExpressionNode right = compile(y, slots);
+
+    switch (operator) {
+      case ADDITION:
+      case SUBTRACTION:
+      case MULTIPLICATION:
+      case DIVISION:
+      case RAISE_TO_POWER:
+        return new ExpressionNode.Arithmetic(operator, left, right);
+      case BITWISE_AND:
+      case BITWISE_OR:
+        return new ExpressionNode.Bitwise(operator, left, right);
+      case LOGICAL_AND:
+      case LOGICAL_OR:
+        return new ExpressionNode.Logical(operator, left, right);
+      case EQUALS_COMPARISON:
+      case NOT_EQUALS_COMPARISON:
+        return new ExpressionNode.Equality(operator, left, right);
+      default:
+        return new ExpressionNode.Comparison(operator, left, right);
+    }
+  }
+
+  private static ExpressionNode leaf(final Object token, final Map<Long, Integer> slots) {
+    if (token instanceof RuleInputTagId) {
+      Long tagId = ((RuleInputTagId) token).getId();
+      Integer slot = slots.get(tagId);
+      if (slot == null) {
+        slot = slots.size();
+        slots.put(tagId, slot);
+      }
+      return new ExpressionNode.Input(slot);
+    }
+    if (token == null) {
+      throw new IllegalArgumentException("Null token");
+    }
+    return new ExpressionNode.Constant(token);
+  }
+}
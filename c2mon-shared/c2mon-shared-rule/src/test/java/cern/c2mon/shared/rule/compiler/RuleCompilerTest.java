@@ -0,0 +1,257 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.IConditionedRule;
+import cern.c2mon.shared.rule.IRuleCondition;
+import cern.c2mon.shared.rule.RuleExpression;
+import cern.c2mon.shared.rule.SimpleRuleExpression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential test of the compiled rule expressions against the
+ * interpreter, using the rules of the test database extract and random input
+ * values.
+ */
+public class RuleCompilerTest {
+
+  /** XML with rules, extracted from the database */
+  private static final String XML_PATH = "rules.xml";
+
+  private static final int INPUT_SETS_PER_EXPRESSION = 50;
+
+  private static List<SimpleRuleExpression> expressions;
+
+  @BeforeClass
+  public static void loadRules() throws Exception {
+    expressions = new ArrayList<>();
+    for (RuleExpression rule : RuleExpression.createExpressionFromDatabaseXML(
+        new ClassPathResource(XML_PATH).getFile().getAbsolutePath())) {
+      collectSimpleExpressions(rule, expressions);
+    }
+  }
+
+  @Test
+  public void mostDatabaseRulesAreCompiled() {
+    int compiled = 0;
+    for (SimpleRuleExpression expression : expressions) {
+      if (expression.getCompiledExpression() != null) {
+        compiled++;
+      }
+    }
+    assertTrue("Only " + compiled + " of " + expressions.size() + " expressions compiled",
+        compiled > expressions.size() * 0.95);
+  }
+
+  @Test
+  public void databaseRulesMatchInterpreter() {
+    Random random = new Random(42);
+    for (SimpleRuleExpression expression : expressions) {
+      for (int i = 0; i < INPUT_SETS_PER_EXPRESSION; i++) {
+        assertSameOutcome(expression, randomInputs(expression, random));
+      }
+    }
+  }
+
+  @Test
+  public void handWrittenRulesMatchInterpreter() throws Exception {
+    String[] rules = {
+        "2 * 3 + 1",
+        "(2 * 3) + 1",
+        "#1 - #2 - #3",
+        "#1 / #2",
+        "#1 ^ 2",
+        "#1 && 6",
+        "#1 || #2",
+        "-(#1)",
+        "-(#1 + 2) * 3",
+        "!(#1 = 2) & true",
+        "!(#1)",
+        "!(#1 + 1)",
+        "#1 > #2",
+        "#1 < \"B\"",
+        "#1 <= #2",
+        "#1 = \"ON\" | #2 = \"OFF\"",
+        "(#1 = 1) != (#2 = 1)",
+        "(#1 + 1) = #2",
+        "#1 = (#2 > 1)",
+        "#1",
+        "true",
+        "((#1 > 2) & (#2 < 3)) | (#3 = true)",
+        "#1 + ",
+        "(#1 + 2",
+        "#1 #2",
+        "#1 = $INVALID",
+    };
+    Random random = new Random(7);
+    for (String rule : rules) {
+      SimpleRuleExpression expression = new SimpleRuleExpression(rule);
+      for (int i = 0; i < INPUT_SETS_PER_EXPRESSION; i++) {
+        assertSameOutcome(expression, randomInputs(expression, random));
+      }
+    }
+  }
+
+  @Test
+  public void interpreterOperatorAssociativityIsKept() throws Exception {
+    SimpleRuleExpression expression = new SimpleRuleExpression("2 * 3 + 1");
+    assertNotNull(expression.getCompiledExpression());
+    assertEquals(8.0d, expression.evaluate(new HashMap<Long, Object>()));
+  }
+
+  @Test
+  public void bitwiseOperatorsUseLongValues() throws Exception {
+    SimpleRuleExpression expression = new SimpleRuleExpression("#1 && 9007199254740993");
+    Map<Long, Object> inputs = new HashMap<>();
+    inputs.put(1L, 9007199254740993L);
+    assertEquals(expression.interpret(inputs), expression.evaluate(inputs));
+  }
+
+  @Test
+  public void invalidKeywordIsNotCompiled() throws Exception {
+    assertNull(new SimpleRuleExpression("#1 = $INVALID").getCompiledExpression());
+  }
+
+  @Test
+  public void inputSlotsFollowTagOrder() throws Exception {
+    CompiledExpression compiled = new SimpleRuleExpression("(#3 > #1) & (#1 < #2)").getCompiledExpression();
+    assertEquals(3, compiled.getInputCount());
+    assertEquals(Long.valueOf(3L), compiled.getInputTagId(0));
+    assertEquals(Long.valueOf(1L), compiled.getInputTagId(1));
+    assertEquals(Long.valueOf(2L), compiled.getInputTagId(2));
+    assertEquals(Boolean.TRUE, compiled.evaluate(new Object[] {5, 1, 2}, false));
+  }
+
+  @Test
+  public void unsupportedInputsFallBack() throws Exception {
+    CompiledExpression compiled = new SimpleRuleExpression("#1 + 1").getCompiledExpression();
+    assertNull(compiled.evaluate(new Object[] {"ON"}, false));
+    assertNull(compiled.evaluate(new Object[] {new TestInputValue(1L, 1, false)}, false));
+    assertEquals(2.0d, compiled.evaluate(new Object[] {new TestInputValue(1L, 1, false)}, true));
+    assertNull(compiled.evaluate(new Object[] {null}, false));
+  }
+
+  private static void assertSameOutcome(final SimpleRuleExpression expression, final Map<Long, Object> inputs) {
+    String description = expression.getExpression() + " with " + inputs;
+    assertEquals(description, evaluate(expression, inputs, false), evaluate(expression, inputs, true));
+    assertEquals("Forced: " + description, expression.forceInterpret(inputs), expression.forceEvaluate(inputs));
+  }
+
+  /**
+   * @return the result, or a description of the exception thrown
+   */
+  private static Object evaluate(final SimpleRuleExpression expression, final Map<Long, Object> inputs,
+                                 final boolean compiled) {
+    try {
+      return (compiled ? expression.evaluate(inputs) : expression.interpret(inputs));
+    } catch (Exception e) {
+      return e.getClass().getName() + ": " + e.getMessage();
+    }
+  }
+
+  private static Map<Long, Object> randomInputs(final SimpleRuleExpression expression, final Random random) {
+    Map<Long, Object> inputs = new HashMap<>();
+    for (Long tagId : expression.getInputTagIds()) {
+      int choice = random.nextInt(100);
+      if (choice < 30) {
+        inputs.put(tagId, random.nextInt(5));
+      } else if (choice < 50) {
+        inputs.put(tagId, random.nextBoolean());
+      } else if (choice < 65) {
+        inputs.put(tagId, random.nextInt(20) * 0.001d);
+      } else if (choice < 70) {
+        inputs.put(tagId, (long) random.nextInt(5));
+      } else if (choice < 75) {
+        inputs.put(tagId, (random.nextBoolean() ? "ON" : "OFF"));
+      } else if (choice < 77) {
+        inputs.put(tagId, (random.nextBoolean() ? "(" : "-"));
+      } else if (choice < 80) {
+        inputs.put(tagId, new TestInputValue(tagId, random.nextInt(5), false));
+      } else if (choice < 82) {
+        inputs.put(tagId, new TestInputValue(tagId, null, true));
+      } else if (choice < 83) {
+        // input missing
+      } else {
+        inputs.put(tagId, new TestInputValue(tagId, random.nextInt(5), true));
+      }
+    }
+    return inputs;
+  }
+
+  private static void collectSimpleExpressions(final Object expression, final List<SimpleRuleExpression> result)
+      throws Exception {
+    if (expression instanceof SimpleRuleExpression) {
+      result.add((SimpleRuleExpression) expression);
+    } else if (expression instanceof IConditionedRule) {
+      for (IRuleCondition condition : ((IConditionedRule) expression).getConditions()) {
+        collectSimpleExpressions(condition, result);
+      }
+    } else if (expression instanceof IRuleCondition) {
+      result.add(new SimpleRuleExpression(((IRuleCondition) expression).getExpression()));
+    }
+  }
+
+  private static final class TestInputValue implements RuleInputValue {
+
+    private final Long id;
+
+    private final Object value;
+
+    private final boolean valid;
+
+    TestInputValue(final Long id, final Object value, final boolean valid) {
+      this.id = id;
+      this.value = value;
+      this.valid = valid;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public Object getValue() {
+      return value;
+    }
+
+    @Override
+    public boolean isValid() {
+      return valid;
+    }
+
+    @Override
+    public String toString() {
+      return "#" + id + "=" + value + (valid ? "" : "(invalid)");
+    }
+  }
+}
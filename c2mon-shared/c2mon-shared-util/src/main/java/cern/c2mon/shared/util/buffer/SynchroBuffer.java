@@ -23,6 +23,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +80,21 @@ public class SynchroBuffer {
   /** The buffer */
   private List buffer = null;
   private Map bufferMap = null;
+
+  /**
+   * One slot per key, only used with the DUPLICATE_COALESCE policy. Pushing
+   * into it does not take the buffer lock.
+   */
+  private ConcurrentHashMap<Object, Object> coalescingMap = null;
+
+  /** Extracts the coalescing key of a pushed object (DUPLICATE_COALESCE only) */
+  private Function<Object, ?> keyFunction = null;
+
+  /** Number of objects pushed into the buffer */
+  private final AtomicLong pushCount = new AtomicLong();
+
+  /** Number of objects which overwrote a not yet fired object with the same key */
+  private final AtomicLong coalescedCount = new AtomicLong();
   
   /** Allows object duplication.
    */
@@ -87,6 +105,10 @@ public class SynchroBuffer {
   /** Discards duplicated objects.
    */
   public static final int DUPLICATE_DISCARD = 3;
+  /** Keeps only the last object pushed for a given key (last value wins).
+   * Requires a key function, see {@link #SynchroBuffer(String, long, long, int, Function)}.
+   */
+  public static final int DUPLICATE_COALESCE = 4;
   
 
   /**
@@ -107,7 +129,7 @@ public class SynchroBuffer {
         LOGGER.warn("...switching duplicate policy to DUPLICATE_OK");
     }
     init("", minWindowSize, maxWindowSize, windowGrowthFactor, SynchroBuffer.DUPLICATE_OK, capacity, daemon);
-}
+  }
   
   /**
    * Constructor. The duplicate policy is set as DUPLICATE_OK, since the maximum capacity feature
@@ -146,6 +168,25 @@ public class SynchroBuffer {
     init(name, minWindowSize, maxWindowSize, windowGrowthFactor, duplicatePolicy, SynchroBuffer.INFINITE_CAPACITY, false);
   }
 
+  /** Constructor for a coalescing buffer (DUPLICATE_COALESCE policy). Between two
+   * firings only the last object pushed for a given key is kept, all older ones are
+   * dropped. Pushing does not block on the buffer lock. The order in which the objects
+   * are pulled is undefined.
+   * @param name the name/description of the usage of the buffer
+   * @param minWindowSize the buffer window min size (msec)
+   * @param maxWindowSize the buffer window max size (msec)
+   * @param windowGrowthFactor the buffer window growth factor (size = minWindowSize + msg/sec x windowGrowthFactor)
+   * @param keyFunction returns the key of a pushed object; must not return null
+   */
+  public SynchroBuffer(String name, long minWindowSize, long maxWindowSize, int windowGrowthFactor, Function<Object, ?> keyFunction) {
+    if (keyFunction == null) {
+      throw new IllegalArgumentException("a key function is required by the DUPLICATE_COALESCE policy");
+    }
+    this.keyFunction = keyFunction;
+    this.coalescingMap = new ConcurrentHashMap<>();
+    init(name, minWindowSize, maxWindowSize, windowGrowthFactor, SynchroBuffer.DUPLICATE_COALESCE, SynchroBuffer.INFINITE_CAPACITY, false);
+  }
+
   /** Default constructor. Initialisation is made via properties.
    * It reads the configuration from the resource config file specified via the system 
    * property <code>syncrobuffer.properties</code>. If not defined, it looks for the default config file 
@@ -178,7 +219,8 @@ public class SynchroBuffer {
    */
   private void init(String name, long minSize, long maxSize, int growthFactor, int policy, int capacity, boolean daemon) {
     LOGGER.debug("SynchroBuffer[minWindowSize=" + minSize + ",maxWindowSize=" + maxSize + ",windowGrowthFactor=" + growthFactor
-                + ",duplicatePolicy=" + (policy == SynchroBuffer.DUPLICATE_DISCARD ? "DUPLICATE_DISCARD" : (policy == SynchroBuffer.DUPLICATE_REPLACE ? "DUPLICATE_REPLACE" : "DUPLICATE_OK"))
+                + ",duplicatePolicy=" + (policy == SynchroBuffer.DUPLICATE_DISCARD ? "DUPLICATE_DISCARD" : (policy == SynchroBuffer.DUPLICATE_REPLACE ? "DUPLICATE_REPLACE"
+                    : (policy == SynchroBuffer.DUPLICATE_COALESCE ? "DUPLICATE_COALESCE" : "DUPLICATE_OK")))
                 + ", capacity=" + (capacity == SynchroBuffer.INFINITE_CAPACITY ? "INFINITE_CAPACITY" : Integer.toString(capacity))
                 + ", daemon thread=" + daemon + "]");
     if ( (minSize <= 0) || (maxSize <= 0) || (growthFactor <= 0) ) {
@@ -204,10 +246,14 @@ public class SynchroBuffer {
 //          return 0;
     setFiring(true);
     Collection pulled = null;
-    synchronized(buffer) {
-      pulled = (Collection) ((ArrayList)buffer).clone();
-      buffer.clear();
-      bufferMap.clear();
+    if (duplicatePolicy == SynchroBuffer.DUPLICATE_COALESCE) {
+      pulled = drainCoalescingMap();
+    } else {
+      synchronized(buffer) {
+        pulled = (Collection) ((ArrayList)buffer).clone();
+        buffer.clear();
+        bufferMap.clear();
+      }
     }
     long time_before = System.currentTimeMillis();
     if (listener != null) {
@@ -225,12 +271,29 @@ public class SynchroBuffer {
     
     return time_elapsed;
   }
+
+  /**
+   * Removes all objects from the coalescing map. An object pushed concurrently
+   * is either pulled now or left in the map for the next firing, never lost.
+   * @return the removed objects
+   */
+  private Collection drainCoalescingMap() {
+    List pulled = new ArrayList(coalescingMap.size());
+    for (Object key : coalescingMap.keySet()) {
+      Object object = coalescingMap.remove(key);
+      if (object != null) {
+        pulled.add(object);
+      }
+    }
+    return pulled;
+  }
     
   /** Push an object into the buffer. 
    * If the duplicate policy is DUPLICATE_DISCARD the object is discarded if the buffer already contains it. 
    * If the duplicate policy is DUPLICATE_REPLACE the object replaces any previously pushed duplicated instance. 
+   * If the duplicate policy is DUPLICATE_COALESCE the object replaces any previously pushed object with the same key.
    * The object is appended otherwise.
-   * <code>equals</code> method is used to determine duplications.
+   * <code>equals</code> method is used to determine duplications (applied to the key for DUPLICATE_COALESCE).
    * @param o the object to push
    */
   public void push(Object object) {
@@ -238,7 +301,15 @@ public class SynchroBuffer {
       LOGGER.debug("synchro isClosed - eXception");
       throw new IllegalArgumentException("buffer closed");
     }
-    
+
+    pushCount.incrementAndGet();
+    if (duplicatePolicy == SynchroBuffer.DUPLICATE_COALESCE) {
+      if (coalescingMap.put(keyFunction.apply(object), object) != null) {
+        coalescedCount.incrementAndGet();
+      }
+      return;
+    }
+
     boolean objectAdded = false;
     synchronized(buffer) {
       switch (duplicatePolicy) {
@@ -302,7 +373,16 @@ public class SynchroBuffer {
       LOGGER.debug("synchrocol isClosed - Exception");
       throw new IllegalArgumentException("buffer closed");
     }
+    if (duplicatePolicy == SynchroBuffer.DUPLICATE_COALESCE) {
+      if (collection != null) {
+        for (Object object : collection) {
+          push(object);
+        }
+      }
+      return;
+    }
     if ( (collection != null) && (collection.size() != 0) ) {
+      pushCount.addAndGet(collection.size());
       synchronized(buffer) {
         if ( (duplicatePolicy != SynchroBuffer.DUPLICATE_DISCARD) && (duplicatePolicy != SynchroBuffer.DUPLICATE_REPLACE) ) {
             buffer.addAll(collection);            
@@ -364,6 +444,9 @@ public class SynchroBuffer {
   }
     
   private boolean isEmpty() {
+    if (duplicatePolicy == SynchroBuffer.DUPLICATE_COALESCE) {
+      return coalescingMap.isEmpty();
+    }
     synchronized(buffer) {
       return buffer.isEmpty();
     }
@@ -382,6 +465,9 @@ public class SynchroBuffer {
    * @return the current size of the buffer
    */
   public final int getSize() {
+      if (duplicatePolicy == SynchroBuffer.DUPLICATE_COALESCE) {
+          return coalescingMap.size();
+      }
       synchronized (buffer) {
           return buffer.size();
       }
@@ -391,12 +477,31 @@ public class SynchroBuffer {
    * Empties the SynchroBuffer of all it's current content.
    */
   public final void empty() {
+      if (duplicatePolicy == SynchroBuffer.DUPLICATE_COALESCE) {
+          coalescingMap.clear();
+      }
       synchronized (buffer) {
           buffer.clear();
           bufferMap.clear();
       }
   }
 
+  /**
+   * @return the total number of objects pushed into the buffer
+   */
+  public final long getPushCount() {
+      return pushCount.get();
+  }
+
+  /**
+   * @return the number of pushed objects which were dropped because a newer
+   *         object with the same key was pushed before the buffer fired
+   *         (always 0 unless the policy is DUPLICATE_COALESCE)
+   */
+  public final long getCoalescedCount() {
+      return coalescedCount.get();
+  }
+
   /** 
    * Close the buffer and deallocate resources. Waits for the
    * buffer to empty in all cases. Empty the buffer first if
@@ -434,7 +539,7 @@ public class SynchroBuffer {
       LOGGER.debug("synchro checkingThread");
       while ( (!isClosed()) || (!isEmpty() && isEnabled()) ) {
         if (isEnabled()) {
-            objects_per_sec = (1000 * buffer.size()) / (wait_time + firing_time);
+          objects_per_sec = (1000 * getSize()) / (wait_time + firing_time);
           calculated_window_size = minWindowSize + ((long)(windowGrowthFactor * objects_per_sec));
           wait_time = ( (calculated_window_size < maxWindowSize) ? calculated_window_size : maxWindowSize );
           firing_time = fire();
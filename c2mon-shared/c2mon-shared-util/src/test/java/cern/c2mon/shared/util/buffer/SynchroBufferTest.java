@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.util.buffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SynchroBufferTest {
+
+  /**
+   * Class to test.
+   */
+  private SynchroBuffer buffer;
+
+  /**
+   * Objects received by the listener, in pull order.
+   */
+  private final List<Object> pulled = new ArrayList<>();
+
+  private CountDownLatch pullLatch;
+
+  @Before
+  public void setUp() {
+    buffer = new SynchroBuffer("test", 50, 100, 1, object -> ((String) object).substring(0, 1));
+    pullLatch = new CountDownLatch(1);
+    buffer.setSynchroBufferListener(event -> {
+      synchronized (pulled) {
+        pulled.addAll(event.getPulled());
+      }
+      pullLatch.countDown();
+    });
+  }
+
+  @After
+  public void tearDown() {
+    buffer.close();
+  }
+
+  @Test
+  public void testLastValueWins() throws InterruptedException {
+    buffer.push("a1");
+    buffer.push("b1");
+    buffer.push("a2");
+    buffer.push((Collection) Arrays.asList("a3", "b2", "c1"));
+    assertEquals(3, buffer.getSize());
+
+    buffer.enable();
+    assertTrue(pullLatch.await(1, TimeUnit.SECONDS));
+
+    synchronized (pulled) {
+      assertEquals(3, pulled.size());
+      assertTrue(pulled.containsAll(Arrays.asList("a3", "b2", "c1")));
+    }
+    assertEquals(6, buffer.getPushCount());
+    assertEquals(3, buffer.getCoalescedCount());
+  }
+
+  @Test
+  public void testValuesAreNotCoalescedAcrossFirings() throws InterruptedException {
+    buffer.enable();
+    buffer.push("a1");
+    assertTrue(pullLatch.await(1, TimeUnit.SECONDS));
+
+    pullLatch = new CountDownLatch(1);
+    buffer.push("a2");
+    assertTrue(pullLatch.await(1, TimeUnit.SECONDS));
+
+    synchronized (pulled) {
+      assertEquals(Arrays.asList("a1", "a2"), pulled);
+    }
+    assertEquals(0, buffer.getCoalescedCount());
+  }
+
+  @Test
+  public void testEmpty() {
+    buffer.push("a1");
+    buffer.push("b1");
+    buffer.empty();
+    assertEquals(0, buffer.getSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKeyFunctionIsRequired() {
+    new SynchroBuffer("test", 50, 100, 1, null);
+  }
+}